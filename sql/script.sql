@@ -11,7 +11,10 @@ CREATE TABLE user
     `email`    VARCHAR(150) DEFAULT NULL UNIQUE,
     `password` VARCHAR(255) DEFAULT NULL,
     `profile_image_url` VARCHAR(255) DEFAULT NULL,
-    `balance` DOUBLE DEFAULT NULL
+    `balance` BIGINT NOT NULL DEFAULT 0, -- centimes d'euro
+    `ledger_position` BIGINT NOT NULL DEFAULT 0,
+    -- recherche de relations par préfixe de nom, triée par email
+    INDEX `idx_user_profile_name` (`profile_name`, `email`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- Table connection
@@ -22,6 +25,7 @@ CREATE TABLE connection
     `connection_id` BIGINT NOT NULL,
     PRIMARY KEY (`user_id`, `connection_id`),
     UNIQUE (`user_id`, `connection_id`),
+    INDEX `idx_connection_reverse` (`connection_id`, `user_id`),
     FOREIGN KEY (`user_id`) REFERENCES user (`id`) ON DELETE CASCADE,
     FOREIGN KEY (`connection_id`) REFERENCES user (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
@@ -34,30 +38,146 @@ CREATE TABLE transaction
     `sender_id`     BIGINT DEFAULT NULL,
     `receiver_id`   BIGINT DEFAULT NULL,
     `description`   VARCHAR(255) DEFAULT NULL,
-    `amount`        DOUBLE DEFAULT NULL,
-    `fee`        DOUBLE DEFAULT NULL,
+    `amount`        BIGINT NOT NULL DEFAULT 0, -- unités mineures de `currency`
+    `fee`        BIGINT DEFAULT NULL, -- centimes d'euro
     `execution_date` TIMESTAMP,
     `currency`        VARCHAR(5) DEFAULT NULL,
     FOREIGN KEY (`sender_id`) REFERENCES user (`id`) ON DELETE CASCADE,
-    FOREIGN KEY (`receiver_id`) REFERENCES user (`id`) ON DELETE CASCADE
+    FOREIGN KEY (`receiver_id`) REFERENCES user (`id`) ON DELETE CASCADE,
+    -- historique par utilisateur : une branche par index, déjà triée par date (id implicite en fin d'index)
+    INDEX `idx_transaction_sender_date` (`sender_id`, `execution_date`),
+    INDEX `idx_transaction_receiver_date` (`receiver_id`, `execution_date`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
--- View historic
-CREATE VIEW historic AS
-SELECT
-    tr.id,
-    tr.sender_id,
-    sed.profile_name AS sender_profile_name,
-    tr.receiver_id,
-    rec.profile_name AS receiver_profile_name,
-    tr.description,
-    tr.amount,
-    tr.fee,
-    tr.currency,
-    tr.execution_date
-FROM transaction tr
-         INNER JOIN user sed ON tr.sender_id = sed.id
-         INNER JOIN user rec ON tr.receiver_id = rec.id;
+-- Table ledger_entry (grand livre en partie double, insertions uniquement)
+DROP TABLE IF EXISTS `ledger_entry`;
+CREATE TABLE ledger_entry
+(
+    `id`             BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `user_id`        BIGINT DEFAULT NULL,
+    `account`        VARCHAR(10) NOT NULL,
+    `entry_type`     VARCHAR(10) NOT NULL,
+    `direction`      VARCHAR(6) NOT NULL,
+    `amount`         BIGINT NOT NULL, -- centimes d'euro
+    `transaction_id` BIGINT DEFAULT NULL,
+    `created_at`     TIMESTAMP NOT NULL,
+    `sub_balance_slot` INT DEFAULT NULL, -- sous-solde crédité (compte très sollicité)
+    INDEX `idx_ledger_entry_user` (`user_id`, `id`),
+    INDEX `idx_ledger_entry_transaction` (`transaction_id`),
+    FOREIGN KEY (`user_id`) REFERENCES user (`id`) ON DELETE CASCADE,
+    FOREIGN KEY (`transaction_id`) REFERENCES transaction (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+-- Table user_sub_balance (sous-soldes des comptes très sollicités en réception)
+DROP TABLE IF EXISTS `user_sub_balance`;
+CREATE TABLE user_sub_balance
+(
+    `id`              BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `user_id`         BIGINT NOT NULL,
+    `slot`            INT NOT NULL,
+    `balance`         BIGINT NOT NULL DEFAULT 0, -- centimes d'euro
+    `ledger_position` BIGINT NOT NULL DEFAULT 0,
+    UNIQUE KEY `uk_sub_balance_user_slot` (`user_id`, `slot`),
+    FOREIGN KEY (`user_id`) REFERENCES user (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+-- Table fee_rule (barème de frais ; vide = 0,5 % sur tous les virements)
+DROP TABLE IF EXISTS `fee_rule`;
+CREATE TABLE fee_rule
+(
+    `id`           BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `currency`     VARCHAR(3) DEFAULT NULL, -- devise d'origine, NULL = toutes devises
+    `min_amount`   BIGINT NOT NULL DEFAULT 0, -- centimes d'euro
+    `basis_points` BIGINT NOT NULL,
+    `min_fee`      BIGINT NOT NULL DEFAULT 0, -- centimes d'euro
+    `max_fee`      BIGINT DEFAULT NULL -- centimes d'euro, NULL = sans plafond
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+-- Table top_up_import (point de reprise des imports de rechargements en masse)
+DROP TABLE IF EXISTS `top_up_import`;
+CREATE TABLE top_up_import
+(
+    `id`              BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `import_key`      VARCHAR(100) NOT NULL,
+    `status`          VARCHAR(10) NOT NULL,
+    `committed_lines` BIGINT NOT NULL DEFAULT 0,
+    `credited`        BIGINT NOT NULL DEFAULT 0,
+    `rejected`        BIGINT NOT NULL DEFAULT 0,
+    `credited_amount` BIGINT NOT NULL DEFAULT 0, -- centimes d'euro
+    `updated_at`      TIMESTAMP NOT NULL,
+    UNIQUE KEY `uk_top_up_import_key` (`import_key`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+-- Table scheduled_transfer (virements programmés et ordres permanents)
+DROP TABLE IF EXISTS `scheduled_transfer`;
+CREATE TABLE scheduled_transfer
+(
+    `id`           BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `sender_id`    BIGINT NOT NULL,
+    `receiver_id`  BIGINT NOT NULL,
+    `amount`       BIGINT NOT NULL, -- unités mineures de la devise
+    `currency`     VARCHAR(3) NOT NULL,
+    `description`  VARCHAR(255) DEFAULT NULL,
+    `frequency`    VARCHAR(10) NOT NULL,
+    `first_run_at` DATETIME NOT NULL,
+    `run_count`    INT NOT NULL DEFAULT 0,
+    `next_run_at`  DATETIME NOT NULL,
+    `active`       BOOLEAN NOT NULL DEFAULT TRUE,
+    `last_run_at`  DATETIME DEFAULT NULL,
+    `last_status`  VARCHAR(10) DEFAULT NULL,
+    `last_message` VARCHAR(255) DEFAULT NULL,
+    FOREIGN KEY (`sender_id`) REFERENCES user (`id`) ON DELETE CASCADE,
+    FOREIGN KEY (`receiver_id`) REFERENCES user (`id`) ON DELETE CASCADE,
+    INDEX `idx_scheduled_transfer_due` (`active`, `next_run_at`),
+    INDEX `idx_scheduled_transfer_sender` (`sender_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+-- Table transaction_history (historique dénormalisé : écrit avec chaque virement, noms de profil recopiés)
+DROP TABLE IF EXISTS `transaction_history`;
+CREATE TABLE transaction_history
+(
+    `id`                    BIGINT NOT NULL PRIMARY KEY, -- id de la transaction
+    `sender_id`             BIGINT NOT NULL,
+    `sender_profile_name`   VARCHAR(100) DEFAULT NULL,
+    `receiver_id`           BIGINT NOT NULL,
+    `receiver_profile_name` VARCHAR(100) DEFAULT NULL,
+    `description`           VARCHAR(255) DEFAULT NULL,
+    `amount`                BIGINT NOT NULL DEFAULT 0, -- unités mineures de `currency`
+    `fee`                   BIGINT DEFAULT NULL, -- centimes d'euro
+    `currency`              VARCHAR(5) DEFAULT NULL,
+    `execution_date`        TIMESTAMP NOT NULL,
+    FOREIGN KEY (`id`) REFERENCES transaction (`id`) ON DELETE CASCADE,
+    INDEX `idx_history_sender_date` (`sender_id`, `execution_date`),
+    INDEX `idx_history_receiver_date` (`receiver_id`, `execution_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+-- Table profile_name_change (changements de nom de profil à recopier dans transaction_history)
+DROP TABLE IF EXISTS `profile_name_change`;
+CREATE TABLE profile_name_change
+(
+    `user_id`      BIGINT NOT NULL PRIMARY KEY,
+    `profile_name` VARCHAR(100) DEFAULT NULL,
+    `changed_at`   TIMESTAMP(6) NOT NULL,
+    FOREIGN KEY (`user_id`) REFERENCES user (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+-- Table idempotency_record (résultats des requêtes rejouées via l'en-tête Idempotency-Key)
+DROP TABLE IF EXISTS `idempotency_record`;
+CREATE TABLE idempotency_record
+(
+    `id`              BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `user_email`      VARCHAR(150) NOT NULL,
+    `idempotency_key` VARCHAR(100) NOT NULL,
+    `operation`       VARCHAR(20) NOT NULL,
+    `status`          VARCHAR(10) NOT NULL,
+    `response`        VARCHAR(500) DEFAULT NULL,
+    `created_at`      TIMESTAMP NOT NULL,
+    UNIQUE KEY `uk_idempotency_user_key` (`user_email`, `idempotency_key`),
+    INDEX `idx_idempotency_created_at` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+-- Ancienne vue historic, remplacée par la table transaction_history
+DROP VIEW IF EXISTS historic;
 
 
 
@@ -65,10 +185,10 @@ FROM transaction tr
 -- Insertion user
 INSERT INTO user (profile_name, email, password, profile_image_url, balance)
 VALUES
-    ('John', 'john@gmail.com', 'John#123', NULL, 100.00),
-    ('Laure', 'laure@gmail.com', 'Laure#123', NULL, 150.00),
-    ('Clara', 'clara@gmail.com', 'Clara#123', NULL, 200.00),
-    ('Luc', 'luc@gmail.com', 'Luc#123', NULL, 250.00);
+    ('John', 'john@gmail.com', 'John#123', NULL, 10000),
+    ('Laure', 'laure@gmail.com', 'Laure#123', NULL, 15000),
+    ('Clara', 'clara@gmail.com', 'Clara#123', NULL, 20000),
+    ('Luc', 'luc@gmail.com', 'Luc#123', NULL, 25000);
 
 
 -- John est connecté à Laure et Clara
@@ -82,11 +202,19 @@ VALUES (2, 4);
 -- Transactions entre users
 INSERT INTO transaction (sender_id, receiver_id, description, amount, fee, execution_date, currency)
 VALUES
-    (1, 2, 'Remboursement café', 5.00, 0.05, NOW(), 'EUR'),
-    (1, 3, 'Participation déjeuner', 12.50, 0.10, NOW(), 'EUR'),
-    (2, 4, 'Achat billet concert', 30.00, 0.30, NOW(), 'EUR'),
-    (3, 1, 'Partage de covoiturage', 7.75, 0.08, NOW(), 'EUR');
+    (1, 2, 'Remboursement café', 500, 5, NOW(), 'EUR'),
+    (1, 3, 'Participation déjeuner', 1250, 10, NOW(), 'EUR'),
+    (2, 4, 'Achat billet concert', 3000, 30, NOW(), 'EUR'),
+    (3, 1, 'Partage de covoiturage', 775, 8, NOW(), 'EUR');
+
+-- Historique des transactions ci-dessus (fait par TransactionHistoryServiceImpl.backfill au démarrage sinon)
+INSERT INTO transaction_history (id, sender_id, sender_profile_name, receiver_id, receiver_profile_name,
+                                 description, amount, fee, currency, execution_date)
+SELECT tr.id, tr.sender_id, sed.profile_name, tr.receiver_id, rec.profile_name,
+       tr.description, tr.amount, tr.fee, tr.currency, tr.execution_date
+FROM transaction tr
+         INNER JOIN user sed ON tr.sender_id = sed.id
+         INNER JOIN user rec ON tr.receiver_id = rec.id;
 
--- tester la vue historic
-SELECT * FROM historic;
+SELECT * FROM transaction_history;
 
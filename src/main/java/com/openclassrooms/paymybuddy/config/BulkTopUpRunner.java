@@ -0,0 +1,58 @@
+package com.openclassrooms.paymybuddy.config;
+
+import com.openclassrooms.paymybuddy.dto.TopUpImportResult;
+import com.openclassrooms.paymybuddy.service.serviceImpl.BulkTopUpServiceImpl;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Import de rechargements en masse au démarrage, réservé à l'exploitation :
+ * java -jar paymybuddy.jar --spring.main.web-application-type=none --top-up.import.file=promo.csv
+ * Relancer la même commande reprend l'import là où il s'est arrêté (clé = nom du fichier par défaut).
+ * Les lignes refusées sont ajoutées à top-up.import.errors (par défaut fichier.errors.csv).
+ */
+@Component
+@ConditionalOnProperty(name = "top-up.import.file")
+@RequiredArgsConstructor
+@Slf4j
+public class BulkTopUpRunner implements ApplicationRunner {
+
+    private final BulkTopUpServiceImpl bulkTopUpService;
+
+    @Value("${top-up.import.file}")
+    private String file;
+
+    @Value("${top-up.import.key:}")
+    private String importKey;
+
+    @Value("${top-up.import.errors:}")
+    private String errors;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path csv = Path.of(file);
+        Path errorReport = Path.of(errors.isBlank() ? file + ".errors.csv" : errors);
+        String key = importKey.isBlank() ? csv.getFileName().toString() : importKey;
+
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             Writer writer = Files.newBufferedWriter(errorReport, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            TopUpImportResult result = bulkTopUpService.importCsv(key, reader, writer);
+            log.info("Import {} : {} ligne(s) traitée(s), {} rechargement(s) pour {} €, {} refus (voir {})",
+                    result.importKey(), result.committedLines(), result.credited(), result.creditedAmount(),
+                    result.rejected(), errorReport);
+        }
+    }
+}
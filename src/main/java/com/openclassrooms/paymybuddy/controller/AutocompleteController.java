@@ -0,0 +1,43 @@
+package com.openclassrooms.paymybuddy.controller;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.service.AutocompleteService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.List;
+
+// Suggestions servies depuis l'index en mémoire, au fil de la saisie
+@Controller
+@RequiredArgsConstructor
+@RequestMapping("/autocomplete")
+public class AutocompleteController {
+
+    private final AutocompleteService autocompleteService;
+
+    @GetMapping("/recipients")
+    @ResponseBody
+    public ResponseEntity<List<ConnectionCard>> suggestRecipients(@AuthenticationPrincipal UserDetails userDetails,
+                                                                  @RequestParam(defaultValue = "") String q,
+                                                                  @RequestParam(defaultValue = "10") int limit)
+            throws UserNotFoundException {
+        return ResponseEntity.ok(autocompleteService.suggestRecipients(userDetails.getUsername(), q, limit));
+    }
+
+    @GetMapping("/users")
+    @ResponseBody
+    public ResponseEntity<List<ConnectionCard>> suggestUsers(@AuthenticationPrincipal UserDetails userDetails,
+                                                             @RequestParam(defaultValue = "") String q,
+                                                             @RequestParam(defaultValue = "10") int limit)
+            throws UserNotFoundException {
+        return ResponseEntity.ok(autocompleteService.suggestUsers(userDetails.getUsername(), q, limit));
+    }
+}
@@ -2,6 +2,7 @@ package com.openclassrooms.paymybuddy.controller;
 
 import com.openclassrooms.paymybuddy.entity.User;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.service.serviceImpl.IdempotencyServiceImpl;
 import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -10,10 +11,12 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.math.BigDecimal;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
@@ -23,6 +26,7 @@ import java.nio.charset.StandardCharsets;
 public class BalanceController {
 
     private final TransactionServiceImpl transactionService;
+    private final IdempotencyServiceImpl idempotencyService;
 
     @GetMapping
     public String showAddBalancePage(
@@ -33,20 +37,25 @@ public class BalanceController {
         User currentUser = transactionService.getUserByTransactionEmail(email);
 
         model.addAttribute("user", currentUser);
-        model.addAttribute("currentBalance", currentUser.getBalance());
+        model.addAttribute("currentBalance", currentUser.getBalance().toBigDecimal());
         return "balance";
     }
 
     @PostMapping
     public String addBalance(
             @AuthenticationPrincipal UserDetails userDetails,
-            @RequestParam(required = false) Double amount,
+            @RequestParam(required = false) BigDecimal amount,
             @RequestParam(required = false) String randomAmount,
+            @RequestHeader(value = IdempotencyServiceImpl.HEADER, required = false) String idempotencyKey,
             RedirectAttributes redirectAttributes) {
 
             String email = userDetails.getUsername();
-            User updatedUser = transactionService.addBalance(email, amount, randomAmount);
-            String successMessage = transactionService.getFormattedBalanceUpdateMessage(updatedUser, amount);
+            // un rejeu (même Idempotency-Key, même montant) renvoie le message du premier rechargement sans recréditer
+            String request = (amount == null ? "" : amount.stripTrailingZeros().toPlainString()) + '\n' + randomAmount;
+            String successMessage = idempotencyService.execute(idempotencyKey, email, "TOP_UP", request, () -> {
+                User updatedUser = transactionService.addBalance(email, amount, randomAmount);
+                return transactionService.getFormattedBalanceUpdateMessage(updatedUser, amount);
+            });
 
             redirectAttributes.addFlashAttribute("success", successMessage);
 
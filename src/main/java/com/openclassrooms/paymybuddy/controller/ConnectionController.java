@@ -1,10 +1,14 @@
 package com.openclassrooms.paymybuddy.controller;
 
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
 import com.openclassrooms.paymybuddy.entity.User;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionSuggestionServiceImpl;
 import com.openclassrooms.paymybuddy.service.serviceImpl.UserConnectionServiceImpl;
 import com.openclassrooms.paymybuddy.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
@@ -19,6 +23,7 @@ public class ConnectionController {
 
     private final UserConnectionServiceImpl connectionService;
     private final UserService userService;
+    private final ConnectionSuggestionServiceImpl suggestionService;
 
     @GetMapping()
     public String showConnectionsPage(@AuthenticationPrincipal UserDetails userDetails, Model model) throws UserNotFoundException {
@@ -26,14 +31,24 @@ public class ConnectionController {
         String currentUserEmail = userDetails.getUsername();
         User currentUser = userService.getUserByEmail(currentUserEmail);
 
-        // Récupère les relations et connexions potentielles
+        // Récupère les relations ; les connexions potentielles sont cherchées au fil de la saisie (/search)
         model.addAttribute("relations", connectionService.getUserConnections(currentUserEmail));
-        model.addAttribute("potentialConnections", connectionService.getPotentialConnections(currentUserEmail));
+        model.addAttribute("suggestions", suggestionService.suggestConnections(currentUser.getId()));
         model.addAttribute("user", currentUser);
 
         return "addRelationship";
     }
 
+    @GetMapping("/search")
+    @ResponseBody
+    public ResponseEntity<CursorPage<ConnectionCard>> searchConnections(@AuthenticationPrincipal UserDetails userDetails,
+                                                                        @RequestParam(defaultValue = "") String q,
+                                                                        @RequestParam(required = false) String after,
+                                                                        @RequestParam(defaultValue = "10") int size)
+            throws UserNotFoundException {
+        return ResponseEntity.ok(connectionService.searchPotentialConnections(userDetails.getUsername(), q, after, size));
+    }
+
     @PostMapping("/add")
     public String addConnection(@RequestParam("email") String targetEmail, @AuthenticationPrincipal UserDetails userDetails,
                                 RedirectAttributes redirectAttributes) {
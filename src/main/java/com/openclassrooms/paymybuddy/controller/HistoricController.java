@@ -1,20 +1,20 @@
 package com.openclassrooms.paymybuddy.controller;
 
-import com.openclassrooms.paymybuddy.entity.Historic;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.dto.HistoricView;
 import com.openclassrooms.paymybuddy.entity.User;
 import com.openclassrooms.paymybuddy.service.serviceImpl.HistoricServiceImpl;
 import com.openclassrooms.utils.CurrencySymbols;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
-
-import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 @Controller
 @RequiredArgsConstructor
@@ -23,16 +23,20 @@ public class HistoricController {
 
     private final HistoricServiceImpl historicService;
 
+    // pagination par curseur : after -> page suivante (plus anciennes), before -> page précédente
     @GetMapping()
     public String showHistoric(@AuthenticationPrincipal UserDetails userDetails, Model model,
-                               @PageableDefault(size = 10) Pageable pageable) {
+                               @RequestParam(required = false) String after,
+                               @RequestParam(required = false) String before,
+                               @RequestParam(defaultValue = "10") int size) {
 
         String email = userDetails.getUsername();
         User user = historicService.getUserByEmail(email);
 
-        Page<Historic> historics = historicService.getUserHistoricPaginated(user.getId(), pageable);
+        CursorPage<HistoricView> historics = historicService.getUserHistoric(user.getId(), after, before, size);
 
         model.addAttribute("historics", historics);
+        model.addAttribute("pageSize", size);
         model.addAttribute("user", user);
         model.addAttribute("currencySymbols", CurrencySymbols.SYMBOLS);
         model.addAttribute("userId", user.getId());
@@ -40,4 +44,14 @@ public class HistoricController {
         return "historic";
     }
 
+    @GetMapping("/page")
+    @ResponseBody
+    public ResponseEntity<CursorPage<HistoricView>> getHistoricPage(@AuthenticationPrincipal UserDetails userDetails,
+                                                                @RequestParam(required = false) String after,
+                                                                @RequestParam(required = false) String before,
+                                                                @RequestParam(defaultValue = "10") int size) {
+        User user = historicService.getUserByEmail(userDetails.getUsername());
+        return ResponseEntity.ok(historicService.getUserHistoric(user.getId(), after, before, size));
+    }
+
 }
@@ -0,0 +1,52 @@
+package com.openclassrooms.paymybuddy.controller;
+
+import com.openclassrooms.paymybuddy.dto.ScheduledTransferRequest;
+import com.openclassrooms.paymybuddy.entity.ScheduledTransfer;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ScheduledTransferServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Virements programmés et ordres permanents de l'utilisateur connecté (API JSON)
+@Controller
+@RequestMapping("/transaction/scheduled")
+@RequiredArgsConstructor
+public class ScheduledTransferController {
+
+    private final ScheduledTransferServiceImpl scheduledTransferService;
+
+    @GetMapping
+    @ResponseBody
+    public ResponseEntity<List<ScheduledTransfer>> getSchedules(@AuthenticationPrincipal UserDetails userDetails)
+            throws UserNotFoundException {
+        return ResponseEntity.ok(scheduledTransferService.getUserSchedules(userDetails.getUsername()));
+    }
+
+    @PostMapping
+    @ResponseBody
+    public ResponseEntity<ScheduledTransfer> schedule(@AuthenticationPrincipal UserDetails userDetails,
+                                                      @RequestBody ScheduledTransferRequest request)
+            throws UserNotFoundException {
+        return ResponseEntity.ok(scheduledTransferService.schedule(userDetails.getUsername(), request));
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseBody
+    public ResponseEntity<Void> cancel(@AuthenticationPrincipal UserDetails userDetails, @PathVariable Long id)
+            throws UserNotFoundException {
+        scheduledTransferService.cancel(userDetails.getUsername(), id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // API JSON : pas de redirection vers une page d'erreur
+    @ExceptionHandler({IllegalArgumentException.class, UserNotFoundException.class})
+    public ResponseEntity<String> handleInvalidRequest(Exception e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
@@ -1,15 +1,28 @@
 package com.openclassrooms.paymybuddy.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.dto.TransactionView;
+import com.openclassrooms.paymybuddy.dto.TransferRequest;
+import com.openclassrooms.paymybuddy.dto.TransferResult;
 import com.openclassrooms.paymybuddy.entity.Transaction;
 import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.exception.TransferRejectedException;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.money.Money;
+import com.openclassrooms.paymybuddy.service.serviceImpl.IdempotencyServiceImpl;
 import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransferAdmissionControl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransferPipeline;
 import com.openclassrooms.utils.CurrencySymbols;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
@@ -17,7 +30,9 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.Set;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import static com.openclassrooms.utils.CurrencySymbols.SUPPORTED_CURRENCIES;
 
 @Controller
@@ -26,6 +41,12 @@ import static com.openclassrooms.utils.CurrencySymbols.SUPPORTED_CURRENCIES;
 public class TransactionController {
 
     private final TransactionServiceImpl transactionService;
+    private final IdempotencyServiceImpl idempotencyService;
+    private final TransferPipeline transferPipeline;
+    private final TransferAdmissionControl admissionControl;
+    private final ObjectMapper objectMapper;
+
+    private static final String CREATED_AT = "createdAt";
 
     @GetMapping
     public String showTransactionPage(
@@ -34,43 +55,65 @@ public class TransactionController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortField,
             @RequestParam(defaultValue = "desc") String sortDirection,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
             Model model) throws UserNotFoundException {
 
         String email = userDetails.getUsername();
         User currentUser = transactionService.getUserByTransactionEmail(email);
+        Sort.Direction direction = Sort.Direction.fromString(sortDirection);
 
-        // Création du Pageable
-        Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortField);
-        Pageable pageable = PageRequest.of(page, size, sort);
-
-        // Récupération paginée
-        Page<Transaction> transactionsPage = transactionService.getUserTransactionsPaginated(email, pageable);
-        Set<User> connections = currentUser.getConnections();
-
+        // tri par date : pagination par curseur (execution_date, id), sans COUNT ni OFFSET
+        boolean keyset = CREATED_AT.equals(sortField);
+        if (keyset) {
+            model.addAttribute("transactions",
+                    transactionService.getUserTransactions(email, direction.isAscending(), after, before, size));
+        } else {
+            // autres tris (montant) : size + 1 lignes sans COUNT ; numéros de page si le total est en cache
+            Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortField));
+            Slice<TransactionView> transactionsSlice = transactionService.getUserTransactionsSlice(email, pageable);
+            model.addAttribute("transactions", transactionsSlice);
+            if (transactionsSlice instanceof Page<TransactionView> transactionsPage) {
+                model.addAttribute("totalPages", transactionsPage.getTotalPages());
+            }
+        }
         // Ajout des attributs au modèle
-        model.addAttribute("currentBalance", currentUser.getBalance());
+        model.addAttribute("currentBalance", currentUser.getBalance().toBigDecimal());
         model.addAttribute("user", currentUser);
-        model.addAttribute("transactions", transactionsPage);
-        model.addAttribute("connections", connections);
         model.addAttribute("supportedCurrencies", SUPPORTED_CURRENCIES);
         model.addAttribute("currencySymbols", CurrencySymbols.SYMBOLS);
+        model.addAttribute("keyset", keyset);
         model.addAttribute("currentPage", page);
         model.addAttribute("pageSize", size);
         model.addAttribute("sortField", sortField);
         model.addAttribute("sortDirection", sortDirection);
-        model.addAttribute("totalPages", transactionsPage.getTotalPages());
 
         return "transaction";
     }
 
+    // Historique paginé par curseur (API JSON) : next / previous à renvoyer dans after / before
+    @GetMapping("/page")
+    @ResponseBody
+    public ResponseEntity<CursorPage<TransactionView>> getTransactionPage(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "10") int size) throws UserNotFoundException {
+
+        boolean ascending = Sort.Direction.fromString(sortDirection).isAscending();
+        return ResponseEntity.ok(transactionService.getUserTransactions(userDetails.getUsername(), ascending, after, before, size));
+    }
+
 
     @PostMapping
     public String makeTransaction(
             @AuthenticationPrincipal UserDetails userDetails,
             @RequestParam String receiverEmail,
-            @RequestParam double amount,
+            @RequestParam BigDecimal amount,
             @RequestParam String description,
             @RequestParam String currency,
+            @RequestHeader(value = IdempotencyServiceImpl.HEADER, required = false) String idempotencyKey,
             RedirectAttributes redirectAttributes) {
 
         //validation stricte
@@ -80,8 +123,85 @@ public class TransactionController {
             throw new IllegalArgumentException(String.format("Devise '%s' non supportée. Utilisez: %s", currency, String.join(", ", SUPPORTED_CURRENCIES)));
         }
 
-        Transaction transaction = transactionService.makeTransaction(userDetails.getUsername(), receiverEmail, amount, currency, description);
-        redirectAttributes.addFlashAttribute("success", String.format("Transfert réussi: %.2f %s (frais: %.2f %s)", amount, currency, transaction.getFee(), currency));
+        Money money = Money.of(amount, currency);
+        // file d'admission bornée : refus immédiat (429/503) plutôt qu'un thread bloqué en attente de connexion
+        // un rejeu (même Idempotency-Key, même virement) renvoie le message du premier virement sans le réexécuter
+        String request = fingerprint(receiverEmail, money, description);
+        String success = admissionControl.execute(userDetails.getUsername(), () ->
+                idempotencyService.execute(idempotencyKey, userDetails.getUsername(), "TRANSFER", request, () -> {
+                    // avec Idempotency-Key, chemin synchrone : la clé est commitée dans la transaction du virement
+                    if (transferPipeline.isEnabled() && (idempotencyKey == null || idempotencyKey.isBlank())) {
+                        // mode group commit : virement appliqué avec ceux arrivés dans la même fenêtre
+                        TransferResult result = transferPipeline.submitAndWait(userDetails.getUsername(),
+                                new TransferRequest(receiverEmail, amount, money.currency(), description));
+                        if (!result.success()) {
+                            throw new TransferRejectedException(result.message());
+                        }
+                        return String.format("Transfert réussi: %.2f %s (frais: %.2f %s)",
+                                money.toBigDecimal(), money.currency(), result.fee(), Money.EUR);
+                    }
+                    Transaction transaction = transactionService.makeTransaction(userDetails.getUsername(), receiverEmail, money, description);
+                    return String.format("Transfert réussi: %.2f %s (frais: %.2f %s)",
+                            money.toBigDecimal(), money.currency(), transaction.getFee().toBigDecimal(), transaction.getFee().currency());
+                }));
+        redirectAttributes.addFlashAttribute("success", success);
         return "redirect:/transaction";
     }
+
+    // Virements groupés (remboursements, règlements de groupe) : résultat détaillé par virement
+    @PostMapping("/batch")
+    @ResponseBody
+    public ResponseEntity<List<TransferResult>> makeTransactions(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestBody List<TransferRequest> transfers) {
+
+        List<TransferResult> results = admissionControl.execute(userDetails.getUsername(),
+                () -> transactionService.makeTransactions(userDetails.getUsername(), transfers));
+        return ResponseEntity.ok(results);
+    }
+
+    // Virement asynchrone : la réponse est envoyée après le commit du lot du shard de l'expéditeur.
+    // Même contrôle d'admission que les autres virements ; avec Idempotency-Key, chemin synchrone
+    // (la clé est commitée dans la transaction du virement) et résultat rejoué tel quel.
+    @PostMapping("/async")
+    @ResponseBody
+    public CompletableFuture<TransferResult> makeTransactionAsync(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(value = IdempotencyServiceImpl.HEADER, required = false) String idempotencyKey,
+            @RequestBody TransferRequest transfer) {
+
+        String email = userDetails.getUsername();
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return admissionControl.executeAsync(email, () -> transferPipeline.submit(email, transfer));
+        }
+
+        String currency = transfer.currency() == null ? null : transfer.currency().trim().toUpperCase();
+        Money money = Money.of(transfer.amount(), currency);
+        String request = fingerprint(transfer.receiverEmail(), money, transfer.description());
+        String response = admissionControl.execute(email, () ->
+                idempotencyService.execute(idempotencyKey, email, "TRANSFER_ASYNC", request, () ->
+                        toJson(transactionService.makeTransactions(email, List.of(transfer)).get(0))));
+        return CompletableFuture.completedFuture(fromJson(response));
+    }
+
+    // paramètres du virement dont l'empreinte est gardée avec l'Idempotency-Key
+    private static String fingerprint(String receiverEmail, Money money, String description) {
+        return String.join("\n", receiverEmail, Long.toString(money.minorUnits()), money.currency(), description);
+    }
+
+    private String toJson(TransferResult result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Résultat de virement non sérialisable", e);
+        }
+    }
+
+    private TransferResult fromJson(String response) {
+        try {
+            return objectMapper.readValue(response, TransferResult.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Résultat de virement enregistré illisible", e);
+        }
+    }
 }
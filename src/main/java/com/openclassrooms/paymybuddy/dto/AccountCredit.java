@@ -0,0 +1,6 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import com.openclassrooms.paymybuddy.money.Money;
+
+public record AccountCredit(long userId, Money amount) {
+}
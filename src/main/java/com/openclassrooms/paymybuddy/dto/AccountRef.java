@@ -0,0 +1,4 @@
+package com.openclassrooms.paymybuddy.dto;
+
+public record AccountRef(Long id, String email) {
+}
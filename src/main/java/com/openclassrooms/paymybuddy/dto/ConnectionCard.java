@@ -0,0 +1,5 @@
+package com.openclassrooms.paymybuddy.dto;
+
+// Relation affichée (liste des relations, choix du destinataire) sans charger l'entité User ni ses collections
+public record ConnectionCard(Long id, String name, String email) {
+}
@@ -0,0 +1,5 @@
+package com.openclassrooms.paymybuddy.dto;
+
+// Lien de la table connection (user_id -> connection_id), lu sans charger les entités
+public record ConnectionEdge(Long userId, Long connectionId) {
+}
@@ -0,0 +1,5 @@
+package com.openclassrooms.paymybuddy.dto;
+
+// Utilisateur suggéré sur la page des relations, avec le nombre de relations en commun
+public record ConnectionSuggestion(Long id, String name, String email, int mutualConnections) {
+}
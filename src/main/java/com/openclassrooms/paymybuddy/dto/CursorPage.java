@@ -0,0 +1,60 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import com.openclassrooms.paymybuddy.exception.InvalidPageRequestException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page lue par curseur (keyset) : pas de COUNT ni d'OFFSET, seulement les curseurs des pages voisines.
+ * next / previous sont null quand il n'y a pas de page dans ce sens.
+ */
+public record CursorPage<T>(List<T> content, String next, String previous) {
+
+    public static final int MAX_SIZE = 100;
+
+    /**
+     * rows : au plus size + 1 lignes dans l'ordre de lecture ; la ligne en trop signale une page au-delà.
+     * backward : lecture à rebours de l'ordre d'affichage (page précédente), les lignes sont remises dans l'ordre.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, boolean fromCursor, boolean backward,
+                                       Function<T, PageCursor> cursorOf) {
+        return ofTokens(rows, size, fromCursor, backward, row -> cursorOf.apply(row).encode());
+    }
+
+    // même découpage, pour un ordre de lecture dont le curseur n'est pas (execution_date, id)
+    public static <T> CursorPage<T> ofTokens(List<T> rows, int size, boolean fromCursor, boolean backward,
+                                             Function<T, String> tokenOf) {
+        boolean more = rows.size() > size;
+        List<T> content = new ArrayList<>(more ? rows.subList(0, size) : rows);
+        if (backward) {
+            Collections.reverse(content);
+        }
+        if (content.isEmpty()) {
+            return new CursorPage<>(content, null, null);
+        }
+
+        String first = tokenOf.apply(content.get(0));
+        String last = tokenOf.apply(content.get(content.size() - 1));
+        // on est arrivé par un curseur : la page d'où l'on vient existe toujours
+        boolean hasNext = backward ? fromCursor : more;
+        boolean hasPrevious = backward ? more : fromCursor;
+        return new CursorPage<>(content, hasNext ? last : null, hasPrevious ? first : null);
+    }
+
+    public static void checkSize(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new InvalidPageRequestException("La taille de page doit être comprise entre 1 et " + MAX_SIZE);
+        }
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    public boolean hasPrevious() {
+        return previous != null;
+    }
+}
@@ -0,0 +1,11 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import com.openclassrooms.paymybuddy.entity.ScheduledTransfer;
+
+import java.time.LocalDateTime;
+
+// Échéance à exécuter, avec les emails nécessaires au virement (une seule requête pour tout le lot)
+public record DueTransfer(Long id, Long senderId, String senderEmail, String receiverEmail, long amount,
+                          String currency, String description, ScheduledTransfer.Frequency frequency,
+                          LocalDateTime firstRunAt, int runCount, LocalDateTime nextRunAt) {
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import com.openclassrooms.paymybuddy.money.Money;
+
+import java.time.LocalDateTime;
+
+// Ligne de l'historique, construite depuis les colonnes de transaction_history (mapping HistoricView de Historic)
+public record HistoricView(Long id, Long senderId, String senderProfileName, Long receiverId, String receiverProfileName,
+                           String description, Money amount, Money fee, LocalDateTime executionDate) {
+
+    public HistoricView(Long id, Long senderId, String senderProfileName, Long receiverId, String receiverProfileName,
+                        String description, Long amount, String currency, Long fee, LocalDateTime executionDate) {
+        this(id, senderId, senderProfileName, receiverId, receiverProfileName, description,
+                currency == null ? null : Money.ofMinor(amount, currency), fee == null ? null : Money.eur(fee),
+                executionDate);
+    }
+}
@@ -0,0 +1,32 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import com.openclassrooms.paymybuddy.exception.InvalidPageRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position dans un historique trié par (execution_date, id) : la dernière (ou première) ligne affichée.
+ * Transmise au navigateur sous forme opaque (base64 url), relue telle quelle à la page suivante.
+ */
+public record PageCursor(LocalDateTime executionDate, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        String raw = executionDate.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidPageRequestException("Curseur de pagination invalide");
+        }
+    }
+}
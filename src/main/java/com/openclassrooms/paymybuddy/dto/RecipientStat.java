@@ -0,0 +1,7 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import java.time.LocalDateTime;
+
+// Virements d'un expéditeur vers un destinataire : nombre et date du dernier
+public record RecipientStat(Long senderId, Long receiverId, Long transfers, LocalDateTime lastTransferAt) {
+}
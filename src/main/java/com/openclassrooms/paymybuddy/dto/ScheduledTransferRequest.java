@@ -0,0 +1,11 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import com.openclassrooms.paymybuddy.entity.ScheduledTransfer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// firstRunAt null : première exécution au prochain passage du planificateur
+public record ScheduledTransferRequest(String receiverEmail, BigDecimal amount, String currency, String description,
+                                       ScheduledTransfer.Frequency frequency, LocalDateTime firstRunAt) {
+}
@@ -0,0 +1,8 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import java.math.BigDecimal;
+
+// Bilan d'un import de rechargements, cumulé sur toutes ses reprises
+public record TopUpImportResult(String importKey, long committedLines, long credited, long rejected,
+                                BigDecimal creditedAmount, boolean completed) {
+}
@@ -0,0 +1,16 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import com.openclassrooms.paymybuddy.money.Money;
+
+import java.time.LocalDateTime;
+
+// Ligne de la page des transactions, lue par projection : ni entité gérée, ni proxy du destinataire
+public record TransactionView(Long id, String receiverName, String description, Money amount, Money fee,
+                              LocalDateTime createdAt) {
+
+    // expression constructeur JPQL : montant en unités mineures et devise de la transaction
+    public TransactionView(Long id, String receiverName, String description, long amount, String currency,
+                           Money fee, LocalDateTime createdAt) {
+        this(id, receiverName, description, currency == null ? null : Money.ofMinor(amount, currency), fee, createdAt);
+    }
+}
@@ -0,0 +1,6 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import java.math.BigDecimal;
+
+public record TransferRequest(String receiverEmail, BigDecimal amount, String currency, String description) {
+}
@@ -0,0 +1,14 @@
+package com.openclassrooms.paymybuddy.dto;
+
+import java.math.BigDecimal;
+
+public record TransferResult(int index, String receiverEmail, boolean success, BigDecimal fee, String message) {
+
+    public static TransferResult accepted(int index, String receiverEmail, BigDecimal fee) {
+        return new TransferResult(index, receiverEmail, true, fee, "Transfert effectué");
+    }
+
+    public static TransferResult rejected(int index, String receiverEmail, String message) {
+        return new TransferResult(index, receiverEmail, false, BigDecimal.ZERO, message);
+    }
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.paymybuddy.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Palier du barème de frais, compilé en FeeSchedule au chargement
+@Entity
+@Table(name = "fee_rule")
+@Getter
+@Setter
+@NoArgsConstructor
+public class FeeRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // devise d'origine du virement, null pour le barème par défaut
+    @Column(length = 3)
+    private String currency;
+
+    // montant du virement (centimes d'euro) à partir duquel le palier s'applique
+    @Column(name = "min_amount", nullable = false)
+    private long minAmount;
+
+    @Column(name = "basis_points", nullable = false)
+    private long basisPoints;
+
+    @Column(name = "min_fee", nullable = false)
+    private long minFee;
+
+    // plafond en centimes d'euro, null pour aucun plafond
+    @Column(name = "max_fee")
+    private Long maxFee;
+}
@@ -1,5 +1,8 @@
 package com.openclassrooms.paymybuddy.entity;
 
+import com.openclassrooms.paymybuddy.dto.HistoricView;
+import com.openclassrooms.paymybuddy.money.EurMoneyConverter;
+import com.openclassrooms.paymybuddy.money.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -8,16 +11,32 @@ import lombok.Setter;
 
 import java.time.LocalDateTime;
 
+// Historique dénormalisé (table transaction_history) : une ligne par transaction, écrite dans la même
+// transaction que le virement, avec les noms de profil recopiés (mis à jour par TransactionHistoryServiceImpl)
 @Entity
-@Table(name="historic")
+@Table(name = "transaction_history", indexes = {
+        @Index(name = "idx_history_sender_date", columnList = "sender_id, execution_date"),
+        @Index(name = "idx_history_receiver_date", columnList = "receiver_id, execution_date")})
+// lecture des pages sans entité gérée : lignes natives -> HistoricView
+@SqlResultSetMapping(name = "HistoricView", classes = @ConstructorResult(targetClass = HistoricView.class, columns = {
+        @ColumnResult(name = "id", type = Long.class),
+        @ColumnResult(name = "sender_id", type = Long.class),
+        @ColumnResult(name = "sender_profile_name", type = String.class),
+        @ColumnResult(name = "receiver_id", type = Long.class),
+        @ColumnResult(name = "receiver_profile_name", type = String.class),
+        @ColumnResult(name = "description", type = String.class),
+        @ColumnResult(name = "amount", type = Long.class),
+        @ColumnResult(name = "currency", type = String.class),
+        @ColumnResult(name = "fee", type = Long.class),
+        @ColumnResult(name = "execution_date", type = LocalDateTime.class)}))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Historic {
 
+    // id de la transaction
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     private Long senderId;
@@ -27,9 +46,20 @@ public class Historic {
     private String receiverProfileName;
 
     private String description;
-    private Double amount;
-    private Double fee;
+    // unités mineures de la devise, exposées en Money par getAmount()
+    private long amount;
+    @Convert(converter = EurMoneyConverter.class)
+    private Money fee;
     private String currency;
     private LocalDateTime executionDate;
 
+    public Money getAmount() {
+        return currency == null ? null : Money.ofMinor(amount, currency);
+    }
+
+    public void setAmount(Money amount) {
+        this.amount = amount.minorUnits();
+        this.currency = amount.currency();
+    }
+
 }
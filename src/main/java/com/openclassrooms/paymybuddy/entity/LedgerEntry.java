@@ -0,0 +1,83 @@
+package com.openclassrooms.paymybuddy.entity;
+
+import com.openclassrooms.paymybuddy.money.EurMoneyConverter;
+import com.openclassrooms.paymybuddy.money.Money;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+// Écriture comptable immuable : chaque mouvement produit des débits et crédits de même montant total
+@Entity
+@Immutable
+@Table(name = "ledger_entry", indexes = {
+        @Index(name = "idx_ledger_entry_user", columnList = "user_id, id"),
+        @Index(name = "idx_ledger_entry_transaction", columnList = "transaction_id")
+})
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+
+    public enum Account { USER, FEES, EXTERNAL }
+
+    public enum Type { TRANSFER, FEE, TOP_UP }
+
+    public enum Direction { DEBIT, CREDIT }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // null pour les comptes de la plateforme (FEES, EXTERNAL)
+    @Column(name = "user_id", updatable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 10)
+    private Account account;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, updatable = false, length = 10)
+    private Type type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 6)
+    private Direction direction;
+
+    @Column(nullable = false, updatable = false)
+    @Convert(converter = EurMoneyConverter.class)
+    private Money amount;
+
+    @Column(name = "transaction_id", updatable = false)
+    private Long transactionId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // emplacement du sous-solde crédité (compte très sollicité), null pour le solde principal
+    @Column(name = "sub_balance_slot", updatable = false)
+    private Integer subBalanceSlot;
+
+    public static LedgerEntry debit(Account account, Long userId, Type type, Money amount, Long transactionId) {
+        return new LedgerEntry(null, userId, account, type, Direction.DEBIT, amount, transactionId, LocalDateTime.now(), null);
+    }
+
+    public static LedgerEntry credit(Account account, Long userId, Type type, Money amount, Long transactionId) {
+        return credit(account, userId, type, amount, transactionId, null);
+    }
+
+    public static LedgerEntry credit(Account account, Long userId, Type type, Money amount, Long transactionId,
+                                     Integer subBalanceSlot) {
+        return new LedgerEntry(null, userId, account, type, Direction.CREDIT, amount, transactionId, LocalDateTime.now(),
+                subBalanceSlot);
+    }
+
+    // centimes signés : crédit positif, débit négatif
+    public long signedAmount() {
+        return direction == Direction.CREDIT ? amount.minorUnits() : -amount.minorUnits();
+    }
+}
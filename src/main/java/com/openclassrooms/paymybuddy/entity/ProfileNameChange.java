@@ -0,0 +1,29 @@
+package com.openclassrooms.paymybuddy.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Nom de profil modifié, à recopier dans transaction_history ; un seul changement en attente par utilisateur
+@Entity
+@Table(name = "profile_name_change")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileNameChange {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "profile_name", length = 100)
+    private String profileName;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,77 @@
+package com.openclassrooms.paymybuddy.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Virement programmé (ordre permanent) : exécuté par ScheduledTransferServiceImpl à chaque échéance
+@Entity
+@Table(name = "scheduled_transfer", indexes = {
+        @Index(name = "idx_scheduled_transfer_due", columnList = "active, next_run_at"),
+        @Index(name = "idx_scheduled_transfer_sender", columnList = "sender_id")})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ScheduledTransfer {
+
+    public enum Frequency {
+        ONCE, WEEKLY, MONTHLY;
+
+        // échéance n (0 = première) calculée depuis la première : un 31 reste un 31 les mois qui en ont un
+        public LocalDateTime occurrence(LocalDateTime firstRunAt, int n) {
+            return switch (this) {
+                case ONCE -> firstRunAt;
+                case WEEKLY -> firstRunAt.plusWeeks(n);
+                case MONTHLY -> firstRunAt.plusMonths(n);
+            };
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sender_id", nullable = false)
+    private Long senderId;
+
+    @Column(name = "receiver_id", nullable = false)
+    private Long receiverId;
+
+    // unités mineures de la devise
+    @Column(nullable = false)
+    private long amount;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Frequency frequency;
+
+    @Column(name = "first_run_at", nullable = false)
+    private LocalDateTime firstRunAt;
+
+    // nombre d'échéances passées (exécutées ou manquées)
+    @Column(name = "run_count", nullable = false)
+    private int runCount;
+
+    @Column(name = "next_run_at", nullable = false)
+    private LocalDateTime nextRunAt;
+
+    @Column(nullable = false)
+    private boolean active = true;
+
+    @Column(name = "last_run_at")
+    private LocalDateTime lastRunAt;
+
+    @Column(name = "last_status", length = 10)
+    private String lastStatus;
+
+    @Column(name = "last_message")
+    private String lastMessage;
+}
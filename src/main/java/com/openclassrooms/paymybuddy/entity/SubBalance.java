@@ -0,0 +1,39 @@
+package com.openclassrooms.paymybuddy.entity;
+
+import com.openclassrooms.paymybuddy.money.EurMoneyConverter;
+import com.openclassrooms.paymybuddy.money.Money;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// Sous-solde d'un compte très sollicité en réception : les crédits sont répartis sur plusieurs lignes
+@Entity
+@Table(name = "user_sub_balance",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sub_balance_user_slot", columnNames = {"user_id", "slot"}))
+@Getter
+@NoArgsConstructor
+public class SubBalance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    @Column(nullable = false, updatable = false)
+    private int slot;
+
+    // Projection des écritures du sous-solde, reversée périodiquement dans user.balance
+    @Column(nullable = false, updatable = false)
+    @Convert(converter = EurMoneyConverter.class)
+    private Money balance = Money.ZERO_EUR;
+
+    @Column(name = "ledger_position", nullable = false, updatable = false)
+    private long ledgerPosition;
+
+    public SubBalance(Long userId, int slot) {
+        this.userId = userId;
+        this.slot = slot;
+    }
+}
@@ -0,0 +1,51 @@
+package com.openclassrooms.paymybuddy.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Point de reprise d'un import de rechargements en masse : dernière ligne du fichier commitée
+@Entity
+@Table(name = "top_up_import",
+        uniqueConstraints = @UniqueConstraint(name = "uk_top_up_import_key", columnNames = "import_key"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class TopUpImport {
+
+    public enum Status { RUNNING, COMPLETED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "import_key", nullable = false, length = 100)
+    private String importKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Status status = Status.RUNNING;
+
+    @Column(name = "committed_lines", nullable = false)
+    private long committedLines;
+
+    @Column(nullable = false)
+    private long credited;
+
+    @Column(nullable = false)
+    private long rejected;
+
+    // centimes d'euro
+    @Column(name = "credited_amount", nullable = false)
+    private long creditedAmount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public TopUpImport(String importKey) {
+        this.importKey = importKey;
+    }
+}
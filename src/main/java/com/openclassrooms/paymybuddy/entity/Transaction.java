@@ -1,11 +1,16 @@
 package com.openclassrooms.paymybuddy.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.openclassrooms.paymybuddy.money.EurMoneyConverter;
+import com.openclassrooms.paymybuddy.money.Money;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(name = "transaction", indexes = {
+        @Index(name = "idx_transaction_sender_date", columnList = "sender_id, execution_date"),
+        @Index(name = "idx_transaction_receiver_date_sender", columnList = "receiver_id, execution_date, sender_id")})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -27,8 +32,14 @@ public class Transaction {
     private User receiver;
 
     private String description;
-    private double amount;
-    private double fee;
+
+    // unités mineures de la devise de la transaction, exposées en Money par getAmount()
+    @Column(nullable = false)
+    private long amount;
+
+    // frais prélevés en EUR
+    @Convert(converter = EurMoneyConverter.class)
+    private Money fee;
 
     @Column(length = 3)
     private String currency;
@@ -36,4 +47,12 @@ public class Transaction {
     @Column(name = "execution_date", nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
-}
\ No newline at end of file
+    public Money getAmount() {
+        return currency == null ? null : Money.ofMinor(amount, currency);
+    }
+
+    public void setAmount(Money amount) {
+        this.amount = amount.minorUnits();
+        this.currency = amount.currency();
+    }
+}
@@ -1,6 +1,10 @@
 package com.openclassrooms.paymybuddy.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.ConnectionEdge;
+import com.openclassrooms.paymybuddy.money.EurMoneyConverter;
+import com.openclassrooms.paymybuddy.money.Money;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
@@ -13,6 +17,14 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.*;
 
 @Entity
+@Table(indexes = @Index(name = "idx_user_profile_name", columnList = "profile_name, email"))
+@SqlResultSetMapping(name = "ConnectionCard", classes = @ConstructorResult(targetClass = ConnectionCard.class, columns = {
+        @ColumnResult(name = "id", type = Long.class),
+        @ColumnResult(name = "profile_name", type = String.class),
+        @ColumnResult(name = "email", type = String.class)}))
+@SqlResultSetMapping(name = "ConnectionEdge", classes = @ConstructorResult(targetClass = ConnectionEdge.class, columns = {
+        @ColumnResult(name = "user_id", type = Long.class),
+        @ColumnResult(name = "connection_id", type = Long.class)}))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -45,7 +57,14 @@ public class User implements UserDetails {
 
     @Column(name = "profile_image_url")
     private String profileImageUrl;
-    private double balance;
+
+    // Projection du grand livre à la position ledger_position : uniquement modifiée par le compactage
+    @Column(nullable = false, updatable = false)
+    @Convert(converter = EurMoneyConverter.class)
+    private Money balance = Money.ZERO_EUR;
+
+    @Column(name = "ledger_position", nullable = false, updatable = false)
+    private long ledgerPosition;
 
     @JsonIgnore
     @ManyToMany(fetch = FetchType.LAZY)
@@ -55,7 +74,9 @@ public class User implements UserDetails {
             inverseJoinColumns = @JoinColumn(name = "connection_id"),
             uniqueConstraints = @UniqueConstraint(
                     columnNames = {"user_id", "connection_id"}
-            )
+            ),
+            // relations reçues (connectedBy), lues sans passer par la table user
+            indexes = @Index(name = "idx_connection_reverse", columnList = "connection_id, user_id")
     )
     private Set<User> connections = new HashSet<>();
 
@@ -74,7 +95,7 @@ public class User implements UserDetails {
     private List<Transaction> receivedTransactions = new ArrayList<>();
 
     @Transient
-    private Double temporaryAmountAdded;
+    private Money temporaryAmountAdded;
 
     //connection
     public void addConnection(User contact) {
@@ -0,0 +1,5 @@
+package com.openclassrooms.paymybuddy.exception;
+
+public class AccountLockTimeoutException extends RuntimeException {
+    public AccountLockTimeoutException(String message) {super(message);}
+}
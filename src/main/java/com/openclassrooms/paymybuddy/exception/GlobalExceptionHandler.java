@@ -6,6 +6,9 @@ import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -132,6 +135,63 @@ public class GlobalExceptionHandler {
         return "error";
     }
 
+    // Compte verrouillé trop longtemps par un autre virement : on rend la main au lieu de bloquer le thread
+    @ExceptionHandler(AccountLockTimeoutException.class)
+    public String handleAccountLockTimeout(AccountLockTimeoutException e, RedirectAttributes redirectAttributes) {
+        LOGGER.warn("Account lock timeout: {}", e.getMessage());
+        redirectAttributes.addFlashAttribute("errorTransaction", e.getMessage());
+        return "redirect:/transaction";
+    }
+
+    // Virement refusé dans un lot (mode group commit) : même retour que les autres erreurs de virement
+    @ExceptionHandler(TransferRejectedException.class)
+    public String handleTransferRejected(TransferRejectedException e, RedirectAttributes redirectAttributes) {
+        LOGGER.warn("Transfer rejected: {}", e.getMessage());
+        redirectAttributes.addFlashAttribute("errorTransaction", e.getMessage());
+        return "redirect:/transaction";
+    }
+
+    // Même Idempotency-Key encore en cours de traitement
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<String> handleIdempotencyConflict(IdempotencyConflictException e) {
+        LOGGER.warn("Idempotency conflict: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+    }
+
+    // Même Idempotency-Key renvoyée avec une autre requête (montant, destinataire...) : rien n'est rejoué
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<String> handleIdempotencyKeyReused(IdempotencyKeyReusedException e) {
+        LOGGER.warn("Idempotency key reused: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
+    }
+
+    // Files du pipeline de virements pleines : le client réessaie plus tard
+    @ExceptionHandler(TransferPipelineSaturatedException.class)
+    public ResponseEntity<String> handleTransferPipelineSaturated(TransferPipelineSaturatedException e) {
+        LOGGER.warn("Transfer pipeline saturated: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+    }
+
+    // Virement refusé par le contrôle d'admission : 429 (utilisateur) ou 503 (surcharge), le client réessaie plus tard
+    @ExceptionHandler(TransferAdmissionRejectedException.class)
+    public ResponseEntity<String> handleTransferAdmissionRejected(TransferAdmissionRejectedException e) {
+        LOGGER.warn("Transfer admission rejected: {}", e.getMessage());
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    // curseur altéré ou expiré : pas de redirection, la page demandée n'existe pas
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ResponseEntity<String> handleInvalidPageRequest(InvalidPageRequestException e) {
+        LOGGER.warn("Invalid page request: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
     // Gestion spécifique pour UserNotFoundException
     @ExceptionHandler(UserNotFoundException.class)
     public String handleUserNotFoundException(UserNotFoundException e, RedirectAttributes redirectAttributes, HttpServletRequest request) {
@@ -0,0 +1,5 @@
+package com.openclassrooms.paymybuddy.exception;
+
+public class IdempotencyConflictException extends RuntimeException {
+    public IdempotencyConflictException(String message) {super(message);}
+}
@@ -0,0 +1,5 @@
+package com.openclassrooms.paymybuddy.exception;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String message) {super(message);}
+}
@@ -0,0 +1,6 @@
+package com.openclassrooms.paymybuddy.exception;
+
+// curseur de pagination illisible ou taille de page hors bornes
+public class InvalidPageRequestException extends IllegalArgumentException {
+    public InvalidPageRequestException(String message) {super(message);}
+}
@@ -0,0 +1,18 @@
+package com.openclassrooms.paymybuddy.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+// Virement refusé avant exécution (trop de demandes en attente) : 429 pour un utilisateur trop actif, 503 sinon
+@Getter
+public class TransferAdmissionRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public TransferAdmissionRejectedException(String message, HttpStatus status, long retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,5 @@
+package com.openclassrooms.paymybuddy.exception;
+
+public class TransferPipelineSaturatedException extends RuntimeException {
+    public TransferPipelineSaturatedException(String message) {super(message);}
+}
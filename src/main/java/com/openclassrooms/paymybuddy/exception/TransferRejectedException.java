@@ -0,0 +1,5 @@
+package com.openclassrooms.paymybuddy.exception;
+
+public class TransferRejectedException extends RuntimeException {
+    public TransferRejectedException(String message) {super(message);}
+}
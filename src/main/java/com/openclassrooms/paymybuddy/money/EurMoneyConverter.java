@@ -0,0 +1,25 @@
+package com.openclassrooms.paymybuddy.money;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Montants toujours exprimés en EUR (soldes, frais, grand livre) : colonne BIGINT en centimes
+@Converter
+public class EurMoneyConverter implements AttributeConverter<Money, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(Money money) {
+        if (money == null) {
+            return null;
+        }
+        if (!Money.EUR.equals(money.currency())) {
+            throw new IllegalArgumentException("Montant en EUR attendu: " + money);
+        }
+        return money.minorUnits();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Long cents) {
+        return cents == null ? null : Money.eur(cents);
+    }
+}
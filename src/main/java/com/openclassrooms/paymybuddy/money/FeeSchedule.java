@@ -0,0 +1,122 @@
+package com.openclassrooms.paymybuddy.money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Barème de frais compilé : pour chaque devise d'origine, des paliers triés par montant (en centimes d'euro).
+ * Le palier qui contient le montant s'applique à tout le virement (taux en points de base, minimum, plafond).
+ * Immuable une fois construit : il est remplacé en bloc au rechargement, jamais modifié.
+ * L'évaluation ne fait qu'une recherche dichotomique dans des tableaux primitifs, sans allocation.
+ */
+public final class FeeSchedule {
+
+    public static final long NO_CAP = Long.MAX_VALUE;
+    private static final long MAX_BASIS_POINTS = 10_000;
+
+    // currency null : palier par défaut, appliqué aux devises sans barème propre
+    public record Tier(String currency, long fromMinorUnits, long basisPoints, long minFee, long maxFee) {
+    }
+
+    // 0,5 % sur tous les virements : le barème historique
+    public static final FeeSchedule DEFAULT = compile(List.of(new Tier(null, 0, 50, 0, NO_CAP)));
+
+    private static final class Table {
+        private final long[] from;
+        private final long[] basisPoints;
+        private final long[] minFee;
+        private final long[] maxFee;
+
+        private Table(List<Tier> tiers) {
+            int size = tiers.size();
+            from = new long[size];
+            basisPoints = new long[size];
+            minFee = new long[size];
+            maxFee = new long[size];
+            for (int i = 0; i < size; i++) {
+                Tier tier = tiers.get(i);
+                from[i] = tier.fromMinorUnits();
+                basisPoints[i] = tier.basisPoints();
+                minFee[i] = tier.minFee();
+                maxFee[i] = tier.maxFee();
+            }
+        }
+    }
+
+    private final Map<String, Table> tables;
+    private final Table fallback;
+    private final int tierCount;
+
+    private FeeSchedule(Map<String, Table> tables, Table fallback, int tierCount) {
+        this.tables = tables;
+        this.fallback = fallback;
+        this.tierCount = tierCount;
+    }
+
+    public static FeeSchedule compile(Collection<Tier> tiers) {
+        Map<String, List<Tier>> byCurrency = new HashMap<>();
+        List<Tier> defaults = new ArrayList<>();
+        for (Tier tier : tiers) {
+            validate(tier);
+            if (tier.currency() == null) {
+                defaults.add(tier);
+            } else {
+                byCurrency.computeIfAbsent(tier.currency(), c -> new ArrayList<>()).add(tier);
+            }
+        }
+        if (defaults.isEmpty()) {
+            throw new IllegalArgumentException("Le barème doit contenir des paliers par défaut (toutes devises)");
+        }
+
+        Map<String, Table> tables = new HashMap<>();
+        byCurrency.forEach((currency, currencyTiers) -> tables.put(currency, table(currency, currencyTiers)));
+        return new FeeSchedule(Map.copyOf(tables), table("par défaut", defaults), tiers.size());
+    }
+
+    private static void validate(Tier tier) {
+        if (tier.fromMinorUnits() < 0 || tier.basisPoints() < 0 || tier.basisPoints() > MAX_BASIS_POINTS) {
+            throw new IllegalArgumentException("Palier de frais invalide: " + tier);
+        }
+        if (tier.minFee() < 0 || tier.maxFee() < tier.minFee()) {
+            throw new IllegalArgumentException("Minimum ou plafond de frais invalide: " + tier);
+        }
+    }
+
+    private static Table table(String name, List<Tier> tiers) {
+        List<Tier> sorted = new ArrayList<>(tiers);
+        sorted.sort(Comparator.comparingLong(Tier::fromMinorUnits));
+        if (sorted.get(0).fromMinorUnits() != 0) {
+            throw new IllegalArgumentException("Le premier palier du barème " + name + " doit commencer à 0");
+        }
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).fromMinorUnits() == sorted.get(i - 1).fromMinorUnits()) {
+                throw new IllegalArgumentException("Paliers en double dans le barème " + name);
+            }
+        }
+        return new Table(sorted);
+    }
+
+    // frais en centimes d'euro pour un virement de amountInEur centimes dans la devise d'origine currency
+    public long feeMinorUnits(String currency, long amountInEur) {
+        Table table = currency == null ? fallback : tables.getOrDefault(currency, fallback);
+        int index = Arrays.binarySearch(table.from, amountInEur);
+        if (index < 0) {
+            index = Math.max(-index - 2, 0);
+        }
+        long fee = Money.divideRounded(Money.multiplyExact(amountInEur, table.basisPoints[index]), MAX_BASIS_POINTS);
+        return Math.min(Math.max(fee, table.minFee[index]), table.maxFee[index]);
+    }
+
+    public Money fee(String currency, Money amountInEur) {
+        return Money.eur(feeMinorUnits(currency, amountInEur.minorUnits()));
+    }
+
+    public int tierCount() {
+        return tierCount;
+    }
+}
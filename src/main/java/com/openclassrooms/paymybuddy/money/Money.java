@@ -0,0 +1,173 @@
+package com.openclassrooms.paymybuddy.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * Montant en virgule fixe : unités mineures (centimes, ...) dans un long et code devise ISO 4217.
+ * Les calculs restent en arithmétique entière ; BigDecimal n'est utilisé qu'aux frontières
+ * (saisie utilisateur et affichage).
+ */
+public record Money(long minorUnits, String currency) implements Comparable<Money> {
+
+    public static final String EUR = "EUR";
+    public static final Money ZERO_EUR = new Money(0, EUR);
+
+    private static final long BASIS_POINTS = 10_000;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+
+    public Money {
+        Objects.requireNonNull(currency, "La devise est obligatoire");
+    }
+
+    public static Money ofMinor(long minorUnits, String currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money eur(long cents) {
+        return new Money(cents, EUR);
+    }
+
+    // Frontière : montant saisi, arrondi au nombre de décimales de la devise
+    public static Money of(BigDecimal amount, String currency) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Le montant est obligatoire");
+        }
+        try {
+            long minorUnits = amount.setScale(scale(currency), RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            return new Money(minorUnits, currency);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Montant invalide: " + amount);
+        }
+    }
+
+    public static Money of(String amount, String currency) {
+        try {
+            return of(new BigDecimal(amount), currency);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Montant invalide: " + amount);
+        }
+    }
+
+    public static Money zero(String currency) {
+        return EUR.equals(currency) ? ZERO_EUR : new Money(0, currency);
+    }
+
+    // Nombre de décimales de la devise (2 pour EUR, 0 pour JPY/XOF)
+    public static int scale(String currency) {
+        if (EUR.equals(currency)) {
+            return 2;
+        }
+        try {
+            return Math.max(Currency.getInstance(currency).getDefaultFractionDigits(), 0);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Devise non supportée: " + currency);
+        }
+    }
+
+    public static long powerOfTen(int exponent) {
+        return POWERS_OF_TEN[exponent];
+    }
+
+    // Division entière arrondie au plus proche (demi vers l'extérieur), sans passer par double
+    public static long divideRounded(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += Long.signum(dividend) * Long.signum(divisor);
+        }
+        return quotient;
+    }
+
+    // Chemin primitif (virements, frais, conversions) : pas d'objet Money intermédiaire.
+    // Un dépassement de capacité est une saisie invalide, pas une erreur système.
+    public static long addExact(long a, long b) {
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            throw overflow();
+        }
+    }
+
+    public static long multiplyExact(long a, long b) {
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            throw overflow();
+        }
+    }
+
+    public Money plus(Money other) {
+        checkSameCurrency(other);
+        return new Money(addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        checkSameCurrency(other);
+        try {
+            return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+        } catch (ArithmeticException e) {
+            throw overflow();
+        }
+    }
+
+    public Money negate() {
+        if (minorUnits == Long.MIN_VALUE) {
+            throw overflow();
+        }
+        return new Money(-minorUnits, currency);
+    }
+
+    // 50 points de base = 0,5 %
+    public Money multiplyBasisPoints(long basisPoints) {
+        return new Money(divideRounded(multiplyExact(minorUnits, basisPoints), BASIS_POINTS), currency);
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return compareTo(other) > 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    // Affichage uniquement
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, scale(currency));
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+
+    private static IllegalArgumentException overflow() {
+        return new IllegalArgumentException("Montant invalide: dépassement de capacité");
+    }
+
+    private void checkSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Devises différentes: " + currency + " et " + other.currency);
+        }
+    }
+}
@@ -1,16 +1,60 @@
 package com.openclassrooms.paymybuddy.repository;
 
+import com.openclassrooms.paymybuddy.dto.HistoricView;
 import com.openclassrooms.paymybuddy.entity.Historic;
-import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Historique paginé par curseur (execution_date, id), du plus récent au plus ancien.
+ * Une seule table, sans jointure : envoyés par l'index (sender_id, execution_date),
+ * reçus par (receiver_id, execution_date), puis UNION ALL des deux branches limitées à :limit lignes.
+ * Les pages sont lues en HistoricView (mapping du même nom sur Historic), hors du contexte de persistance.
+ */
 @Repository
 public interface HistoricRepository extends JpaRepository<Historic, Long> {
 
-    @Query("SELECT h FROM Historic h WHERE h.senderId = :userId OR h.receiverId = :userId ORDER BY h.executionDate DESC")
-    Page<Historic> findUserHistoryPaginated(@Param("userId") Long userId, Pageable pageable);
+    String SENT = "SELECT * FROM `transaction_history` WHERE `sender_id` = :userId ";
+    String RECEIVED = "SELECT * FROM `transaction_history` WHERE `receiver_id` = :userId AND `sender_id` <> :userId ";
+    String OLDER = "AND (`execution_date` < :date OR (`execution_date` = :date AND `id` < :id)) ";
+    String NEWER = "AND (`execution_date` > :date OR (`execution_date` = :date AND `id` > :id)) ";
+
+    @NativeQuery(sqlResultSetMapping = "HistoricView", value = "SELECT u.* FROM (" +
+            "(" + SENT + "ORDER BY `execution_date` DESC, `id` DESC LIMIT :limit) UNION ALL " +
+            "(" + RECEIVED + "ORDER BY `execution_date` DESC, `id` DESC LIMIT :limit)" +
+            ") u ORDER BY u.`execution_date` DESC, u.`id` DESC LIMIT :limit")
+    List<HistoricView> findLatest(@Param("userId") Long userId, @Param("limit") int limit);
+
+    @NativeQuery(sqlResultSetMapping = "HistoricView", value = "SELECT u.* FROM (" +
+            "(" + SENT + OLDER + "ORDER BY `execution_date` DESC, `id` DESC LIMIT :limit) UNION ALL " +
+            "(" + RECEIVED + OLDER + "ORDER BY `execution_date` DESC, `id` DESC LIMIT :limit)" +
+            ") u ORDER BY u.`execution_date` DESC, u.`id` DESC LIMIT :limit")
+    List<HistoricView> findOlderThan(@Param("userId") Long userId, @Param("date") LocalDateTime date,
+                                 @Param("id") long id, @Param("limit") int limit);
+
+    // page précédente : lue du plus ancien au plus récent à partir du curseur
+    @NativeQuery(sqlResultSetMapping = "HistoricView", value = "SELECT u.* FROM (" +
+            "(" + SENT + NEWER + "ORDER BY `execution_date`, `id` LIMIT :limit) UNION ALL " +
+            "(" + RECEIVED + NEWER + "ORDER BY `execution_date`, `id` LIMIT :limit)" +
+            ") u ORDER BY u.`execution_date`, u.`id` LIMIT :limit")
+    List<HistoricView> findNewerThan(@Param("userId") Long userId, @Param("date") LocalDateTime date,
+                                 @Param("id") long id, @Param("limit") int limit);
+
+    // noms de profil recopiés par paquets de :limit lignes (verrous courts)
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE `transaction_history` SET `sender_profile_name` = :name " +
+            "WHERE `sender_id` = :userId AND COALESCE(`sender_profile_name`, '') <> COALESCE(:name, '') LIMIT :limit")
+    int renameSender(@Param("userId") Long userId, @Param("name") String name, @Param("limit") int limit);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE `transaction_history` SET `receiver_profile_name` = :name " +
+            "WHERE `receiver_id` = :userId AND COALESCE(`receiver_profile_name`, '') <> COALESCE(:name, '') LIMIT :limit")
+    int renameReceiver(@Param("userId") Long userId, @Param("name") String name, @Param("limit") int limit);
 }
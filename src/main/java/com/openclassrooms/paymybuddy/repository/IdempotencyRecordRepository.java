@@ -0,0 +1,37 @@
+package com.openclassrooms.paymybuddy.repository;
+
+import com.openclassrooms.paymybuddy.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserEmailAndIdempotencyKey(String userEmail, String idempotencyKey);
+
+    // dans la transaction de l'opération : 0 si la réservation a été reprise entre-temps
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = com.openclassrooms.paymybuddy.entity.IdempotencyRecord.Status.COMPLETED, " +
+            "r.response = :response WHERE r.id = :id " +
+            "AND r.status = com.openclassrooms.paymybuddy.entity.IdempotencyRecord.Status.PENDING")
+    int complete(@Param("id") Long id, @Param("response") String response);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id " +
+            "AND r.status = com.openclassrooms.paymybuddy.entity.IdempotencyRecord.Status.PENDING")
+    int releasePending(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :threshold")
+    int deleteCreatedBefore(@Param("threshold") LocalDateTime threshold);
+}
@@ -0,0 +1,49 @@
+package com.openclassrooms.paymybuddy.repository;
+
+import com.openclassrooms.paymybuddy.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    // solde disponible (centimes) = projections (solde principal et sous-soldes) + écritures non compactées,
+    // lus dans la même requête
+    @Query(nativeQuery = true, value = "SELECT CAST(u.balance " +
+            "+ COALESCE((SELECT SUM(s.balance) FROM user_sub_balance s WHERE s.user_id = u.id), 0) " +
+            "+ COALESCE((SELECT SUM(CASE WHEN l.direction = 'CREDIT' THEN l.amount ELSE -l.amount END) " +
+            "FROM ledger_entry l WHERE l.user_id = u.id AND l.account = 'USER' AND l.sub_balance_slot IS NULL " +
+            "AND l.id > u.ledger_position), 0) " +
+            "+ COALESCE((SELECT SUM(CASE WHEN l.direction = 'CREDIT' THEN l.amount ELSE -l.amount END) " +
+            "FROM ledger_entry l JOIN user_sub_balance s ON s.user_id = l.user_id AND s.slot = l.sub_balance_slot " +
+            "WHERE l.user_id = u.id AND l.account = 'USER' AND l.id > s.ledger_position), 0) AS SIGNED) " +
+            "FROM `user` u WHERE u.id = :userId")
+    Optional<Long> findAvailableBalance(@Param("userId") Long userId);
+
+    @Query(nativeQuery = true, value = "SELECT CAST(COALESCE(SUM(CASE WHEN l.direction = 'CREDIT' THEN l.amount ELSE -l.amount END), 0) AS SIGNED) " +
+            "FROM ledger_entry l WHERE l.user_id = :userId AND l.account = 'USER' AND l.sub_balance_slot IS NULL " +
+            "AND l.id > :fromId AND l.id <= :toId")
+    long sumUserEntries(@Param("userId") Long userId, @Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("SELECT MAX(l.id) FROM LedgerEntry l WHERE l.userId = :userId AND l.subBalanceSlot IS NULL")
+    Optional<Long> findLastEntryId(@Param("userId") Long userId);
+
+    @Query(nativeQuery = true, value = "SELECT DISTINCT l.user_id FROM ledger_entry l " +
+            "JOIN `user` u ON u.id = l.user_id WHERE l.sub_balance_slot IS NULL AND l.id > u.ledger_position LIMIT :limit")
+    List<Long> findAccountsToCompact(@Param("limit") int limit);
+
+    //sous-soldes des comptes très sollicités : chaque emplacement est compacté séparément
+    @Query(nativeQuery = true, value = "SELECT CAST(COALESCE(SUM(CASE WHEN l.direction = 'CREDIT' THEN l.amount ELSE -l.amount END), 0) AS SIGNED) " +
+            "FROM ledger_entry l WHERE l.user_id = :userId AND l.account = 'USER' AND l.sub_balance_slot = :slot " +
+            "AND l.id > :fromId AND l.id <= :toId")
+    long sumSubBalanceEntries(@Param("userId") Long userId, @Param("slot") int slot,
+                              @Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("SELECT MAX(l.id) FROM LedgerEntry l WHERE l.userId = :userId AND l.subBalanceSlot = :slot")
+    Optional<Long> findLastSubBalanceEntryId(@Param("userId") Long userId, @Param("slot") int slot);
+}
@@ -0,0 +1,25 @@
+package com.openclassrooms.paymybuddy.repository;
+
+import com.openclassrooms.paymybuddy.entity.ProfileNameChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProfileNameChangeRepository extends JpaRepository<ProfileNameChange, Long> {
+
+    List<ProfileNameChange> findAllByOrderByChangedAt(Limit limit);
+
+    // supprime le changement recopié, sauf si l'utilisateur a été renommé entre-temps
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProfileNameChange c WHERE c.userId = :userId AND c.changedAt = :changedAt")
+    int deleteIfUnchanged(@Param("userId") Long userId, @Param("changedAt") LocalDateTime changedAt);
+}
@@ -0,0 +1,33 @@
+package com.openclassrooms.paymybuddy.repository;
+
+import com.openclassrooms.paymybuddy.dto.DueTransfer;
+import com.openclassrooms.paymybuddy.entity.ScheduledTransfer;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ScheduledTransferRepository extends JpaRepository<ScheduledTransfer, Long> {
+
+    // échéances dues, par lots d'id croissants (afterId = dernier id du lot précédent)
+    @Query("SELECT new com.openclassrooms.paymybuddy.dto.DueTransfer(s.id, s.senderId, sender.email, receiver.email, " +
+            "s.amount, s.currency, s.description, s.frequency, s.firstRunAt, s.runCount, s.nextRunAt) " +
+            "FROM ScheduledTransfer s, User sender, User receiver " +
+            "WHERE sender.id = s.senderId AND receiver.id = s.receiverId " +
+            "AND s.active = true AND s.nextRunAt <= :now AND s.id > :afterId ORDER BY s.id")
+    List<DueTransfer> findDue(@Param("now") LocalDateTime now, @Param("afterId") long afterId, Limit limit);
+
+    List<ScheduledTransfer> findBySenderIdAndActiveTrueOrderByNextRunAt(Long senderId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScheduledTransfer s SET s.active = false WHERE s.id = :id AND s.senderId = :senderId AND s.active = true")
+    int deactivate(@Param("id") Long id, @Param("senderId") Long senderId);
+}
@@ -0,0 +1,46 @@
+package com.openclassrooms.paymybuddy.repository;
+
+import com.openclassrooms.paymybuddy.entity.SubBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Repository
+public interface SubBalanceRepository extends JpaRepository<SubBalance, Long> {
+
+    @Query("SELECT DISTINCT s.userId FROM SubBalance s")
+    Set<Long> findHotAccountIds();
+
+    @Query("SELECT s.slot FROM SubBalance s WHERE s.userId = :userId")
+    Set<Integer> findSlotsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT s.ledgerPosition FROM SubBalance s WHERE s.userId = :userId AND s.slot = :slot")
+    Optional<Long> findLedgerPosition(@Param("userId") Long userId, @Param("slot") int slot);
+
+    @Query(nativeQuery = true, value = "SELECT balance FROM user_sub_balance WHERE user_id = :userId AND slot = :slot")
+    Optional<Long> findBalance(@Param("userId") Long userId, @Param("slot") int slot);
+
+    @Query("SELECT s FROM SubBalance s WHERE EXISTS (SELECT l.id FROM LedgerEntry l " +
+            "WHERE l.userId = s.userId AND l.subBalanceSlot = s.slot AND l.id > s.ledgerPosition)")
+    List<SubBalance> findSlotsToCompact();
+
+    @Query(nativeQuery = true, value = "SELECT * FROM user_sub_balance WHERE balance <> 0")
+    List<SubBalance> findSlotsToFold();
+
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE user_sub_balance SET balance = balance + :delta, ledger_position = :position " +
+            "WHERE user_id = :userId AND slot = :slot AND ledger_position = :expectedPosition")
+    int applyLedger(@Param("userId") Long userId, @Param("slot") int slot, @Param("delta") long delta,
+                    @Param("expectedPosition") long expectedPosition, @Param("position") long position);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE user_sub_balance SET balance = balance - :amount " +
+            "WHERE user_id = :userId AND slot = :slot")
+    int withdraw(@Param("userId") Long userId, @Param("slot") int slot, @Param("amount") long amount);
+}
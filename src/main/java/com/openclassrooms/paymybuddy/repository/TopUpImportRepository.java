@@ -0,0 +1,34 @@
+package com.openclassrooms.paymybuddy.repository;
+
+import com.openclassrooms.paymybuddy.entity.TopUpImport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface TopUpImportRepository extends JpaRepository<TopUpImport, Long> {
+
+    Optional<TopUpImport> findByImportKey(String importKey);
+
+    // avance le point de reprise dans la transaction du lot ; 0 si un autre import a déjà avancé
+    @Modifying
+    @Query("UPDATE TopUpImport i SET i.committedLines = :committedLines, i.credited = i.credited + :credited, " +
+            "i.rejected = i.rejected + :rejected, i.creditedAmount = i.creditedAmount + :amount, i.updatedAt = :now " +
+            "WHERE i.importKey = :importKey AND i.committedLines = :expectedLines " +
+            "AND i.status = com.openclassrooms.paymybuddy.entity.TopUpImport.Status.RUNNING")
+    int advance(@Param("importKey") String importKey, @Param("expectedLines") long expectedLines,
+                @Param("committedLines") long committedLines, @Param("credited") long credited,
+                @Param("rejected") long rejected, @Param("amount") long amount, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE TopUpImport i SET i.status = com.openclassrooms.paymybuddy.entity.TopUpImport.Status.COMPLETED, " +
+            "i.updatedAt = :now WHERE i.importKey = :importKey")
+    int complete(@Param("importKey") String importKey, @Param("now") LocalDateTime now);
+}
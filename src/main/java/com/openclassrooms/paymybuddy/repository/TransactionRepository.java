@@ -1,20 +1,85 @@
 package com.openclassrooms.paymybuddy.repository;
 
+import com.openclassrooms.paymybuddy.dto.RecipientStat;
+import com.openclassrooms.paymybuddy.dto.TransactionView;
 import com.openclassrooms.paymybuddy.entity.Transaction;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * Historique d'un utilisateur par id (sender_id / receiver_id), sans jointure sur user ni filtre sur email.
+ * Les pages triées par date lisent chaque branche dans l'index (sender_id, execution_date) ou
+ * (receiver_id, execution_date, sender_id), limitée à offset + size lignes, puis fusionnent les deux (UNION ALL).
+ * La branche destinataire exclut les virements dont l'utilisateur est aussi l'expéditeur (pas de doublon) :
+ * sender_id est dans son index, ce filtre ne lit pas la table.
+ * Les pages suivantes partent d'un curseur (execution_date, id) : chaque branche reprend l'index à cette
+ * position, la page N coûte autant que la première.
+ * Les lignes affichées sont lues en TransactionView (expression constructeur), sans entité gérée.
+ */
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
-    @Query("SELECT t FROM Transaction t WHERE t.sender.email = :email OR t.receiver.email = :email ORDER BY t.createdAt DESC")
-    List<Transaction> findAllByUserEmail(@Param("email") String email);
+    String SENT = "SELECT `id`, `execution_date` FROM `transaction` WHERE `sender_id` = :userId ";
+    String RECEIVED = "SELECT `id`, `execution_date` FROM `transaction` WHERE `receiver_id` = :userId AND `sender_id` <> :userId ";
 
-    Page<Transaction> findBySenderEmailOrReceiverEmail(String senderEmail, String receiverEmail, Pageable pageable);
-}
\ No newline at end of file
+    @Query(nativeQuery = true, value = "SELECT u.`id` FROM (" +
+            "(" + SENT + "ORDER BY `execution_date` DESC, `id` DESC LIMIT :limit) UNION ALL " +
+            "(" + RECEIVED + "ORDER BY `execution_date` DESC, `id` DESC LIMIT :limit)" +
+            ") u ORDER BY u.`execution_date` DESC, u.`id` DESC LIMIT :size OFFSET :offset")
+    List<Long> findPageIdsNewestFirst(@Param("userId") Long userId, @Param("limit") long limit,
+                                      @Param("size") int size, @Param("offset") long offset);
+
+    @Query(nativeQuery = true, value = "SELECT u.`id` FROM (" +
+            "(" + SENT + "ORDER BY `execution_date`, `id` LIMIT :limit) UNION ALL " +
+            "(" + RECEIVED + "ORDER BY `execution_date`, `id` LIMIT :limit)" +
+            ") u ORDER BY u.`execution_date`, u.`id` LIMIT :size OFFSET :offset")
+    List<Long> findPageIdsOldestFirst(@Param("userId") Long userId, @Param("limit") long limit,
+                                      @Param("size") int size, @Param("offset") long offset);
+
+    String OLDER = "AND (`execution_date` < :date OR (`execution_date` = :date AND `id` < :id)) ";
+    String NEWER = "AND (`execution_date` > :date OR (`execution_date` = :date AND `id` > :id)) ";
+
+    @Query(nativeQuery = true, value = "SELECT u.`id` FROM (" +
+            "(" + SENT + OLDER + "ORDER BY `execution_date` DESC, `id` DESC LIMIT :limit) UNION ALL " +
+            "(" + RECEIVED + OLDER + "ORDER BY `execution_date` DESC, `id` DESC LIMIT :limit)" +
+            ") u ORDER BY u.`execution_date` DESC, u.`id` DESC LIMIT :limit")
+    List<Long> findIdsOlderThan(@Param("userId") Long userId, @Param("date") LocalDateTime date,
+                                @Param("id") long id, @Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = "SELECT u.`id` FROM (" +
+            "(" + SENT + NEWER + "ORDER BY `execution_date`, `id` LIMIT :limit) UNION ALL " +
+            "(" + RECEIVED + NEWER + "ORDER BY `execution_date`, `id` LIMIT :limit)" +
+            ") u ORDER BY u.`execution_date`, u.`id` LIMIT :limit")
+    List<Long> findIdsNewerThan(@Param("userId") Long userId, @Param("date") LocalDateTime date,
+                                @Param("id") long id, @Param("limit") int limit);
+
+    // deux comptages servis par les index seuls (sender_id est la dernière colonne de l'index destinataire)
+    @Query(nativeQuery = true, value = "SELECT (SELECT COUNT(*) FROM `transaction` WHERE `sender_id` = :userId) + " +
+            "(SELECT COUNT(*) FROM `transaction` WHERE `receiver_id` = :userId AND `sender_id` <> :userId)")
+    long countByUserId(@Param("userId") Long userId);
+
+    String VIEW = "SELECT new com.openclassrooms.paymybuddy.dto.TransactionView(t.id, r.name, t.description, " +
+            "t.amount, t.currency, t.fee, t.createdAt) FROM Transaction t LEFT JOIN t.receiver r ";
+
+    @Query(VIEW + "WHERE t.id IN :ids")
+    List<TransactionView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // autres tris (montant) : OR sur deux colonnes indexées (index merge), sans filtre sur email ni COUNT
+    @Query(VIEW + "WHERE t.sender.id = :userId OR t.receiver.id = :userId")
+    Slice<TransactionView> findViewSliceByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // destinataires récents d'une tranche d'expéditeurs (idx_transaction_sender_date), pour l'autocomplétion
+    @Query("SELECT new com.openclassrooms.paymybuddy.dto.RecipientStat(t.sender.id, t.receiver.id, COUNT(t), MAX(t.createdAt)) " +
+            "FROM Transaction t WHERE t.sender.id BETWEEN :fromId AND :toId AND t.createdAt >= :since " +
+            "AND t.receiver IS NOT NULL GROUP BY t.sender.id, t.receiver.id")
+    List<RecipientStat> findRecipientStats(@Param("fromId") Long fromId, @Param("toId") Long toId,
+                                           @Param("since") LocalDateTime since);
+}
@@ -0,0 +1,166 @@
+package com.openclassrooms.paymybuddy.repository;
+
+import com.openclassrooms.paymybuddy.entity.LedgerEntry;
+import com.openclassrooms.paymybuddy.money.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Écritures JDBC batchées (les id IDENTITY empêchent Hibernate de batcher les insertions)
+@Repository
+@RequiredArgsConstructor
+public class TransferBatchRepository {
+
+    private static final String INSERT_TRANSACTION_SQL = "INSERT INTO `transaction` " +
+            "(`sender_id`, `receiver_id`, `description`, `amount`, `fee`, `currency`, `execution_date`) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_LEDGER_ENTRY_SQL = "INSERT INTO `ledger_entry` " +
+            "(`user_id`, `account`, `entry_type`, `direction`, `amount`, `transaction_id`, `created_at`, `sub_balance_slot`) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ADVANCE_SCHEDULE_SQL = "UPDATE `scheduled_transfer` " +
+            "SET `run_count` = ?, `next_run_at` = ?, `active` = ?, `last_run_at` = ?, `last_status` = ?, `last_message` = ? " +
+            "WHERE `id` = ? AND `next_run_at` = ?";
+
+    // lignes d'historique recopiées des transactions, avec les noms de profil du moment (jointures par clé primaire)
+    private static final String COPY_HISTORY_SQL = "INSERT INTO `transaction_history` " +
+            "(`id`, `sender_id`, `sender_profile_name`, `receiver_id`, `receiver_profile_name`, " +
+            "`description`, `amount`, `fee`, `currency`, `execution_date`) " +
+            "SELECT tr.`id`, tr.`sender_id`, sed.`profile_name`, tr.`receiver_id`, rec.`profile_name`, " +
+            "tr.`description`, tr.`amount`, tr.`fee`, tr.`currency`, tr.`execution_date` " +
+            "FROM `transaction` tr " +
+            "INNER JOIN `user` sed ON sed.`id` = tr.`sender_id` " +
+            "INNER JOIN `user` rec ON rec.`id` = tr.`receiver_id` ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record TransactionRow(long receiverId, String description, Money amount, Money amountInEur, Money fee) {
+    }
+
+    // expectedRunAt : échéance lue avant l'exécution, garde contre une double exécution concurrente
+    public record ScheduleRun(long id, LocalDateTime expectedRunAt, int runCount, LocalDateTime nextRunAt,
+                              boolean active, LocalDateTime ranAt, String status, String message) {
+    }
+
+    // retourne les id générés, dans l'ordre des lignes
+    public List<Long> insertTransactions(long senderId, List<TransactionRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_TRANSACTION_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        TransactionRow row = rows.get(i);
+                        ps.setLong(1, senderId);
+                        ps.setLong(2, row.receiverId());
+                        ps.setString(3, row.description());
+                        ps.setLong(4, row.amount().minorUnits());
+                        ps.setLong(5, row.fee().minorUnits());
+                        ps.setString(6, row.amount().currency());
+                        ps.setTimestamp(7, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keyHolder);
+
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    public void insertLedgerEntries(List<LedgerEntry> entries) {
+        jdbcTemplate.batchUpdate(INSERT_LEDGER_ENTRY_SQL, entries, entries.size(), (ps, entry) -> {
+            if (entry.getUserId() != null) {
+                ps.setLong(1, entry.getUserId());
+            } else {
+                ps.setNull(1, Types.BIGINT);
+            }
+            ps.setString(2, entry.getAccount().name());
+            ps.setString(3, entry.getType().name());
+            ps.setString(4, entry.getDirection().name());
+            ps.setLong(5, entry.getAmount().minorUnits());
+            if (entry.getTransactionId() != null) {
+                ps.setLong(6, entry.getTransactionId());
+            } else {
+                ps.setNull(6, Types.BIGINT);
+            }
+            ps.setTimestamp(7, Timestamp.valueOf(entry.getCreatedAt()));
+            if (entry.getSubBalanceSlot() != null) {
+                ps.setInt(8, entry.getSubBalanceSlot());
+            } else {
+                ps.setNull(8, Types.INTEGER);
+            }
+        });
+    }
+
+    // retourne le nombre de lignes mises à jour par échéance (0 si déjà avancée ailleurs)
+    public int[] advanceSchedules(List<ScheduleRun> runs) {
+        return jdbcTemplate.batchUpdate(ADVANCE_SCHEDULE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ScheduleRun run = runs.get(i);
+                ps.setInt(1, run.runCount());
+                ps.setTimestamp(2, Timestamp.valueOf(run.nextRunAt()));
+                ps.setBoolean(3, run.active());
+                ps.setTimestamp(4, Timestamp.valueOf(run.ranAt()));
+                ps.setString(5, run.status());
+                ps.setString(6, run.message());
+                ps.setLong(7, run.id());
+                ps.setTimestamp(8, Timestamp.valueOf(run.expectedRunAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return runs.size();
+            }
+        });
+    }
+
+    // dans la transaction du virement : l'historique est visible au même commit que les transactions
+    public int insertHistory(List<Long> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(transactionIds.size(), "?"));
+        return jdbcTemplate.update(COPY_HISTORY_SQL + "WHERE tr.`id` IN (" + placeholders + ")", transactionIds.toArray());
+    }
+
+    // transactions d'id dans ]fromId, toId] encore absentes de l'historique (reprise de l'existant)
+    public int backfillHistory(long fromId, long toId) {
+        return jdbcTemplate.update(COPY_HISTORY_SQL + "WHERE tr.`id` > ? AND tr.`id` <= ? " +
+                "AND NOT EXISTS (SELECT 1 FROM `transaction_history` h WHERE h.`id` = tr.`id`)", fromId, toId);
+    }
+
+    // transactions sans ligne d'historique (la suppression d'une transaction supprime son historique)
+    public long historyBacklog() {
+        Long backlog = jdbcTemplate.queryForObject("SELECT (SELECT COUNT(*) FROM `transaction`) - " +
+                "(SELECT COUNT(*) FROM `transaction_history`)", Long.class);
+        return backlog == null ? 0 : backlog;
+    }
+
+    public long maxTransactionId() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(`id`) FROM `transaction`", Long.class);
+        return max == null ? 0 : max;
+    }
+}
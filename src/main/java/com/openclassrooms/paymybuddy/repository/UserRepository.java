@@ -1,11 +1,18 @@
 package com.openclassrooms.paymybuddy.repository;
 
+import com.openclassrooms.paymybuddy.dto.AccountRef;
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.ConnectionEdge;
 import com.openclassrooms.paymybuddy.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -14,18 +21,71 @@ import java.util.Set;
 public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByEmail(String email);
-    @Query("SELECT u FROM User u WHERE u.email != :userEmail " +
-            "AND u.id NOT IN (SELECT c.id FROM User u JOIN u.connections c WHERE u.id = :userId)")
-    List<User> findPotentialConnections(@Param("userEmail") String userEmail, @Param("userId") Long userId);
-    @Query("SELECT DISTINCT u FROM User user " +
-            "LEFT JOIN user.connections c " +
-            "LEFT JOIN user.connectedBy cb " +
-            "JOIN User u ON (u.id = c.id OR u.id = cb.id) " +
-            "WHERE user.email = :email AND u.id != user.id")
-    Set<User> findRelationsByEmail(@Param("email") String email);
+    @Query("SELECT u.id FROM User u WHERE u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+    @Query("SELECT new com.openclassrooms.paymybuddy.dto.AccountRef(u.id, u.email) FROM User u WHERE u.email IN :emails")
+    List<AccountRef> findAccountRefsByEmails(@Param("emails") Collection<String> emails);
+    //relations : cartes (id, nom, email) plutôt que des entités User avec leurs collections
+    //recherche : deux parcours d'index bornés chacun par la limite, fusionnés par email côté service
+    //préfixe sur l'email : parcours de l'index unique, déjà dans l'ordre des emails
+    @Query("SELECT new com.openclassrooms.paymybuddy.dto.ConnectionCard(u.id, u.name, u.email) FROM User u " +
+            "WHERE u.email LIKE :prefix ESCAPE '!' AND u.email > :after AND u.id <> :userId " +
+            "AND NOT EXISTS (SELECT 1 FROM User me JOIN me.connections c WHERE me.id = :userId AND c.id = u.id) " +
+            "ORDER BY u.email")
+    List<ConnectionCard> searchPotentialConnectionsByEmail(@Param("userId") Long userId, @Param("prefix") String prefix,
+                                                           @Param("after") String after, Limit limit);
+    //préfixe sur le nom : parcours de idx_user_profile_name (nom, email), tri des seules lignes du préfixe
+    @Query("SELECT new com.openclassrooms.paymybuddy.dto.ConnectionCard(u.id, u.name, u.email) FROM User u " +
+            "WHERE u.name LIKE :prefix ESCAPE '!' AND u.email > :after AND u.id <> :userId " +
+            "AND NOT EXISTS (SELECT 1 FROM User me JOIN me.connections c WHERE me.id = :userId AND c.id = u.id) " +
+            "ORDER BY u.email")
+    List<ConnectionCard> searchPotentialConnectionsByName(@Param("userId") Long userId, @Param("prefix") String prefix,
+                                                          @Param("after") String after, Limit limit);
+    //relations dans les deux sens : (user_id, connection_id) par la clé primaire, (connection_id, user_id)
+    //par idx_connection_reverse, UNION des deux listes d'id puis une lecture de user par id
+    @NativeQuery(sqlResultSetMapping = "ConnectionCard", value = "SELECT u.`id`, u.`profile_name`, u.`email` FROM (" +
+            "SELECT `connection_id` AS `id` FROM `connection` WHERE `user_id` = :userId UNION " +
+            "SELECT `user_id` FROM `connection` WHERE `connection_id` = :userId" +
+            ") r JOIN `user` u ON u.`id` = r.`id` WHERE u.`id` <> :userId ORDER BY u.`profile_name`, u.`email`")
+    List<ConnectionCard> findRelations(@Param("userId") Long userId);
+    //index d'autocomplétion : chargement par tranches d'id
+    @Query("SELECT new com.openclassrooms.paymybuddy.dto.ConnectionCard(u.id, u.name, u.email) FROM User u " +
+            "WHERE u.id > :afterId ORDER BY u.id")
+    List<ConnectionCard> findCardsAfter(@Param("afterId") Long afterId, Limit limit);
+    //graphe des relations : chargement par tranches dans l'ordre de la clé primaire (user_id, connection_id)
+    @NativeQuery(sqlResultSetMapping = "ConnectionEdge", value = "SELECT `user_id`, `connection_id` FROM `connection` " +
+            "WHERE `user_id` > :afterUserId OR (`user_id` = :afterUserId AND `connection_id` > :afterConnectionId) " +
+            "ORDER BY `user_id`, `connection_id` LIMIT :limit")
+    List<ConnectionEdge> findEdgesAfter(@Param("afterUserId") long afterUserId,
+                                        @Param("afterConnectionId") long afterConnectionId, @Param("limit") int limit);
+    //ajout / retrait d'une relation sans charger les collections des deux utilisateurs ; 0 ligne : déjà fait
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT IGNORE INTO `connection` (`user_id`, `connection_id`) " +
+            "VALUES (:userId, :connectionId)")
+    int insertConnection(@Param("userId") Long userId, @Param("connectionId") Long connectionId);
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM `connection` WHERE `user_id` = :userId AND `connection_id` = :connectionId")
+    int deleteConnection(@Param("userId") Long userId, @Param("connectionId") Long connectionId);
     //transaction
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.connections WHERE u.email = :email")
     Optional<User> findWithConnectionsByEmail(@Param("email") String email);
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM User u JOIN u.connections c " +
+            "WHERE u.id = :userId AND c.id = :connectionId")
+    boolean existsConnection(@Param("userId") Long userId, @Param("connectionId") Long connectionId);
+    @Query("SELECT c.id FROM User u JOIN u.connections c WHERE u.id = :userId")
+    Set<Long> findConnectionIds(@Param("userId") Long userId);
 
+    //grand livre : report des écritures compactées dans la projection du solde
+    @Query("SELECT u.ledgerPosition FROM User u WHERE u.id = :id")
+    Optional<Long> findLedgerPositionById(@Param("id") Long id);
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE `user` SET balance = balance + :delta, ledger_position = :position " +
+            "WHERE id = :id AND ledger_position = :expectedPosition")
+    int applyLedger(@Param("id") Long id, @Param("delta") long delta,
+                    @Param("expectedPosition") long expectedPosition, @Param("position") long position);
+    // report d'un sous-solde (comptes très sollicités) dans le solde principal
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE `user` SET balance = balance + :amount WHERE id = :id")
+    int depositSubBalance(@Param("id") Long id, @Param("amount") long amount);
 
 }
\ No newline at end of file
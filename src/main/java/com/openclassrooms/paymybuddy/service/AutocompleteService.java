@@ -0,0 +1,13 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+
+import java.util.List;
+
+public interface AutocompleteService {
+
+    List<ConnectionCard> suggestRecipients(String userEmail, String query, int limit) throws UserNotFoundException;
+    List<ConnectionCard> suggestUsers(String userEmail, String query, int limit) throws UserNotFoundException;
+
+}
@@ -1,19 +1,31 @@
 package com.openclassrooms.paymybuddy.service;
 
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.dto.TransactionView;
+import com.openclassrooms.paymybuddy.dto.TransferRequest;
+import com.openclassrooms.paymybuddy.dto.TransferResult;
 import com.openclassrooms.paymybuddy.entity.Transaction;
 import com.openclassrooms.paymybuddy.entity.User;
 import com.openclassrooms.paymybuddy.exception.InsufficientBalanceException;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.money.Money;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.math.BigDecimal;
+import java.util.List;
 
 public interface TransactionService {
 
-    Page<Transaction> getUserTransactionsPaginated(String email, Pageable pageable);
+    Page<TransactionView> getUserTransactionsPaginated(String email, Pageable pageable);
+    Slice<TransactionView> getUserTransactionsSlice(String email, Pageable pageable);
+    CursorPage<TransactionView> getUserTransactions(String email, boolean ascending, String after, String before, int size);
     Transaction makeTransaction(String senderEmail, String receiverEmail,
-                                double amount, String description, String currency) throws UserNotFoundException, InsufficientBalanceException;
+                                Money amount, String description) throws UserNotFoundException, InsufficientBalanceException;
+    List<TransferResult> makeTransactions(String senderEmail, List<TransferRequest> transfers) throws UserNotFoundException;
     User getUserWithConnections(String username) throws UserNotFoundException;
-    User addBalance(String email, Double amount, String randomAmount) throws UserNotFoundException;
+    User addBalance(String email, BigDecimal amount, String randomAmount) throws UserNotFoundException;
     User getUserByTransactionEmail(String email) throws UserNotFoundException;
 
 }
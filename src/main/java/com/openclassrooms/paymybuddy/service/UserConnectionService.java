@@ -1,16 +1,18 @@
 package com.openclassrooms.paymybuddy.service;
 
-import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
 import com.openclassrooms.paymybuddy.exception.ConnectionAlreadyExistsException;
 import com.openclassrooms.paymybuddy.exception.ConnectionNotFoundException;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
 
-import java.util.Set;
+import java.util.List;
 
 public interface UserConnectionService {
 
-    Set<User> getUserConnections(String userEmail);
-    Set<User> getPotentialConnections(String userEmail) throws UserNotFoundException;
+    List<ConnectionCard> getUserConnections(String userEmail);
+    CursorPage<ConnectionCard> searchPotentialConnections(String userEmail, String query, String after, int size)
+            throws UserNotFoundException;
     void addConnection(String userEmail, String connectionEmail)
             throws UserNotFoundException, ConnectionAlreadyExistsException;
     void updateConnection(String currentUserEmail, String oldConnectionEmail, String newConnectionEmail)
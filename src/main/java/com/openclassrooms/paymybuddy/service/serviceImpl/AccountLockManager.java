@@ -0,0 +1,146 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.exception.AccountLockTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Verrous par compte (striped) : seules les opérations qui touchent les mêmes comptes sont sérialisées.
+ * Les stripes sont toujours pris dans l'ordre croissant de leur index, ce qui évite les interblocages
+ * entre un virement A -> B et un virement B -> A.
+ */
+@Component
+@Slf4j
+public class AccountLockManager {
+
+    // comptes verrouillés au plus par un commit de lot (virements groupés, programmés, rechargements en masse) :
+    // bien en dessous du nombre de stripes, un lot ne bloque pas tout le trafic interactif
+    public static final int MAX_ACCOUNTS_PER_COMMIT = 32;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long timeoutMillis;
+
+    private final Counter acquisitions;
+    private final Counter contentions;
+    private final Counter timeouts;
+    private final Timer waitTimer;
+
+    public AccountLockManager(@Value("${transaction.lock.stripes:256}") int stripeCount,
+                              @Value("${transaction.lock.timeout-ms:500}") long timeoutMillis,
+                              MeterRegistry meterRegistry) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Le nombre de verrous doit être positif");
+        }
+        int size = Integer.highestOneBit(stripeCount - 1) << 1;
+        size = Math.max(size, 1);
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.timeoutMillis = timeoutMillis;
+
+        this.acquisitions = meterRegistry.counter("paymybuddy.account.lock.acquisitions");
+        this.contentions = meterRegistry.counter("paymybuddy.account.lock.contentions");
+        this.timeouts = meterRegistry.counter("paymybuddy.account.lock.timeouts");
+        this.waitTimer = meterRegistry.timer("paymybuddy.account.lock.wait");
+    }
+
+    /**
+     * Exécute l'action en tenant les verrous des comptes donnés.
+     * Dans une transaction Spring, les verrous ne sont relâchés qu'après commit/rollback.
+     */
+    public <T> T executeWithLocks(Supplier<T> action, long... accountIds) {
+        int[] indexes = stripeIndexes(accountIds);
+        lockAll(indexes);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    unlockAll(indexes, indexes.length);
+                }
+            });
+            return action.get();
+        }
+
+        try {
+            return action.get();
+        } finally {
+            unlockAll(indexes, indexes.length);
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public int stripeOf(long accountId) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // index distincts triés : ordre d'acquisition déterministe
+    private int[] stripeIndexes(long... accountIds) {
+        int[] indexes = new int[accountIds.length];
+        for (int i = 0; i < accountIds.length; i++) {
+            indexes[i] = stripeOf(accountIds[i]);
+        }
+        Arrays.sort(indexes);
+
+        int distinct = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            if (i == 0 || indexes[i] != indexes[i - 1]) {
+                indexes[distinct++] = indexes[i];
+            }
+        }
+        return distinct == indexes.length ? indexes : Arrays.copyOf(indexes, distinct);
+    }
+
+    private void lockAll(int[] indexes) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        for (int i = 0; i < indexes.length; i++) {
+            ReentrantLock lock = stripes[indexes[i]];
+            if (lock.tryLock()) {
+                continue;
+            }
+            contentions.increment();
+            try {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !lock.tryLock(remaining, TimeUnit.NANOSECONDS)) {
+                    unlockAll(indexes, i);
+                    timeouts.increment();
+                    log.warn("Délai d'attente dépassé pour le verrou de compte (stripe {})", indexes[i]);
+                    throw new AccountLockTimeoutException("Le compte est occupé, veuillez réessayer dans quelques instants");
+                }
+            } catch (InterruptedException e) {
+                unlockAll(indexes, i);
+                Thread.currentThread().interrupt();
+                throw new AccountLockTimeoutException("Opération interrompue pendant l'attente du verrou de compte");
+            }
+        }
+
+        acquisitions.increment();
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void unlockAll(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+}
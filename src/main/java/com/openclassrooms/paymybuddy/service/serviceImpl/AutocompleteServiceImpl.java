@@ -0,0 +1,314 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.RecipientStat;
+import com.openclassrooms.paymybuddy.exception.InvalidPageRequestException;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.repository.TransactionRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.AutocompleteService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+
+/**
+ * Autocomplétion des destinataires et des utilisateurs, servie depuis la mémoire (UserPrefixIndex) sans requête SQL.
+ * Les destinataires sont classés par un score de fréquence qui décroît avec l'ancienneté (demi-vie half-life-days) :
+ * +1 par virement, divisé par deux à chaque demi-vie écoulée.
+ * Index et scores sont chargés au démarrage puis tenus à jour après commit des inscriptions,
+ * modifications de profil et virements ; les relations viennent du graphe en mémoire (ConnectionGraphServiceImpl).
+ */
+@Service
+@Slf4j
+public class AutocompleteServiceImpl implements AutocompleteService {
+
+    public static final int MAX_SUGGESTIONS = 50;
+
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final ConnectionGraphServiceImpl connectionGraph;
+    private final int chunkSize;
+    private final long historyDays;
+    private final long halfLifeMillis;
+
+    private final UserPrefixIndex index = new UserPrefixIndex();
+    private final Map<Long, Recipients> recipients = new ConcurrentHashMap<>();
+
+    private record Ranked(ConnectionCard card, double score) {
+    }
+
+    public AutocompleteServiceImpl(UserRepository userRepository,
+                                   TransactionRepository transactionRepository,
+                                   ConnectionGraphServiceImpl connectionGraph,
+                                   @Value("${autocomplete.chunk-size:10000}") int chunkSize,
+                                   @Value("${autocomplete.history-days:180}") long historyDays,
+                                   @Value("${autocomplete.half-life-days:30}") long halfLifeDays) {
+        if (chunkSize <= 0 || historyDays <= 0 || halfLifeDays <= 0) {
+            throw new IllegalArgumentException("Les paramètres de l'autocomplétion doivent être positifs");
+        }
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.connectionGraph = connectionGraph;
+        this.chunkSize = chunkSize;
+        this.historyDays = historyDays;
+        this.halfLifeMillis = TimeUnit.DAYS.toMillis(halfLifeDays);
+    }
+
+    // utilisateurs par tranches d'id, avec les destinataires récents de la tranche
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        LocalDateTime since = LocalDateTime.now().minusDays(historyDays);
+        List<ConnectionCard> cards = new ArrayList<>();
+        long afterId = 0;
+        List<ConnectionCard> chunk;
+        do {
+            chunk = userRepository.findCardsAfter(afterId, Limit.of(chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            cards.addAll(chunk);
+            Long fromId = chunk.get(0).id();
+            Long toId = chunk.get(chunk.size() - 1).id();
+            for (RecipientStat stat : transactionRepository.findRecipientStats(fromId, toId, since)) {
+                // approximation : tous les virements de la période comptés à la date du dernier
+                recipientsOf(stat.senderId()).record(stat.receiverId(), stat.transfers(), epochMillis(stat.lastTransferAt()),
+                        halfLifeMillis);
+            }
+            afterId = toId;
+        } while (chunk.size() == chunkSize);
+
+        index.load(cards);
+        log.info("Index d'autocomplétion chargé : {} utilisateurs, {} Ko, en {} ms", index.size(),
+                index.memoryBytes() / 1024, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Scheduled(fixedDelayString = "${autocomplete.compact-interval-ms:60000}")
+    public void compact() {
+        int pending = index.pendingChanges();
+        if (pending > 0) {
+            index.compact();
+            log.debug("Index d'autocomplétion compacté ({} modification(s))", pending);
+        }
+    }
+
+    /**
+     * Relations de l'utilisateur dont le nom ou l'email commence par query, destinataires les plus fréquents
+     * et récents en premier. Sans saisie : les destinataires habituels.
+     */
+    @Override
+    public List<ConnectionCard> suggestRecipients(String userEmail, String query, int limit) throws UserNotFoundException {
+        checkLimit(limit);
+        long userId = requireUser(userEmail);
+        String prefix = UserPrefixIndex.normalize(query);
+        Recipients scores = recipients.get(userId);
+        long now = System.currentTimeMillis();
+
+        List<Ranked> ranked = new ArrayList<>();
+        for (long id : connectionGraph.connections(userId)) {
+            ConnectionCard card = index.card(id);
+            if (card != null && UserPrefixIndex.matches(card, prefix)) {
+                ranked.add(new Ranked(card, scores == null ? 0 : scores.score(id, now, halfLifeMillis)));
+            }
+        }
+        return top(ranked, limit);
+    }
+
+    /**
+     * Utilisateurs à ajouter en relation : anciens destinataires d'abord, puis l'index dans l'ordre des clés.
+     */
+    @Override
+    public List<ConnectionCard> suggestUsers(String userEmail, String query, int limit) throws UserNotFoundException {
+        checkLimit(limit);
+        String prefix = UserPrefixIndex.normalize(query);
+        if (prefix.length() < UserConnectionServiceImpl.MIN_QUERY_LENGTH) {
+            return List.of();
+        }
+        long userId = requireUser(userEmail);
+        long[] connected = connectionGraph.connections(userId);
+        LongPredicate candidate = id -> id != userId && Arrays.binarySearch(connected, id) < 0;
+
+        List<Ranked> ranked = new ArrayList<>();
+        Recipients scores = recipients.get(userId);
+        if (scores != null) {
+            long now = System.currentTimeMillis();
+            for (long id : scores.ids()) {
+                ConnectionCard card = index.card(id);
+                if (card != null && candidate.test(id) && UserPrefixIndex.matches(card, prefix)) {
+                    ranked.add(new Ranked(card, scores.score(id, now, halfLifeMillis)));
+                }
+            }
+        }
+        List<ConnectionCard> suggestions = new ArrayList<>(top(ranked, limit));
+        Set<Long> seen = new HashSet<>();
+        suggestions.forEach(card -> seen.add(card.id()));
+        for (Long id : index.search(prefix, limit, id -> candidate.test(id) && !seen.contains(id))) {
+            if (suggestions.size() == limit) {
+                break;
+            }
+            ConnectionCard card = index.card(id);
+            if (card != null) {
+                suggestions.add(card);
+            }
+        }
+        return suggestions;
+    }
+
+    public ConnectionCard card(long userId) {
+        return index.card(userId);
+    }
+
+    // scores de fréquence des virements de senderId vers chacun des receiverIds (triés par id), 0 sans virement
+    public double[] transferScores(long senderId, long[] receiverIds) {
+        Recipients scores = recipients.get(senderId);
+        if (scores == null) {
+            return new double[receiverIds.length];
+        }
+        return scores.scores(receiverIds, System.currentTimeMillis(), halfLifeMillis);
+    }
+
+    // À appeler dans la transaction d'écriture : l'index ne bouge qu'après commit
+    public void userSaved(Long userId, String name, String email) {
+        afterCommit(() -> index.put(userId, name, email));
+    }
+
+    public void recordTransfers(long senderId, Collection<Long> receiverIds) {
+        afterCommit(() -> {
+            long now = System.currentTimeMillis();
+            Recipients scores = recipientsOf(senderId);
+            for (Long receiverId : receiverIds) {
+                scores.record(receiverId, 1, now, halfLifeMillis);
+            }
+        });
+    }
+
+    private long requireUser(String email) throws UserNotFoundException {
+        Long id = index.idOfEmail(email);
+        if (id != null) {
+            return id;
+        }
+        // compte créé pendant le chargement initial : seul cas où l'on interroge la base
+        return userRepository.findIdByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("Utilisateur introuvable"));
+    }
+
+    private Recipients recipientsOf(long senderId) {
+        return recipients.computeIfAbsent(senderId, id -> new Recipients());
+    }
+
+    private static List<ConnectionCard> top(List<Ranked> ranked, int limit) {
+        ranked.sort(Comparator.comparingDouble(Ranked::score).reversed()
+                .thenComparing(r -> UserPrefixIndex.normalize(r.card().name())));
+        return ranked.stream().limit(limit).map(Ranked::card).toList();
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new InvalidPageRequestException("Le nombre de suggestions doit être compris entre 1 et " + MAX_SUGGESTIONS);
+        }
+    }
+
+    private static long epochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Destinataires d'un expéditeur et leur score, dans des tableaux primitifs parallèles triés par id.
+     * Le score est stocké à la date de sa dernière mise à jour et vieilli à la lecture.
+     */
+    private static final class Recipients {
+
+        private long[] ids = new long[4];
+        private double[] scores = new double[4];
+        private long[] updatedAt = new long[4];
+        private int size;
+
+        synchronized void record(long receiverId, double weight, long at, long halfLifeMillis) {
+            int i = indexOf(receiverId);
+            if (i < 0) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    scores = Arrays.copyOf(scores, size * 2);
+                    updatedAt = Arrays.copyOf(updatedAt, size * 2);
+                }
+                // insertion à sa place : ids reste trié
+                i = -i - 1;
+                System.arraycopy(ids, i, ids, i + 1, size - i);
+                System.arraycopy(scores, i, scores, i + 1, size - i);
+                System.arraycopy(updatedAt, i, updatedAt, i + 1, size - i);
+                size++;
+                ids[i] = receiverId;
+                scores[i] = 0;
+                updatedAt[i] = at;
+            }
+            if (at >= updatedAt[i]) {
+                scores[i] = decay(scores[i], at - updatedAt[i], halfLifeMillis) + weight;
+                updatedAt[i] = at;
+            } else {
+                scores[i] += decay(weight, updatedAt[i] - at, halfLifeMillis);
+            }
+        }
+
+        synchronized double score(long receiverId, long now, long halfLifeMillis) {
+            int i = indexOf(receiverId);
+            return i < 0 ? 0 : decay(scores[i], Math.max(now - updatedAt[i], 0), halfLifeMillis);
+        }
+
+        synchronized double[] scores(long[] receiverIds, long now, long halfLifeMillis) {
+            double[] result = new double[receiverIds.length];
+            for (int i = 0; i < size; i++) {
+                int at = Arrays.binarySearch(receiverIds, ids[i]);
+                if (at >= 0) {
+                    result[at] = decay(scores[i], Math.max(now - updatedAt[i], 0), halfLifeMillis);
+                }
+            }
+            return result;
+        }
+
+        synchronized long[] ids() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        // position de receiverId, ou -(point d'insertion) - 1
+        private int indexOf(long receiverId) {
+            return Arrays.binarySearch(ids, 0, size, receiverId);
+        }
+
+        private static double decay(double score, long elapsedMillis, long halfLifeMillis) {
+            return score * Math.pow(0.5, (double) elapsedMillis / halfLifeMillis);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.dto.AccountCredit;
+import com.openclassrooms.paymybuddy.dto.AccountRef;
+import com.openclassrooms.paymybuddy.dto.TopUpImportResult;
+import com.openclassrooms.paymybuddy.entity.TopUpImport;
+import com.openclassrooms.paymybuddy.exception.AccountLockTimeoutException;
+import com.openclassrooms.paymybuddy.money.Money;
+import com.openclassrooms.paymybuddy.repository.TopUpImportRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rechargements en masse (promotions, remboursements) depuis un CSV « email,montant » en euros.
+ * Le fichier est lu en flux, par lots de chunk-size lignes : résolution des emails en une requête,
+ * écritures TOP_UP insérées en batch JDBC et point de reprise avancé dans la même transaction.
+ * Chaque lot est commité en sous-lots d'au plus AccountLockManager.MAX_ACCOUNTS_PER_COMMIT comptes crédités,
+ * pour ne pas bloquer les virements en cours sur les autres comptes.
+ * Un import interrompu reprend à la ligne qui suit le dernier lot commité, sans double crédit.
+ * Les lignes refusées sont écrites dans le rapport d'erreurs une fois leur lot commité.
+ */
+@Service
+@Slf4j
+public class BulkTopUpServiceImpl {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final UserRepository userRepository;
+    private final LedgerServiceImpl ledgerService;
+    private final AccountLockManager accountLockManager;
+    private final TopUpImportRepository topUpImportRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    private record Line(long number, String content) {
+    }
+
+    private record LineError(long number, String email, String message) {
+    }
+
+    private record ChunkResult(long credited, long rejected, long amount) {
+    }
+
+    public BulkTopUpServiceImpl(UserRepository userRepository,
+                                LedgerServiceImpl ledgerService,
+                                AccountLockManager accountLockManager,
+                                TopUpImportRepository topUpImportRepository,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${top-up.import.chunk-size:1000}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("La taille des lots d'import doit être positive");
+        }
+        this.userRepository = userRepository;
+        this.ledgerService = ledgerService;
+        this.accountLockManager = accountLockManager;
+        this.topUpImportRepository = topUpImportRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    public TopUpImportResult importCsv(String importKey, Reader csv, Writer errorReport) throws IOException {
+        if (importKey == null || importKey.isBlank()) {
+            throw new IllegalArgumentException("L'identifiant de l'import est requis");
+        }
+
+        TopUpImport checkpoint = topUpImportRepository.findByImportKey(importKey)
+                .orElseGet(() -> topUpImportRepository.save(new TopUpImport(importKey)));
+        if (checkpoint.getStatus() == TopUpImport.Status.COMPLETED) {
+            log.info("Import {} déjà terminé", importKey);
+            return result(checkpoint, 0, 0, 0, true);
+        }
+        if (checkpoint.getCommittedLines() > 0) {
+            log.info("Reprise de l'import {} après la ligne {}", importKey, checkpoint.getCommittedLines());
+        }
+
+        long committed = checkpoint.getCommittedLines();
+        long credited = 0;
+        long rejected = 0;
+        long amount = 0;
+
+        BufferedReader reader = csv instanceof BufferedReader buffered ? buffered : new BufferedReader(csv, 1 << 16);
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String content;
+        while ((content = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber <= committed) {
+                continue;
+            }
+            chunk.add(new Line(lineNumber, content));
+            if (chunk.size() == chunkSize) {
+                ChunkResult chunkResult = applyChunk(importKey, committed, lineNumber, chunk, errorReport);
+                committed = lineNumber;
+                credited += chunkResult.credited();
+                rejected += chunkResult.rejected();
+                amount += chunkResult.amount();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            ChunkResult chunkResult = applyChunk(importKey, committed, lineNumber, chunk, errorReport);
+            committed = lineNumber;
+            credited += chunkResult.credited();
+            rejected += chunkResult.rejected();
+            amount += chunkResult.amount();
+        }
+        errorReport.flush();
+
+        topUpImportRepository.complete(importKey, LocalDateTime.now());
+        checkpoint.setCommittedLines(committed);
+        log.info("Import {} terminé : {} rechargement(s), {} ligne(s) refusée(s), {} €",
+                importKey, credited, rejected, Money.eur(amount).toBigDecimal());
+        return result(checkpoint, credited, rejected, amount, true);
+    }
+
+    private ChunkResult applyChunk(String importKey, long expectedLines, long lastLine, List<Line> chunk,
+                                   Writer errorReport) throws IOException {
+        List<LineError> errors = new ArrayList<>();
+        List<Line> valid = new ArrayList<>(chunk.size());
+        List<String> emails = new ArrayList<>(chunk.size());
+        List<Money> amounts = new ArrayList<>(chunk.size());
+
+        for (Line line : chunk) {
+            String content = line.content().strip();
+            // lignes vides et en-tête ignorées
+            if (content.isEmpty() || (line.number() == 1 && content.toLowerCase().startsWith("email"))) {
+                continue;
+            }
+            int separator = indexOfSeparator(content);
+            if (separator < 0) {
+                errors.add(new LineError(line.number(), "", "Ligne invalide, format attendu : email,montant"));
+                continue;
+            }
+            String email = unquote(content.substring(0, separator));
+            try {
+                Money money = Money.of(unquote(content.substring(separator + 1)), Money.EUR);
+                if (!money.isPositive()) {
+                    throw new IllegalArgumentException("Montant invalide");
+                }
+                valid.add(line);
+                emails.add(email);
+                amounts.add(money);
+            } catch (IllegalArgumentException e) {
+                errors.add(new LineError(line.number(), email, e.getMessage()));
+            }
+        }
+
+        Map<String, Long> userIds = new HashMap<>();
+        if (!emails.isEmpty()) {
+            for (AccountRef ref : userRepository.findAccountRefsByEmails(new HashSet<>(emails))) {
+                userIds.put(ref.email(), ref.id());
+            }
+        }
+
+        List<AccountCredit> credits = new ArrayList<>(valid.size());
+        List<Long> creditLines = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            Long userId = userIds.get(emails.get(i));
+            if (userId == null) {
+                errors.add(new LineError(valid.get(i).number(), emails.get(i),
+                        "Aucun utilisateur trouvé avec l'email: " + emails.get(i)));
+                continue;
+            }
+            credits.add(new AccountCredit(userId, amounts.get(i)));
+            creditLines.add(valid.get(i).number());
+        }
+        errors.sort((a, b) -> Long.compare(a.number(), b.number()));
+
+        // sous-lots d'au plus MAX_ACCOUNTS_PER_COMMIT comptes : les verrous ne sont tenus que le temps d'un petit commit
+        long committed = expectedLines;
+        long amount = 0;
+        int from = 0;
+        int nextError = 0;
+        do {
+            Set<Long> accounts = new HashSet<>();
+            long subAmount = 0;
+            int to = from;
+            while (to < credits.size() && (accounts.size() < AccountLockManager.MAX_ACCOUNTS_PER_COMMIT
+                    || accounts.contains(credits.get(to).userId()))) {
+                accounts.add(credits.get(to).userId());
+                subAmount += credits.get(to).amount().minorUnits();
+                to++;
+            }
+            long subLastLine = to < credits.size() ? creditLines.get(to) - 1 : lastLine;
+            int errorEnd = nextError;
+            while (errorEnd < errors.size() && errors.get(errorEnd).number() <= subLastLine) {
+                errorEnd++;
+            }
+
+            commit(importKey, committed, subLastLine, credits.subList(from, to), accounts, errorEnd - nextError, subAmount);
+
+            for (LineError error : errors.subList(nextError, errorEnd)) {
+                errorReport.write(error.number() + "," + error.email() + "," + error.message() + "\n");
+            }
+            committed = subLastLine;
+            amount += subAmount;
+            from = to;
+            nextError = errorEnd;
+        } while (from < credits.size());
+
+        log.debug("Import {} : lignes {} à {} commitées", importKey, expectedLines + 1, lastLine);
+        return new ChunkResult(credits.size(), errors.size(), amount);
+    }
+
+    // Écritures et point de reprise du sous-lot dans une seule transaction, sous les verrous des comptes crédités
+    private void commit(String importKey, long expectedLines, long lastLine, List<AccountCredit> credits,
+                        Set<Long> accounts, long rejected, long amount) {
+        long[] accountIds = accounts.stream().mapToLong(Long::longValue).toArray();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> accountLockManager.executeWithLocks(() -> {
+                    if (!credits.isEmpty()) {
+                        ledgerService.recordTopUps(credits);
+                    }
+                    if (topUpImportRepository.advance(importKey, expectedLines, lastLine, credits.size(),
+                            rejected, amount, LocalDateTime.now()) != 1) {
+                        throw new IllegalStateException("L'import " + importKey + " est déjà en cours ou terminé");
+                    }
+                    return null;
+                }, accountIds));
+                return;
+            } catch (AccountLockTimeoutException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Lot de l'import {} reporté, comptes occupés (tentative {})", importKey, attempt);
+            }
+        }
+    }
+
+    private static int indexOfSeparator(String content) {
+        int comma = content.indexOf(',');
+        return comma >= 0 ? comma : content.indexOf(';');
+    }
+
+    private static String unquote(String field) {
+        String value = field.strip();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).strip();
+        }
+        return value;
+    }
+
+    private static TopUpImportResult result(TopUpImport checkpoint, long credited, long rejected, long amount,
+                                            boolean completed) {
+        return new TopUpImportResult(checkpoint.getImportKey(), checkpoint.getCommittedLines(),
+                checkpoint.getCredited() + credited, checkpoint.getRejected() + rejected,
+                Money.eur(checkpoint.getCreditedAmount() + amount).toBigDecimal(), completed);
+    }
+}
@@ -0,0 +1,293 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Graphe des relations en mémoire (user_id -> connection_id), sans entité ni boîte Long dans la base.
+ * La base est immuable, au format CSR : les relations de tous les utilisateurs triées dans un seul long[],
+ * une table de hachage à adressage ouvert (long[] / int[]) donnant la tranche de chaque utilisateur.
+ * « A suit B » : une sonde dans la table puis une recherche dichotomique dans la tranche de A ;
+ * les relations de A : une copie de sa tranche, déjà triée.
+ * Ajouts et retraits vont dans un petit delta (relations ajoutées / retirées par utilisateur), recopié à chaque
+ * écriture et prioritaire sur la base ; compact() le fusionne dans une nouvelle base. Les lectures ne prennent
+ * aucun verrou. Ordre de grandeur (ConnectionGraphBenchmark) : ~9,5 octets par relation à 10 M de relations.
+ */
+public final class ConnectionGraph {
+
+    private static final long[] NONE = new long[0];
+
+    // relations ajoutées et retirées depuis la base, triées et disjointes
+    private record Change(long[] added, long[] removed) {
+    }
+
+    private record State(Csr base, Map<Long, Change> changes) {
+    }
+
+    private volatile State state = new State(new Builder().build(), Map.of());
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Remplace la base. Le delta est conservé : chaque changement dit si la relation existe ou non,
+     * il reste exact que la base chargée l'inclue déjà ou pas.
+     */
+    public synchronized void load(Builder builder) {
+        Csr base = builder.build();
+        state = new State(base, state.changes());
+    }
+
+    public synchronized void add(long userId, long connectionId) {
+        State current = state;
+        Change change = current.changes().get(userId);
+        long[] added = change == null ? NONE : change.added();
+        long[] removed = change == null ? NONE : change.removed();
+        update(current, userId, new Change(insert(added, connectionId), delete(removed, connectionId)));
+    }
+
+    public synchronized void remove(long userId, long connectionId) {
+        State current = state;
+        Change change = current.changes().get(userId);
+        long[] added = change == null ? NONE : change.added();
+        long[] removed = change == null ? NONE : change.removed();
+        update(current, userId, new Change(delete(added, connectionId), insert(removed, connectionId)));
+    }
+
+    private void update(State current, long userId, Change change) {
+        Map<Long, Change> changes = new HashMap<>(current.changes());
+        changes.put(userId, change);
+        state = new State(current.base(), changes);
+    }
+
+    /**
+     * Reconstruit la base avec le delta, hors verrou : les changements arrivés pendant la reconstruction
+     * restent dans le nouveau delta.
+     */
+    public void compact() {
+        State snapshot = state;
+        if (snapshot.changes().isEmpty()) {
+            return;
+        }
+        Csr base = snapshot.base();
+        Builder builder = new Builder();
+        for (int slot = 0; slot < base.slots.length; slot++) {
+            long userId = base.slots[slot];
+            if (userId != 0) {
+                Change change = snapshot.changes().get(userId);
+                long[] row = Arrays.copyOfRange(base.targets, base.offsets[base.rows[slot]], base.offsets[base.rows[slot] + 1]);
+                builder.appendRow(userId, change == null ? row : apply(row, change));
+            }
+        }
+        snapshot.changes().forEach((userId, change) -> {
+            if (base.row(userId) < 0) {
+                builder.appendRow(userId, change.added());
+            }
+        });
+        Csr rebuilt = builder.build();
+
+        synchronized (this) {
+            State current = state;
+            if (current.base() != base) {
+                // load() est passé entre-temps : sa base est plus fraîche
+                return;
+            }
+            Map<Long, Change> changes = new HashMap<>();
+            current.changes().forEach((userId, change) -> {
+                if (snapshot.changes().get(userId) != change) {
+                    changes.put(userId, change);
+                }
+            });
+            state = new State(rebuilt, changes);
+        }
+    }
+
+    public boolean contains(long userId, long connectionId) {
+        State current = state;
+        Change change = current.changes().isEmpty() ? null : current.changes().get(userId);
+        if (change != null) {
+            if (Arrays.binarySearch(change.added(), connectionId) >= 0) {
+                return true;
+            }
+            if (Arrays.binarySearch(change.removed(), connectionId) >= 0) {
+                return false;
+            }
+        }
+        Csr base = current.base();
+        int row = base.row(userId);
+        return row >= 0 && Arrays.binarySearch(base.targets, base.offsets[row], base.offsets[row + 1], connectionId) >= 0;
+    }
+
+    // relations de l'utilisateur, triées par id
+    public long[] connections(long userId) {
+        State current = state;
+        Csr base = current.base();
+        int row = base.row(userId);
+        long[] connections = row < 0 ? NONE : Arrays.copyOfRange(base.targets, base.offsets[row], base.offsets[row + 1]);
+        Change change = current.changes().isEmpty() ? null : current.changes().get(userId);
+        return change == null ? connections : apply(connections, change);
+    }
+
+    public int degree(long userId) {
+        State current = state;
+        if (current.changes().containsKey(userId)) {
+            return connections(userId).length;
+        }
+        int row = current.base().row(userId);
+        return row < 0 ? 0 : current.base().offsets[row + 1] - current.base().offsets[row];
+    }
+
+    public int pendingChanges() {
+        return state.changes().size();
+    }
+
+    public long edgeCount() {
+        return state.base().targets.length;
+    }
+
+    public int userCount() {
+        return state.base().offsets.length - 1;
+    }
+
+    public long memoryBytes() {
+        return state.base().memoryBytes();
+    }
+
+    private static long[] apply(long[] row, Change change) {
+        long[] result = row;
+        for (long id : change.removed()) {
+            result = delete(result, id);
+        }
+        for (long id : change.added()) {
+            result = insert(result, id);
+        }
+        return result;
+    }
+
+    private static long[] insert(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return ids;
+        }
+        int at = -index - 1;
+        long[] copy = new long[ids.length + 1];
+        System.arraycopy(ids, 0, copy, 0, at);
+        copy[at] = id;
+        System.arraycopy(ids, at, copy, at + 1, ids.length - at);
+        return copy;
+    }
+
+    private static long[] delete(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return ids;
+        }
+        long[] copy = new long[ids.length - 1];
+        System.arraycopy(ids, 0, copy, 0, index);
+        System.arraycopy(ids, index + 1, copy, index, ids.length - index - 1);
+        return copy;
+    }
+
+    /**
+     * Construction de la base : relations ajoutées groupées par utilisateur, chaque groupe trié par id
+     * (ordre de la clé primaire (user_id, connection_id) lue en base). Les ids sont strictement positifs.
+     */
+    public static final class Builder {
+
+        private long[] users = new long[16];
+        private int[] offsets = new int[17];
+        private long[] targets = new long[64];
+        private int userCount;
+        private int edgeCount;
+
+        private Builder() {
+        }
+
+        public Builder append(long userId, long connectionId) {
+            if (userId <= 0 || connectionId <= 0) {
+                throw new IllegalArgumentException("Identifiant d'utilisateur invalide: " + userId + " -> " + connectionId);
+            }
+            boolean sameUser = userCount > 0 && users[userCount - 1] == userId;
+            if (sameUser && targets[edgeCount - 1] >= connectionId) {
+                throw new IllegalArgumentException("Relations non triées pour l'utilisateur " + userId);
+            }
+            if (!sameUser) {
+                if (userCount == users.length) {
+                    users = Arrays.copyOf(users, userCount * 2);
+                    offsets = Arrays.copyOf(offsets, userCount * 2 + 1);
+                }
+                users[userCount++] = userId;
+            }
+            if (edgeCount == targets.length) {
+                targets = Arrays.copyOf(targets, edgeCount + (edgeCount >> 1));
+            }
+            targets[edgeCount++] = connectionId;
+            offsets[userCount] = edgeCount;
+            return this;
+        }
+
+        private void appendRow(long userId, long[] row) {
+            for (long connectionId : row) {
+                append(userId, connectionId);
+            }
+        }
+
+        private Csr build() {
+            return new Csr(Arrays.copyOf(users, userCount), Arrays.copyOf(offsets, userCount + 1),
+                    Arrays.copyOf(targets, edgeCount));
+        }
+    }
+
+    /**
+     * Tranche [offsets[r], offsets[r + 1]) de targets pour la ligne r ; slots / rows : table de hachage
+     * (sondage linéaire, 0 = vide, remplie au plus à moitié) de l'id de l'utilisateur vers sa ligne.
+     */
+    private static final class Csr {
+
+        private final long[] slots;
+        private final int[] rows;
+        private final int[] offsets;
+        private final long[] targets;
+
+        private Csr(long[] users, int[] offsets, long[] targets) {
+            int capacity = Integer.highestOneBit(Math.max(users.length, 1) * 2 - 1) << 1;
+            this.slots = new long[capacity];
+            this.rows = new int[capacity];
+            this.offsets = offsets;
+            this.targets = targets;
+            for (int row = 0; row < users.length; row++) {
+                int slot = slot(users[row]);
+                while (slots[slot] != 0) {
+                    if (slots[slot] == users[row]) {
+                        throw new IllegalArgumentException("Relations de l'utilisateur " + users[row] + " non groupées");
+                    }
+                    slot = (slot + 1) & (slots.length - 1);
+                }
+                slots[slot] = users[row];
+                rows[slot] = row;
+            }
+        }
+
+        private int row(long userId) {
+            int slot = slot(userId);
+            while (slots[slot] != 0) {
+                if (slots[slot] == userId) {
+                    return rows[slot];
+                }
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            return -1;
+        }
+
+        private int slot(long userId) {
+            long h = userId * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & (slots.length - 1);
+        }
+
+        private long memoryBytes() {
+            return 8L * slots.length + 4L * rows.length + 4L * offsets.length + 8L * targets.length;
+        }
+    }
+}
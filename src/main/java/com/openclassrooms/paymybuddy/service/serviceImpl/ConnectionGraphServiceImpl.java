@@ -0,0 +1,128 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionEdge;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vérification des relations (« A peut-il payer B ? », relations de A) depuis le graphe en mémoire (ConnectionGraph),
+ * sans requête SQL ni entité User. Le graphe est chargé au démarrage par tranches de la clé primaire de connection,
+ * puis tenu à jour après commit des ajouts et retraits. Tant qu'il n'est pas chargé, ou s'il est désactivé
+ * (plusieurs instances sans diffusion des changements), les vérifications passent par la base.
+ */
+@Service
+@Slf4j
+public class ConnectionGraphServiceImpl {
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    private final ConnectionGraph graph = new ConnectionGraph();
+    private volatile boolean ready;
+
+    public ConnectionGraphServiceImpl(UserRepository userRepository,
+                                      @Value("${connection.graph.enabled:false}") boolean enabled,
+                                      @Value("${connection.graph.chunk-size:10000}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("La taille des tranches du graphe des relations doit être positive");
+        }
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        ConnectionGraph.Builder builder = ConnectionGraph.builder();
+        long afterUserId = 0;
+        long afterConnectionId = 0;
+        List<ConnectionEdge> chunk;
+        do {
+            chunk = userRepository.findEdgesAfter(afterUserId, afterConnectionId, chunkSize);
+            for (ConnectionEdge edge : chunk) {
+                builder.append(edge.userId(), edge.connectionId());
+            }
+            if (!chunk.isEmpty()) {
+                ConnectionEdge last = chunk.get(chunk.size() - 1);
+                afterUserId = last.userId();
+                afterConnectionId = last.connectionId();
+            }
+        } while (chunk.size() == chunkSize);
+
+        graph.load(builder);
+        ready = true;
+        log.info("Graphe des relations chargé : {} relations, {} utilisateurs, {} Ko, en {} ms", graph.edgeCount(),
+                graph.userCount(), graph.memoryBytes() / 1024, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Scheduled(fixedDelayString = "${connection.graph.compact-interval-ms:60000}")
+    public void compact() {
+        int pending = graph.pendingChanges();
+        if (pending > 0) {
+            graph.compact();
+            log.debug("Graphe des relations compacté ({} utilisateur(s) modifié(s))", pending);
+        }
+    }
+
+    // graphe chargé : lectures sans requête
+    public boolean isReady() {
+        return ready;
+    }
+
+    // userId a-t-il ajouté connectionId à ses relations ?
+    public boolean isConnected(long userId, long connectionId) {
+        if (ready) {
+            return graph.contains(userId, connectionId);
+        }
+        return userRepository.existsConnection(userId, connectionId);
+    }
+
+    // relations ajoutées par userId, triées par id
+    public long[] connections(long userId) {
+        if (ready) {
+            return graph.connections(userId);
+        }
+        return userRepository.findConnectionIds(userId).stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    // À appeler dans la transaction d'écriture : le graphe ne bouge qu'après commit
+    public void connectionAdded(long userId, long connectionId) {
+        afterCommit(() -> graph.add(userId, connectionId));
+    }
+
+    public void connectionRemoved(long userId, long connectionId) {
+        afterCommit(() -> graph.remove(userId, connectionId));
+    }
+
+    // les changements arrivés pendant le chargement sont gardés dans le delta du graphe
+    private void afterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.ConnectionSuggestion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * « Vous connaissez peut-être » : relations des relations de l'utilisateur (MutualConnections sur le graphe
+ * en mémoire), classées par relations en commun, chacune pesant 1 + log(1 + score de virements vers elle).
+ * Les suggestions de chaque utilisateur sont gardées en mémoire (LRU + TTL). Une relation A -> B ajoutée ou
+ * retirée marque, après commit, A et les utilisateurs gardés qui suivent A ; refresh() les recalcule.
+ * Tant que le graphe n'est pas chargé, ou s'il est désactivé, aucune suggestion n'est proposée.
+ */
+@Service
+@Slf4j
+public class ConnectionSuggestionServiceImpl {
+
+    private final ConnectionGraphServiceImpl connectionGraph;
+    private final AutocompleteServiceImpl autocompleteService;
+    private final boolean enabled;
+    private final int size;
+    private final long ttlMillis;
+    private final Map<Long, Entry> store;
+    // protégé par store : incrémenté à chaque changement, un calcul concurrent n'est pas gardé
+    private long changes;
+
+    private record Entry(List<ConnectionSuggestion> suggestions, long expiresAt, boolean stale) {
+    }
+
+    public ConnectionSuggestionServiceImpl(ConnectionGraphServiceImpl connectionGraph,
+                                           AutocompleteServiceImpl autocompleteService,
+                                           @Value("${connection.suggestions.enabled:false}") boolean enabled,
+                                           @Value("${connection.suggestions.size:10}") int size,
+                                           @Value("${connection.suggestions.max-users:10000}") int maxUsers,
+                                           @Value("${connection.suggestions.ttl-ms:600000}") long ttlMillis) {
+        if (size < 1 || maxUsers < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("Les paramètres des suggestions de relations doivent être positifs");
+        }
+        this.connectionGraph = connectionGraph;
+        this.autocompleteService = autocompleteService;
+        this.enabled = enabled;
+        this.size = size;
+        this.ttlMillis = ttlMillis;
+        this.store = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public List<ConnectionSuggestion> suggestConnections(long userId) {
+        if (!connectionGraph.isReady()) {
+            return List.of();
+        }
+        if (!enabled) {
+            return compute(userId);
+        }
+        synchronized (store) {
+            Entry entry = store.get(userId);
+            if (entry != null && !entry.stale() && entry.expiresAt() > System.currentTimeMillis()) {
+                return entry.suggestions();
+            }
+        }
+        return load(userId);
+    }
+
+    // suggestions marquées par un changement de relation, recalculées avant la prochaine visite
+    @Scheduled(fixedDelayString = "${connection.suggestions.refresh-interval-ms:60000}")
+    public void refresh() {
+        List<Long> stale = new ArrayList<>();
+        synchronized (store) {
+            store.forEach((userId, entry) -> {
+                if (entry.stale()) {
+                    stale.add(userId);
+                }
+            });
+        }
+        stale.forEach(this::load);
+        if (!stale.isEmpty()) {
+            log.debug("Suggestions de relations recalculées pour {} utilisateur(s)", stale.size());
+        }
+    }
+
+    // À appeler dans la transaction qui ajoute ou retire la relation userId -> connectionId
+    public void connectionChanged(long userId, long connectionId) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (store) {
+                changes++;
+                store.replaceAll((id, entry) -> id == userId || connectionGraph.isConnected(id, userId)
+                        ? new Entry(entry.suggestions(), entry.expiresAt(), true) : entry);
+            }
+        });
+    }
+
+    private List<ConnectionSuggestion> load(long userId) {
+        long version;
+        synchronized (store) {
+            version = changes;
+        }
+        List<ConnectionSuggestion> suggestions = compute(userId);
+        synchronized (store) {
+            if (changes == version) {
+                store.put(userId, new Entry(suggestions, System.currentTimeMillis() + ttlMillis, false));
+            }
+        }
+        return suggestions;
+    }
+
+    private List<ConnectionSuggestion> compute(long userId) {
+        long[] connections = connectionGraph.connections(userId);
+        double[] weights = autocompleteService.transferScores(userId, connections);
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1 + Math.log1p(weights[i]);
+        }
+        // quelques candidats de plus : un compte créé pendant le chargement de l'index n'a pas encore de carte
+        List<ConnectionSuggestion> suggestions = new ArrayList<>(size);
+        for (MutualConnections.Suggestion suggestion
+                : MutualConnections.top(userId, connections, weights, connectionGraph::connections, size + 5)) {
+            ConnectionCard card = autocompleteService.card(suggestion.id());
+            if (card != null && suggestions.size() < size) {
+                suggestions.add(new ConnectionSuggestion(card.id(), card.name(), card.email(),
+                        suggestion.mutualConnections()));
+            }
+        }
+        return List.copyOf(suggestions);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
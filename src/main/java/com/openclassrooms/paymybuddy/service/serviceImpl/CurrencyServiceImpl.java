@@ -1,40 +1,59 @@
 package com.openclassrooms.paymybuddy.service.serviceImpl;
 
+import com.openclassrooms.paymybuddy.money.Money;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
 import static com.openclassrooms.utils.CurrencySymbols.EXCHANGE_RATES;
 
 @Service
 @Slf4j
 public class CurrencyServiceImpl {
 
-    public double convertToEur(double amount, String fromCurrency) {
+    // Taux en millionièmes d'euro par unité de devise (1 USD = 850 000 µEUR) : conversions en arithmétique entière
+    private static final int RATE_SCALE_DIGITS = 6;
+    private static final Map<String, Long> RATES_IN_MICRO_EUR = new HashMap<>();
+
+    static {
+        EXCHANGE_RATES.forEach((currency, rate) -> RATES_IN_MICRO_EUR.put(currency, Math.round(rate * 1_000_000)));
+    }
+
+    public Money convertToEur(Money amount) {
 
-        if ("EUR".equalsIgnoreCase(fromCurrency)) {
+        if (Money.EUR.equalsIgnoreCase(amount.currency())) {
             return amount;
         }
 
-        Double rate = EXCHANGE_RATES.get(fromCurrency.toUpperCase());
-        if (rate == null) {
-            throw new IllegalArgumentException("Devise non supportée: " + fromCurrency);
-        }
+        String currency = amount.currency().toUpperCase();
+        long rate = rateOf(currency);
 
-        log.debug("Conversion de {} {} en EUR", amount, fromCurrency);
-        return amount * rate;
+        // unités mineures * µEUR / unité  ->  centimes
+        log.debug("Conversion de {} en EUR", amount);
+        long divisor = Money.powerOfTen(Money.scale(currency) + RATE_SCALE_DIGITS - Money.scale(Money.EUR));
+        return Money.eur(Money.divideRounded(Money.multiplyExact(amount.minorUnits(), rate), divisor));
     }
 
-    public double convertFromEur(double amount, String toCurrency) {
+    public Money convertFromEur(Money amountInEur, String toCurrency) {
 
-        if ("EUR".equalsIgnoreCase(toCurrency)) {
-            return amount;
+        if (Money.EUR.equalsIgnoreCase(toCurrency)) {
+            return amountInEur;
         }
 
-        Double rate = EXCHANGE_RATES.get(toCurrency.toUpperCase());
+        String currency = toCurrency.toUpperCase();
+        long rate = rateOf(currency);
+
+        long multiplier = Money.powerOfTen(Money.scale(currency) + RATE_SCALE_DIGITS - Money.scale(Money.EUR));
+        return Money.ofMinor(Money.divideRounded(Money.multiplyExact(amountInEur.minorUnits(), multiplier), rate), currency);
+    }
+
+    private long rateOf(String currency) {
+        Long rate = RATES_IN_MICRO_EUR.get(currency);
         if (rate == null) {
-            throw new IllegalArgumentException("Devise non supportée: " + toCurrency);
+            throw new IllegalArgumentException("Devise non supportée: " + currency);
         }
-
-        //log.debug("Conversion de {} {} en EUR", amount, toCurrency);
-        return amount / rate;
+        return rate;
     }
 }
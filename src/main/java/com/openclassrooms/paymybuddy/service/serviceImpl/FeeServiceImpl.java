@@ -0,0 +1,57 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.entity.FeeRule;
+import com.openclassrooms.paymybuddy.money.FeeSchedule;
+import com.openclassrooms.paymybuddy.money.Money;
+import com.openclassrooms.paymybuddy.repository.FeeRuleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Frais de virement : barème lu dans fee_rule, compilé puis publié en une seule écriture volatile.
+ * Les virements lisent le barème courant sans verrou ; sans palier en base, le barème par défaut (0,5 %) s'applique.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FeeServiceImpl {
+
+    private final FeeRuleRepository feeRuleRepository;
+
+    private volatile FeeSchedule schedule = FeeSchedule.DEFAULT;
+
+    // amount : montant dans la devise d'origine, amountInEur : le même converti en euros
+    public Money feeFor(Money amount, Money amountInEur) {
+        return schedule.fee(amount.currency(), amountInEur);
+    }
+
+    public FeeSchedule getSchedule() {
+        return schedule;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${fees.reload-interval-ms:60000}", initialDelayString = "${fees.reload-interval-ms:60000}")
+    public void reload() {
+        List<FeeRule> rules = feeRuleRepository.findAll();
+        if (rules.isEmpty()) {
+            schedule = FeeSchedule.DEFAULT;
+            return;
+        }
+
+        try {
+            schedule = FeeSchedule.compile(rules.stream()
+                    .map(rule -> new FeeSchedule.Tier(rule.getCurrency(), rule.getMinAmount(), rule.getBasisPoints(),
+                            rule.getMinFee(), rule.getMaxFee() == null ? FeeSchedule.NO_CAP : rule.getMaxFee()))
+                    .toList());
+        } catch (IllegalArgumentException e) {
+            // barème incohérent : on garde le précédent plutôt que de bloquer les virements
+            log.error("Barème de frais ignoré : {}", e.getMessage());
+        }
+    }
+}
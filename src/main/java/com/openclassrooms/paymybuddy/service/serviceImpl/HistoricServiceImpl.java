@@ -1,16 +1,17 @@
 package com.openclassrooms.paymybuddy.service.serviceImpl;
 
-import com.openclassrooms.paymybuddy.entity.Historic;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.dto.HistoricView;
+import com.openclassrooms.paymybuddy.dto.PageCursor;
 import com.openclassrooms.paymybuddy.entity.User;
 import com.openclassrooms.paymybuddy.repository.HistoricRepository;
 import com.openclassrooms.paymybuddy.repository.UserRepository;
 import com.openclassrooms.paymybuddy.service.HistoricService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import org.springframework.data.domain.Pageable;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -25,9 +26,23 @@ public class HistoricServiceImpl implements HistoricService {
                 .orElseThrow(() -> new UsernameNotFoundException("L'utilisateur n'est pas été trouvé"));
     }
 
+    // after : page suivante (plus anciennes), before : page précédente (plus récentes)
     @Override
-    public Page<Historic> getUserHistoricPaginated(Long userId, Pageable pageable) {
-        return historicRepository.findUserHistoryPaginated(userId, pageable);
+    public CursorPage<HistoricView> getUserHistoric(Long userId, String after, String before, int size) {
+        CursorPage.checkSize(size);
+        int limit = size + 1;
+        List<HistoricView> rows;
+        if (after != null) {
+            PageCursor cursor = PageCursor.decode(after);
+            rows = historicRepository.findOlderThan(userId, cursor.executionDate(), cursor.id(), limit);
+        } else if (before != null) {
+            PageCursor cursor = PageCursor.decode(before);
+            rows = historicRepository.findNewerThan(userId, cursor.executionDate(), cursor.id(), limit);
+        } else {
+            rows = historicRepository.findLatest(userId, limit);
+        }
+        return CursorPage.of(rows, size, after != null || before != null, after == null && before != null,
+                historic -> new PageCursor(historic.executionDate(), historic.id()));
     }
 
 }
@@ -0,0 +1,122 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.entity.SubBalance;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.repository.SubBalanceRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Comptes très sollicités en réception (marchands) : leur solde est réparti sur K sous-soldes.
+ * Chaque crédit choisit un emplacement au hasard et ne prend que le verrou de cet emplacement,
+ * les crédits simultanés vers un même compte ne se mettent donc plus en file.
+ * Les débits, rechargements et lectures restent sur le compte principal ; le solde lu additionne tout.
+ */
+@Service
+@Slf4j
+public class HotAccountServiceImpl {
+
+    private static final int MAX_SLOTS = 1024;
+
+    private final SubBalanceRepository subBalanceRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int slots;
+    private final List<String> configuredEmails;
+
+    private volatile Set<Long> hotAccounts = Set.of();
+
+    public HotAccountServiceImpl(SubBalanceRepository subBalanceRepository,
+                                 UserRepository userRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${ledger.hot-accounts.slots:8}") int slots,
+                                 @Value("${ledger.hot-accounts.emails:}") List<String> configuredEmails) {
+        if (slots <= 0 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Le nombre de sous-soldes doit être compris entre 1 et " + MAX_SLOTS);
+        }
+        this.subBalanceRepository = subBalanceRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.slots = slots;
+        this.configuredEmails = configuredEmails;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void enableConfiguredAccounts() {
+        for (String email : configuredEmails) {
+            if (email.isBlank()) {
+                continue;
+            }
+            try {
+                enable(email.trim());
+            } catch (UserNotFoundException e) {
+                log.warn("Compte à sous-soldes introuvable : {}", email);
+            }
+        }
+        refresh();
+    }
+
+    // crée les sous-soldes manquants ; sans effet si le compte est déjà réparti
+    public void enable(String email) throws UserNotFoundException {
+        Long userId = userRepository.findIdByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("Aucun utilisateur trouvé avec l'email: " + email));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Integer> existing = subBalanceRepository.findSlotsByUserId(userId);
+            for (int slot = 0; slot < slots; slot++) {
+                if (!existing.contains(slot)) {
+                    subBalanceRepository.save(new SubBalance(userId, slot));
+                }
+            }
+        });
+        log.info("Compte {} réparti sur {} sous-soldes", userId, slots);
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.hot-accounts.refresh-interval-ms:60000}")
+    public void refresh() {
+        hotAccounts = Set.copyOf(subBalanceRepository.findHotAccountIds());
+    }
+
+    public boolean isHot(Long accountId) {
+        return hotAccounts.contains(accountId);
+    }
+
+    // emplacement tiré pour chaque destinataire réparti ; les autres sont absents de la map
+    public Map<Long, Integer> pickSlots(Collection<Long> receiverIds) {
+        Set<Long> hot = hotAccounts;
+        if (hot.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Integer> picked = new HashMap<>();
+        for (Long receiverId : receiverIds) {
+            if (hot.contains(receiverId)) {
+                picked.put(receiverId, ThreadLocalRandom.current().nextInt(slots));
+            }
+        }
+        return picked;
+    }
+
+    // clé de verrou d'un sous-solde : négative, elle ne peut pas coïncider avec un id de compte
+    public static long lockKey(long userId, int slot) {
+        return -(userId * MAX_SLOTS + slot + 1);
+    }
+
+    public static long creditLockKey(Long receiverId, Map<Long, Integer> receiverSlots) {
+        Integer slot = receiverSlots.get(receiverId);
+        return slot == null ? receiverId : lockKey(receiverId, slot);
+    }
+}
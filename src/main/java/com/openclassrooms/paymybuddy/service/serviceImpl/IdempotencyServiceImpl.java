@@ -0,0 +1,221 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.entity.IdempotencyRecord;
+import com.openclassrooms.paymybuddy.exception.IdempotencyConflictException;
+import com.openclassrooms.paymybuddy.exception.IdempotencyKeyReusedException;
+import com.openclassrooms.paymybuddy.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Rejeu des requêtes de virement et de rechargement portant un en-tête Idempotency-Key.
+ * La clé est réservée en base (contrainte unique par utilisateur) avant l'appel au service :
+ * une seconde requête avec la même clé reçoit le résultat enregistré sans rien réexécuter.
+ * La clé est liée à l'empreinte (SHA-256) de la requête : réutilisée pour un autre montant ou un autre
+ * destinataire, elle est refusée (422) au lieu de rejouer la première réponse.
+ * L'opération et le passage de la clé à COMPLETED sont commités dans la même transaction.
+ * Une réservation restée PENDING au-delà de pending-timeout-ms (arrêt avant le commit) est reprise.
+ * Les résultats récents sont aussi gardés dans un cache mémoire borné (LRU + TTL).
+ */
+@Service
+@Slf4j
+public class IdempotencyServiceImpl {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMillis;
+    private final long pendingTimeoutMillis;
+    private final Map<String, CachedResponse> cache;
+    private final Counter replays;
+
+    private record CachedResponse(String operation, String requestHash, String response, long expiresAt) {
+    }
+
+    public IdempotencyServiceImpl(IdempotencyRecordRepository idempotencyRecordRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${idempotency.cache.max-entries:10000}") int maxEntries,
+                                  @Value("${idempotency.ttl-ms:86400000}") long ttlMillis,
+                                  @Value("${idempotency.pending-timeout-ms:60000}") long pendingTimeoutMillis,
+                                  MeterRegistry meterRegistry) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("La taille du cache d'idempotence doit être positive");
+        }
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        // READ_COMMITTED comme les virements : l'opération rejoint cette transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.ttlMillis = ttlMillis;
+        this.pendingTimeoutMillis = pendingTimeoutMillis;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.replays = meterRegistry.counter("paymybuddy.idempotency.replays");
+    }
+
+    // Sans clé, l'action est simplement exécutée ; avec une clé déjà vue, la réponse enregistrée est renvoyée.
+    // request : paramètres de la requête sous forme canonique, dont l'empreinte est gardée avec la clé
+    public String execute(String idempotencyKey, String userEmail, String operation, String request,
+                          Supplier<String> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        String key = idempotencyKey.trim();
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("La clé d'idempotence ne peut pas dépasser " + MAX_KEY_LENGTH + " caractères");
+        }
+
+        String requestHash = hash(request);
+        String cacheKey = userEmail + '\n' + key;
+        Optional<String> cached = cachedResponse(cacheKey, operation, requestHash);
+        if (cached.isPresent()) {
+            replays.increment();
+            return cached.get();
+        }
+
+        IdempotencyRecord reservation = reserve(userEmail, key, operation, requestHash);
+        if (reservation == null) {
+            IdempotencyRecord stored = idempotencyRecordRepository.findByUserEmailAndIdempotencyKey(userEmail, key)
+                    .orElseThrow(() -> new IdempotencyConflictException("Requête en cours de traitement, veuillez réessayer"));
+            checkRequest(stored.getOperation(), stored.getRequestHash(), operation, requestHash);
+            if (stored.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                replays.increment();
+                cacheResponse(cacheKey, operation, requestHash, stored.getResponse());
+                return stored.getResponse();
+            }
+            reservation = takeOver(stored, userEmail, key, operation, requestHash);
+        }
+
+        Long recordId = reservation.getId();
+        AtomicBoolean rolledBack = new AtomicBoolean();
+        String response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                try {
+                    String result = action.get();
+                    if (idempotencyRecordRepository.complete(recordId, result) != 1) {
+                        throw new IdempotencyConflictException("Requête reprise par une autre tentative, veuillez réessayer");
+                    }
+                    return result;
+                } catch (RuntimeException e) {
+                    // TransactionTemplate annule la transaction : ni l'opération ni la clé ne sont commitées
+                    rolledBack.set(true);
+                    throw e;
+                }
+            });
+        } catch (RuntimeException e) {
+            // rien n'a été appliqué : le client peut réessayer tout de suite avec la même clé
+            // (échec du commit, issue inconnue : la clé reste PENDING jusqu'à sa reprise)
+            if (rolledBack.get()) {
+                idempotencyRecordRepository.releasePending(recordId);
+            }
+            throw e;
+        }
+
+        cacheResponse(cacheKey, operation, requestHash, response);
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(Duration.ofMillis(ttlMillis)));
+        if (deleted > 0) {
+            log.info("{} clé(s) d'idempotence expirée(s) supprimée(s)", deleted);
+        }
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            cache.values().removeIf(entry -> entry.expiresAt() <= now);
+        }
+    }
+
+    // null si la clé existe déjà
+    private IdempotencyRecord reserve(String userEmail, String key, String operation, String requestHash) {
+        try {
+            return idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(userEmail, key, operation, requestHash));
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    // Réservation abandonnée (arrêt avant le commit) : rien n'a été appliqué, la clé est reprise.
+    // Si la première tentative finit par commiter, complete() ne trouve plus sa réservation et elle est annulée.
+    private IdempotencyRecord takeOver(IdempotencyRecord stored, String userEmail, String key, String operation,
+                                       String requestHash) {
+        LocalDateTime abandonedBefore = LocalDateTime.now().minus(Duration.ofMillis(pendingTimeoutMillis));
+        if (stored.getCreatedAt().isBefore(abandonedBefore) && idempotencyRecordRepository.releasePending(stored.getId()) == 1) {
+            IdempotencyRecord reservation = reserve(userEmail, key, operation, requestHash);
+            if (reservation != null) {
+                log.info("Clé d'idempotence restée en attente reprise pour {}", userEmail);
+                return reservation;
+            }
+        }
+        throw new IdempotencyConflictException("Requête en cours de traitement, veuillez réessayer");
+    }
+
+    private Optional<String> cachedResponse(String cacheKey, String operation, String requestHash) {
+        CachedResponse entry;
+        synchronized (cache) {
+            entry = cache.get(cacheKey);
+            if (entry != null && entry.expiresAt() <= System.currentTimeMillis()) {
+                cache.remove(cacheKey);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            return Optional.empty();
+        }
+        checkRequest(entry.operation(), entry.requestHash(), operation, requestHash);
+        return Optional.of(entry.response());
+    }
+
+    private void cacheResponse(String cacheKey, String operation, String requestHash, String response) {
+        synchronized (cache) {
+            cache.put(cacheKey, new CachedResponse(operation, requestHash, response, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    // empreinte absente : clé enregistrée avant l'ajout de la colonne, seule l'opération est comparée
+    private void checkRequest(String storedOperation, String storedHash, String operation, String requestHash) {
+        if (!storedOperation.equals(operation)) {
+            throw new IdempotencyKeyReusedException("Clé d'idempotence déjà utilisée pour une autre opération");
+        }
+        if (storedHash != null && !storedHash.equals(requestHash)) {
+            throw new IdempotencyKeyReusedException("Clé d'idempotence déjà utilisée pour une autre requête");
+        }
+    }
+
+    private static String hash(String request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(String.valueOf(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+}
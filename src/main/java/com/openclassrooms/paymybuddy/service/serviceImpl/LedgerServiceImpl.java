@@ -0,0 +1,191 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.dto.AccountCredit;
+import com.openclassrooms.paymybuddy.entity.LedgerEntry;
+import com.openclassrooms.paymybuddy.entity.SubBalance;
+import com.openclassrooms.paymybuddy.exception.AccountLockTimeoutException;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.money.Money;
+import com.openclassrooms.paymybuddy.repository.LedgerEntryRepository;
+import com.openclassrooms.paymybuddy.repository.SubBalanceRepository;
+import com.openclassrooms.paymybuddy.repository.TransferBatchRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.openclassrooms.paymybuddy.entity.LedgerEntry.Account.*;
+import static com.openclassrooms.paymybuddy.entity.LedgerEntry.Type.*;
+
+/**
+ * Grand livre en partie double : les mouvements ne font que des insertions dans ledger_entry.
+ * User.balance n'est qu'une projection à la position ledger_position, mise à jour par le compactage.
+ * Toute écriture sur un compte se fait sous son verrou (AccountLockManager), ce qui garantit
+ * qu'aucune écriture non commitée n'existe pour un compte pendant son compactage.
+ * Les crédits vers un sous-solde (HotAccountServiceImpl) forment un flux à part, avec son propre verrou
+ * et sa propre position, reversé ensuite dans le solde principal.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerServiceImpl {
+
+    private static final int COMPACTION_BATCH_SIZE = 500;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final UserRepository userRepository;
+    private final TransferBatchRepository transferBatchRepository;
+    private final SubBalanceRepository subBalanceRepository;
+    private final AccountLockManager accountLockManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public Money getAvailableBalance(Long userId) throws UserNotFoundException {
+        return ledgerEntryRepository.findAvailableBalance(userId)
+                .map(Money::eur)
+                .orElseThrow(() -> new UserNotFoundException("Aucun utilisateur trouvé"));
+    }
+
+    // receiverSlot : sous-solde crédité (verrou de l'emplacement pris par l'appelant), null pour le solde principal
+    public void recordTransfer(Long senderId, Long receiverId, Integer receiverSlot, Long transactionId,
+                               Money amountInEur, Money feeInEur) {
+        List<LedgerEntry> entries = new ArrayList<>(4);
+        addTransferEntries(entries, senderId, receiverId, receiverSlot, transactionId, amountInEur, feeInEur);
+        transferBatchRepository.insertLedgerEntries(entries);
+    }
+
+    public void recordTransfers(Long senderId, List<TransferBatchRepository.TransactionRow> rows, List<Long> transactionIds,
+                                Map<Long, Integer> receiverSlots) {
+        List<LedgerEntry> entries = new ArrayList<>(rows.size() * 4);
+        for (int i = 0; i < rows.size(); i++) {
+            TransferBatchRepository.TransactionRow row = rows.get(i);
+            addTransferEntries(entries, senderId, row.receiverId(), receiverSlots.get(row.receiverId()),
+                    transactionIds.get(i), row.amountInEur(), row.fee());
+        }
+        transferBatchRepository.insertLedgerEntries(entries);
+    }
+
+    public void recordTopUp(Long userId, Money amount) {
+        transferBatchRepository.insertLedgerEntries(List.of(
+                LedgerEntry.debit(EXTERNAL, null, TOP_UP, amount, null),
+                LedgerEntry.credit(USER, userId, TOP_UP, amount, null)));
+    }
+
+    // Rechargements en masse : sous les verrous de tous les comptes crédités
+    public void recordTopUps(List<AccountCredit> credits) {
+        List<LedgerEntry> entries = new ArrayList<>(credits.size() * 2);
+        for (AccountCredit credit : credits) {
+            entries.add(LedgerEntry.debit(EXTERNAL, null, TOP_UP, credit.amount(), null));
+            entries.add(LedgerEntry.credit(USER, credit.userId(), TOP_UP, credit.amount(), null));
+        }
+        transferBatchRepository.insertLedgerEntries(entries);
+    }
+
+    private void addTransferEntries(List<LedgerEntry> entries, Long senderId, Long receiverId, Integer receiverSlot,
+                                    Long transactionId, Money amountInEur, Money feeInEur) {
+        entries.add(LedgerEntry.debit(USER, senderId, TRANSFER, amountInEur, transactionId));
+        entries.add(LedgerEntry.credit(USER, receiverId, TRANSFER, amountInEur, transactionId, receiverSlot));
+        if (feeInEur.isPositive()) {
+            entries.add(LedgerEntry.debit(USER, senderId, FEE, feeInEur, transactionId));
+            entries.add(LedgerEntry.credit(FEES, null, FEE, feeInEur, transactionId));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.compaction.interval-ms:60000}")
+    public void compact() {
+        List<Long> accounts = ledgerEntryRepository.findAccountsToCompact(COMPACTION_BATCH_SIZE);
+        int compacted = 0;
+
+        for (Long userId : accounts) {
+            try {
+                if (compactAccount(userId)) {
+                    compacted++;
+                }
+            } catch (AccountLockTimeoutException e) {
+                // compte très actif : il sera repris au prochain passage
+                log.debug("Compactage reporté pour le compte {}", userId);
+            }
+        }
+
+        for (SubBalance subBalance : subBalanceRepository.findSlotsToCompact()) {
+            try {
+                if (compactSubBalance(subBalance.getUserId(), subBalance.getSlot())) {
+                    compacted++;
+                }
+            } catch (AccountLockTimeoutException e) {
+                log.debug("Compactage reporté pour le sous-solde {}/{}", subBalance.getUserId(), subBalance.getSlot());
+            }
+        }
+
+        if (compacted > 0) {
+            log.info("Grand livre compacté pour {} compte(s) ou sous-solde(s)", compacted);
+        }
+    }
+
+    public boolean compactAccount(Long userId) {
+        return accountLockManager.executeWithLocks(() -> Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            long position = userRepository.findLedgerPositionById(userId)
+                    .orElseThrow(() -> new UserNotFoundException("Aucun utilisateur trouvé"));
+            long lastEntryId = ledgerEntryRepository.findLastEntryId(userId).orElse(position);
+
+            if (lastEntryId <= position) {
+                return false;
+            }
+
+            long delta = ledgerEntryRepository.sumUserEntries(userId, position, lastEntryId);
+            return userRepository.applyLedger(userId, delta, position, lastEntryId) == 1;
+        })), userId);
+    }
+
+    public boolean compactSubBalance(Long userId, int slot) {
+        return accountLockManager.executeWithLocks(() -> Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            long position = subBalanceRepository.findLedgerPosition(userId, slot)
+                    .orElseThrow(() -> new UserNotFoundException("Aucun sous-solde trouvé"));
+            long lastEntryId = ledgerEntryRepository.findLastSubBalanceEntryId(userId, slot).orElse(position);
+
+            if (lastEntryId <= position) {
+                return false;
+            }
+
+            long delta = ledgerEntryRepository.sumSubBalanceEntries(userId, slot, position, lastEntryId);
+            return subBalanceRepository.applyLedger(userId, slot, delta, position, lastEntryId) == 1;
+        })), HotAccountServiceImpl.lockKey(userId, slot));
+    }
+
+    // Reversement des sous-soldes dans user.balance : une lecture (une seule requête) voit l'avant ou l'après
+    @Scheduled(fixedDelayString = "${ledger.hot-accounts.fold-interval-ms:300000}")
+    public void foldSubBalances() {
+        int folded = 0;
+        for (SubBalance subBalance : subBalanceRepository.findSlotsToFold()) {
+            try {
+                if (foldSubBalance(subBalance.getUserId(), subBalance.getSlot())) {
+                    folded++;
+                }
+            } catch (AccountLockTimeoutException e) {
+                log.debug("Reversement reporté pour le sous-solde {}/{}", subBalance.getUserId(), subBalance.getSlot());
+            }
+        }
+
+        if (folded > 0) {
+            log.info("{} sous-solde(s) reversé(s) dans le solde principal", folded);
+        }
+    }
+
+    // user.balance est mis à jour en relatif : pas besoin du verrou du compte principal
+    public boolean foldSubBalance(Long userId, int slot) {
+        return accountLockManager.executeWithLocks(() -> Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            long amount = subBalanceRepository.findBalance(userId, slot).orElse(0L);
+            if (amount == 0) {
+                return false;
+            }
+            subBalanceRepository.withdraw(userId, slot, amount);
+            userRepository.depositSubBalance(userId, amount);
+            return true;
+        })), HotAccountServiceImpl.lockKey(userId, slot));
+    }
+}
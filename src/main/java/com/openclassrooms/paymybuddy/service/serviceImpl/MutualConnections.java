@@ -0,0 +1,162 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongFunction;
+
+/**
+ * Relations des relations d'un utilisateur, comptées sans boîte Long : chaque chemin de longueur 2 incrémente un
+ * compteur primitif (relations en commun, score). Les ids étant denses (auto-incrément) et les relations triées,
+ * les compteurs sont un tableau indexé par id quand l'étendue des candidats reste proche du nombre de chemins ;
+ * sinon une table de hachage à adressage ouvert. Les relations de l'utilisateur, triées, sont écartées au passage.
+ * Coût : O(P) pour P chemins de longueur 2, mémoire O(min(étendue des ids, P) + limit).
+ */
+public final class MutualConnections {
+
+    // score : somme des poids des relations en commun
+    public record Suggestion(long id, int mutualConnections, double score) {
+    }
+
+    private static final Comparator<Suggestion> RANK = Comparator.comparingDouble(Suggestion::score)
+            .thenComparingInt(Suggestion::mutualConnections)
+            .thenComparing(Comparator.comparingLong(Suggestion::id).reversed());
+
+    // compteurs indexés par id tant que l'étendue ne dépasse pas DENSE_SPREAD fois le nombre de chemins
+    private static final int DENSE_SPREAD = 4;
+
+    private MutualConnections() {
+    }
+
+    /**
+     * Les limit meilleures suggestions pour userId, meilleures en premier.
+     *
+     * @param connections   relations de userId, triées par id
+     * @param weights       poids de chaque relation (même ordre que connections)
+     * @param connectionsOf relations triées d'un utilisateur
+     */
+    public static List<Suggestion> top(long userId, long[] connections, double[] weights,
+                                       LongFunction<long[]> connectionsOf, int limit) {
+        if (weights.length != connections.length || limit < 1) {
+            throw new IllegalArgumentException("Un poids par relation et au moins une suggestion sont attendus");
+        }
+        long[][] rows = new long[connections.length][];
+        long paths = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < connections.length; i++) {
+            rows[i] = connectionsOf.apply(connections[i]);
+            if (rows[i].length > 0) {
+                paths += rows[i].length;
+                min = Math.min(min, rows[i][0]);
+                max = Math.max(max, rows[i][rows[i].length - 1]);
+            }
+        }
+
+        if (paths == 0) {
+            return List.of();
+        }
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(limit + 1, RANK);
+        long spread = max - min + 1;
+        if (spread <= DENSE_SPREAD * paths && spread <= Integer.MAX_VALUE) {
+            countDense(userId, connections, weights, rows, min, (int) spread, best, limit);
+        } else {
+            countHashed(userId, connections, weights, rows, paths, best, limit);
+        }
+
+        List<Suggestion> result = new ArrayList<>(best);
+        result.sort(RANK.reversed());
+        return result;
+    }
+
+    private static void countDense(long userId, long[] connections, double[] weights, long[][] rows, long min,
+                                   int spread, PriorityQueue<Suggestion> best, int limit) {
+        int[] mutual = new int[spread];
+        double[] scores = new double[spread];
+        for (int i = 0; i < rows.length; i++) {
+            double weight = weights[i];
+            for (long candidate : rows[i]) {
+                int at = (int) (candidate - min);
+                mutual[at]++;
+                scores[at] += weight;
+            }
+        }
+        // ids croissants : les relations de l'utilisateur sont écartées par un seul parcours
+        int known = 0;
+        for (int at = 0; at < spread; at++) {
+            if (mutual[at] == 0) {
+                continue;
+            }
+            long candidate = min + at;
+            while (known < connections.length && connections[known] < candidate) {
+                known++;
+            }
+            if (candidate != userId && (known == connections.length || connections[known] != candidate)) {
+                offer(best, limit, candidate, mutual[at], scores[at]);
+            }
+        }
+    }
+
+    private static void countHashed(long userId, long[] connections, double[] weights, long[][] rows, long paths,
+                                    PriorityQueue<Suggestion> best, int limit) {
+        Counts counts = new Counts(paths);
+        for (int i = 0; i < rows.length; i++) {
+            for (long candidate : rows[i]) {
+                counts.add(candidate, weights[i]);
+            }
+        }
+        for (int slot = 0; slot < counts.ids.length; slot++) {
+            long candidate = counts.ids[slot];
+            if (candidate != 0 && candidate != userId && Arrays.binarySearch(connections, candidate) < 0) {
+                offer(best, limit, candidate, counts.mutual[slot], counts.scores[slot]);
+            }
+        }
+    }
+
+    private static void offer(PriorityQueue<Suggestion> best, int limit, long candidate, int mutual, double score) {
+        if (best.size() == limit) {
+            Suggestion worst = best.peek();
+            if (worst.score() > score || (worst.score() == score && (worst.mutualConnections() > mutual
+                    || (worst.mutualConnections() == mutual && worst.id() < candidate)))) {
+                return;
+            }
+            best.poll();
+        }
+        best.add(new Suggestion(candidate, mutual, score));
+    }
+
+    /**
+     * Candidat -> (relations en commun, score) : sondage linéaire, 0 = vide (les ids sont strictement positifs),
+     * dimensionnée d'après le nombre de chemins et remplie au plus à moitié.
+     */
+    private static final class Counts {
+
+        private final long[] ids;
+        private final int[] mutual;
+        private final double[] scores;
+
+        private Counts(long paths) {
+            int capacity = Integer.highestOneBit((int) Math.min(Math.max(paths, 8), 1 << 29) * 2 - 1) << 1;
+            ids = new long[capacity];
+            mutual = new int[capacity];
+            scores = new double[capacity];
+        }
+
+        private void add(long id, double weight) {
+            int slot = slot(id);
+            while (ids[slot] != 0 && ids[slot] != id) {
+                slot = (slot + 1) & (ids.length - 1);
+            }
+            ids[slot] = id;
+            mutual[slot]++;
+            scores[slot] += weight;
+        }
+
+        private int slot(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & (ids.length - 1);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Relations de chaque utilisateur (cartes triées par nom), lues une fois puis servies depuis la mémoire.
+ * Une relation ajoutée ou retirée invalide, après commit, la liste des deux utilisateurs concernés ;
+ * un changement de nom ou d'email invalide celle de l'utilisateur et toutes celles qui l'affichent.
+ * Cache borné (LRU + TTL) ; une invalidation commitée pendant une lecture empêche sa mise en cache.
+ */
+@Component
+public class RelationsCache {
+
+    private static final int STRIPES = 256;
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Map<Long, CachedRelations> cache;
+    // protégé par cache
+    private final long[] versions = new long[STRIPES];
+    private final Counter hits;
+    private final Counter misses;
+
+    private record CachedRelations(List<ConnectionCard> relations, long expiresAt) {
+    }
+
+    public RelationsCache(@Value("${connection.relations-cache.enabled:false}") boolean enabled,
+                          @Value("${connection.relations-cache.max-users:10000}") int maxUsers,
+                          @Value("${connection.relations-cache.ttl-ms:600000}") long ttlMillis,
+                          MeterRegistry meterRegistry) {
+        if (maxUsers < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("La taille et la durée du cache des relations doivent être positives");
+        }
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedRelations> eldest) {
+                return size() > maxUsers;
+            }
+        };
+        this.hits = meterRegistry.counter("paymybuddy.connection.relations.cache", "result", "hit");
+        this.misses = meterRegistry.counter("paymybuddy.connection.relations.cache", "result", "miss");
+    }
+
+    public List<ConnectionCard> relations(Long userId, Supplier<List<ConnectionCard>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        long version;
+        synchronized (cache) {
+            CachedRelations entry = cache.get(userId);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.relations();
+            }
+            version = versions[stripe(userId)];
+        }
+
+        misses.increment();
+        List<ConnectionCard> relations = List.copyOf(loader.get());
+        synchronized (cache) {
+            if (versions[stripe(userId)] == version) {
+                cache.put(userId, new CachedRelations(relations, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+        return relations;
+    }
+
+    // À appeler dans la transaction qui ajoute ou retire la relation userId -> connectionId
+    public void connectionChanged(long userId, long connectionId) {
+        afterCommit(() -> {
+            synchronized (cache) {
+                evict(userId);
+                evict(connectionId);
+            }
+        });
+    }
+
+    // À appeler dans la transaction qui renomme l'utilisateur ou change son email
+    public void profileChanged(long userId) {
+        afterCommit(() -> {
+            synchronized (cache) {
+                for (int i = 0; i < STRIPES; i++) {
+                    versions[i]++;
+                }
+                evict(userId);
+                Iterator<CachedRelations> entries = cache.values().iterator();
+                while (entries.hasNext()) {
+                    if (entries.next().relations().stream().anyMatch(card -> card.id() == userId)) {
+                        entries.remove();
+                    }
+                }
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void evict(long userId) {
+        versions[stripe(userId)]++;
+        cache.remove(userId);
+    }
+
+    private static int stripe(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * File circulaire bornée, pré-allouée, sans verrou : plusieurs producteurs, un seul consommateur.
+ * Chaque case porte un numéro de séquence qui indique si elle est libre (seq == position)
+ * ou publiée (seq == position + 1) ; les producteurs réservent une position par CAS.
+ */
+public final class RingBuffer<T> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    // lu et écrit uniquement par le consommateur
+    private long tail;
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacité doit être positive");
+        }
+        int size = Math.max(Integer.highestOneBit(capacity - 1) << 1, 1);
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    // false si la file est pleine (le producteur décide : rejet ou nouvel essai)
+    public boolean offer(T item) {
+        long position = head.get();
+        for (;;) {
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    slots[index] = item;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = head.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    // consommateur unique : retire au plus max éléments publiés, dans l'ordre
+    @SuppressWarnings("unchecked")
+    public int drainTo(List<? super T> target, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) tail & mask;
+            if (sequences.get(index) != tail + 1) {
+                break;
+            }
+            target.add((T) slots[index]);
+            slots[index] = null;
+            sequences.set(index, tail + slots.length);
+            tail++;
+            drained++;
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,285 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.dto.DueTransfer;
+import com.openclassrooms.paymybuddy.dto.ScheduledTransferRequest;
+import com.openclassrooms.paymybuddy.dto.TransferRequest;
+import com.openclassrooms.paymybuddy.dto.TransferResult;
+import com.openclassrooms.paymybuddy.entity.ScheduledTransfer;
+import com.openclassrooms.paymybuddy.exception.AccountLockTimeoutException;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.money.Money;
+import com.openclassrooms.paymybuddy.repository.ScheduledTransferRepository;
+import com.openclassrooms.paymybuddy.repository.TransferBatchRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.openclassrooms.utils.CurrencySymbols.SUPPORTED_CURRENCIES;
+
+/**
+ * Virements programmés et ordres permanents.
+ * À chaque passage, les échéances dues sont lues par lots d'id croissants, regroupées par expéditeur
+ * et réparties sur un petit nombre de threads (workers) selon l'id de l'expéditeur : les virements
+ * d'un même compte restent séquentiels et le trafic interactif garde le reste des connexions et des verrous.
+ * Pour chaque expéditeur, les virements passent par makeTransactions (batch JDBC) et les échéances
+ * sont avancées dans la même transaction : une échéance n'est jamais exécutée deux fois.
+ * Un commit verrouille au plus AccountLockManager.MAX_ACCOUNTS_PER_COMMIT comptes, et le worker cède
+ * la main entre deux commits.
+ * Une échéance refusée (solde insuffisant...) est manquée, comme un ordre permanent bancaire.
+ */
+@Service
+@Slf4j
+public class ScheduledTransferServiceImpl {
+
+    private static final int MAX_MESSAGE_LENGTH = 255;
+    // taille maximale d'un lot de makeTransactions
+    private static final int MAX_TRANSFERS_PER_COMMIT = 500;
+
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final UserRepository userRepository;
+    private final TransactionServiceImpl transactionService;
+    private final ConnectionGraphServiceImpl connectionGraph;
+    private final TransferBatchRepository transferBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int workers;
+    private final ExecutorService executor;
+
+    public ScheduledTransferServiceImpl(ScheduledTransferRepository scheduledTransferRepository,
+                                        UserRepository userRepository,
+                                        TransactionServiceImpl transactionService,
+                                        ConnectionGraphServiceImpl connectionGraph,
+                                        TransferBatchRepository transferBatchRepository,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${transaction.scheduled.batch-size:500}") int batchSize,
+                                        @Value("${transaction.scheduled.workers:2}") int workers) {
+        if (batchSize <= 0 || workers <= 0) {
+            throw new IllegalArgumentException("La taille des lots et le nombre de workers doivent être positifs");
+        }
+        this.scheduledTransferRepository = scheduledTransferRepository;
+        this.userRepository = userRepository;
+        this.transactionService = transactionService;
+        this.connectionGraph = connectionGraph;
+        this.transferBatchRepository = transferBatchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.batchSize = batchSize;
+        this.workers = workers;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-transfer-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ScheduledTransfer schedule(String senderEmail, ScheduledTransferRequest request) throws UserNotFoundException {
+        if (request.frequency() == null) {
+            throw new IllegalArgumentException("La fréquence est obligatoire");
+        }
+        String currency = request.currency() == null ? "" : request.currency().trim().toUpperCase();
+        if (!SUPPORTED_CURRENCIES.contains(currency)) {
+            throw new IllegalArgumentException("Devise non supportée: " + request.currency());
+        }
+        Money amount = Money.of(request.amount(), currency);
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("Le montant doit être positif");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime firstRunAt = request.firstRunAt() == null ? now : request.firstRunAt();
+        if (firstRunAt.isBefore(now.minusMinutes(1))) {
+            throw new IllegalArgumentException("La première échéance ne peut pas être dans le passé");
+        }
+
+        Long senderId = userRepository.findIdByEmail(senderEmail)
+                .orElseThrow(() -> new UserNotFoundException("Expéditeur non trouvé"));
+        Long receiverId = userRepository.findIdByEmail(request.receiverEmail())
+                .orElseThrow(() -> new UserNotFoundException("Destinataire non trouvé"));
+        if (!connectionGraph.isConnected(senderId, receiverId)) {
+            throw new IllegalArgumentException("Vous ne pouvez programmer un virement que vers vos relations");
+        }
+
+        ScheduledTransfer scheduled = new ScheduledTransfer();
+        scheduled.setSenderId(senderId);
+        scheduled.setReceiverId(receiverId);
+        scheduled.setAmount(amount.minorUnits());
+        scheduled.setCurrency(amount.currency());
+        scheduled.setDescription(request.description());
+        scheduled.setFrequency(request.frequency());
+        scheduled.setFirstRunAt(firstRunAt);
+        scheduled.setNextRunAt(firstRunAt);
+        return scheduledTransferRepository.save(scheduled);
+    }
+
+    public List<ScheduledTransfer> getUserSchedules(String email) throws UserNotFoundException {
+        Long userId = userRepository.findIdByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("Aucun utilisateur trouvé avec l'email: " + email));
+        return scheduledTransferRepository.findBySenderIdAndActiveTrueOrderByNextRunAt(userId);
+    }
+
+    public void cancel(String email, Long id) throws UserNotFoundException {
+        Long userId = userRepository.findIdByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("Aucun utilisateur trouvé avec l'email: " + email));
+        if (scheduledTransferRepository.deactivate(id, userId) != 1) {
+            throw new IllegalArgumentException("Virement programmé introuvable");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.scheduled.interval-ms:60000}")
+    public void runDue() {
+        LocalDateTime now = LocalDateTime.now();
+        long afterId = 0;
+        int executed = 0;
+        List<DueTransfer> batch;
+        do {
+            batch = scheduledTransferRepository.findDue(now, afterId, Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            afterId = batch.get(batch.size() - 1).id();
+            executed += execute(batch, now);
+        } while (batch.size() == batchSize);
+
+        if (executed > 0) {
+            log.info("{} échéance(s) de virements programmés traitée(s)", executed);
+        }
+    }
+
+    // un worker par partition d'expéditeurs ; le lot suivant n'est lu qu'une fois celui-ci terminé
+    private int execute(List<DueTransfer> batch, LocalDateTime now) {
+        List<Map<Long, List<DueTransfer>>> partitions = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            partitions.add(new LinkedHashMap<>());
+        }
+        for (DueTransfer due : batch) {
+            partitions.get(partitionOf(due.senderId())).computeIfAbsent(due.senderId(), id -> new ArrayList<>()).add(due);
+        }
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (Map<Long, List<DueTransfer>> partition : partitions) {
+            if (!partition.isEmpty()) {
+                tasks.add(() -> {
+                    int processed = 0;
+                    for (List<DueTransfer> senderDues : partition.values()) {
+                        for (List<DueTransfer> dues : lockBoundedChunks(senderDues)) {
+                            processed += runSender(dues, now);
+                            // entre deux commits, le trafic interactif passe avant le worker
+                            Thread.yield();
+                        }
+                    }
+                    return processed;
+                });
+            }
+        }
+
+        int processed = 0;
+        try {
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                processed += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Échec d'un worker de virements programmés : {}", e.getCause().getMessage());
+        }
+        return processed;
+    }
+
+    // tranches d'un expéditeur : au plus MAX_ACCOUNTS_PER_COMMIT comptes verrouillés par commit, expéditeur compris
+    private static List<List<DueTransfer>> lockBoundedChunks(List<DueTransfer> senderDues) {
+        List<List<DueTransfer>> chunks = new ArrayList<>();
+        int from = 0;
+        while (from < senderDues.size()) {
+            Set<String> receivers = new HashSet<>();
+            int to = from;
+            while (to < senderDues.size() && to - from < MAX_TRANSFERS_PER_COMMIT
+                    && (receivers.size() < AccountLockManager.MAX_ACCOUNTS_PER_COMMIT - 1
+                    || receivers.contains(senderDues.get(to).receiverEmail()))) {
+                receivers.add(senderDues.get(to).receiverEmail());
+                to++;
+            }
+            chunks.add(senderDues.subList(from, to));
+            from = to;
+        }
+        return chunks;
+    }
+
+    private int partitionOf(long senderId) {
+        long h = senderId * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (h ^ (h >>> 32)), workers);
+    }
+
+    // Compte occupé ou erreur technique : rien n'est commité, les échéances seront reprises au prochain passage
+    private int runSender(List<DueTransfer> dues, LocalDateTime now) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<TransferRequest> requests = new ArrayList<>(dues.size());
+                for (DueTransfer due : dues) {
+                    requests.add(new TransferRequest(due.receiverEmail(),
+                            Money.ofMinor(due.amount(), due.currency()).toBigDecimal(), due.currency(), due.description()));
+                }
+                List<TransferResult> results = transactionService.makeTransactions(dues.get(0).senderEmail(), requests);
+
+                List<TransferBatchRepository.ScheduleRun> runs = new ArrayList<>(dues.size());
+                for (int i = 0; i < dues.size(); i++) {
+                    runs.add(nextRun(dues.get(i), results.get(i), now));
+                }
+                for (int updated : transferBatchRepository.advanceSchedules(runs)) {
+                    if (updated == 0) {
+                        throw new IllegalStateException("Échéance déjà traitée par une autre instance");
+                    }
+                }
+            });
+            return dues.size();
+        } catch (AccountLockTimeoutException e) {
+            log.debug("Échéances de l'expéditeur {} reportées, compte occupé", dues.get(0).senderId());
+        } catch (RuntimeException e) {
+            log.warn("Échec des échéances de l'expéditeur {} : {}", dues.get(0).senderId(), e.getMessage());
+        }
+        return 0;
+    }
+
+    // prochaine échéance strictement future : les échéances manquées pendant un arrêt ne sont pas rattrapées
+    public static TransferBatchRepository.ScheduleRun nextRun(DueTransfer due, TransferResult result, LocalDateTime now) {
+        int runCount = due.runCount() + 1;
+        boolean active = due.frequency() != ScheduledTransfer.Frequency.ONCE;
+        LocalDateTime nextRunAt = due.frequency().occurrence(due.firstRunAt(), runCount);
+        while (active && !nextRunAt.isAfter(now)) {
+            nextRunAt = due.frequency().occurrence(due.firstRunAt(), ++runCount);
+        }
+
+        String message = result.success() ? null : result.message();
+        if (message != null && message.length() > MAX_MESSAGE_LENGTH) {
+            message = message.substring(0, MAX_MESSAGE_LENGTH);
+        }
+        return new TransferBatchRepository.ScheduleRun(due.id(), due.nextRunAt(), runCount, nextRunAt, active, now,
+                result.success() ? "OK" : "REFUSE", message);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
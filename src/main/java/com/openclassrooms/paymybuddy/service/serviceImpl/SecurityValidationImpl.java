@@ -3,6 +3,7 @@ package com.openclassrooms.paymybuddy.service.serviceImpl;
 import com.openclassrooms.paymybuddy.entity.User;
 import com.openclassrooms.paymybuddy.exception.InsufficientBalanceException;
 import com.openclassrooms.paymybuddy.exception.InvalidPasswordException;
+import com.openclassrooms.paymybuddy.money.Money;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
@@ -19,8 +20,6 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class SecurityValidationImpl  {
 
-    private static final double FEE_PERCENTAGE = 0.005;
-    private final CurrencyServiceImpl currencyService;
     private final CustomUserDetailsService customUserDetailsService;
 
     public void updateSecurityContext(User user, HttpServletRequest request) {
@@ -36,38 +35,31 @@ public class SecurityValidationImpl  {
         }
     }
 
-    public void validateTransaction(User sender, User receiver, double amount, String currency)
-            throws InsufficientBalanceException {
+    // le solde est vérifié par le service de transaction, sous le verrou du compte
+    public void validateTransactionRequest(Long senderId, Long receiverId, Money amount) {
 
-        if (sender == null || receiver == null) {
+        if (senderId == null || receiverId == null) {
             throw new IllegalArgumentException("L'expéditeur et le destinataire doivent être spécifiés");
         }
-        if (sender.equals(receiver)) {
+        if (senderId.equals(receiverId)) {
             throw new IllegalArgumentException("Impossible d'envoyer de l'argent à soi-même");
         }
-        if (amount <= 0) {
+        if (amount == null || !amount.isPositive()) {
             throw new IllegalArgumentException("Le montant doit être positif");
         }
-        if (!sender.getConnections().contains(receiver)) {
-            throw new IllegalStateException("Vous ne pouvez envoyer de l'argent qu'à vos relations");
-        }
-        if (currency == null || currency.length() != 3) {
+        if (amount.currency().length() != 3) {
             throw new IllegalArgumentException("Devise invalide");
         }
+    }
 
-        // Conversion pour vérification du solde
-        double amountInEur = currencyService.convertToEur(amount, currency);
-        double totalWithFees = amountInEur * (1 + FEE_PERCENTAGE);
-
-        if (sender.getBalance() < totalWithFees) {
-            throw new InsufficientBalanceException(
-                    String.format("Solde insuffisant. Nécessaire: %.2f EUR (%.2f %s + %.2f EUR de frais)",
-                            totalWithFees,
-                            amount,
-                            currency,
-                            amountInEur * FEE_PERCENTAGE)
-            );
-        }
+    public InsufficientBalanceException insufficientBalance(Money amount, Money amountInEur, Money feeInEur) {
+        return new InsufficientBalanceException(
+                String.format("Solde insuffisant. Nécessaire: %.2f EUR (%.2f %s + %.2f EUR de frais)",
+                        amountInEur.plus(feeInEur).toBigDecimal(),
+                        amount.toBigDecimal(),
+                        amount.currency(),
+                        feeInEur.toBigDecimal())
+        );
     }
 
     public void validateEmail(String email) {
@@ -0,0 +1,133 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Nombre de transactions par utilisateur, pour les numéros de page : calculé une fois (COUNT),
+ * puis incrémenté après commit de chaque virement au lieu d'être recompté à chaque affichage.
+ * Cache mémoire borné (LRU + TTL) : un compte absent ou expiré est simplement recalculé.
+ * Un virement commité pendant un recalcul empêche la mise en cache du résultat (version par bande d'utilisateurs).
+ * Le COUNT tourne dans sa propre transaction READ_COMMITTED, ouverte après la lecture de la version : un instantané
+ * REPEATABLE READ pris plus tôt par l'appelant ne peut pas faire mettre en cache un comptage déjà dépassé.
+ */
+@Component
+public class TransactionCountCache {
+
+    private static final int STRIPES = 256;
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final TransactionTemplate loaderTransaction;
+    private final Map<Long, CachedCount> cache;
+    // protégé par cache
+    private final long[] versions = new long[STRIPES];
+    private final Counter hits;
+    private final Counter misses;
+
+    private record CachedCount(long count, long expiresAt) {
+    }
+
+    public TransactionCountCache(@Value("${transaction.count-cache.enabled:false}") boolean enabled,
+                                 @Value("${transaction.count-cache.max-users:10000}") int maxUsers,
+                                 @Value("${transaction.count-cache.ttl-ms:600000}") long ttlMillis,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        if (maxUsers < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("La taille et la durée du cache des comptages doivent être positives");
+        }
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.loaderTransaction = new TransactionTemplate(transactionManager);
+        this.loaderTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loaderTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.loaderTransaction.setReadOnly(true);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedCount> eldest) {
+                return size() > maxUsers;
+            }
+        };
+        this.hits = meterRegistry.counter("paymybuddy.transaction.count.cache", "result", "hit");
+        this.misses = meterRegistry.counter("paymybuddy.transaction.count.cache", "result", "miss");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long count(Long userId, LongSupplier loader) {
+        if (!enabled) {
+            return loader.getAsLong();
+        }
+        long version;
+        synchronized (cache) {
+            CachedCount entry = cache.get(userId);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.count();
+            }
+            version = versions[stripe(userId)];
+        }
+
+        misses.increment();
+        Long count = loaderTransaction.execute(status -> loader.getAsLong());
+        synchronized (cache) {
+            if (versions[stripe(userId)] == version) {
+                cache.put(userId, new CachedCount(count, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+        return count;
+    }
+
+    // À appeler dans la transaction des virements : les comptes ne bougent qu'après commit
+    public void recordTransfers(long senderId, Collection<Long> receiverIds) {
+        if (!enabled || receiverIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(senderId, receiverIds);
+                }
+            });
+        } else {
+            increment(senderId, receiverIds);
+        }
+    }
+
+    private void increment(long senderId, Collection<Long> receiverIds) {
+        synchronized (cache) {
+            add(senderId, receiverIds.size());
+            for (Long receiverId : receiverIds) {
+                // un virement à soi-même n'apparaît qu'une fois dans l'historique
+                if (receiverId != senderId) {
+                    add(receiverId, 1);
+                }
+            }
+        }
+    }
+
+    private void add(long userId, long delta) {
+        versions[stripe(userId)]++;
+        cache.computeIfPresent(userId, (id, entry) -> new CachedCount(entry.count() + delta, entry.expiresAt()));
+    }
+
+    private static int stripe(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,101 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.entity.ProfileNameChange;
+import com.openclassrooms.paymybuddy.repository.HistoricRepository;
+import com.openclassrooms.paymybuddy.repository.ProfileNameChangeRepository;
+import com.openclassrooms.paymybuddy.repository.TransferBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Entretien de transaction_history (l'écriture des lignes se fait avec chaque virement, TransferBatchRepository.insertHistory).
+ * Un changement de nom de profil est enregistré dans la transaction de la mise à jour du profil, puis recopié
+ * en tâche de fond dans les lignes envoyées et reçues, par paquets de chunk-size lignes (transactions courtes).
+ * Au démarrage, les transactions antérieures à la table sont recopiées si l'historique est incomplet.
+ */
+@Service
+@Slf4j
+public class TransactionHistoryServiceImpl {
+
+    private static final int CHANGES_PER_RUN = 100;
+
+    private final TransferBatchRepository transferBatchRepository;
+    private final HistoricRepository historicRepository;
+    private final ProfileNameChangeRepository profileNameChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public TransactionHistoryServiceImpl(TransferBatchRepository transferBatchRepository,
+                                         HistoricRepository historicRepository,
+                                         ProfileNameChangeRepository profileNameChangeRepository,
+                                         TransactionTemplate transactionTemplate,
+                                         @Value("${transaction.history.chunk-size:1000}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("La taille des paquets de l'historique doit être positive");
+        }
+        this.transferBatchRepository = transferBatchRepository;
+        this.historicRepository = historicRepository;
+        this.profileNameChangeRepository = profileNameChangeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    // à appeler dans la transaction qui modifie le nom : remplace un changement encore en attente
+    public void recordProfileNameChange(Long userId, String profileName) {
+        profileNameChangeRepository.save(new ProfileNameChange(userId, profileName, LocalDateTime.now()));
+    }
+
+    /**
+     * Les noms identiques pour la collation de la colonne (changement de casse seul) ne sont pas recopiés.
+     * Un changement modifié pendant la recopie reste en attente et sera repris au passage suivant.
+     */
+    @Scheduled(fixedDelayString = "${transaction.history.rename-interval-ms:10000}")
+    public void propagateProfileNames() {
+        List<ProfileNameChange> changes = profileNameChangeRepository.findAllByOrderByChangedAt(Limit.of(CHANGES_PER_RUN));
+        for (ProfileNameChange change : changes) {
+            Long userId = change.getUserId();
+            String name = change.getProfileName();
+            long rows = renameInChunks(chunk -> historicRepository.renameSender(userId, name, chunk))
+                    + renameInChunks(chunk -> historicRepository.renameReceiver(userId, name, chunk));
+            profileNameChangeRepository.deleteIfUnchanged(userId, change.getChangedAt());
+            log.info("Nom de profil de l'utilisateur {} recopié dans {} ligne(s) d'historique", userId, rows);
+        }
+    }
+
+    private long renameInChunks(ToIntFunction<Integer> rename) {
+        long total = 0;
+        int updated;
+        do {
+            Integer result = transactionTemplate.execute(status -> rename.applyAsInt(chunkSize));
+            updated = result == null ? 0 : result;
+            total += updated;
+        } while (updated == chunkSize);
+        return total;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (transferBatchRepository.historyBacklog() == 0) {
+            return;
+        }
+        long maxId = transferBatchRepository.maxTransactionId();
+        long copied = 0;
+        for (long from = 0; from < maxId; from += chunkSize) {
+            long fromId = from;
+            long toId = Math.min(from + chunkSize, maxId);
+            Integer result = transactionTemplate.execute(status -> transferBatchRepository.backfillHistory(fromId, toId));
+            copied += result == null ? 0 : result;
+        }
+        log.info("{} transaction(s) recopiée(s) dans l'historique", copied);
+    }
+}
@@ -1,22 +1,49 @@
 package com.openclassrooms.paymybuddy.service.serviceImpl;
 
+import com.openclassrooms.paymybuddy.dto.AccountRef;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.dto.PageCursor;
+import com.openclassrooms.paymybuddy.dto.TransferRequest;
+import com.openclassrooms.paymybuddy.dto.TransactionView;
+import com.openclassrooms.paymybuddy.dto.TransferResult;
 import com.openclassrooms.paymybuddy.entity.Transaction;
 import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.exception.AccountLockTimeoutException;
 import com.openclassrooms.paymybuddy.exception.InsufficientBalanceException;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.money.Money;
 import com.openclassrooms.paymybuddy.repository.TransactionRepository;
 
+import com.openclassrooms.paymybuddy.repository.TransferBatchRepository;
 import com.openclassrooms.paymybuddy.repository.UserRepository;
 import com.openclassrooms.paymybuddy.service.TransactionService;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -26,12 +53,118 @@ public class TransactionServiceImpl implements TransactionService {
     private final UserRepository userRepository;
     private final CurrencyServiceImpl currencyService;
     private final SecurityValidationImpl securityValidation;
+    private final AccountLockManager accountLockManager;
+    private final TransferBatchRepository transferBatchRepository;
+    private final LedgerServiceImpl ledgerService;
+    private final HotAccountServiceImpl hotAccountService;
+    private final FeeServiceImpl feeService;
+    private final TransactionCountCache countCache;
+    private final AutocompleteServiceImpl autocompleteService;
+    private final ConnectionGraphServiceImpl connectionGraph;
+    private final PlatformTransactionManager transactionManager;
     private final Random random = new Random();
-    private static final double FEE_PERCENTAGE = 0.005;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final String CREATED_AT = "createdAt";
+    // rechargement aléatoire entre 10 et 2000 €, en centimes
+    private static final long MIN_RANDOM_TOP_UP_CENTS = 1_000;
+    private static final long MAX_RANDOM_TOP_UP_CENTS = 200_000;
 
+    // Historique par id : page d'id lue dans les index (sender_id|receiver_id, execution_date), puis les lignes ;
+    // le total (numéros de page) vient du cache des comptages quand il est actif
+    @Transactional(readOnly = true)
     @Override
-    public Page<Transaction> getUserTransactionsPaginated(String email, Pageable pageable) {
-        return transactionRepository.findBySenderEmailOrReceiverEmail(email, email, pageable);
+    public Page<TransactionView> getUserTransactionsPaginated(String email, Pageable pageable) {
+        Long userId = findUserId(email);
+        Slice<TransactionView> slice = findSlice(userId, pageable);
+        return PageableExecutionUtils.getPage(slice.getContent(), pageable, () -> countTransactions(userId));
+    }
+
+    /**
+     * Page sans COUNT : size + 1 lignes lues, la dernière indique seulement s'il existe une page suivante.
+     * Si le total de l'utilisateur est en cache, une Page complète est renvoyée sans requête de plus.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public Slice<TransactionView> getUserTransactionsSlice(String email, Pageable pageable) {
+        Long userId = findUserId(email);
+        Slice<TransactionView> slice = findSlice(userId, pageable);
+        if (!countCache.isEnabled()) {
+            return slice;
+        }
+        return PageableExecutionUtils.getPage(slice.getContent(), pageable, () -> countTransactions(userId));
+    }
+
+    private Long findUserId(String email) {
+        return userRepository.findIdByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("Aucun utilisateur trouvé avec l'email: " + email));
+    }
+
+    private long countTransactions(Long userId) {
+        return countCache.count(userId, () -> transactionRepository.countByUserId(userId));
+    }
+
+    private Slice<TransactionView> findSlice(Long userId, Pageable pageable) {
+        Sort.Order byDate = pageable.getSort().getOrderFor(CREATED_AT);
+        if (pageable.getSort().isSorted() && (byDate == null || pageable.getSort().stream().count() > 1)) {
+            return transactionRepository.findViewSliceByUserId(userId, pageable);
+        }
+
+        int size = pageable.getPageSize() + 1;
+        long limit = pageable.getOffset() + size;
+        List<Long> ids = byDate != null && byDate.isAscending()
+                ? transactionRepository.findPageIdsOldestFirst(userId, limit, size, pageable.getOffset())
+                : transactionRepository.findPageIdsNewestFirst(userId, limit, size, pageable.getOffset());
+        List<TransactionView> rows = loadInOrder(ids);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    /**
+     * Historique par curseur (execution_date, id), sans COUNT ni OFFSET : after mène à la page suivante,
+     * before à la précédente, dans l'ordre d'affichage (ascending ou non).
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<TransactionView> getUserTransactions(String email, boolean ascending, String after, String before, int size) {
+        CursorPage.checkSize(size);
+        Long userId = findUserId(email);
+
+        String token = after != null ? after : before;
+        boolean backward = after == null && before != null;
+        int limit = size + 1;
+        List<Long> ids;
+        if (token == null) {
+            ids = ascending
+                    ? transactionRepository.findPageIdsOldestFirst(userId, limit, limit, 0)
+                    : transactionRepository.findPageIdsNewestFirst(userId, limit, limit, 0);
+        } else {
+            PageCursor cursor = PageCursor.decode(token);
+            // vers les plus anciennes : page suivante en ordre décroissant, page précédente en ordre croissant
+            ids = ascending == backward
+                    ? transactionRepository.findIdsOlderThan(userId, cursor.executionDate(), cursor.id(), limit)
+                    : transactionRepository.findIdsNewerThan(userId, cursor.executionDate(), cursor.id(), limit);
+        }
+        return CursorPage.of(loadInOrder(ids), size, token != null, backward,
+                transaction -> new PageCursor(transaction.createdAt(), transaction.id()));
+    }
+
+    // lignes de la page (nom du destinataire compris), dans l'ordre des id lus dans l'index
+    private List<TransactionView> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, TransactionView> byId = new HashMap<>();
+        for (TransactionView transaction : transactionRepository.findViewsByIdIn(ids)) {
+            byId.put(transaction.id(), transaction);
+        }
+        List<TransactionView> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TransactionView transaction = byId.get(id);
+            if (transaction != null) {
+                content.add(transaction);
+            }
+        }
+        return content;
     }
 
     @Transactional(readOnly = true)
@@ -44,13 +177,16 @@ public class TransactionServiceImpl implements TransactionService {
     @Transactional(readOnly = true)
     @Override
     public User getUserByTransactionEmail(String email) throws UserNotFoundException {
-        return userRepository.findByEmail(email)
+        User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UserNotFoundException("Aucun utilisateur trouvé avec l'email: " + email));
+        // solde présenté = projection + écritures pas encore compactées (colonne non modifiable par Hibernate)
+        user.setBalance(ledgerService.getAvailableBalance(user.getId()));
+        return user;
     }
 
     @Transactional
     @Override
-    public User addBalance(String email, Double amount, String randomAmount) throws UserNotFoundException,IllegalArgumentException {
+    public User addBalance(String email, BigDecimal amount, String randomAmount) throws UserNotFoundException,IllegalArgumentException {
 
         if (email == null || email.isBlank()) {
             throw new IllegalArgumentException("L'email est requis pour le rechargement du solde");
@@ -60,13 +196,19 @@ public class TransactionServiceImpl implements TransactionService {
             throw new IllegalArgumentException("Veuillez spécifier un montant pour le rechargement");
         }
 
-        User userBefore = getUserByTransactionEmail(email);
-        double previousBalance = userBefore.getBalance();
+        Long userId = userRepository.findIdByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("Aucun utilisateur trouvé avec l'email: " + email));
+
+        // Calcul et application du montant (écritures de rechargement dans le grand livre)
+        Money amountToAdd = calculateAmountToAdd(amount, randomAmount);
+        accountLockManager.executeWithLocks(() -> {
+            ledgerService.recordTopUp(userId, amountToAdd);
+            return null;
+        }, userId);
 
-        // Calcul et application du montant
-        double amountToAdd = calculateAmountToAdd(amount, randomAmount);
-        userBefore.setBalance(previousBalance + amountToAdd);
-        User updatedUser = userRepository.save(userBefore);
+        User updatedUser = userRepository.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException("Aucun utilisateur trouvé avec l'email: " + email));
+        updatedUser.setBalance(ledgerService.getAvailableBalance(userId));
 
         // Stocker le montant ajouté pour le message
         updatedUser.setTemporaryAmountAdded(amountToAdd);
@@ -75,56 +217,226 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     @Transactional(readOnly = true)
-    public String getFormattedBalanceUpdateMessage(User user, Double amountOrNull) {
-        double amountAdded = amountOrNull != null ? amountOrNull : user.getTemporaryAmountAdded();
-        return String.format("Rechargement réussi ! %.2f € ajoutés. Nouveau solde: %.2f €", amountAdded, user.getBalance());
+    public String getFormattedBalanceUpdateMessage(User user, BigDecimal amountOrNull) {
+        Money amountAdded = amountOrNull != null ? Money.of(amountOrNull, Money.EUR) : user.getTemporaryAmountAdded();
+        return String.format("Rechargement réussi ! %.2f € ajoutés. Nouveau solde: %.2f €",
+                amountAdded.toBigDecimal(), user.getBalance().toBigDecimal());
     }
 
-    @Transactional
+    // READ_COMMITTED : les soldes lus après l'obtention des verrous sont ceux du dernier virement commité
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     @Override
     public Transaction makeTransaction(String senderEmail, String receiverEmail,
-                                       double amount, String transactionCurrency,
-                                       String description)
+                                       Money amount, String description)
             throws UserNotFoundException, InsufficientBalanceException {
 
-        User sender = userRepository.findByEmail(senderEmail)
+        Long senderId = userRepository.findIdByEmail(senderEmail)
                 .orElseThrow(() -> new UserNotFoundException("Expéditeur non trouvé"));
-        User receiver = userRepository.findByEmail(receiverEmail)
+        Long receiverId = userRepository.findIdByEmail(receiverEmail)
                 .orElseThrow(() -> new UserNotFoundException("Destinataire non trouvé"));
 
+        // Seuls les virements touchant les mêmes comptes sont sérialisés
+        // (un destinataire réparti en sous-solde n'est verrouillé que sur l'emplacement crédité)
+        Map<Long, Integer> receiverSlots = hotAccountService.pickSlots(List.of(receiverId));
+        return accountLockManager.executeWithLocks(
+                () -> transfer(senderId, receiverId, receiverSlots.get(receiverId), amount, description),
+                senderId, HotAccountServiceImpl.creditLockKey(receiverId, receiverSlots));
+    }
+
+    private Transaction transfer(Long senderId, Long receiverId, Integer receiverSlot, Money amount, String description) {
 
-        securityValidation.validateTransaction(sender, receiver, amount, transactionCurrency);
+        securityValidation.validateTransactionRequest(senderId, receiverId, amount);
+        if (!connectionGraph.isConnected(senderId, receiverId)) {
+            throw new IllegalStateException("Vous ne pouvez envoyer de l'argent qu'à vos relations");
+        }
 
         // 3. Conversion et calcul des frais
-        double amountInEur = currencyService.convertToEur(amount, transactionCurrency);
-        double feeInEur = amountInEur * FEE_PERCENTAGE;
-        double totalInEur = amountInEur + feeInEur;
+        Money amountInEur = currencyService.convertToEur(amount);
+        Money feeInEur = feeService.feeFor(amount, amountInEur);
 
-        // 4. Mise à jour des soldes
-        sender.setBalance(sender.getBalance() - totalInEur);
-        receiver.setBalance(receiver.getBalance() + amountInEur);
+        // 4. Vérification du solde disponible (sous verrou de l'expéditeur), en unités mineures
+        long totalInEur = Money.addExact(amountInEur.minorUnits(), feeInEur.minorUnits());
+        if (ledgerService.getAvailableBalance(senderId).minorUnits() < totalInEur) {
+            throw securityValidation.insufficientBalance(amount, amountInEur, feeInEur);
+        }
 
         Transaction transaction = new Transaction();
-        transaction.setSender(sender);
-        transaction.setReceiver(receiver);
+        transaction.setSender(userRepository.getReferenceById(senderId));
+        transaction.setReceiver(userRepository.getReferenceById(receiverId));
         transaction.setAmount(amount);
         transaction.setFee(feeInEur);
-        transaction.setCurrency(transactionCurrency);
         transaction.setDescription(description);
+        Transaction saved = transactionRepository.save(transaction);
+        transferBatchRepository.insertHistory(List.of(saved.getId()));
+        countCache.recordTransfers(senderId, List.of(receiverId));
+        autocompleteService.recordTransfers(senderId, List.of(receiverId));
+
+        // 5. Mouvements : uniquement des insertions dans le grand livre
+        ledgerService.recordTransfer(senderId, receiverId, receiverSlot, saved.getId(), amountInEur, feeInEur);
+        return saved;
+    }
+
+    /**
+     * Lot de virements : une lecture du solde et des insertions en batch JDBC par tranche.
+     * Chaque tranche verrouille au plus AccountLockManager.MAX_ACCOUNTS_PER_COMMIT comptes (expéditeur compris)
+     * et est commitée, verrous relâchés, avant la suivante. Appelé dans une transaction, les tranches la rejoignent :
+     * l'appelant borne alors lui-même le nombre de destinataires.
+     */
+    @Override
+    public List<TransferResult> makeTransactions(String senderEmail, List<TransferRequest> transfers)
+            throws UserNotFoundException {
+
+        if (transfers == null || transfers.isEmpty()) {
+            throw new IllegalArgumentException("Le lot de virements est vide");
+        }
+        if (transfers.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Le lot ne peut pas dépasser " + MAX_BATCH_SIZE + " virements");
+        }
+
+        Long senderId = userRepository.findIdByEmail(senderEmail)
+                .orElseThrow(() -> new UserNotFoundException("Expéditeur non trouvé"));
+
+        Set<String> receiverEmails = new HashSet<>();
+        transfers.stream().map(TransferRequest::receiverEmail).filter(Objects::nonNull).forEach(receiverEmails::add);
+        Map<String, Long> receiverIds = new HashMap<>();
+        for (AccountRef ref : userRepository.findAccountRefsByEmails(receiverEmails)) {
+            receiverIds.put(ref.email(), ref.id());
+        }
+        Map<Long, Integer> receiverSlots = hotAccountService.pickSlots(receiverIds.values());
+
+        // READ_COMMITTED : les soldes lus après l'obtention des verrous sont ceux du dernier virement commité
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        boolean joined = TransactionSynchronizationManager.isActualTransactionActive();
+
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        int from = 0;
+        while (from < transfers.size()) {
+            Set<Long> lockKeys = new LinkedHashSet<>();
+            lockKeys.add(senderId);
+            int to = from;
+            for (; to < transfers.size(); to++) {
+                String receiverEmail = transfers.get(to).receiverEmail();
+                Long receiverId = receiverEmail == null ? null : receiverIds.get(receiverEmail);
+                if (receiverId == null) {
+                    continue;
+                }
+                long lockKey = HotAccountServiceImpl.creditLockKey(receiverId, receiverSlots);
+                if (lockKeys.size() == AccountLockManager.MAX_ACCOUNTS_PER_COMMIT && !lockKeys.contains(lockKey)) {
+                    break;
+                }
+                lockKeys.add(lockKey);
+            }
+
+            int first = from;
+            List<TransferRequest> chunk = transfers.subList(from, to);
+            long[] accountIds = lockKeys.stream().mapToLong(Long::longValue).toArray();
+            try {
+                results.addAll(transactionTemplate.execute(status -> accountLockManager.executeWithLocks(
+                        () -> applyTransfers(senderId, chunk, first, receiverIds, receiverSlots), accountIds)));
+            } catch (RuntimeException e) {
+                // rien n'est commité (première tranche, ou transaction de l'appelant annulée) : l'erreur remonte
+                if (results.isEmpty() || joined) {
+                    throw e;
+                }
+                // tranches précédentes déjà commitées : les virements restants sont signalés refusés
+                String message = e instanceof AccountLockTimeoutException ? e.getMessage()
+                        : "Virement non effectué, veuillez réessayer";
+                for (int i = from; i < transfers.size(); i++) {
+                    results.add(TransferResult.rejected(i, transfers.get(i).receiverEmail(), message));
+                }
+                return results;
+            }
+            from = to;
+        }
+        return results;
+    }
+
+    // À appeler dans une transaction, sous les verrous de l'expéditeur et des destinataires (lot ou pipeline) :
+    // verrou de l'emplacement receiverSlots pour les destinataires répartis en sous-soldes
+    public List<TransferResult> applyTransfers(Long senderId, List<TransferRequest> transfers,
+                                               Map<String, Long> receiverIds, Map<Long, Integer> receiverSlots) {
+        return applyTransfers(senderId, transfers, 0, receiverIds, receiverSlots);
+    }
+
+    // firstIndex : position de la tranche dans le lot, reprise dans les TransferResult
+    private List<TransferResult> applyTransfers(Long senderId, List<TransferRequest> transfers, int firstIndex,
+                                                Map<String, Long> receiverIds, Map<Long, Integer> receiverSlots) {
+
+        long[] connectionIds = connectionGraph.connections(senderId);
+        long available = ledgerService.getAvailableBalance(senderId).minorUnits();
+
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        List<TransferBatchRepository.TransactionRow> rows = new ArrayList<>();
+        long totalDebit = 0;
+
+        for (int position = 0; position < transfers.size(); position++) {
+            TransferRequest request = transfers.get(position);
+            int i = firstIndex + position;
+            String receiverEmail = request.receiverEmail();
+            Long receiverId = receiverEmail == null ? null : receiverIds.get(receiverEmail);
+
+            if (receiverId == null) {
+                results.add(TransferResult.rejected(i, receiverEmail, "Destinataire non trouvé"));
+                continue;
+            }
+
+            try {
+                String currency = request.currency() == null ? null : request.currency().trim().toUpperCase();
+                Money amount = Money.of(request.amount(), currency);
+                securityValidation.validateTransactionRequest(senderId, receiverId, amount);
+                if (Arrays.binarySearch(connectionIds, receiverId) < 0) {
+                    results.add(TransferResult.rejected(i, receiverEmail, "Vous ne pouvez envoyer de l'argent qu'à vos relations"));
+                    continue;
+                }
+
+                Money amountInEur = currencyService.convertToEur(amount);
+                Money feeInEur = feeService.feeFor(amount, amountInEur);
+                long totalInEur = Money.addExact(amountInEur.minorUnits(), feeInEur.minorUnits());
+
+                if (Money.addExact(totalDebit, totalInEur) > available) {
+                    results.add(TransferResult.rejected(i, receiverEmail,
+                            securityValidation.insufficientBalance(amount, amountInEur, feeInEur).getMessage()));
+                    continue;
+                }
+
+                totalDebit += totalInEur;
+                rows.add(new TransferBatchRepository.TransactionRow(receiverId, request.description(),
+                        amount, amountInEur, feeInEur));
+                results.add(TransferResult.accepted(i, receiverEmail, feeInEur.toBigDecimal()));
+
+            } catch (IllegalArgumentException e) {
+                // y compris un dépassement de capacité (montant converti, frais) : seul ce virement est refusé
+                results.add(TransferResult.rejected(i, receiverEmail, e.getMessage()));
+            }
+        }
+
+        if (rows.isEmpty()) {
+            return results;
+        }
+
+        List<Long> transactionIds = transferBatchRepository.insertTransactions(senderId, rows);
+        transferBatchRepository.insertHistory(transactionIds);
+        List<Long> receivers = rows.stream().map(TransferBatchRepository.TransactionRow::receiverId).toList();
+        countCache.recordTransfers(senderId, receivers);
+        autocompleteService.recordTransfers(senderId, receivers);
+        ledgerService.recordTransfers(senderId, rows, transactionIds, receiverSlots);
 
-        userRepository.saveAll(List.of(sender, receiver));
-        return transactionRepository.save(transaction);
+        return results;
     }
 
     @Transactional
-    public double calculateAmountToAdd(Double amount, String randomAmount) {
+    public Money calculateAmountToAdd(BigDecimal amount, String randomAmount) {
         if (randomAmount != null && randomAmount.equals("random")) {
-            double randomValue = 10 + (2000 - 10) * random.nextDouble();
-            return Math.round(randomValue * 100.0) / 100.0; // Arrondi à 2 décimales
+            return Money.eur(MIN_RANDOM_TOP_UP_CENTS
+                    + random.nextLong(MAX_RANDOM_TOP_UP_CENTS - MIN_RANDOM_TOP_UP_CENTS + 1));
         }
 
-        if (amount != null && amount > 0) {
-            return amount;
+        if (amount != null) {
+            Money money = Money.of(amount, Money.EUR);
+            if (money.isPositive()) {
+                return money;
+            }
         }
 
         throw new IllegalArgumentException("Montant invalide");
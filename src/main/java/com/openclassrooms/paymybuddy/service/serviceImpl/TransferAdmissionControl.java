@@ -0,0 +1,191 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.exception.TransferAdmissionRejectedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Contrôle d'admission des virements synchrones : au plus concurrency virements en cours (moins que
+ * le pool de connexions, pour laisser de la place aux pages), les autres attendent dans une file FIFO bornée.
+ * Une demande est refusée tout de suite, avec un Retry-After, si la file est pleine ou si l'attente
+ * estimée (profondeur de file x durée moyenne d'un virement) dépasse max-wait-ms : les threads Tomcat
+ * ne s'accumulent plus derrière une base lente.
+ * Un utilisateur ne peut avoir plus de per-user demandes en cours ou en attente (429 au-delà).
+ * Un virement asynchrone garde sa place jusqu'au commit de son lot, pas seulement jusqu'au retour du thread HTTP.
+ */
+@Component
+@Slf4j
+public class TransferAdmissionControl {
+
+    // poids de la dernière mesure dans la durée moyenne (moyenne mobile exponentielle)
+    private static final double SERVICE_TIME_WEIGHT = 0.2;
+
+    private final boolean enabled;
+    private final int concurrency;
+    private final int queueSize;
+    private final int perUser;
+    private final long maxWaitNanos;
+
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ConcurrentHashMap<String, AtomicInteger> perUserRequests = new ConcurrentHashMap<>();
+    private final AtomicLong averageServiceNanos = new AtomicLong();
+
+    private final MeterRegistry meterRegistry;
+    private final Timer waitTimer;
+
+    public TransferAdmissionControl(@Value("${transaction.admission.enabled:true}") boolean enabled,
+                                    @Value("${transaction.admission.concurrency:8}") int concurrency,
+                                    @Value("${transaction.admission.queue-size:64}") int queueSize,
+                                    @Value("${transaction.admission.per-user:2}") int perUser,
+                                    @Value("${transaction.admission.max-wait-ms:2000}") long maxWaitMillis,
+                                    MeterRegistry meterRegistry) {
+        if (concurrency <= 0 || queueSize < 0 || perUser <= 0 || maxWaitMillis <= 0) {
+            throw new IllegalArgumentException("Paramètres du contrôle d'admission invalides");
+        }
+        this.enabled = enabled;
+        this.concurrency = concurrency;
+        this.queueSize = queueSize;
+        this.perUser = perUser;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.permits = new Semaphore(concurrency, true);
+
+        this.meterRegistry = meterRegistry;
+        this.waitTimer = meterRegistry.timer("paymybuddy.admission.wait");
+        meterRegistry.gauge("paymybuddy.admission.queue.depth", waiting);
+        meterRegistry.gauge("paymybuddy.admission.in-flight", permits, p -> concurrency - p.availablePermits());
+    }
+
+    public <T> T execute(String userEmail, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        long start = admit(userEmail);
+        try {
+            return action.get();
+        } finally {
+            release(userEmail, start);
+        }
+    }
+
+    // la place est rendue quand le résultat est connu (lot commité ou en échec)
+    public <T> CompletableFuture<T> executeAsync(String userEmail, Supplier<CompletableFuture<T>> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        long start = admit(userEmail);
+        CompletableFuture<T> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            release(userEmail, start);
+            throw e;
+        }
+        return result.whenComplete((value, error) -> release(userEmail, start));
+    }
+
+    // début du service, une fois la place obtenue
+    private long admit(String userEmail) {
+        AtomicInteger userRequests = perUserRequests.compute(userEmail, (email, count) -> {
+            AtomicInteger current = count == null ? new AtomicInteger() : count;
+            current.incrementAndGet();
+            return current;
+        });
+        try {
+            if (userRequests.get() > perUser) {
+                throw shed("per_user", HttpStatus.TOO_MANY_REQUESTS, 1,
+                        "Trop de virements en cours pour ce compte, veuillez patienter");
+            }
+            acquire();
+        } catch (RuntimeException e) {
+            leave(userEmail);
+            throw e;
+        }
+        return System.nanoTime();
+    }
+
+    private void release(String userEmail, long start) {
+        permits.release();
+        recordServiceTime(System.nanoTime() - start);
+        leave(userEmail);
+    }
+
+    private void leave(String userEmail) {
+        perUserRequests.computeIfPresent(userEmail, (email, count) -> count.decrementAndGet() == 0 ? null : count);
+    }
+
+    private void acquire() {
+        try {
+            // avec un délai (même nul), le sémaphore équitable ne double pas les demandes déjà en file
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                waitTimer.record(0, TimeUnit.NANOSECONDS);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw shed("interrupted", HttpStatus.SERVICE_UNAVAILABLE, 1, "Virement interrompu, veuillez réessayer");
+        }
+
+        int depth = waiting.incrementAndGet();
+        try {
+            if (depth > queueSize) {
+                throw shed("queue_full", HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds(estimatedWaitNanos(depth)),
+                        "Trop de virements en attente, veuillez réessayer dans quelques instants");
+            }
+            long estimate = estimatedWaitNanos(depth);
+            if (estimate > maxWaitNanos) {
+                throw shed("wait_estimate", HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds(estimate),
+                        "Service de virement surchargé, veuillez réessayer dans quelques instants");
+            }
+
+            long start = System.nanoTime();
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw shed("timeout", HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds(maxWaitNanos),
+                        "Service de virement surchargé, veuillez réessayer dans quelques instants");
+            }
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw shed("interrupted", HttpStatus.SERVICE_UNAVAILABLE, 1, "Virement interrompu, veuillez réessayer");
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    // chaque vague de concurrency virements prend en moyenne averageServiceNanos
+    public long estimatedWaitNanos(int depth) {
+        return (long) Math.ceil((double) depth / concurrency) * averageServiceNanos.get();
+    }
+
+    private void recordServiceTime(long nanos) {
+        averageServiceNanos.getAndUpdate(average ->
+                average == 0 ? nanos : (long) (average + SERVICE_TIME_WEIGHT * (nanos - average)));
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    private TransferAdmissionRejectedException shed(String reason, HttpStatus status, long retryAfterSeconds,
+                                                    String message) {
+        meterRegistry.counter("paymybuddy.admission.shed", "reason", reason).increment();
+        log.debug("Virement refusé à l'admission ({})", reason);
+        return new TransferAdmissionRejectedException(message, status, retryAfterSeconds);
+    }
+
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+}
@@ -0,0 +1,363 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.dto.AccountRef;
+import com.openclassrooms.paymybuddy.dto.TransferRequest;
+import com.openclassrooms.paymybuddy.dto.TransferResult;
+import com.openclassrooms.paymybuddy.exception.TransferPipelineSaturatedException;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mode group commit des virements (optionnel, transaction.pipeline.enabled).
+ * Les virements sont répartis par expéditeur sur N shards mono-thread : tous les débits d'un compte
+ * passent par le même thread, dans l'ordre d'arrivée. Chaque shard accumule les virements arrivés
+ * pendant une courte fenêtre (window-ms ou max-batch virements) et les applique en une seule
+ * transaction MySQL via TransactionServiceImpl.applyTransfers : un fsync pour tout le lot.
+ * Les verrous de comptes restent pris une fois par lot : ils protègent les destinataires servis par
+ * d'autres shards et le compactage du grand livre, mais ne sont plus disputés par les rafales
+ * d'un même expéditeur. Un lot qui touche plus de MAX_ACCOUNTS_PER_COMMIT comptes est commité en
+ * plusieurs tranches, comme les virements groupés : un lot ne bloque pas tout le trafic interactif.
+ */
+@Component
+@Slf4j
+public class TransferPipeline {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final String STOPPED = "Pipeline de virements arrêté, veuillez réessayer dans quelques instants";
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final long waitTimeoutNanos;
+    private final TransactionServiceImpl transactionService;
+    private final UserRepository userRepository;
+    private final AccountLockManager accountLockManager;
+    private final HotAccountServiceImpl hotAccountService;
+    private final TransactionTemplate transactionTemplate;
+    private final Shard[] shards;
+
+    private final Counter rejected;
+    private final DistributionSummary batchSize;
+    private final Timer batchTimer;
+    private final Timer windowTimer;
+    private final Timer latencyTimer;
+
+    private volatile boolean running;
+
+    // claimed : pris par le shard pour un lot, ou retiré par l'appelant lassé d'attendre (le premier gagne)
+    private record TransferCommand(Long senderId, TransferRequest request, long submittedAt,
+                                   CompletableFuture<TransferResult> result, AtomicBoolean claimed) {
+    }
+
+    public TransferPipeline(@Value("${transaction.pipeline.enabled:false}") boolean enabled,
+                            @Value("${transaction.pipeline.shards:4}") int shardCount,
+                            @Value("${transaction.pipeline.ring-size:1024}") int ringSize,
+                            @Value("${transaction.pipeline.max-batch:64}") int maxBatchSize,
+                            @Value("${transaction.pipeline.window-ms:2}") long windowMillis,
+                            @Value("${transaction.pipeline.wait-timeout-ms:5000}") long waitTimeoutMillis,
+                            TransactionServiceImpl transactionService,
+                            UserRepository userRepository,
+                            AccountLockManager accountLockManager,
+                            HotAccountServiceImpl hotAccountService,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        if (shardCount <= 0 || maxBatchSize <= 0 || windowMillis < 0 || waitTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Le nombre de shards et la taille des lots doivent être positifs");
+        }
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.waitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+        this.transactionService = transactionService;
+        this.userRepository = userRepository;
+        this.accountLockManager = accountLockManager;
+        this.hotAccountService = hotAccountService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+
+        this.rejected = meterRegistry.counter("paymybuddy.pipeline.rejected");
+        this.batchSize = meterRegistry.summary("paymybuddy.pipeline.batch.size");
+        this.batchTimer = meterRegistry.timer("paymybuddy.pipeline.batch.commit");
+        // latence ajoutée par la fenêtre de group commit (premier virement du lot -> début du commit)
+        this.windowTimer = meterRegistry.timer("paymybuddy.pipeline.batch.window");
+        this.latencyTimer = meterRegistry.timer("paymybuddy.pipeline.latency");
+
+        this.shards = new Shard[enabled ? shardCount : 0];
+        if (enabled) {
+            running = true;
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = new Shard(i, ringSize);
+                shards[i].thread.start();
+            }
+            log.info("Pipeline de virements démarré : {} shards, file de {} virements, lots de {} virements / {} ms",
+                    shardCount, ringSize, maxBatchSize, windowMillis);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Met le virement en file sur le shard de l'expéditeur ; le résultat est fourni après commit du lot.
+     * Sans pipeline, le virement passe par le chemin synchrone des lots.
+     */
+    public CompletableFuture<TransferResult> submit(String senderEmail, TransferRequest request)
+            throws UserNotFoundException {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(
+                    transactionService.makeTransactions(senderEmail, List.of(request)).get(0));
+        }
+        return enqueue(senderEmail, request).result();
+    }
+
+    /**
+     * Mode group commit pour les virements synchrones : le thread appelant attend le commit de son lot,
+     * au plus wait-timeout-ms. Un virement pas encore pris par le shard est alors retiré (503, rien n'est appliqué).
+     */
+    public TransferResult submitAndWait(String senderEmail, TransferRequest request) throws UserNotFoundException {
+        if (!enabled) {
+            return submit(senderEmail, request).join();
+        }
+        TransferCommand command = enqueue(senderEmail, request);
+        try {
+            return command.result().get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (command.claimed().compareAndSet(false, true)) {
+                rejected.increment();
+                throw new TransferPipelineSaturatedException("Trop de virements en attente, veuillez réessayer dans quelques instants");
+            }
+            // lot en cours de commit : l'issue n'est pas encore connue
+            throw new TransferPipelineSaturatedException("Virement toujours en cours de traitement, consultez votre historique avant de réessayer");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferPipelineSaturatedException("Attente du virement interrompue, consultez votre historique avant de réessayer");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private TransferCommand enqueue(String senderEmail, TransferRequest request) throws UserNotFoundException {
+        Long senderId = userRepository.findIdByEmail(senderEmail)
+                .orElseThrow(() -> new UserNotFoundException("Expéditeur non trouvé"));
+        TransferCommand command = new TransferCommand(senderId, request, System.nanoTime(),
+                new CompletableFuture<>(), new AtomicBoolean());
+        Shard shard = shards[shardOf(senderId)];
+
+        if (!running || !shard.ring.offer(command)) {
+            rejected.increment();
+            throw new TransferPipelineSaturatedException("Trop de virements en attente, veuillez réessayer dans quelques instants");
+        }
+        // arrêt pendant l'offer : le shard a pu sortir de sa boucle sans voir ce virement
+        if (!running && command.claimed().compareAndSet(false, true)) {
+            rejected.increment();
+            throw new TransferPipelineSaturatedException(STOPPED);
+        }
+        LockSupport.unpark(shard.thread);
+        return command;
+    }
+
+    public int shardOf(long accountId) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (h ^ (h >>> 32)), Math.max(shards.length, 1));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            shard.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // shard arrêté : les virements restés dans sa file n'ont plus de consommateur
+        for (Shard shard : shards) {
+            if (shard.thread.isAlive()) {
+                continue;
+            }
+            List<TransferCommand> remaining = new ArrayList<>();
+            shard.ring.drainTo(remaining, Integer.MAX_VALUE);
+            for (TransferCommand command : remaining) {
+                if (command.claimed().compareAndSet(false, true)) {
+                    command.result().completeExceptionally(new TransferPipelineSaturatedException(STOPPED));
+                }
+            }
+        }
+    }
+
+    private final class Shard implements Runnable {
+
+        private final RingBuffer<TransferCommand> ring;
+        private final Thread thread;
+        private final List<TransferCommand> batch;
+
+        private Shard(int index, int ringSize) {
+            this.ring = new RingBuffer<>(ringSize);
+            this.batch = new ArrayList<>(maxBatchSize);
+            this.thread = new Thread(this, "transfer-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            // à l'arrêt, la file est vidée avant de rendre la main
+            while (running || !ring.isEmpty()) {
+                batch.clear();
+                if (ring.drainTo(batch, maxBatchSize) == 0) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                fillWindow();
+                commit(batch);
+            }
+        }
+
+        // complète le lot jusqu'à max-batch virements ou la fin de la fenêtre ; chaque submit réveille le shard
+        private void fillWindow() {
+            long start = System.nanoTime();
+            long deadline = start + windowNanos;
+            while (batch.size() < maxBatchSize && running) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                if (ring.drainTo(batch, maxBatchSize - batch.size()) == 0) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+            windowTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void commit(List<TransferCommand> batch) {
+        // virements retirés par un appelant qui n'attendait plus
+        batch.removeIf(command -> !command.claimed().compareAndSet(false, true));
+        int from = 0;
+        while (from < batch.size()) {
+            int to = lockBoundedEnd(batch, from);
+            commitChunk(batch.subList(from, to));
+            from = to;
+        }
+    }
+
+    // fin de la tranche commençant à from : au plus MAX_ACCOUNTS_PER_COMMIT comptes (expéditeurs et destinataires)
+    private static int lockBoundedEnd(List<TransferCommand> batch, int from) {
+        Set<Long> senders = new HashSet<>();
+        Set<String> receivers = new HashSet<>();
+        int to = from;
+        while (to < batch.size()) {
+            TransferCommand command = batch.get(to);
+            String receiverEmail = command.request().receiverEmail();
+            int added = (senders.contains(command.senderId()) ? 0 : 1)
+                    + (receiverEmail == null || receivers.contains(receiverEmail) ? 0 : 1);
+            if (to > from && senders.size() + receivers.size() + added > AccountLockManager.MAX_ACCOUNTS_PER_COMMIT) {
+                break;
+            }
+            senders.add(command.senderId());
+            if (receiverEmail != null) {
+                receivers.add(receiverEmail);
+            }
+            to++;
+        }
+        return to;
+    }
+
+    private void commitChunk(List<TransferCommand> batch) {
+        long start = System.nanoTime();
+        List<TransferResult> results;
+        try {
+            results = batchTimer.record(() -> transactionTemplate.execute(status -> applyLocked(batch)));
+        } catch (Throwable e) {
+            // quelle que soit l'erreur, le shard continue et aucun appelant du lot n'attend indéfiniment
+            log.warn("Échec du lot de {} virement(s) : {}", batch.size(), e.getMessage());
+            for (TransferCommand command : batch) {
+                command.result().completeExceptionally(e);
+            }
+            return;
+        }
+
+        batchSize.record(batch.size());
+        long end = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            TransferCommand command = batch.get(i);
+            latencyTimer.record(end - command.submittedAt(), TimeUnit.NANOSECONDS);
+            command.result().complete(results.get(i));
+        }
+        log.debug("Lot de {} virement(s) commité en {} µs", batch.size(), (end - start) / 1_000);
+    }
+
+    // Un lot peut contenir plusieurs expéditeurs du même shard : un appel applyTransfers par expéditeur
+    private List<TransferResult> applyLocked(List<TransferCommand> batch) {
+        Map<Long, List<Integer>> positionsBySender = new LinkedHashMap<>();
+        Set<String> receiverEmails = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            TransferCommand command = batch.get(i);
+            positionsBySender.computeIfAbsent(command.senderId(), id -> new ArrayList<>()).add(i);
+            if (command.request().receiverEmail() != null) {
+                receiverEmails.add(command.request().receiverEmail());
+            }
+        }
+
+        Map<String, Long> receiverIds = new HashMap<>();
+        for (AccountRef ref : userRepository.findAccountRefsByEmails(receiverEmails)) {
+            receiverIds.put(ref.email(), ref.id());
+        }
+
+        Map<Long, Integer> receiverSlots = hotAccountService.pickSlots(receiverIds.values());
+        long[] accountIds = new long[positionsBySender.size() + receiverIds.size()];
+        int next = 0;
+        for (Long senderId : positionsBySender.keySet()) {
+            accountIds[next++] = senderId;
+        }
+        for (Long receiverId : receiverIds.values()) {
+            accountIds[next++] = HotAccountServiceImpl.creditLockKey(receiverId, receiverSlots);
+        }
+
+        return accountLockManager.executeWithLocks(() -> {
+            TransferResult[] results = new TransferResult[batch.size()];
+            positionsBySender.forEach((senderId, positions) -> {
+                List<TransferRequest> requests = new ArrayList<>(positions.size());
+                for (int position : positions) {
+                    requests.add(batch.get(position).request());
+                }
+                List<TransferResult> senderResults = transactionService.applyTransfers(senderId, requests, receiverIds, receiverSlots);
+                for (int i = 0; i < positions.size(); i++) {
+                    TransferResult r = senderResults.get(i);
+                    // un virement asynchrone est toujours seul dans sa requête
+                    results[positions.get(i)] = new TransferResult(0, r.receiverEmail(), r.success(), r.fee(), r.message());
+                }
+            });
+            return List.of(results);
+        }, accountIds);
+    }
+}
@@ -1,32 +1,42 @@
 package com.openclassrooms.paymybuddy.service.serviceImpl;
 
-import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.exception.InvalidPageRequestException;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
 import com.openclassrooms.paymybuddy.repository.UserRepository;
 import com.openclassrooms.paymybuddy.service.UserConnectionService;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 
 @Service
 @AllArgsConstructor
 public class UserConnectionServiceImpl implements UserConnectionService {
 
+    public static final int MIN_QUERY_LENGTH = 2;
+
     private final Logger LOGGER = LoggerFactory.getLogger(getClass());
     private final UserRepository userRepository;
+    private final ConnectionGraphServiceImpl connectionGraph;
+    private final RelationsCache relationsCache;
+    private final ConnectionSuggestionServiceImpl suggestionService;
 
     @Transactional(readOnly = true)
     @Override
-    public Set<User> getUserConnections(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
+    public List<ConnectionCard> getUserConnections(String userEmail) {
+        Long userId = userRepository.findIdByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("Utilisateur introuvable: " + userEmail));
 
-        return userRepository.findRelationsByEmail(userEmail);
+        return relationsCache.relations(userId, () -> userRepository.findRelations(userId));
     }
 
     @Transactional
@@ -37,80 +47,147 @@ public class UserConnectionServiceImpl implements UserConnectionService {
             throw new IllegalArgumentException("Vous ne pouvez pas vous ajouter vous-même");
         }
 
-        User currentUser = userRepository.findByEmail(currentUserEmail)
+        Long currentUserId = userRepository.findIdByEmail(currentUserEmail)
                 .orElseThrow(() -> new RuntimeException("Utilisateur introuvable: " + currentUserEmail));
 
-        User targetUser = userRepository.findByEmail(targetEmail)
+        Long targetUserId = userRepository.findIdByEmail(targetEmail)
                 .orElseThrow(() -> new RuntimeException("L'utilisateur n'existe pas: " + targetEmail));
 
-        // Vérifie si la relation existe déjà
-        if (currentUser.getConnections().contains(targetUser)) {
+        // Vérifie si la relation existe déjà (graphe en mémoire, puis la base au moment de l'insertion)
+        if (connectionGraph.isConnected(currentUserId, targetUserId)
+                || userRepository.insertConnection(currentUserId, targetUserId) == 0) {
             LOGGER.info("Relation déjà existante entre {} et {}", currentUserEmail, targetEmail);
             throw new IllegalArgumentException("Cette relation exist déjà! veuillez renseigner une autre");
-            //return false;
         }
 
-        // Ajout connexion bidirectionnelle
-        currentUser.addConnection(targetUser);
-        userRepository.save(currentUser);
+        connectionAdded(currentUserId, targetUserId);
 
         LOGGER.info("Nouvelle relation ajoutée: {} <-> {}", currentUserEmail, targetEmail);
     }
 
+    /**
+     * Utilisateurs non encore ajoutés dont l'email ou le nom commence par query, par ordre d'email.
+     * Rien n'est lu en dessous de MIN_QUERY_LENGTH caractères : la page affiche les résultats au fil de la saisie.
+     */
     @Transactional(readOnly = true)
     @Override
-    public Set<User> getPotentialConnections(String userEmail) throws UserNotFoundException {
-        User currentUser = userRepository.findByEmail(userEmail)
+    public CursorPage<ConnectionCard> searchPotentialConnections(String userEmail, String query, String after, int size)
+            throws UserNotFoundException {
+        CursorPage.checkSize(size);
+        String term = query == null ? "" : query.trim();
+        if (term.length() < MIN_QUERY_LENGTH) {
+            return new CursorPage<>(List.of(), null, null);
+        }
+        String afterEmail = after == null ? "" : decodeCursor(after);
+        Long userId = userRepository.findIdByEmail(userEmail)
                 .orElseThrow(() -> new UserNotFoundException("Utilisateur introuvable"));
 
-        return new HashSet<>(userRepository.findPotentialConnections(userEmail, currentUser.getId()));
+        String prefix = likePrefix(term);
+        Limit limit = Limit.of(size + 1);
+        List<ConnectionCard> rows = mergeByEmail(
+                userRepository.searchPotentialConnectionsByEmail(userId, prefix, afterEmail, limit),
+                userRepository.searchPotentialConnectionsByName(userId, prefix, afterEmail, limit), size + 1);
+        return CursorPage.ofTokens(rows, size, after != null, false, card -> encodeCursor(card.email()));
+    }
+
+    // fusion de deux listes triées par email ; un utilisateur trouvé par l'email et par le nom n'apparaît qu'une fois
+    static List<ConnectionCard> mergeByEmail(List<ConnectionCard> byEmail, List<ConnectionCard> byName, int limit) {
+        List<ConnectionCard> merged = new ArrayList<>(Math.min(limit, byEmail.size() + byName.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < byEmail.size() || j < byName.size())) {
+            int order = i == byEmail.size() ? 1 : j == byName.size() ? -1
+                    : byEmail.get(i).email().compareTo(byName.get(j).email());
+            if (order <= 0) {
+                merged.add(byEmail.get(i++));
+                if (order == 0) {
+                    j++;
+                }
+            } else {
+                merged.add(byName.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    // les jokers saisis sont pris littéralement
+    static String likePrefix(String term) {
+        return term.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    static String encodeCursor(String email) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(email.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursor(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Curseur de recherche invalide");
+        }
     }
 
     @Transactional
     @Override
     public void updateConnection(String currentUserEmail, String oldConnectionEmail, String newConnectionEmail)
             throws UserNotFoundException {
-        User currentUser = userRepository.findByEmail(currentUserEmail)
+        Long currentUserId = userRepository.findIdByEmail(currentUserEmail)
                 .orElseThrow(() -> new UserNotFoundException("Utilisateur introuvable"));
 
-        User oldConnection = userRepository.findByEmail(oldConnectionEmail)
+        Long oldConnectionId = userRepository.findIdByEmail(oldConnectionEmail)
                 .orElseThrow(() -> new UserNotFoundException("Ancienne connexion introuvable"));
 
-        User newConnection = userRepository.findByEmail(newConnectionEmail)
+        Long newConnectionId = userRepository.findIdByEmail(newConnectionEmail)
                 .orElseThrow(() -> new UserNotFoundException("Nouvelle connexion introuvable"));
 
-        if (!currentUser.getConnections().contains(oldConnection)) {
+        if (!connectionGraph.isConnected(currentUserId, oldConnectionId)) {
             throw new IllegalStateException("L'ancienne connexion n'existe pas");
         }
 
-        if (currentUser.getConnections().contains(newConnection)) {
+        if (connectionGraph.isConnected(currentUserId, newConnectionId)) {
             throw new IllegalStateException("La nouvelle connexion existe déjà");
         }
 
-        currentUser.removeConnection(oldConnection);
-        currentUser.addConnection(newConnection);
-        userRepository.save(currentUser);
+        userRepository.deleteConnection(currentUserId, oldConnectionId);
+        if (userRepository.insertConnection(currentUserId, newConnectionId) == 0) {
+            throw new IllegalStateException("La nouvelle connexion existe déjà");
+        }
+        connectionRemoved(currentUserId, oldConnectionId);
+        connectionAdded(currentUserId, newConnectionId);
 
     }
 
     @Transactional
     @Override
     public void removeConnection(String currentUserEmail, String targetEmail) {
-        User currentUser = userRepository.findByEmail(currentUserEmail)
+        Long currentUserId = userRepository.findIdByEmail(currentUserEmail)
                 .orElseThrow(() -> new RuntimeException("Utilisateur introuvable: " + currentUserEmail));
 
-        User targetUser = userRepository.findByEmail(targetEmail)
+        Long targetUserId = userRepository.findIdByEmail(targetEmail)
                 .orElseThrow(() -> new RuntimeException("Utilisateur cible introuvable: " + targetEmail));
 
-        if (!currentUser.getConnections().contains(targetUser)) {
+        if (!connectionGraph.isConnected(currentUserId, targetUserId)
+                || userRepository.deleteConnection(currentUserId, targetUserId) == 0) {
             LOGGER.info("Aucune relation existante à supprimer entre {} et {}", currentUserEmail, targetEmail);
             return;
         }
 
-        currentUser.removeConnection(targetUser);
-        userRepository.save(currentUser);
+        connectionRemoved(currentUserId, targetUserId);
 
         LOGGER.info("Relation supprimée: {} -/-> {}", currentUserEmail, targetEmail);
     }
 
+    // graphe (lu aussi par l'autocomplétion), listes de relations et suggestions mis à jour après commit
+    private void connectionAdded(Long userId, Long connectionId) {
+        connectionGraph.connectionAdded(userId, connectionId);
+        relationsCache.connectionChanged(userId, connectionId);
+        suggestionService.connectionChanged(userId, connectionId);
+    }
+
+    private void connectionRemoved(Long userId, Long connectionId) {
+        connectionGraph.connectionRemoved(userId, connectionId);
+        relationsCache.connectionChanged(userId, connectionId);
+        suggestionService.connectionChanged(userId, connectionId);
+    }
+
 }
\ No newline at end of file
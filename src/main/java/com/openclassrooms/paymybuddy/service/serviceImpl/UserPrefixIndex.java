@@ -0,0 +1,416 @@
+package com.openclassrooms.paymybuddy.service.serviceImpl;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Index en mémoire des préfixes de noms et d'emails, pour l'autocomplétion sans requête SQL.
+ * La base est compacte et immuable : clés normalisées (minuscules, sans accents) en UTF-8 dans un seul byte[],
+ * triées, chacune renvoyant à un utilisateur (id long) dont le nom et l'email d'affichage sont dans un second byte[].
+ * Inscriptions et modifications vont dans un petit delta recopié à chaque écriture, fusionné par compact().
+ * Ordre de grandeur (AutocompleteBenchmark) : ~150 octets par utilisateur, quelques µs par recherche à 1 M d'utilisateurs.
+ * Les lectures ne prennent aucun verrou : elles lisent l'état courant (base + delta) d'un seul bloc.
+ */
+public final class UserPrefixIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORDS = Pattern.compile("[\\s-]+");
+    private static final Comparator<byte[]> BYTES = Arrays::compareUnsigned;
+
+    private record State(Packed base, Map<Long, ConnectionCard> updated, Set<Long> removed,
+                         NavigableMap<byte[], long[]> keys) {
+
+        // les entrées de la base sont masquées dès que l'utilisateur est passé par le delta
+        boolean hidden(long id) {
+            return updated.containsKey(id) || removed.contains(id);
+        }
+
+        int deltaSize() {
+            return updated.size() + removed.size();
+        }
+    }
+
+    private volatile State state = new State(Packed.build(List.of()), Map.of(), Set.of(), new TreeMap<>(BYTES));
+
+    // remplace tout l'index ; les écritures déjà passées par le delta restent prioritaires
+    public synchronized void load(Collection<ConnectionCard> cards) {
+        State current = state;
+        state = new State(Packed.build(cards), current.updated(), current.removed(), current.keys());
+    }
+
+    public synchronized void put(long id, String name, String email) {
+        State current = state;
+        Map<Long, ConnectionCard> updated = new HashMap<>(current.updated());
+        Set<Long> removed = new HashSet<>(current.removed());
+        NavigableMap<byte[], long[]> keys = new TreeMap<>(current.keys());
+
+        ConnectionCard previous = updated.put(id, new ConnectionCard(id, name, email));
+        if (previous != null) {
+            removeKeys(keys, previous);
+        }
+        removed.remove(id);
+        for (byte[] key : keysOf(name, email)) {
+            long[] ids = keys.get(key);
+            keys.put(key, ids == null ? new long[]{id} : append(ids, id));
+        }
+        state = new State(current.base(), updated, removed, keys);
+    }
+
+    public synchronized void remove(long id) {
+        State current = state;
+        Map<Long, ConnectionCard> updated = new HashMap<>(current.updated());
+        Set<Long> removed = new HashSet<>(current.removed());
+        NavigableMap<byte[], long[]> keys = new TreeMap<>(current.keys());
+
+        ConnectionCard previous = updated.remove(id);
+        if (previous != null) {
+            removeKeys(keys, previous);
+        }
+        removed.add(id);
+        state = new State(current.base(), updated, removed, keys);
+    }
+
+    /**
+     * Reconstruit la base avec le delta, hors verrou : les écritures arrivées pendant la reconstruction
+     * restent dans le nouveau delta (une carte plus récente, ou un retrait, masque la base reconstruite).
+     */
+    public void compact() {
+        State snapshot = state;
+        if (snapshot.deltaSize() == 0) {
+            return;
+        }
+        List<ConnectionCard> cards = new ArrayList<>(snapshot.base().ids.length + snapshot.updated().size());
+        for (int i = 0; i < snapshot.base().ids.length; i++) {
+            if (!snapshot.hidden(snapshot.base().ids[i])) {
+                cards.add(snapshot.base().card(i));
+            }
+        }
+        cards.addAll(snapshot.updated().values());
+        Packed rebuilt = Packed.build(cards);
+
+        synchronized (this) {
+            State current = state;
+            if (current.base() != snapshot.base()) {
+                // load() est passé entre-temps : sa base est plus fraîche
+                return;
+            }
+            Map<Long, ConnectionCard> updated = new HashMap<>();
+            NavigableMap<byte[], long[]> keys = new TreeMap<>(BYTES);
+            current.updated().forEach((id, card) -> {
+                if (snapshot.updated().get(id) != card) {
+                    updated.put(id, card);
+                    for (byte[] key : keysOf(card.name(), card.email())) {
+                        long[] ids = keys.get(key);
+                        keys.put(key, ids == null ? new long[]{id} : append(ids, id));
+                    }
+                }
+            });
+            Set<Long> removed = new HashSet<>(current.removed());
+            removed.removeAll(snapshot.removed());
+            state = new State(rebuilt, updated, removed, keys);
+        }
+    }
+
+    public int pendingChanges() {
+        return state.deltaSize();
+    }
+
+    public ConnectionCard card(long id) {
+        State current = state;
+        ConnectionCard updated = current.updated().get(id);
+        if (updated != null || current.removed().contains(id)) {
+            return updated;
+        }
+        int index = Arrays.binarySearch(current.base().ids, id);
+        return index < 0 ? null : current.base().card(index);
+    }
+
+    public Long idOfEmail(String email) {
+        for (long id : search(email, 8, id -> true)) {
+            ConnectionCard card = card(id);
+            if (card != null && card.email() != null && card.email().equalsIgnoreCase(email.trim())) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Utilisateurs dont le nom, un mot du nom ou l'email commence par prefix, dans l'ordre des clés, sans doublon.
+     * Le parcours s'arrête dès que limit utilisateurs acceptés par filter sont trouvés.
+     */
+    public List<Long> search(String prefix, int limit, LongPredicate filter) {
+        byte[] wanted = utf8(normalize(prefix));
+        State current = state;
+        Packed base = current.base();
+        Set<Long> found = new LinkedHashSet<>();
+
+        int i = base.lowerBound(wanted);
+        Iterator<Map.Entry<byte[], long[]>> delta = current.keys().tailMap(wanted, true).entrySet().iterator();
+        Map.Entry<byte[], long[]> pending = nextMatch(delta, wanted);
+
+        while (found.size() < limit) {
+            boolean inBase = i < base.owners.length && base.startsWith(i, wanted);
+            if (!inBase && pending == null) {
+                break;
+            }
+            if (pending != null && (!inBase || base.compareKey(i, pending.getKey()) > 0)) {
+                for (long id : pending.getValue()) {
+                    if (found.size() < limit && filter.test(id)) {
+                        found.add(id);
+                    }
+                }
+                pending = nextMatch(delta, wanted);
+            } else {
+                long id = base.ids[base.owners[i++]];
+                if (!current.hidden(id) && filter.test(id)) {
+                    found.add(id);
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    // vrai si le nom, un mot du nom ou l'email de la carte commence par le préfixe déjà normalisé
+    public static boolean matches(ConnectionCard card, String normalizedPrefix) {
+        byte[] wanted = utf8(normalizedPrefix);
+        for (byte[] key : keysOf(card.name(), card.email())) {
+            if (key.length >= wanted.length && Arrays.equals(key, 0, wanted.length, wanted, 0, wanted.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = text.trim();
+        if (trimmed.chars().allMatch(c -> c < 0x80)) {
+            return trimmed.toLowerCase(Locale.ROOT);
+        }
+        String decomposed = Normalizer.normalize(trimmed, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    public long memoryBytes() {
+        return state.base().memoryBytes();
+    }
+
+    public int size() {
+        State current = state;
+        int hiddenInBase = 0;
+        for (Long id : current.updated().keySet()) {
+            hiddenInBase += Arrays.binarySearch(current.base().ids, id) >= 0 ? 1 : 0;
+        }
+        for (Long id : current.removed()) {
+            hiddenInBase += Arrays.binarySearch(current.base().ids, id) >= 0 ? 1 : 0;
+        }
+        return current.base().ids.length - hiddenInBase + current.updated().size();
+    }
+
+    // email, nom complet, puis chaque mot du nom (« dupont » trouve « Jean Dupont »)
+    private static Set<byte[]> keysOf(String name, String email) {
+        Set<String> keys = new LinkedHashSet<>();
+        String normalizedName = normalize(name);
+        if (!normalizedName.isEmpty()) {
+            keys.add(normalizedName);
+            for (String word : WORDS.split(normalizedName)) {
+                if (!word.isEmpty()) {
+                    keys.add(word);
+                }
+            }
+        }
+        String normalizedEmail = normalize(email);
+        if (!normalizedEmail.isEmpty()) {
+            keys.add(normalizedEmail);
+        }
+        Set<byte[]> bytes = new LinkedHashSet<>();
+        keys.forEach(key -> bytes.add(utf8(key)));
+        return bytes;
+    }
+
+    private static void removeKeys(NavigableMap<byte[], long[]> keys, ConnectionCard card) {
+        for (byte[] key : keysOf(card.name(), card.email())) {
+            long[] ids = keys.get(key);
+            if (ids == null) {
+                continue;
+            }
+            long[] remaining = Arrays.stream(ids).filter(id -> id != card.id()).toArray();
+            if (remaining.length == 0) {
+                keys.remove(key);
+            } else {
+                keys.put(key, remaining);
+            }
+        }
+    }
+
+    private static Map.Entry<byte[], long[]> nextMatch(Iterator<Map.Entry<byte[], long[]>> delta, byte[] prefix) {
+        if (!delta.hasNext()) {
+            return null;
+        }
+        Map.Entry<byte[], long[]> entry = delta.next();
+        byte[] key = entry.getKey();
+        boolean match = key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+        return match ? entry : null;
+    }
+
+    private static long[] append(long[] ids, long id) {
+        long[] copy = Arrays.copyOf(ids, ids.length + 1);
+        copy[ids.length] = id;
+        return copy;
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tableaux primitifs : utilisateurs triés par id (nom et email à la suite dans text),
+     * clés triées par octets non signés (ordre des points de code) avec l'indice de leur utilisateur.
+     */
+    private static final class Packed {
+
+        private final long[] ids;
+        private final int[] textOffsets;
+        private final byte[] text;
+        private final int[] keyOffsets;
+        private final byte[] keys;
+        private final int[] owners;
+
+        // head : 8 premiers octets de la clé, gros-boutiste, pour trier sans déréférencer bytes dans la plupart des cas
+        private record Key(long head, byte[] bytes, int owner) {
+
+            private Key(byte[] bytes, int owner) {
+                this(head(bytes), bytes, owner);
+            }
+
+            private static long head(byte[] bytes) {
+                long head = 0;
+                for (int i = 0; i < Long.BYTES; i++) {
+                    head = (head << 8) | (i < bytes.length ? bytes[i] & 0xFF : 0);
+                }
+                return head;
+            }
+
+            private static int compare(Key a, Key b) {
+                int byHead = Long.compareUnsigned(a.head, b.head);
+                if (byHead != 0) {
+                    return byHead;
+                }
+                int byBytes = Arrays.compareUnsigned(a.bytes, b.bytes);
+                return byBytes != 0 ? byBytes : Integer.compare(a.owner, b.owner);
+            }
+        }
+
+        private Packed(long[] ids, int[] textOffsets, byte[] text, int[] keyOffsets, byte[] keys, int[] owners) {
+            this.ids = ids;
+            this.textOffsets = textOffsets;
+            this.text = text;
+            this.keyOffsets = keyOffsets;
+            this.keys = keys;
+            this.owners = owners;
+        }
+
+        private static Packed build(Collection<ConnectionCard> cards) {
+            List<ConnectionCard> sorted = new ArrayList<>(cards);
+            sorted.sort(Comparator.comparingLong(ConnectionCard::id));
+
+            int count = sorted.size();
+            long[] ids = new long[count];
+            int[] textOffsets = new int[2 * count + 1];
+            byte[][] parts = new byte[2 * count][];
+            List<Key> keys = new ArrayList<>(count * 3);
+            int textLength = 0;
+            for (int i = 0; i < count; i++) {
+                ConnectionCard card = sorted.get(i);
+                ids[i] = card.id();
+                parts[2 * i] = utf8(card.name() == null ? "" : card.name());
+                parts[2 * i + 1] = utf8(card.email() == null ? "" : card.email());
+                textLength += parts[2 * i].length + parts[2 * i + 1].length;
+                for (byte[] key : keysOf(card.name(), card.email())) {
+                    keys.add(new Key(key, i));
+                }
+            }
+
+            byte[] text = new byte[textLength];
+            for (int i = 0; i < parts.length; i++) {
+                System.arraycopy(parts[i], 0, text, textOffsets[i], parts[i].length);
+                textOffsets[i + 1] = textOffsets[i] + parts[i].length;
+            }
+
+            keys.sort(Key::compare);
+            int[] keyOffsets = new int[keys.size() + 1];
+            int[] owners = new int[keys.size()];
+            int keyLength = 0;
+            for (Key key : keys) {
+                keyLength += key.bytes().length;
+            }
+            byte[] packedKeys = new byte[keyLength];
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] bytes = keys.get(i).bytes();
+                System.arraycopy(bytes, 0, packedKeys, keyOffsets[i], bytes.length);
+                keyOffsets[i + 1] = keyOffsets[i] + bytes.length;
+                owners[i] = keys.get(i).owner();
+            }
+            return new Packed(ids, textOffsets, text, keyOffsets, packedKeys, owners);
+        }
+
+        private ConnectionCard card(int index) {
+            return new ConnectionCard(ids[index], string(2 * index), string(2 * index + 1));
+        }
+
+        private String string(int part) {
+            return new String(text, textOffsets[part], textOffsets[part + 1] - textOffsets[part], StandardCharsets.UTF_8);
+        }
+
+        private int compareKey(int index, byte[] other) {
+            return Arrays.compareUnsigned(keys, keyOffsets[index], keyOffsets[index + 1], other, 0, other.length);
+        }
+
+        private boolean startsWith(int index, byte[] prefix) {
+            int length = keyOffsets[index + 1] - keyOffsets[index];
+            return length >= prefix.length
+                    && Arrays.equals(keys, keyOffsets[index], keyOffsets[index] + prefix.length, prefix, 0, prefix.length);
+        }
+
+        // première clé >= prefix : les clés qui commencent par prefix la suivent sans interruption
+        private int lowerBound(byte[] prefix) {
+            int low = 0;
+            int high = owners.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareKey(middle, prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private long memoryBytes() {
+            return 8L * ids.length + 4L * textOffsets.length + text.length
+                    + 4L * keyOffsets.length + keys.length + 4L * owners.length;
+        }
+    }
+}
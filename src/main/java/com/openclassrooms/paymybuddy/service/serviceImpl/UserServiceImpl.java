@@ -34,6 +34,9 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final SecurityValidationImpl securityValidationImpl;
+    private final TransactionHistoryServiceImpl transactionHistoryService;
+    private final AutocompleteServiceImpl autocompleteService;
+    private final RelationsCache relationsCache;
     @Value("${file.upload-dir:src/main/resources/static/uploads/}")
     private String uploadDir;
 
@@ -42,6 +45,7 @@ public class UserServiceImpl implements UserService {
     public void registerUser(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         userRepository.save(user);
+        autocompleteService.userSaved(user.getId(), user.getName(), user.getEmail());
     }
 
     @Transactional(readOnly = true)
@@ -77,8 +81,17 @@ public class UserServiceImpl implements UserService {
                 user.setProfileImageUrl("/uploads/" + fileName);
             }
 
+            // noms recopiés dans l'historique des transactions en tâche de fond
+            if (!Objects.equals(user.getName(), newUsername)) {
+                transactionHistoryService.recordProfileNameChange(user.getId(), newUsername);
+            }
+            // cartes affichées dans les relations des autres utilisateurs
+            if (!Objects.equals(user.getName(), newUsername) || !email.equals(newEmail)) {
+                relationsCache.profileChanged(user.getId());
+            }
             user.setName(newUsername);
             user.setEmail(newEmail);
+            autocompleteService.userSaved(user.getId(), newUsername, newEmail);
             return userRepository.save(user);
 
         } catch (IOException e) {
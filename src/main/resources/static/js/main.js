@@ -38,7 +38,103 @@ document.addEventListener("DOMContentLoaded", () => {
         });
     };
 
+    // Recherche de relations au fil de la saisie : une page de 10 résultats, la suite à la demande
+    const setupConnectionSearch = () => {
+        const input = document.getElementById("connection-search");
+        const results = document.getElementById("connection-results");
+        const more = document.getElementById("connection-more");
+
+        if (!input || !results || !more) return;
+
+        let timer = null;
+        let controller = null;
+        let next = null;
+
+        const render = (cards, append) => {
+            if (!append) results.replaceChildren();
+            cards.forEach(card => {
+                const item = document.createElement("li");
+                item.className = "list-group-item list-group-item-action";
+                item.textContent = `${card.name} (${card.email})`;
+                item.addEventListener("click", () => {
+                    input.value = card.email;
+                    results.replaceChildren();
+                    more.hidden = true;
+                });
+                results.appendChild(item);
+            });
+        };
+
+        const search = (after) => {
+            const query = input.value.trim();
+            // abandonne la requête d'une saisie précédente
+            if (controller) controller.abort();
+            if (query.length < 2) {
+                results.replaceChildren();
+                more.hidden = true;
+                return;
+            }
+            controller = new AbortController();
+            const params = new URLSearchParams({ q: query, size: "10" });
+            if (after) params.set("after", after);
+            fetch(`/addRelationship/search?${params}`, { signal: controller.signal })
+                .then(response => response.ok ? response.json() : Promise.reject(response.status))
+                .then(page => {
+                    render(page.content, Boolean(after));
+                    next = page.next;
+                    more.hidden = !next;
+                })
+                .catch(error => {
+                    if (error.name !== "AbortError") console.warn("Recherche de relations impossible", error);
+                });
+        };
+
+        input.addEventListener("input", () => {
+            clearTimeout(timer);
+            timer = setTimeout(() => search(null), 250);
+        });
+        more.addEventListener("click", () => search(next));
+    };
+
+    // Destinataires d'un virement : relations les plus utilisées d'abord, proposées dès le focus
+    const setupRecipientAutocomplete = () => {
+        const input = document.getElementById("recipient");
+        const suggestions = document.getElementById("recipient-suggestions");
+
+        if (!input || !suggestions) return;
+
+        let timer = null;
+        let controller = null;
+
+        const suggest = () => {
+            if (controller) controller.abort();
+            controller = new AbortController();
+            const params = new URLSearchParams({ q: input.value.trim(), limit: "10" });
+            fetch(`/autocomplete/recipients?${params}`, { signal: controller.signal })
+                .then(response => response.ok ? response.json() : Promise.reject(response.status))
+                .then(cards => {
+                    suggestions.replaceChildren(...cards.map(card => {
+                        const option = document.createElement("option");
+                        option.value = card.email;
+                        option.label = card.name;
+                        return option;
+                    }));
+                })
+                .catch(error => {
+                    if (error.name !== "AbortError") console.warn("Suggestions de destinataires impossibles", error);
+                });
+        };
+
+        input.addEventListener("focus", suggest, { once: true });
+        input.addEventListener("input", () => {
+            clearTimeout(timer);
+            timer = setTimeout(suggest, 150);
+        });
+    };
+
     // Initialisation
     setupCurrencySelection();
     setupDeleteConfirmations();
+    setupConnectionSearch();
+    setupRecipientAutocomplete();
 });
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.openclassrooms.paymybuddy.benchmark;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.service.serviceImpl.UserPrefixIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Index d'autocomplétion seul, en mémoire (sans Spring ni base) : taille par utilisateur et latence d'une recherche
+ * de préfixe de 2 à 4 lettres suivie de la lecture des cartes, comme AutocompleteServiceImpl.suggestUsers.
+ * Lancement : mvn -Pbenchmark test -Dtest=AutocompleteBenchmark (-Dbenchmark.users=5000000).
+ */
+@Slf4j
+class AutocompleteBenchmark {
+
+    private static final int USERS = Integer.getInteger("benchmark.users", 1_000_000);
+    private static final int SEARCHES = 20_000;
+    private static final int LIMIT = 10;
+    private static final String[] SYLLABLES = {"ma", "ri", "jo", "lu", "ce", "pa", "to", "ne", "vi", "an", "el", "so",
+            "ka", "de", "mi", "ro", "la", "be", "sa", "di"};
+
+    @Test
+    void prefixSearch_shouldAnswerUnderOneMillisecondWithCompactArrays() {
+        Random random = new Random(42);
+        List<ConnectionCard> cards = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            String first = word(random, 2 + random.nextInt(2));
+            String last = word(random, 2 + random.nextInt(3));
+            cards.add(new ConnectionCard((long) i + 1, capitalize(first) + " " + capitalize(last),
+                    first + "." + last + i + "@paymybuddy.com"));
+        }
+
+        UserPrefixIndex index = new UserPrefixIndex();
+        long start = System.nanoTime();
+        index.load(cards);
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        cards = null;
+
+        // nouveaux comptes dans le delta, non compacté, comme entre deux passages de compact()
+        for (int i = 0; i < 1_000; i++) {
+            index.put(USERS + i + 1L, "Delta " + i, "delta" + i + "@paymybuddy.com");
+        }
+
+        String[] prefixes = new String[SEARCHES];
+        for (int i = 0; i < SEARCHES; i++) {
+            String prefix = word(random, 2);
+            prefixes[i] = prefix.substring(0, 2 + random.nextInt(3));
+        }
+        for (int i = 0; i < SEARCHES; i++) {
+            suggest(index, prefixes[i]);
+        }
+        long[] latencies = new long[SEARCHES];
+        int found = 0;
+        for (int i = 0; i < SEARCHES; i++) {
+            long t = System.nanoTime();
+            found += suggest(index, prefixes[i]);
+            latencies[i] = System.nanoTime() - t;
+        }
+        Arrays.sort(latencies);
+
+        log.info("{} utilisateurs : index construit en {} ms, {} octets par utilisateur ({} Mo)", USERS, buildMillis,
+                index.memoryBytes() / USERS, index.memoryBytes() / (1024 * 1024));
+        log.info("{} recherches de préfixe (limite {}) : p50={} µs, p99={} µs, p999={} µs, {} suggestions en moyenne",
+                SEARCHES, LIMIT, micros(percentile(latencies, 0.50)), micros(percentile(latencies, 0.99)),
+                micros(percentile(latencies, 0.999)), found / SEARCHES);
+
+        assertEquals(USERS + 1_000, index.size());
+        assertTrue(found > 0);
+        assertTrue(percentile(latencies, 0.50) < TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static int suggest(UserPrefixIndex index, String prefix) {
+        int cards = 0;
+        for (Long id : index.search(prefix, LIMIT, id -> id % 7 != 0)) {
+            cards += index.card(id) != null ? 1 : 0;
+        }
+        return cards;
+    }
+
+    private static String word(Random random, int syllables) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min((int) Math.ceil(quantile * sorted.length) - 1, sorted.length - 1)];
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
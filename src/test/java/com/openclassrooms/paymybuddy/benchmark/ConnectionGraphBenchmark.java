@@ -0,0 +1,98 @@
+package com.openclassrooms.paymybuddy.benchmark;
+
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraph;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Graphe des relations seul, en mémoire (sans Spring ni base) : taille par relation et latence de « A suit B » et de
+ * la lecture des relations de A, comme les contrôles de virement et l'autocomplétion des destinataires.
+ * Lancement : mvn -Pbenchmark test -Dtest=ConnectionGraphBenchmark (-Dbenchmark.edges=20000000).
+ */
+@Slf4j
+class ConnectionGraphBenchmark {
+
+    private static final int EDGES = Integer.getInteger("benchmark.edges", 10_000_000);
+    private static final int DEGREE = 20;
+    private static final int USERS = EDGES / DEGREE;
+    private static final int LOOKUPS = 1_000_000;
+
+    @Test
+    void contains_shouldAnswerWithoutBoxingInAFewBytesPerEdge() {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        ConnectionGraph.Builder builder = ConnectionGraph.builder();
+        long[] row = new long[DEGREE * 2];
+        int edges = 0;
+        for (long userId = 1; userId <= USERS; userId++) {
+            // degré de 1 à 2 * DEGREE - 1, relations triées comme l'ordre de la clé primaire
+            int degree = Math.min(1 + random.nextInt(DEGREE * 2 - 1), EDGES - edges);
+            for (int i = 0; i < degree; i++) {
+                row[i] = 1 + random.nextInt(USERS);
+            }
+            Arrays.sort(row, 0, degree);
+            long previous = 0;
+            for (int i = 0; i < degree; i++) {
+                if (row[i] != previous && row[i] != userId) {
+                    builder.append(userId, row[i]);
+                    previous = row[i];
+                    edges++;
+                }
+            }
+        }
+        ConnectionGraph graph = new ConnectionGraph();
+        graph.load(builder);
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        builder = null;
+
+        // relations ajoutées et retirées depuis le dernier compact()
+        for (int i = 0; i < 1_000; i++) {
+            graph.add(1 + random.nextInt(USERS), 1 + random.nextInt(USERS));
+            graph.remove(1 + random.nextInt(USERS), 1 + random.nextInt(USERS));
+        }
+
+        long[] senders = new long[LOOKUPS];
+        long[] receivers = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            senders[i] = 1 + random.nextInt(USERS);
+            long[] connections = graph.connections(senders[i]);
+            // une moitié de relations existantes, une moitié au hasard
+            receivers[i] = i % 2 == 0 && connections.length > 0
+                    ? connections[random.nextInt(connections.length)] : 1 + random.nextInt(USERS);
+        }
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            found += graph.contains(senders[i], receivers[i]) ? 1 : 0;
+        }
+        long t = System.nanoTime();
+        found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            found += graph.contains(senders[i], receivers[i]) ? 1 : 0;
+        }
+        long containsNanos = (System.nanoTime() - t) / LOOKUPS;
+        t = System.nanoTime();
+        long listed = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            listed += graph.connections(senders[i]).length;
+        }
+        long connectionsNanos = (System.nanoTime() - t) / LOOKUPS;
+
+        log.info("{} relations, {} utilisateurs : graphe construit en {} ms, {} octets par relation ({} Mo)",
+                graph.edgeCount(), graph.userCount(), buildMillis,
+                String.format("%.1f", (double) graph.memoryBytes() / graph.edgeCount()),
+                graph.memoryBytes() / (1024 * 1024));
+        log.info("{} vérifications « A suit B » : {} ns en moyenne, {} trouvées ; relations de A : {} ns en moyenne ({} lues)",
+                LOOKUPS, containsNanos, found, connectionsNanos, listed / LOOKUPS);
+
+        assertEquals(edges, graph.edgeCount());
+        assertTrue(found >= LOOKUPS / 2 - 1_000);
+        assertTrue((double) graph.memoryBytes() / graph.edgeCount() < 12);
+        assertTrue(containsNanos < TimeUnit.MICROSECONDS.toNanos(10));
+    }
+}
@@ -0,0 +1,139 @@
+package com.openclassrooms.paymybuddy.benchmark;
+
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraph;
+import com.openclassrooms.paymybuddy.service.serviceImpl.MutualConnections;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Suggestions « Vous connaissez peut-être » seules, en mémoire (sans Spring ni base) : utilisateur à plusieurs
+ * milliers de relations, elles-mêmes très connectées. Comptage primitif (MutualConnections : tableau indexé par
+ * id, ou table de hachage si les ids sont épars) comparé au comptage dans une HashMap&lt;Long, ...&gt;.
+ * Lancement : mvn -Pbenchmark test -Dtest=ConnectionSuggestionBenchmark (-Dbenchmark.users=2000000).
+ */
+@Slf4j
+class ConnectionSuggestionBenchmark {
+
+    private static final int USERS = Integer.getInteger("benchmark.users", 1_000_000);
+    private static final int HUB_DEGREE = 5_000;
+    private static final int FRIEND_DEGREE = 400;
+    private static final int LIMIT = 10;
+    private static final int RUNS = 10;
+    private static final long HUB = 1;
+
+    @Test
+    void top_shouldCountInPrimitiveArraysFasterThanBoxedMap() {
+        // ids denses (auto-incrément) : compteurs indexés par id
+        compare("ids denses", USERS);
+        // ids épars (étendue >> chemins) : table de hachage primitive
+        compare("ids épars", 1000L * USERS);
+    }
+
+    private void compare(String label, long maxId) {
+        Random random = new Random(42);
+        // le hub suit HUB_DEGREE comptes, chacun suit FRIEND_DEGREE comptes pris dans un voisinage de 5 % des ids
+        long neighbourhood = maxId / 20;
+        long[] hubRow = distinct(random, HUB_DEGREE, 2, maxId);
+        ConnectionGraph.Builder builder = ConnectionGraph.builder();
+        for (long id : hubRow) {
+            builder.append(HUB, id);
+        }
+        for (long id : hubRow) {
+            long from = Math.max(2, Math.min(id, maxId - neighbourhood));
+            for (long target : distinct(random, FRIEND_DEGREE, from, from + neighbourhood)) {
+                builder.append(id, target);
+            }
+        }
+        ConnectionGraph graph = new ConnectionGraph();
+        graph.load(builder);
+
+        long[] connections = graph.connections(HUB);
+        double[] weights = new double[connections.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1 + Math.log1p(i % 10 == 0 ? random.nextInt(20) : 0);
+        }
+
+        List<MutualConnections.Suggestion> primitive = null;
+        List<Long> boxed = null;
+        for (int i = 0; i < 3; i++) {
+            primitive = MutualConnections.top(HUB, connections, weights, graph::connections, LIMIT);
+            boxed = boxedTop(graph, connections, weights);
+        }
+        long[] primitiveNanos = new long[RUNS];
+        long[] boxedNanos = new long[RUNS];
+        // chaque variante dans sa propre boucle : le GC des boîtes de l'une ne pèse pas sur l'autre
+        System.gc();
+        for (int i = 0; i < RUNS; i++) {
+            long t = System.nanoTime();
+            primitive = MutualConnections.top(HUB, connections, weights, graph::connections, LIMIT);
+            primitiveNanos[i] = System.nanoTime() - t;
+        }
+        System.gc();
+        for (int i = 0; i < RUNS; i++) {
+            long t = System.nanoTime();
+            boxed = boxedTop(graph, connections, weights);
+            boxedNanos[i] = System.nanoTime() - t;
+        }
+        Arrays.sort(primitiveNanos);
+        Arrays.sort(boxedNanos);
+
+        long paths = Arrays.stream(connections).map(graph::degree).sum();
+        log.info("[{}] {} relations, {} chemins de longueur 2 : compteurs primitifs p50={} ms, HashMap p50={} ms ; "
+                        + "meilleure suggestion {} ({} en commun)", label, connections.length, paths,
+                millis(primitiveNanos[RUNS / 2]), millis(boxedNanos[RUNS / 2]),
+                primitive.get(0).id(), primitive.get(0).mutualConnections());
+
+        assertEquals(boxed, primitive.stream().map(MutualConnections.Suggestion::id).toList());
+        assertTrue(primitiveNanos[RUNS / 2] < boxedNanos[RUNS / 2]);
+        assertTrue(primitiveNanos[RUNS / 2] < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    // comptage d'avant : une entrée boxée par candidat, puis tri de tous les candidats
+    private static List<Long> boxedTop(ConnectionGraph graph, long[] connections, double[] weights) {
+        Set<Long> known = new HashSet<>();
+        for (long id : connections) {
+            known.add(id);
+        }
+        Map<Long, double[]> scores = new HashMap<>();
+        for (int i = 0; i < connections.length; i++) {
+            for (long candidate : graph.connections(connections[i])) {
+                if (candidate != HUB && !known.contains(candidate)) {
+                    double[] score = scores.computeIfAbsent(candidate, id -> new double[2]);
+                    score[0] += weights[i];
+                    score[1]++;
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Long, double[]>>comparingDouble(e -> -e.getValue()[0])
+                        .thenComparingDouble(e -> -e.getValue()[1])
+                        .thenComparingLong(Map.Entry::getKey))
+                .limit(LIMIT)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static long[] distinct(Random random, int count, long from, long to) {
+        Set<Long> ids = new HashSet<>();
+        while (ids.size() < count) {
+            ids.add(from + (long) (random.nextDouble() * (to - from)));
+        }
+        return ids.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+}
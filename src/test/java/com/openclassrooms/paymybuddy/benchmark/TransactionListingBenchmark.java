@@ -0,0 +1,396 @@
+package com.openclassrooms.paymybuddy.benchmark;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.dto.HistoricView;
+import com.openclassrooms.paymybuddy.dto.PageCursor;
+import com.openclassrooms.paymybuddy.dto.TransactionView;
+import com.openclassrooms.paymybuddy.entity.Historic;
+import com.openclassrooms.paymybuddy.entity.Transaction;
+import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.repository.HistoricRepository;
+import com.openclassrooms.paymybuddy.repository.TransactionRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraphServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.HistoricServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionHistoryServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.UserConnectionServiceImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.repository.NativeQuery;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plan d'exécution de l'historique paginé, avant (jointures sur user, filtre OR sur email)
+ * et après (page d'id par sender_id / receiver_id dans les index composites, UNION ALL).
+ * Les requêtes « après » sont celles des annotations de TransactionRepository.
+ * Le parcours par curseur doit redonner le même historique que l'OFFSET, avec un plan identique à toute profondeur.
+ * La table transaction_history, reprise depuis transaction, se lit sans jointure et reflète les renommages.
+ * La recherche de relations parcourt les préfixes d'email ou de nom page par page, sans OFFSET.
+ * Les relations d'un utilisateur très connecté se lisent sens par sens (UNION), sans produit sortantes x entrantes.
+ * Les pages lues en projections (records) allouent moins par requête que les entités gérées qu'elles remplacent
+ * (octets alloués par le thread, ThreadMXBean). Le nombre de requêtes SQL d'une page, indépendant de sa taille,
+ * est vérifié à chaque build par TransactionPageStatementCountTest.
+ * H2 met en cache les résultats des requêtes répétées : seuls les plans et les résultats sont comparés ici,
+ * les temps se mesurent avec EXPLAIN ANALYZE sur MySQL.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("benchmark")
+class TransactionListingBenchmark {
+
+    private static final int ACCOUNTS = Integer.getInteger("benchmark.accounts", 200);
+    private static final int TRANSACTIONS = Integer.getInteger("benchmark.transactions", 50_000);
+    private static final int PAGE_SIZE = 10;
+    private static final int ALLOCATION_RUNS = 500;
+
+    // requête générée auparavant pour findBySenderEmailOrReceiverEmail
+    private static final String BEFORE = "SELECT t.`id` FROM `transaction` t " +
+            "LEFT JOIN `user` s ON s.`id` = t.`sender_id` LEFT JOIN `user` r ON r.`id` = t.`receiver_id` " +
+            "WHERE s.`email` = 'bench0@paymybuddy.com' OR r.`email` = 'bench0@paymybuddy.com' " +
+            "ORDER BY t.`execution_date` DESC, t.`id` DESC LIMIT " + PAGE_SIZE + " OFFSET " + PAGE_SIZE;
+    // lectures précédant les projections : entités gérées
+    private static final String ENTITY_PAGE = "SELECT t FROM Transaction t LEFT JOIN FETCH t.receiver WHERE t.id IN :ids";
+    private static final String RELATIONS = "SELECT DISTINCT u FROM User user LEFT JOIN user.connections c " +
+            "LEFT JOIN user.connectedBy cb JOIN User u ON (u.id = c.id OR u.id = cb.id) " +
+            "WHERE user.email = :email AND u.id != user.id";
+    // lecture des relations remplacée par UserRepository.findRelations : une ligne par couple (sortante, entrante)
+    private static final String RELATIONS_BEFORE = "SELECT DISTINCT u.`id`, u.`profile_name`, u.`email` FROM `user` me " +
+            "LEFT JOIN `connection` c ON c.`user_id` = me.`id` LEFT JOIN `connection` cb ON cb.`connection_id` = me.`id` " +
+            "JOIN `user` u ON (u.`id` = c.`connection_id` OR u.`id` = cb.`user_id`) " +
+            "WHERE me.`email` = 'bench0@paymybuddy.com' AND u.`id` <> me.`id` ORDER BY u.`profile_name`, u.`email`";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private HistoricRepository historicRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionServiceImpl transactionService;
+    @Autowired
+    private TransactionHistoryServiceImpl transactionHistoryService;
+    @Autowired
+    private HistoricServiceImpl historicService;
+    @Autowired
+    private UserConnectionServiceImpl connectionService;
+    @Autowired
+    private ConnectionGraphServiceImpl connectionGraph;
+
+    private long userId;
+
+    @BeforeEach
+    void seed() {
+        for (String table : List.of("ledger_entry", "profile_name_change", "transaction_history", "`transaction`", "connection", "user_sub_balance", "`user`")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        List<Object[]> users = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            users.add(new Object[]{"Bench " + i, "bench" + i + "@paymybuddy.com", "Bench#12345"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `user` (`profile_name`, `email`, `password`, `balance`, `ledger_position`) " +
+                "VALUES (?, ?, ?, 0, 0)", users);
+        List<Long> ids = jdbcTemplate.queryForList("SELECT `id` FROM `user` ORDER BY `id`", Long.class);
+        userId = ids.get(0);
+
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Object[]> transactions = new ArrayList<>(TRANSACTIONS);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            int sender = random.nextInt(ACCOUNTS);
+            int receiver = (sender + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            transactions.add(new Object[]{ids.get(sender), ids.get(receiver), "Bench", 1_000, 5, "EUR",
+                    Timestamp.valueOf(start.plusMinutes(random.nextInt(500_000)))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `transaction` (`sender_id`, `receiver_id`, `description`, `amount`, `fee`, " +
+                "`currency`, `execution_date`) VALUES (?, ?, ?, ?, ?, ?, ?)", transactions);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void userHistory_shouldReadIdPageFromCompositeIndexes() throws Exception {
+        String after = nativeQuery("findPageIdsNewestFirst")
+                .replace(":userId", String.valueOf(userId))
+                .replace(":limit", String.valueOf(2 * PAGE_SIZE))
+                .replace(":size", String.valueOf(PAGE_SIZE))
+                .replace(":offset", String.valueOf(PAGE_SIZE));
+        String count = nativeQuery("countByUserId").replace(":userId", String.valueOf(userId));
+
+        String beforePlan = explain(BEFORE);
+        String afterPlan = explain(after);
+        log.info("Plan avant :\n{}", beforePlan);
+        log.info("Plan après :\n{}", afterPlan);
+        log.info("Plan du comptage :\n{}", explain(count));
+
+        // avant : parcours complet de transaction et deux accès à user par ligne
+        assertTrue(beforePlan.contains("transaction.tableScan"), beforePlan);
+        // après : aucune lecture complète ni jointure ; H2 peut préférer l'index de clé étrangère
+        // pour la branche destinataire (même préfixe receiver_id), MySQL prend l'index composite pour le tri
+        assertFalse(afterPlan.contains("tableScan"), afterPlan);
+        assertFalse(afterPlan.contains("\"user\""), afterPlan);
+        assertTrue(afterPlan.contains("idx_transaction_sender_date"), afterPlan);
+
+        List<Long> expected = jdbcTemplate.queryForList(BEFORE, Long.class);
+        assertEquals(expected, jdbcTemplate.queryForList(after, Long.class));
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `transaction` WHERE `sender_id` = ? OR `receiver_id` = ?",
+                Long.class, userId, userId);
+        assertEquals(total, jdbcTemplate.queryForObject(count, Long.class));
+    }
+
+    @Test
+    void keysetPages_shouldMatchOffsetPagesAndSeekInIndexes() {
+        List<Long> all = jdbcTemplate.queryForList("SELECT `id` FROM `transaction` WHERE `sender_id` = ? OR `receiver_id` = ? " +
+                "ORDER BY `execution_date` DESC, `id` DESC", Long.class, userId, userId);
+
+        // parcours complet par curseur, puis retour d'une page en arrière
+        List<Long> walked = new ArrayList<>();
+        List<String> cursors = new ArrayList<>();
+        CursorPage<TransactionView> page = transactionService.getUserTransactions("bench0@paymybuddy.com", false, null, null, PAGE_SIZE);
+        while (true) {
+            page.content().forEach(transaction -> walked.add(transaction.id()));
+            if (!page.hasNext()) {
+                break;
+            }
+            cursors.add(page.next());
+            page = transactionService.getUserTransactions("bench0@paymybuddy.com", false, page.next(), null, PAGE_SIZE);
+        }
+        assertEquals(all, walked);
+
+        CursorPage<TransactionView> third = transactionService.getUserTransactions("bench0@paymybuddy.com", false, cursors.get(1), null, PAGE_SIZE);
+        CursorPage<TransactionView> second = transactionService.getUserTransactions("bench0@paymybuddy.com", false, null, third.previous(), PAGE_SIZE);
+        assertEquals(all.subList(PAGE_SIZE, 2 * PAGE_SIZE), second.content().stream().map(TransactionView::id).toList());
+
+        PageCursor deep = PageCursor.decode(cursors.get(cursors.size() - 1));
+        String seek = nativeQuery("findIdsOlderThan")
+                .replace(":userId", String.valueOf(userId))
+                .replace(":date", "TIMESTAMP '" + Timestamp.valueOf(deep.executionDate()) + "'")
+                .replace(":id", String.valueOf(deep.id()))
+                .replace(":limit", String.valueOf(PAGE_SIZE + 1));
+        String seekPlan = explain(seek);
+        log.info("Plan de la dernière page par curseur ({} pages) :\n{}", cursors.size() + 1, seekPlan);
+        assertFalse(seekPlan.contains("tableScan"), seekPlan);
+        assertTrue(seekPlan.contains("idx_transaction_sender_date"), seekPlan);
+    }
+
+    @Test
+    void history_shouldBeBackfilledRenamedAndReadFromIndexes() {
+        transactionHistoryService.backfill();
+        assertEquals(TRANSACTIONS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `transaction_history`", Long.class));
+
+        jdbcTemplate.update("UPDATE `user` SET `profile_name` = 'Renamed' WHERE `id` = ?", userId);
+        transactionHistoryService.recordProfileNameChange(userId, "Renamed");
+        transactionHistoryService.propagateProfileNames();
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `transaction_history` " +
+                "WHERE (`sender_id` = ? AND `sender_profile_name` <> 'Renamed') " +
+                "OR (`receiver_id` = ? AND `receiver_profile_name` <> 'Renamed')", Long.class, userId, userId));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `profile_name_change`", Long.class));
+
+        List<Long> expected = jdbcTemplate.queryForList("SELECT `id` FROM `transaction` WHERE `sender_id` = ? OR `receiver_id` = ? " +
+                "ORDER BY `execution_date` DESC, `id` DESC LIMIT " + PAGE_SIZE, Long.class, userId, userId);
+        assertEquals(expected, historicService.getUserHistoric(userId, null, null, PAGE_SIZE).content().stream()
+                .map(HistoricView::id).toList());
+
+        String latest = nativeQuery(HistoricRepository.class, "findLatest")
+                .replace(":userId", String.valueOf(userId))
+                .replace(":limit", String.valueOf(PAGE_SIZE + 1));
+        String plan = explain(latest);
+        log.info("Plan de l'historique :\n{}", plan);
+        assertFalse(plan.contains("tableScan"), plan);
+        assertFalse(plan.contains("\"user\""), plan);
+        assertTrue(plan.contains("idx_history_sender_date"), plan);
+    }
+
+    @Test
+    void connectionSearch_shouldWalkPrefixMatchesByEmailAndSeekNameIndex() throws Exception {
+        List<Object[]> connections = new ArrayList<>();
+        jdbcTemplate.queryForList("SELECT `id` FROM `user` WHERE `email` LIKE 'bench1_@%' ORDER BY `email` LIMIT 5", Long.class)
+                .forEach(id -> connections.add(new Object[]{userId, id}));
+        jdbcTemplate.batchUpdate("INSERT INTO `connection` (`user_id`, `connection_id`) VALUES (?, ?)", connections);
+        String exclusions = "AND `id` <> ? AND `id` NOT IN (SELECT `connection_id` FROM `connection` WHERE `user_id` = ?) ";
+
+        List<String> expected = jdbcTemplate.queryForList("SELECT `email` FROM `user` WHERE `email` LIKE 'bench1%' " +
+                exclusions + "ORDER BY `email`", String.class, userId, userId);
+        // comptes dont le numéro commence par 1, moins les relations ajoutées
+        long prefixed = IntStream.range(0, ACCOUNTS).filter(i -> String.valueOf(i).startsWith("1")).count();
+        assertEquals(prefixed - connections.size(), expected.size());
+        assertEquals(expected, searchAll("bench1"));
+
+        List<String> byName = jdbcTemplate.queryForList("SELECT `email` FROM `user` WHERE `profile_name` LIKE 'Bench 1%' " +
+                exclusions + "ORDER BY `email`", String.class, userId, userId);
+        assertEquals(byName, searchAll("Bench 1"));
+
+        String plan = explain("SELECT `id`, `email` FROM `user` WHERE `profile_name` LIKE 'Bench 1%' ORDER BY `email` LIMIT " + (PAGE_SIZE + 1));
+        log.info("Plan de la recherche par nom :\n{}", plan);
+        assertTrue(plan.contains("idx_user_profile_name"), plan);
+    }
+
+    // parcourt toutes les pages de la recherche en suivant le curseur
+    private List<String> searchAll(String query) throws Exception {
+        List<String> emails = new ArrayList<>();
+        String after = null;
+        do {
+            CursorPage<ConnectionCard> page = connectionService.searchPotentialConnections("bench0@paymybuddy.com",
+                    query, after, PAGE_SIZE);
+            assertTrue(page.content().size() <= PAGE_SIZE);
+            page.content().forEach(card -> emails.add(card.email()));
+            after = page.next();
+        } while (after != null);
+        return emails;
+    }
+
+    @Test
+    void relations_shouldReadEachDirectionOnceForHighDegreeUser() {
+        // bench0 suit les 150 premiers comptes et est suivi par les 150 derniers : 100 relations dans les deux sens
+        List<Long> ids = jdbcTemplate.queryForList("SELECT `id` FROM `user` WHERE `id` <> ? ORDER BY `id`", Long.class, userId);
+        int degree = Math.min(150, ids.size());
+        List<Object[]> connections = new ArrayList<>();
+        ids.subList(0, degree).forEach(id -> connections.add(new Object[]{userId, id}));
+        ids.subList(ids.size() - degree, ids.size()).forEach(id -> connections.add(new Object[]{id, userId}));
+        jdbcTemplate.batchUpdate("INSERT INTO `connection` (`user_id`, `connection_id`) VALUES (?, ?)", connections);
+        jdbcTemplate.execute("ANALYZE");
+        // relations insérées hors service : graphe rechargé
+        connectionGraph.load();
+
+        List<ConnectionCard> expected = jdbcTemplate.query(RELATIONS_BEFORE,
+                (rs, i) -> new ConnectionCard(rs.getLong(1), rs.getString(2), rs.getString(3)));
+        assertEquals(ids.size(), expected.size());
+        assertEquals(expected, userRepository.findRelations(userId));
+
+        String after = nativeQuery(UserRepository.class, "findRelations").replace(":userId", String.valueOf(userId));
+        String plan = explain(after);
+        long rowsBefore = scannedRows(RELATIONS_BEFORE);
+        long rowsAfter = scannedRows(after);
+        log.info("Plan des relations :\n{}", plan);
+        log.info("Lignes lues pour {} relations sortantes et {} entrantes : avant {}, après {}",
+                degree, degree, rowsBefore, rowsAfter);
+
+        // avant : (sortantes x entrantes) lignes jointes avant DISTINCT ; après : chaque sens une fois, puis user par id
+        assertTrue(rowsBefore >= (long) degree * degree, "avant : " + rowsBefore);
+        assertTrue(rowsAfter <= 4L * (2 * degree + 1), "après : " + rowsAfter);
+        assertTrue(plan.contains("idx_connection_reverse"), plan);
+        assertFalse(plan.contains("connection.tableScan"), plan);
+
+        // id de l'utilisateur puis relations ; relations servies par le cache ensuite, relues après un retrait
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        String email = "bench0@paymybuddy.com";
+        statistics.clear();
+        assertEquals(expected, connectionService.getUserConnections(email));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        statistics.clear();
+        assertEquals(expected, connectionService.getUserConnections(email));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        ConnectionCard followed = expected.stream().filter(card -> card.id().equals(ids.get(0))).findFirst().orElseThrow();
+        connectionService.removeConnection(email, followed.email());
+        statistics.clear();
+        assertFalse(connectionService.getUserConnections(email).contains(followed));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    // lignes lues par H2 (somme des scanCount d'EXPLAIN ANALYZE)
+    private long scannedRows(String sql) {
+        Matcher scans = Pattern.compile("scanCount: (\\d+)").matcher(explain("ANALYZE " + sql));
+        long rows = 0;
+        while (scans.find()) {
+            rows += Long.parseLong(scans.group(1));
+        }
+        return rows;
+    }
+
+    @Test
+    void pageProjections_shouldAllocateLessThanManagedEntities() {
+        List<Long> ids = transactionRepository.findPageIdsNewestFirst(userId, PAGE_SIZE, PAGE_SIZE, 0);
+        List<Object[]> connections = new ArrayList<>();
+        jdbcTemplate.queryForList("SELECT `id` FROM `user` WHERE `id` <> ? ORDER BY `id` LIMIT 50", Long.class, userId)
+                .forEach(id -> connections.add(new Object[]{userId, id}));
+        jdbcTemplate.batchUpdate("INSERT INTO `connection` (`user_id`, `connection_id`) VALUES (?, ?)", connections);
+        transactionHistoryService.backfill();
+        String latest = nativeQuery(HistoricRepository.class, "findLatest");
+
+        // lectures d'avant : entités gérées (destinataire chargé, Historic, User avec leurs collections)
+        long transactionEntities = allocatedPerCall(() -> entityManager
+                .createQuery(ENTITY_PAGE, Transaction.class).setParameter("ids", ids).getResultList()
+                .forEach(transaction -> transaction.getReceiver().getName()));
+        long historicEntities = allocatedPerCall(() -> entityManager.createNativeQuery(latest, Historic.class)
+                .setParameter("userId", userId).setParameter("limit", PAGE_SIZE + 1).getResultList());
+        long relationEntities = allocatedPerCall(() -> entityManager.createQuery(RELATIONS, User.class)
+                .setParameter("email", "bench0@paymybuddy.com").getResultList());
+
+        long transactionViews = allocatedPerCall(() -> transactionRepository.findViewsByIdIn(ids));
+        long historicViews = allocatedPerCall(() -> historicRepository.findLatest(userId, PAGE_SIZE + 1));
+        long relationCards = allocatedPerCall(() -> userRepository.findRelations(userId));
+
+        log.info("Octets alloués par page : transactions {} -> {}, historique {} -> {}, relations {} -> {}",
+                transactionEntities, transactionViews, historicEntities, historicViews, relationEntities, relationCards);
+        assertTrue(transactionViews < transactionEntities);
+        assertTrue(historicViews < historicEntities);
+        assertTrue(relationCards < relationEntities);
+    }
+
+    // octets alloués par le thread courant pour une lecture, moyenne après préchauffage, en transaction lecture seule
+    private long allocatedPerCall(Runnable read) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < ALLOCATION_RUNS; i++) {
+            readOnly.executeWithoutResult(status -> read.run());
+        }
+        long start = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ALLOCATION_RUNS; i++) {
+            readOnly.executeWithoutResult(status -> read.run());
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - start) / ALLOCATION_RUNS;
+    }
+
+    private static String nativeQuery(String method) {
+        return nativeQuery(TransactionRepository.class, method);
+    }
+
+    private static String nativeQuery(Class<?> repository, String method) {
+        for (var candidate : repository.getMethods()) {
+            if (candidate.getName().equals(method)) {
+                NativeQuery mapped = candidate.getAnnotation(NativeQuery.class);
+                return mapped != null ? mapped.value() : candidate.getAnnotation(Query.class).value();
+            }
+        }
+        throw new IllegalArgumentException(method);
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
@@ -0,0 +1,271 @@
+package com.openclassrooms.paymybuddy.benchmark;
+
+import com.openclassrooms.paymybuddy.dto.TransferRequest;
+import com.openclassrooms.paymybuddy.exception.AccountLockTimeoutException;
+import com.openclassrooms.paymybuddy.exception.InsufficientBalanceException;
+import com.openclassrooms.paymybuddy.money.Money;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AccountLockManager;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraphServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.HotAccountServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.LedgerServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransferPipeline;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Banc d'essai de TransactionServiceImpl.makeTransaction sous concurrence, sur H2 embarquée,
+ * et du même trafic passé par le pipeline de group commit (TransferPipeline.submitAndWait).
+ * Lancement : mvn -Pbenchmark test (paramètres -Dbenchmark.accounts, .threads, .transfers).
+ * Chaque scénario mesure le débit et les latences p50/p99/p999, puis vérifie que l'argent est conservé :
+ * soldes des comptes + frais encaissés = dépôts initiaux, après compactage concurrent du grand livre.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("benchmark")
+class TransferBenchmark {
+
+    private static final int ACCOUNTS = Integer.getInteger("benchmark.accounts", 200);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    private static final int TRANSFERS_PER_THREAD = Integer.getInteger("benchmark.transfers", 500);
+    private static final long INITIAL_BALANCE_CENTS = 1_000_000;
+    // hot-spot : 80 % des virements vers 2 % des comptes
+    private static final double HOT_SHARE = 0.8;
+    private static final int HOT_ACCOUNTS = Math.max(ACCOUNTS / 50, 1);
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+    @Autowired
+    private LedgerServiceImpl ledgerService;
+    @Autowired
+    private HotAccountServiceImpl hotAccountService;
+    @Autowired
+    private ConnectionGraphServiceImpl connectionGraph;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private AccountLockManager accountLockManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private List<Long> accountIds;
+
+    private record Outcome(long[] latencies, int rejected, int lockTimeouts) {
+    }
+
+    // false : virement refusé sans exception (résultat d'un lot du pipeline)
+    @FunctionalInterface
+    private interface Transfer {
+        boolean apply(String sender, String receiver, Money amount);
+    }
+
+    @BeforeEach
+    void seed() {
+        for (String table : List.of("ledger_entry", "profile_name_change", "transaction_history", "`transaction`", "connection", "user_sub_balance", "`user`")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+
+        List<Object[]> users = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            users.add(new Object[]{"Bench " + i, email(i), "Bench#12345", INITIAL_BALANCE_CENTS});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `user` (`profile_name`, `email`, `password`, `balance`, `ledger_position`) " +
+                "VALUES (?, ?, ?, ?, 0)", users);
+        accountIds = jdbcTemplate.queryForList("SELECT `id` FROM `user` ORDER BY `id`", Long.class);
+
+        // tout le monde est en relation avec tout le monde
+        List<Object[]> connections = new ArrayList<>(ACCOUNTS * ACCOUNTS);
+        for (Long userId : accountIds) {
+            for (Long connectionId : accountIds) {
+                if (!userId.equals(connectionId)) {
+                    connections.add(new Object[]{userId, connectionId});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO connection (`user_id`, `connection_id`) VALUES (?, ?)", connections);
+        // relations insérées hors service : graphe rechargé
+        connectionGraph.load();
+        hotAccountService.refresh();
+    }
+
+    @Test
+    void uniformReceivers() throws Exception {
+        run("uniforme", () -> ThreadLocalRandom.current().nextInt(ACCOUNTS), this::makeTransaction);
+    }
+
+    @Test
+    void hotSpotReceivers() throws Exception {
+        run("hot-spot", TransferBenchmark::skewedReceiver, this::makeTransaction);
+    }
+
+    @Test
+    void hotSpotReceiversWithSubBalances() throws Exception {
+        for (int i = 0; i < HOT_ACCOUNTS; i++) {
+            hotAccountService.enable(email(i));
+        }
+        run("hot-spot + sous-soldes", TransferBenchmark::skewedReceiver, this::makeTransaction);
+    }
+
+    // group commit : paramètres par défaut de transaction.pipeline (4 shards, lots de 64 virements / 2 ms)
+    @Test
+    void uniformReceiversThroughPipeline() throws Exception {
+        TransferPipeline pipeline = new TransferPipeline(true, 4, 1024, 64, 2, 5_000, transactionService,
+                userRepository, accountLockManager, hotAccountService, transactionManager, meterRegistry);
+        try {
+            run("uniforme, group commit", () -> ThreadLocalRandom.current().nextInt(ACCOUNTS),
+                    (sender, receiver, amount) -> pipeline.submitAndWait(sender,
+                            new TransferRequest(receiver, amount.toBigDecimal(), amount.currency(), "Banc d'essai")).success());
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    private boolean makeTransaction(String sender, String receiver, Money amount) {
+        transactionService.makeTransaction(sender, receiver, amount, "Banc d'essai");
+        return true;
+    }
+
+    private static int skewedReceiver() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return random.nextDouble() < HOT_SHARE ? random.nextInt(HOT_ACCOUNTS) : random.nextInt(ACCOUNTS);
+    }
+
+    private static String email(int index) {
+        return "bench" + index + "@paymybuddy.com";
+    }
+
+    private void run(String scenario, IntSupplier receivers, Transfer transfer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // compactage en continu pendant la charge : c'est lui qui met à l'épreuve les verrous du grand livre
+        Future<?> compactor = executor.submit(() -> {
+            while (running.get()) {
+                ledgerService.compact();
+                ledgerService.foldSubBalances();
+            }
+        });
+
+        List<Future<Outcome>> workers = new ArrayList<>(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                return transfers(receivers, transfer);
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        long[] latencies = new long[THREADS * TRANSFERS_PER_THREAD];
+        int next = 0;
+        int rejected = 0;
+        int lockTimeouts = 0;
+        for (Future<Outcome> worker : workers) {
+            Outcome outcome = worker.get();
+            System.arraycopy(outcome.latencies(), 0, latencies, next, outcome.latencies().length);
+            next += outcome.latencies().length;
+            rejected += outcome.rejected();
+            lockTimeouts += outcome.lockTimeouts();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        running.set(false);
+        compactor.get();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Arrays.sort(latencies);
+        log.info("[{}] {} virements, {} threads, {} comptes : {} virements/s, p50={} ms, p99={} ms, p999={} ms, " +
+                        "{} refusés (solde), {} expirations de verrou",
+                scenario, latencies.length, THREADS, ACCOUNTS,
+                String.format("%.0f", latencies.length / (elapsed / 1e9)),
+                millis(percentile(latencies, 0.50)), millis(percentile(latencies, 0.99)),
+                millis(percentile(latencies, 0.999)), rejected, lockTimeouts);
+
+        assertMoneyConserved();
+    }
+
+    private Outcome transfers(IntSupplier receivers, Transfer transfer) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencies = new long[TRANSFERS_PER_THREAD];
+        int rejected = 0;
+        int lockTimeouts = 0;
+
+        for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+            int sender = random.nextInt(ACCOUNTS);
+            int receiver = receivers.getAsInt();
+            if (receiver == sender) {
+                receiver = (receiver + 1) % ACCOUNTS;
+            }
+            Money amount = Money.eur(100 + random.nextLong(20_000));
+
+            long begin = System.nanoTime();
+            try {
+                if (!transfer.apply(email(sender), email(receiver), amount)) {
+                    rejected++;
+                }
+            } catch (InsufficientBalanceException e) {
+                rejected++;
+            } catch (AccountLockTimeoutException e) {
+                lockTimeouts++;
+            }
+            latencies[i] = System.nanoTime() - begin;
+        }
+        return new Outcome(latencies, rejected, lockTimeouts);
+    }
+
+    private void assertMoneyConserved() {
+        ledgerService.compact();
+        ledgerService.foldSubBalances();
+
+        long accounts = 0;
+        for (Long id : accountIds) {
+            Money available = ledgerService.getAvailableBalance(id);
+            assertFalse(available.isNegative(), "Solde négatif pour le compte " + id);
+            accounts += available.minorUnits();
+        }
+        Long fees = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(`amount`), 0) FROM ledger_entry " +
+                "WHERE `account` = 'FEES' AND `direction` = 'CREDIT'", Long.class);
+        Long projected = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(`balance`), 0) FROM `user`", Long.class);
+
+        assertEquals(ACCOUNTS * INITIAL_BALANCE_CENTS, accounts + fees, "Argent créé ou perdu");
+        // après compactage et reversement, la projection user.balance suffit
+        assertEquals(accounts, projected);
+        assertEquals(accountIds.size(), userRepository.count());
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min((int) (sorted.length * quantile), sorted.length - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,61 @@
+package com.openclassrooms.paymybuddy.controller;
+
+import com.openclassrooms.paymybuddy.controller.controllerTestConfig.AutocompleteControllerTestConfig;
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.service.AutocompleteService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = AutocompleteController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@Import({AutocompleteControllerTestConfig.class})
+public class AutocompleteControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AutocompleteService autocompleteService;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.reset(autocompleteService);
+    }
+
+    @Test
+    @WithMockUser(username = "john@gmail.com")
+    void suggestRecipients_ShouldReturnCardsAsJson() throws Exception {
+        when(autocompleteService.suggestRecipients("john@gmail.com", "pau", 10))
+                .thenReturn(List.of(new ConnectionCard(3L, "Pauline", "pauline@gmail.com")));
+
+        mockMvc.perform(get("/autocomplete/recipients").param("q", "pau"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value("pauline@gmail.com"))
+                .andExpect(jsonPath("$[0].name").value("Pauline"));
+    }
+
+    @Test
+    @WithMockUser(username = "john@gmail.com")
+    void suggestUsers_ShouldPassQueryAndLimit() throws Exception {
+        when(autocompleteService.suggestUsers("john@gmail.com", "pa", 5))
+                .thenReturn(List.of(new ConnectionCard(5L, "Pascal", "pascal@gmail.com")));
+
+        mockMvc.perform(get("/autocomplete/users").param("q", "pa").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(5));
+    }
+}
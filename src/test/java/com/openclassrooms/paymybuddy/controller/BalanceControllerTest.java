@@ -8,6 +8,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 
 import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.money.Money;
 import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +17,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import java.math.BigDecimal;
+
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -36,7 +39,7 @@ public class BalanceControllerTest {
     void setUp() {
         mockUser = new User();
         mockUser.setEmail("john@gmail.com");
-        mockUser.setBalance(100.0);
+        mockUser.setBalance(Money.of("100", Money.EUR));
     }
 
     @Test
@@ -50,13 +53,13 @@ public class BalanceControllerTest {
                 .andExpect(view().name("balance"))
                 .andExpect(model().attributeExists("user", "currentBalance")) // Vérifie que les attributs sont bien présents dans le modèle
                 .andExpect(model().attribute("user", mockUser))
-                .andExpect(model().attribute("currentBalance", 100.0)); // Vérifie que le solde est correct
+                .andExpect(model().attribute("currentBalance", new BigDecimal("100.00"))); // Vérifie que le solde est correct
     }
 
     @Test
     @WithMockUser(username = "john@gmail.com", roles = "USER")
     void addBalance_ShouldRedirectToBalancePage_WhenBalanceIsAdded() throws Exception {
-        double amountToAdd = 50.0;
+        BigDecimal amountToAdd = new BigDecimal("50.0");
         String successMessage = "Votre solde a été mis à jour de " + amountToAdd + "€.";
 
         // Mock de l'ajout de solde et du message de succès
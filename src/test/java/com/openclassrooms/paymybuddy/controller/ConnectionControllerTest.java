@@ -6,9 +6,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.ConnectionSuggestion;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
 import com.openclassrooms.paymybuddy.entity.User;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
 import com.openclassrooms.paymybuddy.service.UserService;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionSuggestionServiceImpl;
 import com.openclassrooms.paymybuddy.service.serviceImpl.UserConnectionServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,11 +21,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Import;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -41,6 +46,9 @@ public class ConnectionControllerTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ConnectionSuggestionServiceImpl suggestionService;
+
     private User mockUser;
 
     @BeforeEach
@@ -49,25 +57,15 @@ public class ConnectionControllerTest {
         mockUser.setId(1L);
         mockUser.setEmail("john@gmail.com");
 
-        // connexions user sous forme d'un Set d'User
-        Set<User> userConnections = new HashSet<>();
-        User contact1 = new User();
-        contact1.setEmail("contact1@gmail.com");
-        userConnections.add(contact1);
-
-        User contact2 = new User();
-        contact2.setEmail("contact2@gmail.com");
-        userConnections.add(contact2);
+        // relations sous forme de cartes (id, nom, email)
+        List<ConnectionCard> userConnections = List.of(
+                new ConnectionCard(2L, "Contact 1", "contact1@gmail.com"),
+                new ConnectionCard(3L, "Contact 2", "contact2@gmail.com"));
 
-        // connexions potentielles sous forme d'un Set d'User
-        Set<User> potentialConnections = new HashSet<>();
-        User newContact = new User();
-        newContact.setEmail("newContact@mail.com");
-        potentialConnections.add(newContact);
-
-        when(userService.getUserByEmail(anyString())).thenReturn(mockUser);
+        // doReturn : le mock partagé peut encore porter le thenThrow d'un test précédent
+        doReturn(mockUser).when(userService).getUserByEmail(anyString());
         when(connectionService.getUserConnections(anyString())).thenReturn(userConnections);
-        when(connectionService.getPotentialConnections(anyString())).thenReturn(potentialConnections);
+        when(suggestionService.suggestConnections(1L)).thenReturn(List.of());
     }
 
     @Test
@@ -76,7 +74,36 @@ public class ConnectionControllerTest {
         mockMvc.perform(get("/addRelationship"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("addRelationship"))
-                .andExpect(model().attributeExists("relations", "potentialConnections", "user"));
+                .andExpect(model().attributeExists("relations", "user"))
+                .andExpect(model().attributeDoesNotExist("potentialConnections"))
+                .andExpect(content().string(containsString("contact2@gmail.com")));
+    }
+
+    @Test
+    @WithMockUser(username = "john@gmail.com", roles = "USER")
+    void showConnectionsPage_ShouldListSuggestionsWithMutualConnections() throws Exception {
+        when(suggestionService.suggestConnections(1L)).thenReturn(List.of(
+                new ConnectionSuggestion(5L, "Marie Curie", "marie@gmail.com", 3)));
+
+        mockMvc.perform(get("/addRelationship"))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeExists("suggestions"))
+                .andExpect(content().string(containsString("Marie Curie")))
+                .andExpect(content().string(containsString("3 relations en commun")))
+                .andExpect(content().string(containsString("marie@gmail.com")));
+    }
+
+    @Test
+    @WithMockUser(username = "john@gmail.com", roles = "USER")
+    void searchConnections_ShouldReturnCursorPageAsJson() throws Exception {
+        CursorPage<ConnectionCard> page = new CursorPage<>(
+                List.of(new ConnectionCard(4L, "New", "newContact@mail.com")), "bmV4dA", null);
+        when(connectionService.searchPotentialConnections("john@gmail.com", "new", null, 10)).thenReturn(page);
+
+        mockMvc.perform(get("/addRelationship/search").param("q", "new"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].email").value("newContact@mail.com"))
+                .andExpect(jsonPath("$.next").value("bmV4dA"));
     }
 
     @Test
@@ -1,26 +1,23 @@
 package com.openclassrooms.paymybuddy.controller;
 
-import com.openclassrooms.paymybuddy.entity.Historic;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.dto.HistoricView;
+import com.openclassrooms.paymybuddy.dto.PageCursor;
 import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.money.Money;
 import com.openclassrooms.paymybuddy.service.serviceImpl.HistoricServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
-
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 
-import static org.junit.jupiter.api.Assertions.assertAll;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -62,11 +59,10 @@ public class HistoricControllerTest {
         testUser.setId(1L);
         testUser.setEmail("john@gmail.com");
 
-        Historic testHistoric = new Historic();
-        Page<Historic> historicPage = new PageImpl<>(Collections.singletonList(testHistoric));
+        CursorPage<HistoricView> historicPage = new CursorPage<>(Collections.singletonList(historic()), null, null);
 
         when(historicService.getUserByEmail(anyString())).thenReturn(testUser);
-        when(historicService.getUserHistoricPaginated(anyLong(), any(Pageable.class))).thenReturn(historicPage);
+        when(historicService.getUserHistoric(anyLong(), any(), any(), anyInt())).thenReturn(historicPage);
 
         // Act & Assert
         mockMvc.perform(get("/historic"))
@@ -75,37 +71,54 @@ public class HistoricControllerTest {
                 .andExpect(model().attributeExists("historics"))
                 .andExpect(model().attributeExists("user"))
                 .andExpect(model().attributeExists("currencySymbols"))
-                .andExpect(model().attributeExists("userId"));
+                .andExpect(model().attributeExists("userId"))
+                .andExpect(content().string(containsString("Jane")))
+                .andExpect(content().string(containsString("12.50")));
 
         verify(historicService).getUserByEmail("john@gmail.com");
-        verify(historicService).getUserHistoricPaginated(1L, PageRequest.of(0, 10));
+        verify(historicService).getUserHistoric(1L, null, null, 10);
     }
 
     @Test
     @WithMockUser(username = "john@gmail.com")
-    void showHistoric_WithCustomPageSize_ShouldUseCorrectPagination() throws Exception {
+    void showHistoric_WithCursor_ShouldRenderNeighbourLinks() throws Exception {
         // Given
         User testUser = new User();
         testUser.setId(1L);
         testUser.setEmail("john@gmail.com");
+        String after = new PageCursor(LocalDateTime.of(2025, 3, 1, 12, 0), 20L).encode();
+        String next = new PageCursor(LocalDateTime.of(2025, 2, 1, 12, 0), 15L).encode();
+        String previous = new PageCursor(LocalDateTime.of(2025, 2, 28, 12, 0), 19L).encode();
 
         when(historicService.getUserByEmail("john@gmail.com")).thenReturn(testUser);
-        when(historicService.getUserHistoricPaginated(eq(1L), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(Collections.emptyList()));
+        when(historicService.getUserHistoric(1L, after, null, 5))
+                .thenReturn(new CursorPage<>(Collections.singletonList(historic()), next, previous));
 
         // When & Then
-        mockMvc.perform(get("/historic?page=1&size=5"))
-                .andExpect(status().isOk());
-
-        // Vérification
-        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-        verify(historicService).getUserHistoricPaginated(eq(1L), pageableCaptor.capture());
-
-        PageRequest capturedPageable = (PageRequest) pageableCaptor.getValue();
-        assertAll(
-                () -> assertEquals(1, capturedPageable.getPageNumber()),
-                () -> assertEquals(5, capturedPageable.getPageSize())
-        );
+        mockMvc.perform(get("/historic").param("after", after).param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("pageSize", 5))
+                .andExpect(content().string(containsString("after=" + next)))
+                .andExpect(content().string(containsString("before=" + previous)));
+
+        verify(historicService).getUserHistoric(1L, after, null, 5);
+    }
+
+    @Test
+    @WithMockUser(username = "john@gmail.com")
+    void getHistoricPage_ShouldReturnCursorsAsJson() throws Exception {
+        User testUser = new User();
+        testUser.setId(1L);
+        String next = new PageCursor(LocalDateTime.of(2025, 2, 1, 12, 0), 15L).encode();
+
+        when(historicService.getUserByEmail("john@gmail.com")).thenReturn(testUser);
+        when(historicService.getUserHistoric(1L, null, null, 10))
+                .thenReturn(new CursorPage<>(Collections.singletonList(historic()), next, null));
+
+        mockMvc.perform(get("/historic/page"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.next").value(next));
     }
 
     @Test
@@ -122,4 +135,9 @@ public class HistoricControllerTest {
                 .andExpect(flash().attribute("error", "Une erreur système est survenue")); // Vérifie le message
     }
 
+    // virement envoyé par l'utilisateur 1 à Jane
+    private static HistoricView historic() {
+        return new HistoricView(7L, 1L, "John", 2L, "Jane", "Café", Money.eur(1_250), Money.eur(6),
+                LocalDateTime.of(2025, 3, 1, 12, 0));
+    }
 }
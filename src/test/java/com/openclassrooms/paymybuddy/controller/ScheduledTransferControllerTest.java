@@ -0,0 +1,111 @@
+package com.openclassrooms.paymybuddy.controller;
+
+import com.openclassrooms.paymybuddy.config.WebSecurityConfig;
+import com.openclassrooms.paymybuddy.controller.controllerTestConfig.MockSecurityBeansConfig;
+import com.openclassrooms.paymybuddy.controller.controllerTestConfig.ScheduledTransferControllerTestConfig;
+import com.openclassrooms.paymybuddy.dto.ScheduledTransferRequest;
+import com.openclassrooms.paymybuddy.entity.ScheduledTransfer;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ScheduledTransferServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ScheduledTransferController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@Import({WebSecurityConfig.class, MockSecurityBeansConfig.class, ScheduledTransferControllerTestConfig.class})
+public class ScheduledTransferControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ScheduledTransferServiceImpl scheduledTransferService;
+
+    @AfterEach
+    void resetService() {
+        Mockito.reset(scheduledTransferService);
+    }
+
+    private static ScheduledTransfer rent() {
+        ScheduledTransfer scheduled = new ScheduledTransfer();
+        scheduled.setId(3L);
+        scheduled.setAmount(80_000);
+        scheduled.setCurrency("EUR");
+        scheduled.setDescription("Loyer");
+        scheduled.setFrequency(ScheduledTransfer.Frequency.MONTHLY);
+        scheduled.setFirstRunAt(LocalDateTime.of(2026, 11, 1, 8, 0));
+        scheduled.setNextRunAt(LocalDateTime.of(2026, 11, 1, 8, 0));
+        return scheduled;
+    }
+
+    @WithMockUser(username = "john@gmail.com", roles = "USER")
+    @Test
+    void schedule_ShouldReturnCreatedSchedule() throws Exception {
+        when(scheduledTransferService.schedule(eq("john@gmail.com"), any())).thenReturn(rent());
+
+        mockMvc.perform(post("/transaction/scheduled")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"receiverEmail":"owner@gmail.com","amount":800.00,"currency":"EUR",
+                                 "description":"Loyer","frequency":"MONTHLY","firstRunAt":"2026-11-01T08:00:00"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(3))
+                .andExpect(jsonPath("$.frequency").value("MONTHLY"));
+
+        verify(scheduledTransferService).schedule("john@gmail.com", new ScheduledTransferRequest("owner@gmail.com",
+                new BigDecimal("800.00"), "EUR", "Loyer", ScheduledTransfer.Frequency.MONTHLY,
+                LocalDateTime.of(2026, 11, 1, 8, 0)));
+    }
+
+    @WithMockUser(username = "john@gmail.com", roles = "USER")
+    @Test
+    void schedule_ShouldReturnBadRequestWhenInvalid() throws Exception {
+        when(scheduledTransferService.schedule(eq("john@gmail.com"), any()))
+                .thenThrow(new IllegalArgumentException("La fréquence est obligatoire"));
+
+        mockMvc.perform(post("/transaction/scheduled")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"receiverEmail":"owner@gmail.com","amount":800.00,"currency":"EUR"}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("La fréquence est obligatoire"));
+    }
+
+    @WithMockUser(username = "john@gmail.com", roles = "USER")
+    @Test
+    void getSchedules_ShouldReturnActiveSchedules() throws Exception {
+        when(scheduledTransferService.getUserSchedules("john@gmail.com")).thenReturn(List.of(rent()));
+
+        mockMvc.perform(get("/transaction/scheduled"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].description").value("Loyer"))
+                .andExpect(jsonPath("$[0].amount").value(80_000));
+    }
+
+    @WithMockUser(username = "john@gmail.com", roles = "USER")
+    @Test
+    void cancel_ShouldReturnNoContent() throws Exception {
+        mockMvc.perform(delete("/transaction/scheduled/3"))
+                .andExpect(status().isNoContent());
+
+        verify(scheduledTransferService).cancel("john@gmail.com", 3L);
+    }
+}
@@ -3,16 +3,32 @@ package com.openclassrooms.paymybuddy.controller;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.hamcrest.Matchers.containsString;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import com.openclassrooms.paymybuddy.config.WebSecurityConfig;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.dto.PageCursor;
+import com.openclassrooms.paymybuddy.dto.TransactionView;
+import com.openclassrooms.paymybuddy.dto.TransferResult;
 import com.openclassrooms.paymybuddy.entity.Transaction;
 import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.money.Money;
 import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransferAdmissionControl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransferPipeline;
+import com.openclassrooms.paymybuddy.exception.InvalidPageRequestException;
+import com.openclassrooms.paymybuddy.exception.TransferAdmissionRejectedException;
+import org.springframework.http.HttpStatus;
+import static org.mockito.Mockito.doThrow;
+import org.springframework.test.web.servlet.MvcResult;
+import java.util.concurrent.CompletableFuture;
 import com.openclassrooms.paymybuddy.controller.controllerTestConfig.MockSecurityBeansConfig;
 
 import com.openclassrooms.paymybuddy.controller.controllerTestConfig.TransactionControllerTestConfig;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 
@@ -20,12 +36,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import java.time.LocalDateTime;
+import java.math.BigDecimal;
 import java.util.List;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -41,6 +66,15 @@ public class TransactionControllerTest {
     private MockMvc mockMvc;
     @Autowired
     private TransactionServiceImpl transactionService;
+    @Autowired
+    private TransferPipeline transferPipeline;
+    @Autowired
+    private TransferAdmissionControl admissionControl;
+
+    @AfterEach
+    void resetPipeline() {
+        Mockito.reset(transferPipeline, admissionControl);
+    }
 
     @WithMockUser(username = "john@gmail.com", roles = "USER")
     @Test
@@ -48,25 +82,108 @@ public class TransactionControllerTest {
 
         User mockUser = new User();
         mockUser.setEmail("john@gmail.com");
-        mockUser.setBalance(1000.0);
+        mockUser.setBalance(Money.of("1000", Money.EUR));
 
-        // page de transactions
-        Page<Transaction> mockPage = new PageImpl<>(List.of(
-                new Transaction(1L, mockUser, mockUser, "testDescription", 100.0, 0.05, "EUR", LocalDateTime.now())
-        ));
+        // page de transactions lue par curseur
+        TransactionView transaction = new TransactionView(1L, "Jane", "testDescription", Money.ofMinor(10_000L, "EUR"), Money.eur(5), LocalDateTime.now());
+        String next = new PageCursor(transaction.createdAt(), 1L).encode();
+        CursorPage<TransactionView> mockPage = new CursorPage<>(List.of(transaction), next, null);
+        mockUser.setId(1L);
 
         when(transactionService.getUserByTransactionEmail("john@gmail.com")).thenReturn(mockUser);
-        when(transactionService.getUserTransactionsPaginated(anyString(), any(Pageable.class))).thenReturn(mockPage);
+        when(transactionService.getUserTransactions("john@gmail.com", false, null, null, 10)).thenReturn(mockPage);
 
         mockMvc.perform(get("/transaction")
-                        .param("page", "0")
                         .param("size", "10")
                         .param("sortField", "createdAt")
                         .param("sortDirection", "desc"))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(view().name("transaction"))
-                .andExpect(model().attributeExists("transactions"));
+                .andExpect(model().attribute("keyset", true))
+                .andExpect(model().attribute("transactions", mockPage))
+                .andExpect(model().attributeDoesNotExist("connections"))
+                .andExpect(content().string(containsString("list=\"recipient-suggestions\"")))
+                .andExpect(content().string(containsString("100.00")))
+                .andExpect(content().string(containsString("after=" + next)));
+    }
+
+    @WithMockUser(username = "john@gmail.com", roles = "USER")
+    @Test
+    void showTransactionPage_ShouldUseOffsetPaging_WhenSortedByAmount() throws Exception {
+
+        User mockUser = new User();
+        mockUser.setEmail("john@gmail.com");
+        mockUser.setBalance(Money.of("1000", Money.EUR));
+        Page<TransactionView> mockPage = new PageImpl<>(List.of(
+                new TransactionView(1L, "Jane", "testDescription", Money.ofMinor(10_000L, "EUR"), Money.eur(5), LocalDateTime.now())
+        ));
+
+        when(transactionService.getUserByTransactionEmail("john@gmail.com")).thenReturn(mockUser);
+        when(transactionService.getUserTransactionsSlice(anyString(), any(Pageable.class))).thenReturn(mockPage);
+
+        mockMvc.perform(get("/transaction")
+                        .param("page", "0")
+                        .param("size", "10")
+                        .param("sortField", "amount")
+                        .param("sortDirection", "asc"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("keyset", false))
+                .andExpect(model().attribute("totalPages", 1));
+    }
+
+    @WithMockUser(username = "john@gmail.com", roles = "USER")
+    @Test
+    void showTransactionPage_ShouldShowNeighbourLinksOnly_WhenTotalIsNotCached() throws Exception {
+
+        User mockUser = new User();
+        mockUser.setEmail("john@gmail.com");
+        mockUser.setBalance(Money.of("1000", Money.EUR));
+        Pageable byAmount = PageRequest.of(1, 10, Sort.by(Sort.Direction.DESC, "amount"));
+        Slice<TransactionView> mockSlice = new SliceImpl<>(List.of(
+                new TransactionView(1L, "Jane", "testDescription", Money.ofMinor(10_000L, "EUR"), Money.eur(5), LocalDateTime.now())
+        ), byAmount, true);
+
+        when(transactionService.getUserByTransactionEmail("john@gmail.com")).thenReturn(mockUser);
+        when(transactionService.getUserTransactionsSlice("john@gmail.com", byAmount)).thenReturn(mockSlice);
+
+        mockMvc.perform(get("/transaction")
+                        .param("page", "1")
+                        .param("size", "10")
+                        .param("sortField", "amount")
+                        .param("sortDirection", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeDoesNotExist("totalPages"))
+                .andExpect(content().string(containsString("page=2")))
+                .andExpect(content().string(containsString("page=0")));
+    }
+
+    @WithMockUser(username = "john@gmail.com", roles = "USER")
+    @Test
+    void getTransactionPage_ShouldReturnCursorsAsJson() throws Exception {
+        String previous = new PageCursor(LocalDateTime.of(2025, 3, 1, 12, 0), 42L).encode();
+        when(transactionService.getUserTransactions("john@gmail.com", true, "abc", null, 5))
+                .thenReturn(new CursorPage<>(List.of(), null, previous));
+
+        mockMvc.perform(get("/transaction/page")
+                        .param("sortDirection", "asc")
+                        .param("after", "abc")
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").isEmpty())
+                .andExpect(jsonPath("$.previous").value(previous))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @WithMockUser(username = "john@gmail.com", roles = "USER")
+    @Test
+    void getTransactionPage_ShouldReturnBadRequest_WhenCursorIsInvalid() throws Exception {
+        when(transactionService.getUserTransactions("john@gmail.com", false, "altéré", null, 10))
+                .thenThrow(new InvalidPageRequestException("Curseur de pagination invalide"));
+
+        mockMvc.perform(get("/transaction/page").param("after", "altéré"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Curseur de pagination invalide"));
     }
 
     @WithMockUser(username = "sender@gmail.com", roles = "USER")
@@ -74,15 +191,13 @@ public class TransactionControllerTest {
     void makeTransaction_ShouldRedirectWithSuccessMessage_WhenTransactionSucceeds() throws Exception {
         // Arrange
         Transaction mockTransaction = new Transaction();
-        mockTransaction.setAmount(50.0);
-        mockTransaction.setFee(2.5);
-        mockTransaction.setCurrency("EUR");
+        mockTransaction.setAmount(Money.of("50", Money.EUR));
+        mockTransaction.setFee(Money.eur(250));
 
         when(transactionService.makeTransaction(
                 "sender@gmail.com",
                 "receiver@gmail.com",
-                50.0,
-                "EUR",
+                Money.of("50", Money.EUR),
                 "Test payment"))
                 .thenReturn(mockTransaction);
 
@@ -99,6 +214,120 @@ public class TransactionControllerTest {
                 .andExpect(flash().attribute("success", "Transfert réussi: 50.00 EUR (frais: 2.50 EUR)"));
     }
 
+    @WithMockUser(username = "sender@gmail.com", roles = "USER")
+    @Test
+    void makeTransaction_ShouldUsePipeline_WhenGroupCommitEnabled() throws Exception {
+        when(transferPipeline.isEnabled()).thenReturn(true);
+        when(transferPipeline.submitAndWait(eq("sender@gmail.com"), any()))
+                .thenReturn(TransferResult.accepted(0, "receiver@gmail.com", new BigDecimal("0.25")));
+
+        mockMvc.perform(post("/transaction")
+                        .param("receiverEmail", "receiver@gmail.com")
+                        .param("amount", "50")
+                        .param("description", "Groupé")
+                        .param("currency", "EUR"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(flash().attribute("success", "Transfert réussi: 50.00 EUR (frais: 0.25 EUR)"));
+
+        verify(transactionService, never()).makeTransaction(eq("sender@gmail.com"), eq("receiver@gmail.com"), any(), eq("Café"));
+    }
+
+    @WithMockUser(username = "sender@gmail.com", roles = "USER")
+    @Test
+    void makeTransaction_ShouldShowRejection_WhenGroupCommitRejectsTransfer() throws Exception {
+        when(transferPipeline.isEnabled()).thenReturn(true);
+        when(transferPipeline.submitAndWait(eq("sender@gmail.com"), any()))
+                .thenReturn(TransferResult.rejected(0, "receiver@gmail.com", "Solde insuffisant"));
+
+        mockMvc.perform(post("/transaction")
+                        .param("receiverEmail", "receiver@gmail.com")
+                        .param("amount", "50")
+                        .param("description", "Groupé")
+                        .param("currency", "EUR"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/transaction"))
+                .andExpect(flash().attribute("errorTransaction", "Solde insuffisant"));
+    }
+
+    @WithMockUser(username = "sender@gmail.com", roles = "USER")
+    @Test
+    void makeTransaction_ShouldReplayStoredResult_WhenIdempotencyKeyIsReused() throws Exception {
+        Transaction mockTransaction = new Transaction();
+        mockTransaction.setAmount(Money.of("20", Money.EUR));
+        mockTransaction.setFee(Money.eur(10));
+
+        when(transactionService.makeTransaction("sender@gmail.com", "retry@gmail.com",
+                Money.of("20", Money.EUR), "Retry")).thenReturn(mockTransaction);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/transaction")
+                            .header("Idempotency-Key", "retry-key-1")
+                            .param("receiverEmail", "retry@gmail.com")
+                            .param("amount", "20")
+                            .param("description", "Retry")
+                            .param("currency", "EUR"))
+                    .andExpect(status().is3xxRedirection())
+                    .andExpect(flash().attribute("success", "Transfert réussi: 20.00 EUR (frais: 0.10 EUR)"));
+        }
+
+        // le second envoi est servi depuis le résultat enregistré
+        verify(transactionService, times(1)).makeTransaction("sender@gmail.com", "retry@gmail.com",
+                Money.of("20", Money.EUR), "Retry");
+    }
+
+    @WithMockUser(username = "sender@gmail.com", roles = "USER")
+    @Test
+    void makeTransaction_ShouldReturnUnprocessable_WhenIdempotencyKeyIsReusedForAnotherAmount() throws Exception {
+        Transaction mockTransaction = new Transaction();
+        mockTransaction.setAmount(Money.of("20", Money.EUR));
+        mockTransaction.setFee(Money.eur(10));
+        when(transactionService.makeTransaction("sender@gmail.com", "reuse@gmail.com",
+                Money.of("20", Money.EUR), "Reuse")).thenReturn(mockTransaction);
+
+        mockMvc.perform(post("/transaction")
+                        .header("Idempotency-Key", "reuse-key-1")
+                        .param("receiverEmail", "reuse@gmail.com")
+                        .param("amount", "20")
+                        .param("description", "Reuse")
+                        .param("currency", "EUR"))
+                .andExpect(status().is3xxRedirection());
+
+        mockMvc.perform(post("/transaction")
+                        .header("Idempotency-Key", "reuse-key-1")
+                        .param("receiverEmail", "reuse@gmail.com")
+                        .param("amount", "200")
+                        .param("description", "Reuse")
+                        .param("currency", "EUR"))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(transactionService, never()).makeTransaction("sender@gmail.com", "reuse@gmail.com",
+                Money.of("200", Money.EUR), "Reuse");
+    }
+
+    @WithMockUser(username = "sender@gmail.com", roles = "USER")
+    @Test
+    void makeTransaction_ShouldBypassPipeline_WhenIdempotencyKeyIsSent() throws Exception {
+        Transaction mockTransaction = new Transaction();
+        mockTransaction.setAmount(Money.of("30", Money.EUR));
+        mockTransaction.setFee(Money.eur(15));
+        when(transferPipeline.isEnabled()).thenReturn(true);
+        when(transactionService.makeTransaction("sender@gmail.com", "keyed@gmail.com",
+                Money.of("30", Money.EUR), "Clé")).thenReturn(mockTransaction);
+
+        mockMvc.perform(post("/transaction")
+                        .header("Idempotency-Key", "pipeline-key-1")
+                        .param("receiverEmail", "keyed@gmail.com")
+                        .param("amount", "30")
+                        .param("description", "Clé")
+                        .param("currency", "EUR"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(flash().attribute("success", "Transfert réussi: 30.00 EUR (frais: 0.15 EUR)"));
+
+        // la clé est commitée avec le virement : chemin synchrone même en mode group commit
+        verify(transferPipeline, never()).submitAndWait(eq("sender@gmail.com"),
+                argThat(request -> "keyed@gmail.com".equals(request.receiverEmail())));
+    }
+
     @WithMockUser(username = "sender@gmail.com", roles = "USER")
     @Test
     void makeTransaction_ShouldReturnError_WhenCurrencyNotSupported() throws Exception {
@@ -115,4 +344,111 @@ public class TransactionControllerTest {
 
     }
 
+    @WithMockUser(username = "sender@gmail.com", roles = "USER")
+    @Test
+    void makeTransactions_ShouldReturnResultPerItem() throws Exception {
+        when(transactionService.makeTransactions(eq("sender@gmail.com"), anyList()))
+                .thenReturn(List.of(
+                        TransferResult.accepted(0, "receiver@gmail.com", new BigDecimal("0.05")),
+                        TransferResult.rejected(1, "unknown@gmail.com", "Destinataire non trouvé")));
+
+        mockMvc.perform(post("/transaction/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"receiverEmail":"receiver@gmail.com","amount":10.0,"currency":"EUR","description":"Café"},
+                                 {"receiverEmail":"unknown@gmail.com","amount":5.0,"currency":"EUR","description":"Inconnu"}]
+                                """))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].success").value(true))
+                .andExpect(jsonPath("$[1].success").value(false))
+                .andExpect(jsonPath("$[1].message").value("Destinataire non trouvé"));
+    }
+
+    @WithMockUser(username = "sender@gmail.com", roles = "USER")
+    @Test
+    void makeTransactionAsync_ShouldReturnResultOnceCommitted() throws Exception {
+        when(transferPipeline.submit(eq("sender@gmail.com"), any()))
+                .thenReturn(CompletableFuture.completedFuture(
+                        TransferResult.accepted(0, "receiver@gmail.com", new BigDecimal("0.05"))));
+
+        MvcResult pending = mockMvc.perform(post("/transaction/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"receiverEmail":"receiver@gmail.com","amount":10.0,"currency":"EUR","description":"Café"}
+                                """))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.fee").value(0.05));
+        verify(admissionControl).executeAsync(eq("sender@gmail.com"), any());
+    }
+
+    @WithMockUser(username = "sender@gmail.com", roles = "USER")
+    @Test
+    void makeTransactionAsync_ShouldReplayStoredResult_WhenIdempotencyKeyIsReused() throws Exception {
+        when(transactionService.makeTransactions(eq("sender@gmail.com"),
+                argThat(transfers -> "async-retry@gmail.com".equals(transfers.get(0).receiverEmail()))))
+                .thenReturn(List.of(TransferResult.accepted(0, "async-retry@gmail.com", new BigDecimal("0.05"))));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            MvcResult pending = mockMvc.perform(post("/transaction/async")
+                            .header("Idempotency-Key", "async-key-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                                    {"receiverEmail":"async-retry@gmail.com","amount":10.0,"currency":"EUR","description":"Café"}
+                                    """))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(pending))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.success").value(true))
+                    .andExpect(jsonPath("$.receiverEmail").value("async-retry@gmail.com"))
+                    .andExpect(jsonPath("$.fee").value(0.05));
+        }
+
+        // chemin synchrone : la clé est commitée avec le virement, le second envoi est rejoué
+        verify(transactionService, times(1)).makeTransactions(eq("sender@gmail.com"),
+                argThat(transfers -> "async-retry@gmail.com".equals(transfers.get(0).receiverEmail())));
+        verify(transferPipeline, never()).submit(eq("sender@gmail.com"),
+                argThat(request -> "async-retry@gmail.com".equals(request.receiverEmail())));
+    }
+
+    @WithMockUser(username = "sender@gmail.com", roles = "USER")
+    @Test
+    void makeTransaction_ShouldShedWithRetryAfterWhenOverloaded() throws Exception {
+        doThrow(new TransferAdmissionRejectedException("Service de virement surchargé", HttpStatus.SERVICE_UNAVAILABLE, 3))
+                .when(admissionControl).execute(eq("sender@gmail.com"), any());
+
+        mockMvc.perform(post("/transaction")
+                        .param("receiverEmail", "receiver@gmail.com")
+                        .param("amount", "10.00")
+                        .param("description", "Café")
+                        .param("currency", "EUR"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"));
+
+        verify(transactionService, never()).makeTransaction(eq("sender@gmail.com"), eq("receiver@gmail.com"), any(), eq("Café"));
+    }
+
+    @WithMockUser(username = "sender@gmail.com", roles = "USER")
+    @Test
+    void makeTransactionAsync_ShouldShedWithRetryAfterWhenOverloaded() throws Exception {
+        doThrow(new TransferAdmissionRejectedException("Service de virement surchargé", HttpStatus.SERVICE_UNAVAILABLE, 3))
+                .when(admissionControl).executeAsync(eq("sender@gmail.com"), any());
+
+        mockMvc.perform(post("/transaction/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"receiverEmail":"receiver@gmail.com","amount":10.0,"currency":"EUR","description":"Café"}
+                                """))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"));
+
+        verify(transferPipeline, never()).submit(eq("sender@gmail.com"), any());
+    }
 }
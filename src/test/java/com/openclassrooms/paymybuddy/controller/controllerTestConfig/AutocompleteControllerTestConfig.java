@@ -0,0 +1,13 @@
+package com.openclassrooms.paymybuddy.controller.controllerTestConfig;
+
+import com.openclassrooms.paymybuddy.service.AutocompleteService;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Bean;
+
+public class AutocompleteControllerTestConfig {
+
+    @Bean
+    public AutocompleteService autocompleteService() {
+        return Mockito.mock(AutocompleteService.class);
+    }
+}
@@ -1,6 +1,7 @@
 package com.openclassrooms.paymybuddy.controller.controllerTestConfig;
 
 import com.openclassrooms.paymybuddy.service.UserService;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionSuggestionServiceImpl;
 import com.openclassrooms.paymybuddy.service.serviceImpl.UserConnectionServiceImpl;
 import org.mockito.Mockito;
 import org.springframework.context.annotation.Bean;
@@ -17,5 +18,10 @@ public class ConnectionControllerTestConfig {
         return Mockito.mock(UserService.class);
     }
 
+    @Bean
+    public ConnectionSuggestionServiceImpl suggestionService() {
+        return Mockito.mock(ConnectionSuggestionServiceImpl.class);
+    }
+
 
 }
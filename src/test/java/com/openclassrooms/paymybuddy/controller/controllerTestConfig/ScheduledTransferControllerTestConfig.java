@@ -0,0 +1,13 @@
+package com.openclassrooms.paymybuddy.controller.controllerTestConfig;
+
+import com.openclassrooms.paymybuddy.service.serviceImpl.ScheduledTransferServiceImpl;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Bean;
+
+public class ScheduledTransferControllerTestConfig {
+
+    @Bean
+    public ScheduledTransferServiceImpl scheduledTransferService() {
+        return Mockito.mock(ScheduledTransferServiceImpl.class);
+    }
+}
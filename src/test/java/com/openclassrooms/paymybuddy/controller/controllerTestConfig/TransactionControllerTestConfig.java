@@ -1,8 +1,14 @@
 package com.openclassrooms.paymybuddy.controller.controllerTestConfig;
 
+import com.openclassrooms.paymybuddy.repository.IdempotencyRecordRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.IdempotencyServiceImpl;
 import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransferAdmissionControl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransferPipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.Mockito;
 import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
 
 public class TransactionControllerTestConfig {
 
@@ -10,4 +16,25 @@ public class TransactionControllerTestConfig {
     public TransactionServiceImpl transactionService() {
         return Mockito.mock(TransactionServiceImpl.class);
     }
+
+    // vrai service (cache mémoire) sur un dépôt simulé : les rejeux sont vérifiés de bout en bout
+    @Bean
+    public IdempotencyServiceImpl idempotencyService() {
+        IdempotencyRecordRepository repository = Mockito.mock(IdempotencyRecordRepository.class);
+        Mockito.when(repository.saveAndFlush(Mockito.any())).thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(repository.complete(Mockito.any(), Mockito.any())).thenReturn(1);
+        return new IdempotencyServiceImpl(repository, Mockito.mock(PlatformTransactionManager.class), 100, 60_000, 60_000,
+                new SimpleMeterRegistry());
+    }
+
+    @Bean
+    public TransferPipeline transferPipeline() {
+        return Mockito.mock(TransferPipeline.class);
+    }
+
+    // vrai contrôle d'admission, espionné pour simuler une surcharge
+    @Bean
+    public TransferAdmissionControl admissionControl() {
+        return Mockito.spy(new TransferAdmissionControl(true, 4, 16, 2, 1_000, new SimpleMeterRegistry()));
+    }
 }
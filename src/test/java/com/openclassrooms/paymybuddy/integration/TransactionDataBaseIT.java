@@ -3,6 +3,7 @@ package com.openclassrooms.paymybuddy.integration;
 import com.openclassrooms.paymybuddy.controller.controllerTestConfig.MockSecurityBeansConfig;
 import com.openclassrooms.paymybuddy.entity.Transaction;
 import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.money.Money;
 import com.openclassrooms.paymybuddy.repository.TransactionRepository;
 import com.openclassrooms.paymybuddy.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,6 +27,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 
@@ -56,13 +58,13 @@ public class TransactionDataBaseIT {
         sender.setEmail("sender@gmail.com");
         sender.setPassword(new BCryptPasswordEncoder().encode("Sender#123"));
         sender.setName("Sender");
-        sender.setBalance(1000.0);
+        sender.setBalance(Money.of("1000", Money.EUR));
 
         receiver = new User();
         receiver.setEmail("receiver@gmail.com");
         receiver.setPassword(new BCryptPasswordEncoder().encode("Receiver#123"));
         receiver.setName("Receiver");
-        receiver.setBalance(500.0);
+        receiver.setBalance(Money.of("500", Money.EUR));
 
         userRepository.save(receiver);
         sender.addConnection(receiver);
@@ -71,9 +73,8 @@ public class TransactionDataBaseIT {
         Transaction transaction = new Transaction();
         transaction.setSender(sender);
         transaction.setReceiver(receiver);
-        transaction.setAmount(50.0);
-        transaction.setFee(0.5);
-        transaction.setCurrency("EUR");
+        transaction.setAmount(Money.of("50", Money.EUR));
+        transaction.setFee(Money.eur(50));
         transaction.setDescription("Test Transaction");
 
         transactionRepository.save(transaction);
@@ -96,7 +97,7 @@ public class TransactionDataBaseIT {
                 .andDo(print())
                 .andExpect(model().attribute("transactions", hasItem(
                         allOf(
-                                hasProperty("amount", is(50.0)),
+                                hasProperty("amount", is(Money.of("50", Money.EUR))),
                                 hasProperty("currency", is("EUR")),
                                 hasProperty("description", is("Test Transaction"))
                         )
@@ -110,7 +111,7 @@ public class TransactionDataBaseIT {
         mockMvc.perform(get("/transaction"))
                 .andExpect(status().isOk())
                 .andDo(print())
-                .andExpect(model().attribute("currentBalance", 1000.0));
+                .andExpect(model().attribute("currentBalance", new BigDecimal("1000.00")));
     }
 
     @Test
@@ -127,7 +128,7 @@ public class TransactionDataBaseIT {
 
         List<Transaction> transactions = transactionRepository.findAll();
         assertTrue(transactions.stream()
-                .anyMatch(t -> t.getDescription().equals("Check DB Insert") && t.getAmount() == 20.0));
+                .anyMatch(t -> t.getDescription().equals("Check DB Insert") && t.getAmount().equals(Money.of("20", Money.EUR))));
     }
 
 
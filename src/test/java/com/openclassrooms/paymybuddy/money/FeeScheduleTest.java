@@ -0,0 +1,63 @@
+package com.openclassrooms.paymybuddy.money;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.openclassrooms.paymybuddy.money.FeeSchedule.NO_CAP;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class FeeScheduleTest {
+
+    // 0,5 % jusqu'à 1 000 €, 0,3 % au-delà, plafond 10 € ; 1 % minimum 0,50 € pour l'USD
+    private final FeeSchedule schedule = FeeSchedule.compile(List.of(
+            new FeeSchedule.Tier(null, 0, 50, 1, NO_CAP),
+            new FeeSchedule.Tier(null, 100_000, 30, 0, 1_000),
+            new FeeSchedule.Tier("USD", 0, 100, 50, NO_CAP)));
+
+    @Test
+    void default_shouldKeepHistoricalHalfPercent() {
+        log.info("default_shouldKeepHistoricalHalfPercent");
+        assertEquals(43, FeeSchedule.DEFAULT.feeMinorUnits("USD", 8_500));
+        assertEquals(Money.eur(50), FeeSchedule.DEFAULT.fee(Money.EUR, Money.eur(10_000)));
+    }
+
+    @Test
+    void feeMinorUnits_shouldApplyTierContainingAmount() {
+        log.info("feeMinorUnits_shouldApplyTierContainingAmount");
+        assertEquals(50, schedule.feeMinorUnits("EUR", 10_000));
+        assertEquals(500, schedule.feeMinorUnits("EUR", 99_999));
+        assertEquals(300, schedule.feeMinorUnits("EUR", 100_000));
+        // plafond du second palier
+        assertEquals(1_000, schedule.feeMinorUnits("EUR", 1_000_000));
+        // minimum du premier palier
+        assertEquals(1, schedule.feeMinorUnits("EUR", 10));
+    }
+
+    @Test
+    void feeMinorUnits_shouldUseCurrencySpecificTiers() {
+        log.info("feeMinorUnits_shouldUseCurrencySpecificTiers");
+        assertEquals(100, schedule.feeMinorUnits("USD", 10_000));
+        assertEquals(50, schedule.feeMinorUnits("USD", 1_000));
+        // devise sans barème propre : paliers par défaut
+        assertEquals(50, schedule.feeMinorUnits("GBP", 10_000));
+        assertEquals(3, schedule.tierCount());
+    }
+
+    @Test
+    void compile_shouldRejectInconsistentSchedules() {
+        log.info("compile_shouldRejectInconsistentSchedules");
+        assertThrows(IllegalArgumentException.class, () -> FeeSchedule.compile(List.of(
+                new FeeSchedule.Tier("USD", 0, 100, 0, NO_CAP))));
+        assertThrows(IllegalArgumentException.class, () -> FeeSchedule.compile(List.of(
+                new FeeSchedule.Tier(null, 500, 50, 0, NO_CAP))));
+        assertThrows(IllegalArgumentException.class, () -> FeeSchedule.compile(List.of(
+                new FeeSchedule.Tier(null, 0, 50, 0, NO_CAP), new FeeSchedule.Tier(null, 0, 30, 0, NO_CAP))));
+        assertThrows(IllegalArgumentException.class, () -> FeeSchedule.compile(List.of(
+                new FeeSchedule.Tier(null, 0, 50, 100, 10))));
+        assertThrows(IllegalArgumentException.class, () -> FeeSchedule.compile(List.of(
+                new FeeSchedule.Tier(null, 0, 10_001, 0, NO_CAP))));
+    }
+}
@@ -0,0 +1,70 @@
+package com.openclassrooms.paymybuddy.money;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class MoneyTest {
+
+    @Test
+    void of_shouldRoundToCurrencyMinorUnits() {
+        log.info("of_shouldRoundToCurrencyMinorUnits");
+        assertEquals(1_050, Money.of("10.5", "EUR").minorUnits());
+        assertEquals(1_001, Money.of("10.005", "EUR").minorUnits());
+        assertEquals(11, Money.of("10.5", "JPY").minorUnits());
+        assertThrows(IllegalArgumentException.class, () -> Money.of("abc", "EUR"));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(BigDecimal.ONE, "XYZ"));
+    }
+
+    @Test
+    void arithmetic_shouldStayExact() {
+        log.info("arithmetic_shouldStayExact");
+        Money total = Money.ZERO_EUR;
+        for (int i = 0; i < 10; i++) {
+            total = total.plus(Money.of("0.10", "EUR"));
+        }
+
+        assertEquals(Money.eur(100), total);
+        assertEquals(Money.eur(-50), Money.eur(50).minus(Money.eur(100)));
+        assertTrue(Money.eur(50).isLessThan(Money.eur(100)));
+        assertThrows(IllegalArgumentException.class, () -> Money.eur(1).plus(Money.ofMinor(1, "USD")));
+        // dépassement de capacité : même erreur de saisie que les autres montants invalides
+        IllegalArgumentException overflow = assertThrows(IllegalArgumentException.class,
+                () -> Money.eur(Long.MAX_VALUE).plus(Money.eur(1)));
+        assertTrue(overflow.getMessage().startsWith("Montant invalide"));
+        assertThrows(IllegalArgumentException.class, () -> Money.eur(Long.MIN_VALUE).negate());
+        assertThrows(IllegalArgumentException.class, () -> Money.eur(Long.MAX_VALUE).multiplyBasisPoints(50));
+    }
+
+    @Test
+    void multiplyBasisPoints_shouldRoundHalfAwayFromZero() {
+        log.info("multiplyBasisPoints_shouldRoundHalfAwayFromZero");
+        // 0,5 % de 85,00 € = 0,425 €
+        assertEquals(Money.eur(43), Money.eur(8_500).multiplyBasisPoints(50));
+        assertEquals(Money.eur(-43), Money.eur(-8_500).multiplyBasisPoints(50));
+        assertEquals(Money.eur(0), Money.eur(99).multiplyBasisPoints(50));
+    }
+
+    @Test
+    void toBigDecimal_shouldUseCurrencyScale() {
+        log.info("toBigDecimal_shouldUseCurrencyScale");
+        assertEquals(new BigDecimal("12.34"), Money.eur(1_234).toBigDecimal());
+        assertEquals(new BigDecimal("1234"), Money.ofMinor(1_234, "JPY").toBigDecimal());
+        assertEquals("12.34 EUR", Money.eur(1_234).toString());
+    }
+
+    @Test
+    void eurMoneyConverter_shouldStoreCentsAndRejectOtherCurrencies() {
+        log.info("eurMoneyConverter_shouldStoreCentsAndRejectOtherCurrencies");
+        EurMoneyConverter converter = new EurMoneyConverter();
+
+        assertEquals(1_234L, converter.convertToDatabaseColumn(Money.eur(1_234)));
+        assertEquals(Money.eur(1_234), converter.convertToEntityAttribute(1_234L));
+        assertNull(converter.convertToEntityAttribute(null));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn(Money.ofMinor(1, "USD")));
+    }
+}
@@ -0,0 +1,113 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.exception.AccountLockTimeoutException;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AccountLockManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class AccountLockManagerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AccountLockManager lockManager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lockManager = new AccountLockManager(64, 100, meterRegistry);
+    }
+
+    @Test
+    void constructor_shouldRoundStripesToPowerOfTwo() {
+        log.info("constructor_shouldRoundStripesToPowerOfTwo");
+        assertEquals(128, new AccountLockManager(100, 100, meterRegistry).getStripeCount());
+        assertEquals(1, new AccountLockManager(1, 100, meterRegistry).getStripeCount());
+        assertThrows(IllegalArgumentException.class, () -> new AccountLockManager(0, 100, meterRegistry));
+    }
+
+    @Test
+    void executeWithLocks_shouldReturnActionResult() {
+        log.info("executeWithLocks_shouldReturnActionResult");
+        String result = lockManager.executeWithLocks(() -> "ok", 1L, 2L);
+
+        assertEquals("ok", result);
+        assertEquals(1.0, meterRegistry.counter("paymybuddy.account.lock.acquisitions").count());
+    }
+
+    @Test
+    void executeWithLocks_shouldAcceptSameAccountTwice() {
+        log.info("executeWithLocks_shouldAcceptSameAccountTwice");
+        assertEquals(42, lockManager.executeWithLocks(() -> 42, 7L, 7L));
+    }
+
+    @Test
+    void executeWithLocks_shouldFailFastWhenAccountIsBusy() throws Exception {
+        log.info("executeWithLocks_shouldFailFastWhenAccountIsBusy");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            Future<?> holder = executor.submit(() -> lockManager.executeWithLocks(() -> {
+                locked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }, 1L, 2L));
+
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+            assertThrows(AccountLockTimeoutException.class,
+                    () -> lockManager.executeWithLocks(() -> "ko", 2L, 3L));
+            assertEquals(1.0, meterRegistry.counter("paymybuddy.account.lock.timeouts").count());
+            assertEquals(1.0, meterRegistry.counter("paymybuddy.account.lock.contentions").count());
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+
+            // le verrou partiellement obtenu a bien été relâché
+            assertEquals("ok", lockManager.executeWithLocks(() -> "ok", 3L, 2L));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void executeWithLocks_shouldKeepBalancesConsistentForOppositeTransfers() throws Exception {
+        log.info("executeWithLocks_shouldKeepBalancesConsistentForOppositeTransfers");
+        AccountLockManager patientLockManager = new AccountLockManager(64, 5_000, meterRegistry);
+        long[] balances = {10_000, 10_000};
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                boolean forward = i % 2 == 0;
+                executor.submit(() -> patientLockManager.executeWithLocks(() -> {
+                    int from = forward ? 0 : 1;
+                    balances[from] -= 1;
+                    balances[1 - from] += 1;
+                    return null;
+                }, forward ? 1L : 2L, forward ? 2L : 1L));
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(20_000, balances[0] + balances[1]);
+    }
+}
@@ -0,0 +1,117 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.ConnectionEdge;
+import com.openclassrooms.paymybuddy.dto.RecipientStat;
+import com.openclassrooms.paymybuddy.exception.InvalidPageRequestException;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.repository.TransactionRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AutocompleteServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraphServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+class AutocompleteServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private ConnectionGraphServiceImpl connectionGraph;
+    private AutocompleteServiceImpl autocompleteService;
+
+    private final ConnectionCard john = new ConnectionCard(1L, "John", "john@gmail.com");
+    private final ConnectionCard paul = new ConnectionCard(2L, "Paul Martin", "paul@gmail.com");
+    private final ConnectionCard pauline = new ConnectionCard(3L, "Pauline", "pauline@gmail.com");
+    private final ConnectionCard patrick = new ConnectionCard(4L, "Patrick", "patrick@gmail.com");
+    private final ConnectionCard pascal = new ConnectionCard(5L, "Pascal", "pascal@gmail.com");
+
+    @BeforeEach
+    void setUp() {
+        connectionGraph = new ConnectionGraphServiceImpl(userRepository, true, 10);
+        autocompleteService = new AutocompleteServiceImpl(userRepository, transactionRepository, connectionGraph, 2, 180, 30);
+        when(userRepository.findCardsAfter(0L, Limit.of(2))).thenReturn(List.of(john, paul));
+        when(userRepository.findCardsAfter(2L, Limit.of(2))).thenReturn(List.of(pauline, patrick));
+        when(userRepository.findCardsAfter(4L, Limit.of(2))).thenReturn(List.of(pascal));
+        when(userRepository.findEdgesAfter(0L, 0L, 10))
+                .thenReturn(List.of(new ConnectionEdge(1L, 2L), new ConnectionEdge(1L, 3L), new ConnectionEdge(1L, 4L)));
+        connectionGraph.load();
+        // Pauline : virements fréquents et récents ; Patrick : un seul, ancien ; Pascal : ancien destinataire
+        LocalDateTime now = LocalDateTime.now();
+        when(transactionRepository.findRecipientStats(eq(1L), eq(2L), any())).thenReturn(List.of(
+                new RecipientStat(1L, 3L, 5L, now.minusDays(1)),
+                new RecipientStat(1L, 4L, 1L, now.minusDays(90)),
+                new RecipientStat(1L, 5L, 2L, now.minusDays(10))));
+        autocompleteService.load();
+    }
+
+    @Test
+    void suggestRecipients_shouldRankConnectionsByRecentFrequency() throws UserNotFoundException {
+        log.info("suggestRecipients_shouldRankConnectionsByRecentFrequency");
+        assertEquals(List.of(pauline, patrick, paul), autocompleteService.suggestRecipients("john@gmail.com", "", 10));
+        assertEquals(List.of(pauline, paul), autocompleteService.suggestRecipients("john@gmail.com", "pau", 10));
+        assertEquals(List.of(paul), autocompleteService.suggestRecipients("john@gmail.com", "mart", 10));
+
+        autocompleteService.recordTransfers(1L, List.of(2L, 2L, 2L, 2L, 2L, 2L));
+        assertEquals(paul, autocompleteService.suggestRecipients("john@gmail.com", "", 1).get(0));
+        verify(userRepository, never()).findIdByEmail(anyString());
+    }
+
+    @Test
+    void recordTransfers_shouldKeepScoresOfRecipientsRecordedOutOfOrder() {
+        log.info("recordTransfers_shouldKeepScoresOfRecipientsRecordedOutOfOrder");
+        autocompleteService.recordTransfers(1L, List.of(9L, 7L, 2L, 8L, 2L));
+
+        double[] scores = autocompleteService.transferScores(1L, new long[]{2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L});
+        assertEquals(2, scores[0], 0.01);
+        assertEquals(0, scores[4]);
+        assertEquals(1, scores[5], 0.01);
+        assertEquals(1, scores[6], 0.01);
+        assertEquals(1, scores[7], 0.01);
+        // les destinataires chargés au démarrage gardent leur score
+        assertTrue(scores[1] > scores[3] && scores[3] > scores[2] && scores[2] > 0);
+    }
+
+    @Test
+    void suggestUsers_shouldExcludeConnectionsAndPutFormerRecipientsFirst() throws UserNotFoundException {
+        log.info("suggestUsers_shouldExcludeConnectionsAndPutFormerRecipientsFirst");
+        assertEquals(List.of(pascal), autocompleteService.suggestUsers("john@gmail.com", "pa", 10));
+
+        connectionGraph.connectionRemoved(1L, 2L);
+        autocompleteService.userSaved(6L, "Paolo", "paolo@gmail.com");
+        assertEquals(List.of(pascal, paolo(), paul), autocompleteService.suggestUsers("john@gmail.com", "pa", 10));
+        assertTrue(autocompleteService.suggestUsers("john@gmail.com", "p", 10).isEmpty());
+    }
+
+    @Test
+    void suggest_shouldRejectUnknownUserAndInvalidLimit() {
+        log.info("suggest_shouldRejectUnknownUserAndInvalidLimit");
+        when(userRepository.findIdByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class,
+                () -> autocompleteService.suggestRecipients("unknown@gmail.com", "pa", 10));
+        assertThrows(InvalidPageRequestException.class,
+                () -> autocompleteService.suggestRecipients("john@gmail.com", "pa", AutocompleteServiceImpl.MAX_SUGGESTIONS + 1));
+    }
+
+    private static ConnectionCard paolo() {
+        return new ConnectionCard(6L, "Paolo", "paolo@gmail.com");
+    }
+}
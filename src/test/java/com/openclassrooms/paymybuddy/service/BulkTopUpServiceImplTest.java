@@ -0,0 +1,190 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.dto.AccountCredit;
+import com.openclassrooms.paymybuddy.dto.AccountRef;
+import com.openclassrooms.paymybuddy.dto.TopUpImportResult;
+import com.openclassrooms.paymybuddy.entity.TopUpImport;
+import com.openclassrooms.paymybuddy.money.Money;
+import com.openclassrooms.paymybuddy.repository.TopUpImportRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AccountLockManager;
+import com.openclassrooms.paymybuddy.service.serviceImpl.BulkTopUpServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.LedgerServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+class BulkTopUpServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private LedgerServiceImpl ledgerService;
+
+    @Mock
+    private TopUpImportRepository topUpImportRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private BulkTopUpServiceImpl bulkTopUpService;
+
+    @BeforeEach
+    void setUp() {
+        bulkTopUpService = new BulkTopUpServiceImpl(userRepository, ledgerService,
+                new AccountLockManager(16, 100, new SimpleMeterRegistry()), topUpImportRepository, transactionTemplate, 2);
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().when(topUpImportRepository.save(any(TopUpImport.class))).thenAnswer(inv -> inv.getArgument(0));
+        lenient().when(topUpImportRepository.advance(eq("promo"), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), any()))
+                .thenReturn(1);
+        lenient().when(userRepository.findAccountRefsByEmails(anyCollection())).thenReturn(List.of(
+                new AccountRef(1L, "alice@gmail.com"), new AccountRef(2L, "bob@gmail.com")));
+    }
+
+    @Test
+    void importCsv_shouldCreditKnownUsersAndReportRejectedLines() throws Exception {
+        log.info("importCsv_shouldCreditKnownUsersAndReportRejectedLines");
+        when(topUpImportRepository.findByImportKey("promo")).thenReturn(Optional.empty());
+        String csv = """
+                email,montant
+                alice@gmail.com,10.50
+                unknown@gmail.com,5
+                bob@gmail.com;"20"
+                bob@gmail.com,abc
+
+                alice@gmail.com,-3
+                """;
+        StringWriter errors = new StringWriter();
+
+        TopUpImportResult result = bulkTopUpService.importCsv("promo", new StringReader(csv), errors);
+
+        ArgumentCaptor<List<AccountCredit>> credits = ArgumentCaptor.captor();
+        verify(ledgerService, times(2)).recordTopUps(credits.capture());
+        assertEquals(List.of(new AccountCredit(1L, Money.eur(1_050)), new AccountCredit(2L, Money.eur(2_000))),
+                credits.getAllValues().stream().flatMap(List::stream).toList());
+
+        // un point de reprise par lot de 2 lignes, dans l'ordre
+        verify(topUpImportRepository).advance(eq("promo"), eq(0L), eq(2L), eq(1L), eq(0L), eq(1_050L), any());
+        verify(topUpImportRepository).advance(eq("promo"), eq(2L), eq(4L), eq(1L), eq(1L), eq(2_000L), any());
+        verify(topUpImportRepository).advance(eq("promo"), eq(4L), eq(6L), eq(0L), eq(1L), eq(0L), any());
+        verify(topUpImportRepository).advance(eq("promo"), eq(6L), eq(7L), eq(0L), eq(1L), eq(0L), any());
+        verify(topUpImportRepository).complete(eq("promo"), any());
+
+        assertEquals(2, result.credited());
+        assertEquals(3, result.rejected());
+        assertEquals(7, result.committedLines());
+        assertEquals(new BigDecimal("30.50"), result.creditedAmount());
+        String report = errors.toString();
+        assertTrue(report.startsWith("3,unknown@gmail.com,Aucun utilisateur"));
+        assertTrue(report.contains("5,bob@gmail.com,Montant invalide"));
+        assertTrue(report.contains("7,alice@gmail.com,Montant invalide"));
+    }
+
+    @Test
+    void importCsv_shouldResumeAfterLastCommittedLine() throws Exception {
+        log.info("importCsv_shouldResumeAfterLastCommittedLine");
+        TopUpImport checkpoint = new TopUpImport("promo");
+        checkpoint.setCommittedLines(2);
+        checkpoint.setCredited(2);
+        checkpoint.setCreditedAmount(3_000);
+        when(topUpImportRepository.findByImportKey("promo")).thenReturn(Optional.of(checkpoint));
+
+        TopUpImportResult result = bulkTopUpService.importCsv("promo",
+                new StringReader("alice@gmail.com,10\nalice@gmail.com,20\nbob@gmail.com,5\n"), new StringWriter());
+
+        verify(ledgerService).recordTopUps(List.of(new AccountCredit(2L, Money.eur(500))));
+        verify(topUpImportRepository).advance(eq("promo"), eq(2L), eq(3L), eq(1L), eq(0L), eq(500L), any());
+        assertEquals(3, result.credited());
+        assertEquals(new BigDecimal("35.00"), result.creditedAmount());
+    }
+
+    @Test
+    void importCsv_shouldDoNothingWhenAlreadyCompleted() throws Exception {
+        log.info("importCsv_shouldDoNothingWhenAlreadyCompleted");
+        TopUpImport checkpoint = new TopUpImport("promo");
+        checkpoint.setStatus(TopUpImport.Status.COMPLETED);
+        checkpoint.setCommittedLines(1);
+        when(topUpImportRepository.findByImportKey("promo")).thenReturn(Optional.of(checkpoint));
+
+        TopUpImportResult result = bulkTopUpService.importCsv("promo",
+                new StringReader("alice@gmail.com,10\n"), new StringWriter());
+
+        assertTrue(result.completed());
+        verifyNoInteractions(ledgerService);
+        verify(topUpImportRepository, never()).advance(any(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void importCsv_shouldCommitLockBoundedSubChunks() throws Exception {
+        log.info("importCsv_shouldCommitLockBoundedSubChunks");
+        bulkTopUpService = new BulkTopUpServiceImpl(userRepository, ledgerService,
+                new AccountLockManager(16, 100, new SimpleMeterRegistry()), topUpImportRepository, transactionTemplate, 1000);
+        when(topUpImportRepository.findByImportKey("promo")).thenReturn(Optional.empty());
+        // 40 comptes distincts, une ligne refusée après le 32e : deux sous-lots de 32 et 8 comptes
+        when(userRepository.findAccountRefsByEmails(anyCollection())).thenReturn(IntStream.range(0, 40)
+                .mapToObj(i -> new AccountRef(100L + i, "user" + i + "@gmail.com")).toList());
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            csv.append("user").append(i).append("@gmail.com,1\n");
+            if (i == 31) {
+                csv.append("unknown@gmail.com,1\n");
+            }
+        }
+        StringWriter errors = new StringWriter();
+
+        TopUpImportResult result = bulkTopUpService.importCsv("promo", new StringReader(csv.toString()), errors);
+
+        verify(topUpImportRepository).advance(eq("promo"), eq(0L), eq(33L), eq(32L), eq(1L), eq(3_200L), any());
+        verify(topUpImportRepository).advance(eq("promo"), eq(33L), eq(41L), eq(8L), eq(0L), eq(800L), any());
+        verify(ledgerService, times(2)).recordTopUps(anyList());
+        assertEquals(40, result.credited());
+        assertEquals(41, result.committedLines());
+        assertTrue(errors.toString().startsWith("33,unknown@gmail.com"));
+    }
+
+    @Test
+    void importCsv_shouldFailWithoutReportingWhenCheckpointMovedConcurrently() {
+        log.info("importCsv_shouldFailWithoutReportingWhenCheckpointMovedConcurrently");
+        when(topUpImportRepository.findByImportKey("promo")).thenReturn(Optional.empty());
+        when(topUpImportRepository.advance(eq("promo"), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), any()))
+                .thenReturn(0);
+        StringWriter errors = new StringWriter();
+
+        assertThrows(IllegalStateException.class, () -> bulkTopUpService.importCsv("promo",
+                new StringReader("unknown@gmail.com,10\n"), errors));
+        assertEquals("", errors.toString());
+        verify(topUpImportRepository, never()).complete(any(), any());
+    }
+
+    @Test
+    void importCsv_shouldRequireImportKey() {
+        log.info("importCsv_shouldRequireImportKey");
+        assertThrows(IllegalArgumentException.class,
+                () -> bulkTopUpService.importCsv(" ", new StringReader(""), new StringWriter()));
+    }
+}
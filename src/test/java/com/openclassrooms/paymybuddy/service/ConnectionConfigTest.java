@@ -0,0 +1,62 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AutocompleteServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraphServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionSuggestionServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// application.yaml de production (celui des tests le masque sur le classpath) : bloc connection lu par les services
+@SpringBootTest(classes = {ConnectionGraphServiceImpl.class, ConnectionSuggestionServiceImpl.class,
+        ConnectionConfigTest.Config.class},
+        properties = "spring.config.location=file:src/main/resources/application.yaml")
+@Slf4j
+class ConnectionConfigTest {
+
+    static class Config {
+
+        @Bean
+        public UserRepository userRepository() {
+            return Mockito.mock(UserRepository.class);
+        }
+
+        @Bean
+        public AutocompleteServiceImpl autocompleteService() {
+            return Mockito.mock(AutocompleteServiceImpl.class);
+        }
+    }
+
+    @Autowired
+    private ConnectionGraphServiceImpl connectionGraph;
+    @Autowired
+    private ConnectionSuggestionServiceImpl suggestionService;
+    @Autowired
+    private AutocompleteServiceImpl autocompleteService;
+
+    @Test
+    void connectionGraph_shouldBeEnabledByApplicationYaml() {
+        log.info("connectionGraph_shouldBeEnabledByApplicationYaml");
+        assertTrue(connectionGraph.isReady());
+    }
+
+    @Test
+    void suggestions_shouldBeEnabledAndStoredByApplicationYaml() {
+        log.info("suggestions_shouldBeEnabledAndStoredByApplicationYaml");
+        when(autocompleteService.transferScores(eq(1L), any())).thenReturn(new double[0]);
+
+        suggestionService.suggestConnections(1L);
+        suggestionService.suggestConnections(1L);
+
+        // gardées en mémoire : calculées une seule fois
+        verify(autocompleteService, times(1)).transferScores(eq(1L), any());
+    }
+}
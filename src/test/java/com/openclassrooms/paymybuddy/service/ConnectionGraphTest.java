@@ -0,0 +1,82 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraph;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class ConnectionGraphTest {
+
+    private ConnectionGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new ConnectionGraph();
+        graph.load(ConnectionGraph.builder()
+                .append(1L, 2L).append(1L, 3L).append(1L, 7L)
+                .append(2L, 1L)
+                .append(5L, 3L));
+    }
+
+    @Test
+    void contains_shouldFollowDirectionOfRelation() {
+        log.info("contains_shouldFollowDirectionOfRelation");
+        assertTrue(graph.contains(1L, 3L));
+        assertTrue(graph.contains(5L, 3L));
+        assertFalse(graph.contains(3L, 1L));
+        assertFalse(graph.contains(1L, 5L));
+        assertFalse(graph.contains(42L, 1L));
+        assertArrayEquals(new long[]{2L, 3L, 7L}, graph.connections(1L));
+        assertArrayEquals(new long[0], graph.connections(3L));
+        assertEquals(5, graph.edgeCount());
+        assertEquals(3, graph.userCount());
+    }
+
+    @Test
+    void addAndRemove_shouldOverrideBaseBeforeAndAfterCompaction() {
+        log.info("addAndRemove_shouldOverrideBaseBeforeAndAfterCompaction");
+        graph.add(1L, 5L);
+        graph.remove(1L, 3L);
+        graph.add(9L, 1L);
+        graph.remove(2L, 1L);
+
+        assertArrayEquals(new long[]{2L, 5L, 7L}, graph.connections(1L));
+        assertTrue(graph.contains(9L, 1L));
+        assertFalse(graph.contains(2L, 1L));
+        assertEquals(3, graph.degree(1L));
+        assertEquals(3, graph.pendingChanges());
+
+        graph.compact();
+        assertEquals(0, graph.pendingChanges());
+        assertArrayEquals(new long[]{2L, 5L, 7L}, graph.connections(1L));
+        assertArrayEquals(new long[]{1L}, graph.connections(9L));
+        assertArrayEquals(new long[0], graph.connections(2L));
+        assertEquals(5, graph.edgeCount());
+    }
+
+    @Test
+    void load_shouldKeepChangesMadeDuringLoading() {
+        log.info("load_shouldKeepChangesMadeDuringLoading");
+        // ajout et retrait commités pendant la lecture des tranches
+        graph.add(3L, 1L);
+        graph.remove(5L, 3L);
+
+        graph.load(ConnectionGraph.builder().append(1L, 2L).append(5L, 3L));
+
+        assertTrue(graph.contains(3L, 1L));
+        assertFalse(graph.contains(5L, 3L));
+        assertTrue(graph.contains(1L, 2L));
+    }
+
+    @Test
+    void builder_shouldRejectUnsortedOrInvalidRelations() {
+        log.info("builder_shouldRejectUnsortedOrInvalidRelations");
+        assertThrows(IllegalArgumentException.class, () -> ConnectionGraph.builder().append(1L, 3L).append(1L, 2L));
+        assertThrows(IllegalArgumentException.class, () -> ConnectionGraph.builder().append(0L, 2L));
+        assertThrows(IllegalArgumentException.class, () -> graph.load(ConnectionGraph.builder()
+                .append(1L, 2L).append(2L, 1L).append(1L, 3L)));
+    }
+}
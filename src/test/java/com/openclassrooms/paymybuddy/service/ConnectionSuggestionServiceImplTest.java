@@ -0,0 +1,155 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.ConnectionEdge;
+import com.openclassrooms.paymybuddy.dto.ConnectionSuggestion;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AutocompleteServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraphServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionSuggestionServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.MutualConnections;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+class ConnectionSuggestionServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private AutocompleteServiceImpl autocompleteService;
+
+    private ConnectionGraphServiceImpl connectionGraph;
+
+    // John (1) suit Paul (2) et Marc (3) ; Paul suit Jane (4) et Léa (5), Marc suit Léa (5), John et Zoé (6)
+    private final Map<Long, ConnectionCard> cards = Map.of(
+            2L, new ConnectionCard(2L, "Paul", "paul@gmail.com"),
+            4L, new ConnectionCard(4L, "Jane", "jane@gmail.com"),
+            5L, new ConnectionCard(5L, "Léa", "lea@gmail.com"),
+            6L, new ConnectionCard(6L, "Zoé", "zoe@gmail.com"),
+            7L, new ConnectionCard(7L, "Hugo", "hugo@gmail.com"));
+
+    @BeforeEach
+    void setUp() {
+        connectionGraph = new ConnectionGraphServiceImpl(userRepository, true, 100);
+        when(userRepository.findEdgesAfter(0L, 0L, 100)).thenReturn(List.of(
+                new ConnectionEdge(1L, 2L), new ConnectionEdge(1L, 3L),
+                new ConnectionEdge(2L, 4L), new ConnectionEdge(2L, 5L),
+                new ConnectionEdge(3L, 1L), new ConnectionEdge(3L, 5L), new ConnectionEdge(3L, 6L)));
+        connectionGraph.load();
+        lenient().when(autocompleteService.card(anyLong())).thenAnswer(invocation -> cards.get(invocation.<Long>getArgument(0)));
+        lenient().when(autocompleteService.transferScores(eq(1L), any())).thenAnswer(invocation ->
+                new double[invocation.<long[]>getArgument(1).length]);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private ConnectionSuggestionServiceImpl service(boolean enabled) {
+        return new ConnectionSuggestionServiceImpl(connectionGraph, autocompleteService, enabled, 10, 100, 60_000);
+    }
+
+    @Test
+    void suggestConnections_shouldRankFriendsOfFriendsByMutualConnections() {
+        log.info("suggestConnections_shouldRankFriendsOfFriendsByMutualConnections");
+        // Léa : 2 relations en commun ; John lui-même et ses relations exclus
+        assertEquals(List.of(
+                new ConnectionSuggestion(5L, "Léa", "lea@gmail.com", 2),
+                new ConnectionSuggestion(4L, "Jane", "jane@gmail.com", 1),
+                new ConnectionSuggestion(6L, "Zoé", "zoe@gmail.com", 1)), service(true).suggestConnections(1L));
+    }
+
+    @Test
+    void suggestConnections_shouldWeightMutualConnectionsByTransfers() {
+        log.info("suggestConnections_shouldWeightMutualConnectionsByTransfers");
+        // virements fréquents vers Marc : Zoé passe devant Jane
+        when(autocompleteService.transferScores(1L, new long[]{2L, 3L})).thenReturn(new double[]{0, 6});
+
+        List<ConnectionSuggestion> suggestions = service(true).suggestConnections(1L);
+
+        assertEquals(List.of(5L, 6L, 4L), suggestions.stream().map(ConnectionSuggestion::id).toList());
+    }
+
+    @Test
+    void connectionChanged_shouldRecomputeUserAndFollowersAfterCommit() {
+        log.info("connectionChanged_shouldRecomputeUserAndFollowersAfterCommit");
+        ConnectionSuggestionServiceImpl service = service(true);
+        lenient().when(autocompleteService.transferScores(eq(3L), any())).thenAnswer(invocation ->
+                new double[invocation.<long[]>getArgument(1).length]);
+        assertEquals(3, service.suggestConnections(1L).size());
+        assertEquals(List.of(2L), service.suggestConnections(3L).stream().map(ConnectionSuggestion::id).toList());
+
+        // Paul suit Hugo : nouvelle suggestion pour John, qui suit Paul
+        TransactionSynchronizationManager.initSynchronization();
+        connectionGraph.connectionAdded(2L, 7L);
+        service.connectionChanged(2L, 7L);
+        assertEquals(3, service.suggestConnections(1L).size());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        service.refresh();
+        assertTrue(service.suggestConnections(1L).stream().anyMatch(suggestion -> suggestion.id() == 7L));
+        // Marc ne suit pas Paul : ses suggestions restent servies sans recalcul
+        verify(autocompleteService, times(1)).transferScores(eq(3L), any());
+        verify(autocompleteService, times(2)).transferScores(eq(1L), any());
+    }
+
+    @Test
+    void suggestConnections_shouldBeEmptyUntilGraphIsLoaded() {
+        log.info("suggestConnections_shouldBeEmptyUntilGraphIsLoaded");
+        connectionGraph = new ConnectionGraphServiceImpl(userRepository, false, 100);
+
+        assertTrue(service(true).suggestConnections(1L).isEmpty());
+        verifyNoInteractions(autocompleteService);
+    }
+
+    @Test
+    void top_shouldCountMutualConnectionsAndKeepLimit() {
+        log.info("top_shouldCountMutualConnectionsAndKeepLimit");
+        long[][] rows = {{}, {3, 4, 5, 9}, {}, {4, 5, 9}, {1, 5, 9}};
+        long[] connections = {1, 3, 4};
+
+        List<MutualConnections.Suggestion> top = MutualConnections.top(2L, connections, new double[]{1, 1, 1},
+                id -> rows[(int) id], 2);
+
+        assertEquals(List.of(new MutualConnections.Suggestion(5L, 3, 3.0), new MutualConnections.Suggestion(9L, 3, 3.0)),
+                top);
+        assertThrows(IllegalArgumentException.class, () -> MutualConnections.top(2L, connections, new double[1],
+                id -> rows[(int) id], 2));
+    }
+
+    @Test
+    void top_shouldCountSparseIdsLikeDenseIds() {
+        log.info("top_shouldCountSparseIdsLikeDenseIds");
+        // étendue des ids bien plus grande que le nombre de chemins : table de hachage au lieu d'un tableau par id
+        long far = 3_000_000_000L;
+        Map<Long, long[]> rows = Map.of(
+                1L, new long[]{3L, far, far + 7},
+                3L, new long[]{1L, far + 7},
+                far, new long[]{2L, far + 7});
+        long[] connections = {1L, 3L, far};
+
+        List<MutualConnections.Suggestion> top = MutualConnections.top(2L, connections, new double[]{1, 1, 2},
+                id -> rows.getOrDefault(id, new long[0]), 5);
+
+        assertEquals(List.of(new MutualConnections.Suggestion(far + 7, 3, 4.0)), top);
+    }
+}
@@ -1,5 +1,6 @@
 package com.openclassrooms.paymybuddy.service;
 
+import com.openclassrooms.paymybuddy.money.Money;
 import com.openclassrooms.paymybuddy.service.serviceImpl.CurrencyServiceImpl;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,48 +26,54 @@ public class CurrencyServiceImplTest {
     @Test
     void convertToEur_shouldReturnSameAmountIfCurrencyIsEur() {
         log.info("convertToEur shouldReturnSameAmountIfCurrencyIsEur");
-        double result = currencyService.convertToEur(100.0, "EUR");
-        assertEquals(100.0, result);
+        Money result = currencyService.convertToEur(Money.of("100", Money.EUR));
+        assertEquals(Money.eur(10_000), result);
     }
 
     @Test
     void convertToEur_shouldConvertUsdToEur() {
         log.info("convertToEur shouldConvertUsdToEur");
-        double result = currencyService.convertToEur(100.0, "USD");
-        // Exemple: si 1 USD = 0.85 EUR
-        double expected = 100.0 * 0.85; // selon la valeur réelle dans EXCHANGE_RATES
-        assertEquals(expected, result, 0.0001);
+        Money result = currencyService.convertToEur(Money.of("100", "USD"));
+        // 1 USD = 0.85 EUR
+        assertEquals(Money.eur(8_500), result);
+    }
+
+    @Test
+    void convertToEur_shouldConvertCurrencyWithoutMinorUnits() {
+        log.info("convertToEur shouldConvertCurrencyWithoutMinorUnits");
+        // 1 JPY = 0.0073 EUR : 1 000 JPY = 7.30 EUR, 1 JPY = 0.0073 arrondi à 0.01
+        assertEquals(Money.eur(730), currencyService.convertToEur(Money.ofMinor(1_000, "JPY")));
+        assertEquals(Money.eur(1), currencyService.convertToEur(Money.ofMinor(1, "JPY")));
     }
 
     @Test
     void convertToEur_shouldThrowExceptionForUnknownCurrency() {
         log.info("convertToEur shouldThrowExceptionForUnknownCurrency");
         Exception exception = assertThrows(IllegalArgumentException.class, () ->
-                currencyService.convertToEur(100.0, "XYZ"));
+                currencyService.convertToEur(Money.ofMinor(10_000, "XYZ")));
         assertTrue(exception.getMessage().contains("Devise non supportée"));
     }
 
     @Test
     void convertFromEur_shouldReturnSameAmountIfCurrencyIsEur() {
         log.info("convertFromEur shouldReturnSameAmountIfCurrencyIsEur");
-        double result = currencyService.convertFromEur(100.0, "EUR");
-        assertEquals(100.0, result);
+        Money result = currencyService.convertFromEur(Money.of("100", Money.EUR), "EUR");
+        assertEquals(Money.eur(10_000), result);
     }
 
     @Test
     void convertFromEur_shouldConvertEurToUsd() {
         log.info("convertFromEur shouldConvertEurToUsd");
-        double result = currencyService.convertFromEur(85.0, "USD");
-        // Exemple : si 1 USD = 0.85 EUR → 1 EUR = 1/0.85 USD
-        double expected = 85.0 / 0.85; // selon la valeur réelle dans EXCHANGE_RATES
-        assertEquals(expected, result, 0.0001);
+        Money result = currencyService.convertFromEur(Money.of("85", Money.EUR), "USD");
+        // 1 USD = 0.85 EUR -> 85 EUR = 100 USD
+        assertEquals(Money.of("100", "USD"), result);
     }
 
     @Test
     void convertFromEur_shouldThrowExceptionForUnknownCurrency() {
         log.info("convertFromEur shouldThrowExceptionForUnknownCurrency");
         Exception exception = assertThrows(IllegalArgumentException.class, () ->
-                currencyService.convertFromEur(100.0, "ABC"));
+                currencyService.convertFromEur(Money.of("100", Money.EUR), "ABC"));
         assertTrue(exception.getMessage().contains("Devise non supportée"));
     }
 }
@@ -0,0 +1,69 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.entity.FeeRule;
+import com.openclassrooms.paymybuddy.money.FeeSchedule;
+import com.openclassrooms.paymybuddy.money.Money;
+import com.openclassrooms.paymybuddy.repository.FeeRuleRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.FeeServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+class FeeServiceImplTest {
+
+    @Mock
+    private FeeRuleRepository feeRuleRepository;
+
+    @InjectMocks
+    private FeeServiceImpl feeService;
+
+    private static FeeRule rule(String currency, long minAmount, long basisPoints, long minFee, Long maxFee) {
+        FeeRule rule = new FeeRule();
+        rule.setCurrency(currency);
+        rule.setMinAmount(minAmount);
+        rule.setBasisPoints(basisPoints);
+        rule.setMinFee(minFee);
+        rule.setMaxFee(maxFee);
+        return rule;
+    }
+
+    @Test
+    void feeFor_shouldUseDefaultScheduleBeforeFirstLoad() {
+        log.info("feeFor_shouldUseDefaultScheduleBeforeFirstLoad");
+        assertEquals(Money.eur(43), feeService.feeFor(Money.of("100", "USD"), Money.of("85", Money.EUR)));
+    }
+
+    @Test
+    void reload_shouldSwapCompiledSchedule() {
+        log.info("reload_shouldSwapCompiledSchedule");
+        when(feeRuleRepository.findAll()).thenReturn(List.of(
+                rule(null, 0, 20, 10, null),
+                rule("USD", 0, 100, 0, 200L)));
+
+        feeService.reload();
+
+        assertEquals(Money.eur(20), feeService.feeFor(Money.of("100", Money.EUR), Money.of("100", Money.EUR)));
+        assertEquals(Money.eur(200), feeService.feeFor(Money.of("1000", "USD"), Money.of("850", Money.EUR)));
+    }
+
+    @Test
+    void reload_shouldKeepPreviousScheduleWhenRulesAreInvalid() {
+        log.info("reload_shouldKeepPreviousScheduleWhenRulesAreInvalid");
+        FeeSchedule before = feeService.getSchedule();
+        when(feeRuleRepository.findAll()).thenReturn(List.of(rule("USD", 0, 100, 0, null)));
+
+        feeService.reload();
+
+        assertSame(before, feeService.getSchedule());
+    }
+}
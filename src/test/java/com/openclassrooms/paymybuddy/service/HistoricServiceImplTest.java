@@ -1,7 +1,12 @@
 package com.openclassrooms.paymybuddy.service;
 
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.dto.HistoricView;
+import com.openclassrooms.paymybuddy.dto.PageCursor;
 import com.openclassrooms.paymybuddy.entity.Historic;
 import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.exception.InvalidPageRequestException;
+import com.openclassrooms.paymybuddy.money.Money;
 import com.openclassrooms.paymybuddy.repository.HistoricRepository;
 import com.openclassrooms.paymybuddy.repository.UserRepository;
 import com.openclassrooms.paymybuddy.service.serviceImpl.HistoricServiceImpl;
@@ -12,16 +17,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -34,8 +38,6 @@ public class HistoricServiceImplTest {
     private UserRepository userRepository;
     @Mock
     private HistoricRepository historicRepository;
-    @Mock
-    private Pageable pageable;
 
     @InjectMocks
     private HistoricServiceImpl historicService;
@@ -81,18 +83,86 @@ public class HistoricServiceImplTest {
     }
 
     @Test
-    void getUserHistoricPaginated_whenNoHistoric_shouldReturnEmptyPage() {
-        log.info("testGetUserHistoricPaginated_whenNoHistoric");
+    void getUserHistoric_whenNoHistoric_shouldReturnEmptyPage() {
+        log.info("getUserHistoric_whenNoHistoric_shouldReturnEmptyPage");
         // Given
-        Page<Historic> emptyPage = new PageImpl<>(Collections.emptyList());
-        when(historicRepository.findUserHistoryPaginated(anyLong(), any(Pageable.class))).thenReturn(emptyPage);
+        when(historicRepository.findLatest(1L, 11)).thenReturn(Collections.emptyList());
 
         // When
-        Page<Historic> result = historicService.getUserHistoricPaginated(1L, pageable);
+        CursorPage<HistoricView> result = historicService.getUserHistoric(1L, null, null, 10);
 
         // Then
-        assertNotNull(result);
-        assertTrue(result.isEmpty());
-        verify(historicRepository).findUserHistoryPaginated(1L, pageable);
+        assertTrue(result.content().isEmpty());
+        assertFalse(result.hasNext());
+        assertFalse(result.hasPrevious());
+    }
+
+    @Test
+    void getUserHistoric_firstPage_shouldReadOneExtraRowForNextCursor() {
+        log.info("getUserHistoric_firstPage_shouldReadOneExtraRowForNextCursor");
+        // Given : 3 lignes pour une page de 2, du plus récent au plus ancien
+        when(historicRepository.findLatest(1L, 3)).thenReturn(List.of(historic(30), historic(20), historic(10)));
+
+        // When
+        CursorPage<HistoricView> result = historicService.getUserHistoric(1L, null, null, 2);
+
+        // Then
+        assertEquals(List.of(30L, 20L), ids(result));
+        assertEquals(new PageCursor(date(20), 20L), PageCursor.decode(result.next()));
+        assertFalse(result.hasPrevious());
+    }
+
+    @Test
+    void getUserHistoric_afterCursor_shouldSeekOlderRows() {
+        log.info("getUserHistoric_afterCursor_shouldSeekOlderRows");
+        // Given : dernière page, pas de ligne en trop
+        String after = new PageCursor(date(20), 20L).encode();
+        when(historicRepository.findOlderThan(1L, date(20), 20L, 3)).thenReturn(List.of(historic(10)));
+
+        // When
+        CursorPage<HistoricView> result = historicService.getUserHistoric(1L, after, null, 2);
+
+        // Then
+        assertEquals(List.of(10L), ids(result));
+        assertFalse(result.hasNext());
+        assertEquals(new PageCursor(date(10), 10L), PageCursor.decode(result.previous()));
+        verify(historicRepository, never()).findLatest(anyLong(), anyInt());
+    }
+
+    @Test
+    void getUserHistoric_beforeCursor_shouldSeekNewerRowsAndRestoreOrder() {
+        log.info("getUserHistoric_beforeCursor_shouldSeekNewerRowsAndRestoreOrder");
+        // Given : lues du plus ancien au plus récent, avec une ligne en trop (encore une page avant)
+        String before = new PageCursor(date(10), 10L).encode();
+        when(historicRepository.findNewerThan(1L, date(10), 10L, 3))
+                .thenReturn(List.of(historic(20), historic(30), historic(40)));
+
+        // When
+        CursorPage<HistoricView> result = historicService.getUserHistoric(1L, null, before, 2);
+
+        // Then
+        assertEquals(List.of(30L, 20L), ids(result));
+        assertEquals(new PageCursor(date(20), 20L), PageCursor.decode(result.next()));
+        assertEquals(new PageCursor(date(30), 30L), PageCursor.decode(result.previous()));
+    }
+
+    @Test
+    void getUserHistoric_whenCursorIsTampered_shouldThrowException() {
+        log.info("getUserHistoric_whenCursorIsTampered_shouldThrowException");
+        assertThrows(InvalidPageRequestException.class, () -> historicService.getUserHistoric(1L, "pas-un-curseur", null, 10));
+        assertThrows(InvalidPageRequestException.class, () -> historicService.getUserHistoric(1L, null, null, 0));
+        verifyNoInteractions(historicRepository);
+    }
+
+    private static LocalDateTime date(long id) {
+        return LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(id);
+    }
+
+    private static HistoricView historic(long id) {
+        return new HistoricView(id, 1L, "John", 2L, "Jane", "Café", Money.eur(1_000), Money.eur(5), date(id));
+    }
+
+    private static List<Long> ids(CursorPage<HistoricView> page) {
+        return page.content().stream().map(HistoricView::id).toList();
     }
 }
@@ -0,0 +1,97 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.entity.SubBalance;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.repository.SubBalanceRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.HotAccountServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+class HotAccountServiceImplTest {
+
+    @Mock
+    private SubBalanceRepository subBalanceRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private HotAccountServiceImpl hotAccountService;
+
+    @BeforeEach
+    void setUp() {
+        hotAccountService = new HotAccountServiceImpl(subBalanceRepository, userRepository, transactionTemplate,
+                4, List.of("shop@gmail.com"));
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void enable_shouldCreateOnlyMissingSlots() {
+        log.info("enable_shouldCreateOnlyMissingSlots");
+        when(userRepository.findIdByEmail("shop@gmail.com")).thenReturn(Optional.of(7L));
+        when(subBalanceRepository.findSlotsByUserId(7L)).thenReturn(Set.of(0, 1));
+        when(subBalanceRepository.findHotAccountIds()).thenReturn(Set.of(7L));
+
+        hotAccountService.enable("shop@gmail.com");
+
+        ArgumentCaptor<SubBalance> captor = ArgumentCaptor.forClass(SubBalance.class);
+        verify(subBalanceRepository, times(2)).save(captor.capture());
+        assertEquals(List.of(2, 3), captor.getAllValues().stream().map(SubBalance::getSlot).toList());
+        assertTrue(hotAccountService.isHot(7L));
+    }
+
+    @Test
+    void enable_shouldThrowWhenUserNotFound() {
+        log.info("enable_shouldThrowWhenUserNotFound");
+        when(userRepository.findIdByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
+        assertThrows(UserNotFoundException.class, () -> hotAccountService.enable("unknown@gmail.com"));
+        verify(subBalanceRepository, never()).save(any());
+    }
+
+    @Test
+    void pickSlots_shouldOnlyAssignSlotsToHotAccounts() {
+        log.info("pickSlots_shouldOnlyAssignSlotsToHotAccounts");
+        when(subBalanceRepository.findHotAccountIds()).thenReturn(Set.of(7L));
+        hotAccountService.refresh();
+
+        Map<Long, Integer> slots = hotAccountService.pickSlots(List.of(7L, 8L));
+
+        assertEquals(Set.of(7L), slots.keySet());
+        assertTrue(slots.get(7L) >= 0 && slots.get(7L) < 4);
+        assertEquals(8L, HotAccountServiceImpl.creditLockKey(8L, slots));
+        assertEquals(HotAccountServiceImpl.lockKey(7L, slots.get(7L)), HotAccountServiceImpl.creditLockKey(7L, slots));
+    }
+
+    @Test
+    void lockKey_shouldNeverCollideWithAccountIds() {
+        log.info("lockKey_shouldNeverCollideWithAccountIds");
+        assertTrue(HotAccountServiceImpl.lockKey(1L, 0) < 0);
+        assertNotEquals(HotAccountServiceImpl.lockKey(1L, 1), HotAccountServiceImpl.lockKey(2L, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HotAccountServiceImpl(subBalanceRepository, userRepository,
+                transactionTemplate, 0, List.of()));
+    }
+}
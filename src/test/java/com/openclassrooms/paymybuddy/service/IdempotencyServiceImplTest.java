@@ -0,0 +1,243 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.entity.IdempotencyRecord;
+import com.openclassrooms.paymybuddy.exception.IdempotencyConflictException;
+import com.openclassrooms.paymybuddy.exception.IdempotencyKeyReusedException;
+import com.openclassrooms.paymybuddy.repository.IdempotencyRecordRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.IdempotencyServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+class IdempotencyServiceImplTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyServiceImpl idempotencyService;
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyServiceImpl(idempotencyRecordRepository, transactionManager, 2, 60_000, 60_000,
+                meterRegistry);
+        lenient().when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(inv -> {
+            IdempotencyRecord record = inv.getArgument(0);
+            record.setId(ids.incrementAndGet());
+            return record;
+        });
+        lenient().when(idempotencyRecordRepository.complete(anyLong(), anyString())).thenReturn(1);
+    }
+
+    // empreinte enregistrée avec la clé lors de sa réservation
+    private String requestHash(String key) {
+        ArgumentCaptor<IdempotencyRecord> reserved = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository, atLeastOnce()).saveAndFlush(reserved.capture());
+        return reserved.getAllValues().stream().filter(record -> record.getIdempotencyKey().equals(key))
+                .findFirst().orElseThrow().getRequestHash();
+    }
+
+    private String action() {
+        return "résultat " + executions.incrementAndGet();
+    }
+
+    @Test
+    void execute_shouldRunActionWithoutKey() {
+        log.info("execute_shouldRunActionWithoutKey");
+        assertEquals("résultat 1", idempotencyService.execute(null, "john@gmail.com", "TRANSFER", "r1", this::action));
+        assertEquals("résultat 2", idempotencyService.execute(" ", "john@gmail.com", "TRANSFER", "r1", this::action));
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void execute_shouldReplayFromCacheWithoutRunningActionTwice() {
+        log.info("execute_shouldReplayFromCacheWithoutRunningActionTwice");
+        assertEquals("résultat 1", idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action));
+        assertEquals("résultat 1", idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action));
+
+        assertEquals(1, executions.get());
+        verify(idempotencyRecordRepository, times(1)).saveAndFlush(any(IdempotencyRecord.class));
+        // résultat enregistré dans la transaction de l'opération
+        verify(idempotencyRecordRepository).complete(1L, "résultat 1");
+        verify(transactionManager).commit(any());
+        assertEquals(1.0, meterRegistry.counter("paymybuddy.idempotency.replays").count());
+    }
+
+    @Test
+    void execute_shouldScopeKeysByUser() {
+        log.info("execute_shouldScopeKeysByUser");
+        idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action);
+        assertEquals("résultat 2", idempotencyService.execute("k1", "laure@gmail.com", "TRANSFER", "r1", this::action));
+    }
+
+    @Test
+    void execute_shouldReplayStoredResultWhenKeyAlreadyPersisted() {
+        log.info("execute_shouldReplayStoredResultWhenKeyAlreadyPersisted");
+        IdempotencyRecord stored = new IdempotencyRecord("john@gmail.com", "k1", "TOP_UP", null);
+        stored.setStatus(IdempotencyRecord.Status.COMPLETED);
+        stored.setResponse("déjà fait");
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(idempotencyRecordRepository.findByUserEmailAndIdempotencyKey("john@gmail.com", "k1")).thenReturn(Optional.of(stored));
+
+        assertEquals("déjà fait", idempotencyService.execute("k1", "john@gmail.com", "TOP_UP", "r1", this::action));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_shouldRejectKeyStillInProgress() {
+        log.info("execute_shouldRejectKeyStillInProgress");
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(idempotencyRecordRepository.findByUserEmailAndIdempotencyKey("john@gmail.com", "k1"))
+                .thenReturn(Optional.of(new IdempotencyRecord("john@gmail.com", "k1", "TRANSFER", null)));
+
+        assertThrows(IdempotencyConflictException.class, () ->
+                idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_shouldRejectKeyReusedForAnotherOperation() {
+        log.info("execute_shouldRejectKeyReusedForAnotherOperation");
+        idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action);
+
+        assertThrows(IdempotencyKeyReusedException.class, () ->
+                idempotencyService.execute("k1", "john@gmail.com", "TOP_UP", "r1", this::action));
+    }
+
+    @Test
+    void execute_shouldRejectKeyReusedForAnotherRequest() {
+        log.info("execute_shouldRejectKeyReusedForAnotherRequest");
+        idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "laure@gmail.com\n1000\nEUR\nCafé", this::action);
+
+        // autre montant avec la même clé : refusé, la première réponse n'est pas rejouée
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotencyService.execute("k1", "john@gmail.com",
+                "TRANSFER", "laure@gmail.com\n9000\nEUR\nCafé", this::action));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_shouldRejectPersistedKeyReusedForAnotherRequest() {
+        log.info("execute_shouldRejectPersistedKeyReusedForAnotherRequest");
+        IdempotencyRecord stored = new IdempotencyRecord("john@gmail.com", "k1", "TRANSFER", "0".repeat(64));
+        stored.setStatus(IdempotencyRecord.Status.COMPLETED);
+        stored.setResponse("déjà fait");
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(idempotencyRecordRepository.findByUserEmailAndIdempotencyKey("john@gmail.com", "k1")).thenReturn(Optional.of(stored));
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_shouldReleaseKeyWhenActionFails() {
+        log.info("execute_shouldReleaseKeyWhenActionFails");
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1",
+                () -> { throw new IllegalStateException("refusé"); }));
+
+        verify(transactionManager).rollback(any());
+        verify(idempotencyRecordRepository).releasePending(1L);
+        verify(idempotencyRecordRepository, never()).complete(any(), any());
+        // la clé libérée peut être réutilisée
+        assertEquals("résultat 1", idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action));
+    }
+
+    @Test
+    void execute_shouldKeepKeyPendingWhenCommitOutcomeIsUnknown() {
+        log.info("execute_shouldKeepKeyPendingWhenCommitOutcomeIsUnknown");
+        doThrow(new TransactionSystemException("connexion perdue")).when(transactionManager).commit(any());
+
+        assertThrows(TransactionSystemException.class,
+                () -> idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action));
+
+        // le virement a peut-être été commité : la clé n'est pas libérée, un nouvel essai reçoit 409
+        verify(idempotencyRecordRepository, never()).releasePending(any());
+    }
+
+    @Test
+    void execute_shouldRollbackWhenReservationWasTakenOver() {
+        log.info("execute_shouldRollbackWhenReservationWasTakenOver");
+        when(idempotencyRecordRepository.complete(1L, "résultat 1")).thenReturn(0);
+
+        assertThrows(IdempotencyConflictException.class,
+                () -> idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action));
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void execute_shouldTakeOverAbandonedPendingKey() {
+        log.info("execute_shouldTakeOverAbandonedPendingKey");
+        IdempotencyRecord abandoned = new IdempotencyRecord("john@gmail.com", "k1", "TRANSFER", null);
+        abandoned.setId(42L);
+        abandoned.setCreatedAt(LocalDateTime.now().minusMinutes(5));
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate"))
+                .thenAnswer(inv -> {
+                    IdempotencyRecord record = inv.getArgument(0);
+                    record.setId(43L);
+                    return record;
+                });
+        when(idempotencyRecordRepository.findByUserEmailAndIdempotencyKey("john@gmail.com", "k1")).thenReturn(Optional.of(abandoned));
+        when(idempotencyRecordRepository.releasePending(42L)).thenReturn(1);
+
+        assertEquals("résultat 1", idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action));
+        assertEquals(1, executions.get());
+        verify(idempotencyRecordRepository).complete(43L, "résultat 1");
+    }
+
+    @Test
+    void execute_shouldEvictLeastRecentlyUsedEntries() {
+        log.info("execute_shouldEvictLeastRecentlyUsedEntries");
+        idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action);
+        idempotencyService.execute("k2", "john@gmail.com", "TRANSFER", "r1", this::action);
+        idempotencyService.execute("k3", "john@gmail.com", "TRANSFER", "r1", this::action);
+
+        // k1 est sorti du cache (2 entrées) : la base est interrogée
+        String firstHash = requestHash("k1");
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        IdempotencyRecord stored = new IdempotencyRecord("john@gmail.com", "k1", "TRANSFER", firstHash);
+        stored.setStatus(IdempotencyRecord.Status.COMPLETED);
+        stored.setResponse("résultat 1");
+        when(idempotencyRecordRepository.findByUserEmailAndIdempotencyKey("john@gmail.com", "k1")).thenReturn(Optional.of(stored));
+
+        assertEquals("résultat 1", idempotencyService.execute("k1", "john@gmail.com", "TRANSFER", "r1", this::action));
+        assertEquals(3, executions.get());
+    }
+
+    @Test
+    void purgeExpired_shouldDeleteRecordsOlderThanTtl() {
+        log.info("purgeExpired_shouldDeleteRecordsOlderThanTtl");
+        when(idempotencyRecordRepository.deleteCreatedBefore(any(LocalDateTime.class))).thenReturn(3);
+
+        idempotencyService.purgeExpired();
+
+        verify(idempotencyRecordRepository).deleteCreatedBefore(argThat(threshold ->
+                threshold.isBefore(LocalDateTime.now().minusSeconds(59))));
+    }
+}
@@ -0,0 +1,212 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.dto.AccountCredit;
+import com.openclassrooms.paymybuddy.entity.LedgerEntry;
+import com.openclassrooms.paymybuddy.entity.SubBalance;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.money.Money;
+import com.openclassrooms.paymybuddy.repository.LedgerEntryRepository;
+import com.openclassrooms.paymybuddy.repository.SubBalanceRepository;
+import com.openclassrooms.paymybuddy.repository.TransferBatchRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AccountLockManager;
+import com.openclassrooms.paymybuddy.service.serviceImpl.HotAccountServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.LedgerServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+class LedgerServiceImplTest {
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TransferBatchRepository transferBatchRepository;
+
+    @Mock
+    private SubBalanceRepository subBalanceRepository;
+
+    @Spy
+    private AccountLockManager accountLockManager = new AccountLockManager(16, 100, new SimpleMeterRegistry());
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<LedgerEntry>> entriesCaptor;
+
+    @InjectMocks
+    private LedgerServiceImpl ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    void getAvailableBalance_shouldReturnProjectionPlusPendingEntries() {
+        log.info("getAvailableBalance_shouldReturnProjectionPlusPendingEntries");
+        when(ledgerEntryRepository.findAvailableBalance(1L)).thenReturn(Optional.of(12_050L));
+        assertEquals(Money.eur(12_050), ledgerService.getAvailableBalance(1L));
+    }
+
+    @Test
+    void getAvailableBalance_shouldThrowWhenUserNotFound() {
+        log.info("getAvailableBalance_shouldThrowWhenUserNotFound");
+        when(ledgerEntryRepository.findAvailableBalance(99L)).thenReturn(Optional.empty());
+        assertThrows(UserNotFoundException.class, () -> ledgerService.getAvailableBalance(99L));
+    }
+
+    @Test
+    void recordTransfer_shouldWriteBalancedDoubleEntries() {
+        log.info("recordTransfer_shouldWriteBalancedDoubleEntries");
+        ledgerService.recordTransfer(1L, 2L, null, 10L, Money.eur(10_000), Money.eur(50));
+
+        verify(transferBatchRepository).insertLedgerEntries(entriesCaptor.capture());
+        List<LedgerEntry> entries = entriesCaptor.getValue();
+
+        assertEquals(4, entries.size());
+        assertEquals(0, entries.stream().mapToLong(LedgerEntry::signedAmount).sum());
+        assertEquals(-10_050, entries.stream().filter(e -> Long.valueOf(1L).equals(e.getUserId()))
+                .mapToLong(LedgerEntry::signedAmount).sum());
+        assertEquals(10_000, entries.stream().filter(e -> Long.valueOf(2L).equals(e.getUserId()))
+                .mapToLong(LedgerEntry::signedAmount).sum());
+        assertTrue(entries.stream().anyMatch(e -> e.getAccount() == LedgerEntry.Account.FEES
+                && e.getDirection() == LedgerEntry.Direction.CREDIT && Money.eur(50).equals(e.getAmount())));
+        assertTrue(entries.stream().allMatch(e -> Long.valueOf(10L).equals(e.getTransactionId())));
+    }
+
+    @Test
+    void recordTopUp_shouldCreditUserFromExternalAccount() {
+        log.info("recordTopUp_shouldCreditUserFromExternalAccount");
+        ledgerService.recordTopUp(1L, Money.eur(5_000));
+
+        verify(transferBatchRepository).insertLedgerEntries(entriesCaptor.capture());
+        List<LedgerEntry> entries = entriesCaptor.getValue();
+
+        assertEquals(2, entries.size());
+        assertEquals(LedgerEntry.Account.EXTERNAL, entries.get(0).getAccount());
+        assertEquals(5_000, entries.get(1).signedAmount());
+        assertEquals(LedgerEntry.Type.TOP_UP, entries.get(1).getType());
+    }
+
+    @Test
+    void recordTopUps_shouldWriteOneBatchForAllCredits() {
+        log.info("recordTopUps_shouldWriteOneBatchForAllCredits");
+        ledgerService.recordTopUps(List.of(new AccountCredit(1L, Money.eur(1_000)), new AccountCredit(2L, Money.eur(250))));
+
+        verify(transferBatchRepository).insertLedgerEntries(entriesCaptor.capture());
+        List<LedgerEntry> entries = entriesCaptor.getValue();
+
+        assertEquals(4, entries.size());
+        assertEquals(0, entries.stream().mapToLong(LedgerEntry::signedAmount).sum());
+        assertTrue(entries.stream().allMatch(e -> e.getType() == LedgerEntry.Type.TOP_UP));
+        assertEquals(250, entries.stream().filter(e -> Long.valueOf(2L).equals(e.getUserId()))
+                .mapToLong(LedgerEntry::signedAmount).sum());
+    }
+
+    @Test
+    void compactAccount_shouldFoldPendingEntriesIntoBalance() {
+        log.info("compactAccount_shouldFoldPendingEntriesIntoBalance");
+        when(userRepository.findLedgerPositionById(1L)).thenReturn(Optional.of(5L));
+        when(ledgerEntryRepository.findLastEntryId(1L)).thenReturn(Optional.of(12L));
+        when(ledgerEntryRepository.sumUserEntries(1L, 5L, 12L)).thenReturn(-4_200L);
+        when(userRepository.applyLedger(1L, -4_200L, 5L, 12L)).thenReturn(1);
+
+        assertTrue(ledgerService.compactAccount(1L));
+        verify(accountLockManager).executeWithLocks(any(), eq(1L));
+    }
+
+    @Test
+    void compactAccount_shouldDoNothingWhenUpToDate() {
+        log.info("compactAccount_shouldDoNothingWhenUpToDate");
+        when(userRepository.findLedgerPositionById(1L)).thenReturn(Optional.of(12L));
+        when(ledgerEntryRepository.findLastEntryId(1L)).thenReturn(Optional.of(12L));
+
+        assertFalse(ledgerService.compactAccount(1L));
+        verify(userRepository, never()).applyLedger(anyLong(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void compact_shouldProcessAccountsWithPendingEntries() {
+        log.info("compact_shouldProcessAccountsWithPendingEntries");
+        when(ledgerEntryRepository.findAccountsToCompact(anyInt())).thenReturn(List.of(1L, 2L));
+        when(userRepository.findLedgerPositionById(anyLong())).thenReturn(Optional.of(0L));
+        when(ledgerEntryRepository.findLastEntryId(anyLong())).thenReturn(Optional.of(3L));
+        when(ledgerEntryRepository.sumUserEntries(anyLong(), eq(0L), eq(3L))).thenReturn(1_000L);
+        when(userRepository.applyLedger(anyLong(), eq(1_000L), eq(0L), eq(3L))).thenReturn(1);
+
+        ledgerService.compact();
+
+        verify(userRepository).applyLedger(1L, 1_000L, 0L, 3L);
+        verify(userRepository).applyLedger(2L, 1_000L, 0L, 3L);
+    }
+
+    @Test
+    void recordTransfers_shouldCreditSubBalanceSlotOfHotReceiver() {
+        log.info("recordTransfers_shouldCreditSubBalanceSlotOfHotReceiver");
+        TransferBatchRepository.TransactionRow row = new TransferBatchRepository.TransactionRow(
+                2L, "Café", Money.eur(1_000), Money.eur(1_000), Money.eur(5));
+
+        ledgerService.recordTransfers(1L, List.of(row), List.of(10L), Map.of(2L, 3));
+
+        verify(transferBatchRepository).insertLedgerEntries(entriesCaptor.capture());
+        List<LedgerEntry> entries = entriesCaptor.getValue();
+        assertEquals(3, entries.stream().filter(e -> Long.valueOf(2L).equals(e.getUserId()))
+                .findFirst().orElseThrow().getSubBalanceSlot());
+        // les débits de l'expéditeur restent sur son solde principal
+        assertTrue(entries.stream().filter(e -> Long.valueOf(1L).equals(e.getUserId()))
+                .allMatch(e -> e.getSubBalanceSlot() == null));
+    }
+
+    @Test
+    void compactSubBalance_shouldFoldSlotEntriesUnderSlotLock() {
+        log.info("compactSubBalance_shouldFoldSlotEntriesUnderSlotLock");
+        when(subBalanceRepository.findLedgerPosition(1L, 2)).thenReturn(Optional.of(5L));
+        when(ledgerEntryRepository.findLastSubBalanceEntryId(1L, 2)).thenReturn(Optional.of(9L));
+        when(ledgerEntryRepository.sumSubBalanceEntries(1L, 2, 5L, 9L)).thenReturn(3_000L);
+        when(subBalanceRepository.applyLedger(1L, 2, 3_000L, 5L, 9L)).thenReturn(1);
+
+        assertTrue(ledgerService.compactSubBalance(1L, 2));
+        verify(accountLockManager).executeWithLocks(any(), eq(HotAccountServiceImpl.lockKey(1L, 2)));
+        verify(userRepository, never()).applyLedger(anyLong(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void foldSubBalances_shouldMoveSubBalancesIntoMainBalance() {
+        log.info("foldSubBalances_shouldMoveSubBalancesIntoMainBalance");
+        when(subBalanceRepository.findSlotsToFold()).thenReturn(List.of(new SubBalance(1L, 0), new SubBalance(1L, 1)));
+        when(subBalanceRepository.findBalance(1L, 0)).thenReturn(Optional.of(2_500L));
+        when(subBalanceRepository.findBalance(1L, 1)).thenReturn(Optional.of(0L));
+
+        ledgerService.foldSubBalances();
+
+        verify(subBalanceRepository).withdraw(1L, 0, 2_500L);
+        verify(userRepository).depositSubBalance(1L, 2_500L);
+        verify(subBalanceRepository, never()).withdraw(eq(1L), eq(1), anyLong());
+    }
+}
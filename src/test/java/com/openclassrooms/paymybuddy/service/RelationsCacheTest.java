@@ -0,0 +1,89 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.service.serviceImpl.RelationsCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class RelationsCacheTest {
+
+    private static final ConnectionCard JANE = new ConnectionCard(2L, "Jane", "jane@gmail.com");
+    private static final ConnectionCard PAUL = new ConnectionCard(3L, "Paul", "paul@gmail.com");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private RelationsCache cache(boolean enabled) {
+        return new RelationsCache(enabled, 10, 60_000, meterRegistry);
+    }
+
+    @Test
+    void connectionChanged_shouldEvictBothUsersAfterCommit() {
+        log.info("connectionChanged_shouldEvictBothUsersAfterCommit");
+        RelationsCache cache = cache(true);
+        cache.relations(1L, () -> List.of(JANE));
+        cache.relations(3L, List::of);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.connectionChanged(1L, 3L);
+        // rien tant que la transaction n'est pas commitée
+        assertEquals(List.of(JANE), cache.relations(1L, () -> List.of(JANE, PAUL)));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(List.of(JANE, PAUL), cache.relations(1L, () -> List.of(JANE, PAUL)));
+        assertEquals(1, cache.relations(3L, () -> List.of(new ConnectionCard(1L, "John", "john@gmail.com"))).size());
+        assertEquals(1.0, meterRegistry.counter("paymybuddy.connection.relations.cache", "result", "hit").count());
+    }
+
+    @Test
+    void profileChanged_shouldEvictListsShowingTheUser() {
+        log.info("profileChanged_shouldEvictListsShowingTheUser");
+        RelationsCache cache = cache(true);
+        cache.relations(1L, () -> List.of(JANE, PAUL));
+        cache.relations(4L, () -> List.of(PAUL));
+
+        cache.profileChanged(2L);
+
+        ConnectionCard renamed = new ConnectionCard(2L, "Janine", "jane@gmail.com");
+        assertEquals(List.of(renamed, PAUL), cache.relations(1L, () -> List.of(renamed, PAUL)));
+        assertEquals(List.of(PAUL), cache.relations(4L, List::of));
+    }
+
+    @Test
+    void relations_shouldNotCacheListLoadedWhileConnectionChanged() {
+        log.info("relations_shouldNotCacheListLoadedWhileConnectionChanged");
+        RelationsCache cache = cache(true);
+
+        assertEquals(List.of(JANE), cache.relations(1L, () -> {
+            cache.connectionChanged(1L, 3L);
+            return List.of(JANE);
+        }));
+
+        assertEquals(List.of(JANE, PAUL), cache.relations(1L, () -> List.of(JANE, PAUL)));
+        assertEquals(List.of(JANE, PAUL), cache.relations(1L, List::of));
+    }
+
+    @Test
+    void relations_shouldAlwaysLoadWhenDisabled() {
+        log.info("relations_shouldAlwaysLoadWhenDisabled");
+        RelationsCache cache = cache(false);
+
+        cache.relations(1L, () -> List.of(JANE));
+        assertEquals(List.of(), cache.relations(1L, List::of));
+    }
+}
@@ -0,0 +1,230 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.dto.DueTransfer;
+import com.openclassrooms.paymybuddy.dto.ScheduledTransferRequest;
+import com.openclassrooms.paymybuddy.dto.TransferRequest;
+import com.openclassrooms.paymybuddy.dto.TransferResult;
+import com.openclassrooms.paymybuddy.entity.ScheduledTransfer;
+import com.openclassrooms.paymybuddy.exception.AccountLockTimeoutException;
+import com.openclassrooms.paymybuddy.repository.ScheduledTransferRepository;
+import com.openclassrooms.paymybuddy.repository.TransferBatchRepository;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraphServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ScheduledTransferServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+class ScheduledTransferServiceImplTest {
+
+    private static final LocalDateTime FIRST = LocalDateTime.of(2026, 1, 31, 8, 0);
+
+    private ScheduledTransferRepository scheduledTransferRepository;
+    private UserRepository userRepository;
+    private TransactionServiceImpl transactionService;
+    private ConnectionGraphServiceImpl connectionGraph;
+    private TransferBatchRepository transferBatchRepository;
+    private PlatformTransactionManager transactionManager;
+    private ScheduledTransferServiceImpl scheduledTransferService;
+
+    @BeforeEach
+    void setUp() {
+        scheduledTransferRepository = mock(ScheduledTransferRepository.class);
+        userRepository = mock(UserRepository.class);
+        transactionService = mock(TransactionServiceImpl.class);
+        connectionGraph = mock(ConnectionGraphServiceImpl.class);
+        transferBatchRepository = mock(TransferBatchRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        scheduledTransferService = new ScheduledTransferServiceImpl(scheduledTransferRepository, userRepository,
+                transactionService, connectionGraph, transferBatchRepository, transactionManager, 2, 2);
+
+        when(transferBatchRepository.advanceSchedules(anyList()))
+                .thenAnswer(inv -> Collections.nCopies(inv.<List<?>>getArgument(0).size(), 1)
+                        .stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduledTransferService.shutdown();
+    }
+
+    private static DueTransfer due(long id, long senderId, ScheduledTransfer.Frequency frequency, int runCount) {
+        return new DueTransfer(id, senderId, "sender" + senderId + "@gmail.com", "owner@gmail.com", 80_000, "EUR",
+                "Loyer", frequency, FIRST, runCount, frequency.occurrence(FIRST, runCount));
+    }
+
+    private static List<TransferResult> accepted(int count) {
+        List<TransferResult> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(TransferResult.accepted(i, "owner@gmail.com", new BigDecimal("4.00")));
+        }
+        return results;
+    }
+
+    @Test
+    void runDue_shouldExecuteEachSenderInOneBatchAndAdvanceSchedules() {
+        log.info("runDue_shouldExecuteEachSenderInOneBatchAndAdvanceSchedules");
+        when(scheduledTransferRepository.findDue(any(), eq(0L), eq(Limit.of(2))))
+                .thenReturn(List.of(due(1, 10, ScheduledTransfer.Frequency.MONTHLY, 0),
+                        due(2, 10, ScheduledTransfer.Frequency.MONTHLY, 0)));
+        when(scheduledTransferRepository.findDue(any(), eq(2L), eq(Limit.of(2))))
+                .thenReturn(List.of(due(3, 20, ScheduledTransfer.Frequency.ONCE, 0)));
+        when(transactionService.makeTransactions(eq("sender10@gmail.com"), anyList())).thenReturn(accepted(2));
+        when(transactionService.makeTransactions(eq("sender20@gmail.com"), anyList()))
+                .thenReturn(List.of(TransferResult.rejected(0, "owner@gmail.com", "Solde insuffisant")));
+
+        scheduledTransferService.runDue();
+
+        ArgumentCaptor<List<TransferRequest>> requests = ArgumentCaptor.captor();
+        verify(transactionService).makeTransactions(eq("sender10@gmail.com"), requests.capture());
+        assertEquals(2, requests.getValue().size());
+        assertEquals(0, new BigDecimal("800.00").compareTo(requests.getValue().get(0).amount()));
+
+        ArgumentCaptor<List<TransferBatchRepository.ScheduleRun>> runs = ArgumentCaptor.captor();
+        verify(transferBatchRepository, times(2)).advanceSchedules(runs.capture());
+        // ordre des workers indéterminé
+        TransferBatchRepository.ScheduleRun once = runs.getAllValues().stream().flatMap(List::stream)
+                .filter(run -> run.id() == 3).findFirst().orElseThrow();
+        assertFalse(once.active());
+        assertEquals("REFUSE", once.status());
+        assertEquals("Solde insuffisant", once.message());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void runDue_shouldBoundLockedAccountsPerCommit() {
+        log.info("runDue_shouldBoundLockedAccountsPerCommit");
+        // 40 bénéficiaires distincts : 31 + 9 virements, l'expéditeur verrouillé dans chaque commit
+        List<DueTransfer> dues = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            DueTransfer due = due(i + 1, 10, ScheduledTransfer.Frequency.MONTHLY, 0);
+            dues.add(new DueTransfer(due.id(), due.senderId(), due.senderEmail(), "owner" + i + "@gmail.com",
+                    due.amount(), due.currency(), due.description(), due.frequency(), due.firstRunAt(),
+                    due.runCount(), due.nextRunAt()));
+        }
+        when(scheduledTransferRepository.findDue(any(), eq(0L), any())).thenReturn(dues);
+        when(transactionService.makeTransactions(anyString(), anyList()))
+                .thenAnswer(inv -> accepted(inv.<List<?>>getArgument(1).size()));
+
+        scheduledTransferService.runDue();
+
+        ArgumentCaptor<List<TransferRequest>> requests = ArgumentCaptor.captor();
+        verify(transactionService, times(2)).makeTransactions(eq("sender10@gmail.com"), requests.capture());
+        assertEquals(List.of(31, 9), requests.getAllValues().stream().map(List::size).toList());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void runDue_shouldLeaveSchedulesDueWhenAccountIsBusy() {
+        log.info("runDue_shouldLeaveSchedulesDueWhenAccountIsBusy");
+        when(scheduledTransferRepository.findDue(any(), eq(0L), any()))
+                .thenReturn(List.of(due(1, 10, ScheduledTransfer.Frequency.MONTHLY, 0)));
+        when(transactionService.makeTransactions(anyString(), anyList()))
+                .thenThrow(new AccountLockTimeoutException("Le compte est occupé"));
+
+        scheduledTransferService.runDue();
+
+        verify(transferBatchRepository, never()).advanceSchedules(anyList());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void runDue_shouldRollbackWhenScheduleAlreadyAdvanced() {
+        log.info("runDue_shouldRollbackWhenScheduleAlreadyAdvanced");
+        when(scheduledTransferRepository.findDue(any(), eq(0L), any()))
+                .thenReturn(List.of(due(1, 10, ScheduledTransfer.Frequency.MONTHLY, 0)));
+        when(transactionService.makeTransactions(anyString(), anyList())).thenReturn(accepted(1));
+        when(transferBatchRepository.advanceSchedules(anyList())).thenReturn(new int[]{0});
+
+        scheduledTransferService.runDue();
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void nextRun_shouldKeepMonthlyAnchorDay() {
+        log.info("nextRun_shouldKeepMonthlyAnchorDay");
+        TransferResult ok = TransferResult.accepted(0, "owner@gmail.com", BigDecimal.ZERO);
+
+        TransferBatchRepository.ScheduleRun february = ScheduledTransferServiceImpl.nextRun(
+                due(1, 10, ScheduledTransfer.Frequency.MONTHLY, 0), ok, FIRST);
+        assertEquals(LocalDateTime.of(2026, 2, 28, 8, 0), february.nextRunAt());
+
+        TransferBatchRepository.ScheduleRun march = ScheduledTransferServiceImpl.nextRun(
+                due(1, 10, ScheduledTransfer.Frequency.MONTHLY, 1), ok, february.nextRunAt());
+        assertEquals(LocalDateTime.of(2026, 3, 31, 8, 0), march.nextRunAt());
+        assertEquals(2, march.runCount());
+        assertEquals(LocalDateTime.of(2026, 2, 28, 8, 0), march.expectedRunAt());
+    }
+
+    @Test
+    void nextRun_shouldSkipOccurrencesMissedWhileStopped() {
+        log.info("nextRun_shouldSkipOccurrencesMissedWhileStopped");
+        TransferBatchRepository.ScheduleRun run = ScheduledTransferServiceImpl.nextRun(
+                due(1, 10, ScheduledTransfer.Frequency.WEEKLY, 0),
+                TransferResult.accepted(0, "owner@gmail.com", BigDecimal.ZERO), FIRST.plusDays(20));
+
+        assertEquals(FIRST.plusWeeks(3), run.nextRunAt());
+        assertEquals(3, run.runCount());
+        assertTrue(run.active());
+    }
+
+    @Test
+    void schedule_shouldRejectReceiverOutsideConnections() {
+        log.info("schedule_shouldRejectReceiverOutsideConnections");
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail("owner@gmail.com")).thenReturn(Optional.of(2L));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> scheduledTransferService.schedule("sender@gmail.com",
+                new ScheduledTransferRequest("owner@gmail.com", new BigDecimal("800"), "EUR", "Loyer",
+                        ScheduledTransfer.Frequency.MONTHLY, null)));
+        verify(scheduledTransferRepository, never()).save(any());
+    }
+
+    @Test
+    void schedule_shouldSaveFirstOccurrence() {
+        log.info("schedule_shouldSaveFirstOccurrence");
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail("owner@gmail.com")).thenReturn(Optional.of(2L));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(true);
+        when(scheduledTransferRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        LocalDateTime firstRunAt = LocalDateTime.now().plusDays(3);
+
+        ScheduledTransfer saved = scheduledTransferService.schedule("sender@gmail.com",
+                new ScheduledTransferRequest("owner@gmail.com", new BigDecimal("800"), "eur", "Loyer",
+                        ScheduledTransfer.Frequency.MONTHLY, firstRunAt));
+
+        assertEquals(80_000, saved.getAmount());
+        assertEquals("EUR", saved.getCurrency());
+        assertEquals(firstRunAt, saved.getNextRunAt());
+        assertTrue(saved.isActive());
+    }
+
+    @Test
+    void cancel_shouldThrowWhenScheduleNotOwned() {
+        log.info("cancel_shouldThrowWhenScheduleNotOwned");
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(scheduledTransferRepository.deactivate(5L, 1L)).thenReturn(0);
+
+        assertThrows(IllegalArgumentException.class, () -> scheduledTransferService.cancel("sender@gmail.com", 5L));
+    }
+}
@@ -1,6 +1,5 @@
 package com.openclassrooms.paymybuddy.service;
 
-import com.openclassrooms.paymybuddy.service.serviceImpl.CurrencyServiceImpl;
 import com.openclassrooms.paymybuddy.service.serviceImpl.CustomUserDetailsService;
 import com.openclassrooms.paymybuddy.service.serviceImpl.SecurityValidationImpl;
 import lombok.extern.slf4j.Slf4j;
@@ -9,6 +8,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import com.openclassrooms.paymybuddy.entity.User;
 import com.openclassrooms.paymybuddy.exception.InsufficientBalanceException;
 import com.openclassrooms.paymybuddy.exception.InvalidPasswordException;
+import com.openclassrooms.paymybuddy.money.Money;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.BeforeEach;
@@ -30,9 +30,6 @@ import static org.mockito.Mockito.*;
 @Slf4j
 public class SecurityValidationImplTest {
 
-    @Mock
-    private CurrencyServiceImpl currencyService;
-
     @Mock
     private CustomUserDetailsService customUserDetailsService;
 
@@ -46,16 +43,12 @@ public class SecurityValidationImplTest {
     private SecurityValidationImpl securityValidation;
 
     private User testUser;
-    private User testReceiver;
 
     @BeforeEach
     void setUp() {
         testUser = new User();
+        testUser.setId(1L);
         testUser.setEmail("user@gmail.com");
-        testUser.setBalance(100.0);
-
-        testReceiver = new User();
-        testReceiver.setEmail("receiver@gmail.com");
     }
 
     @Test
@@ -99,114 +92,33 @@ public class SecurityValidationImplTest {
     }
 
     @Test
-    void validateTransaction_shouldNotThrowWhenValid() throws InsufficientBalanceException {
-        log.info("testValidateTransaction_shouldNotThrowWhenValid");
-        // Arrange
-        testUser.getConnections().add(testReceiver);
-        when(currencyService.convertToEur(100.0, "USD")).thenReturn(85.0);
-
-        // Act & Assert
-        assertDoesNotThrow(() ->
-                securityValidation.validateTransaction(testUser, testReceiver, 100.0, "USD"));
-    }
-
-    @Test
-    void validateTransaction_shouldThrowWhenSenderEqualsReceiver() {
-        log.info("testValidateTransaction_shouldThrowWhenSenderEqualsReceiver");
-        // Act & Assert
-        assertThrows(IllegalArgumentException.class, () ->
-                securityValidation.validateTransaction(testUser, testUser, 100.0, "EUR"));
+    void validateTransactionRequest_shouldNotThrowWhenValid() {
+        log.info("validateTransactionRequest_shouldNotThrowWhenValid");
+        assertDoesNotThrow(() -> securityValidation.validateTransactionRequest(1L, 2L, Money.of("100", "USD")));
     }
 
     @Test
-    void validateTransaction_shouldThrowWhenAmountNotPositive() {
-        log.info("testValidateTransaction_shouldThrowWhenAmountNotPositive");
-        // Act & Assert
+    void validateTransactionRequest_shouldThrowWhenInvalid() {
+        log.info("validateTransactionRequest_shouldThrowWhenInvalid");
         assertThrows(IllegalArgumentException.class, () ->
-                securityValidation.validateTransaction(testUser, testReceiver, 0.0, "EUR"));
+                securityValidation.validateTransactionRequest(null, 2L, Money.of("100", Money.EUR)));
         assertThrows(IllegalArgumentException.class, () ->
-                securityValidation.validateTransaction(testUser, testReceiver, -100.0, "EUR"));
-    }
-
-    @Test
-    void validateTransaction_shouldThrowWhenNotConnected() {
-        log.info("testValidateTransaction_shouldThrowWhenNotConnected");
-        // Act & Assert
-        assertThrows(IllegalStateException.class, () ->
-                securityValidation.validateTransaction(testUser, testReceiver, 100.0, "EUR"));
-    }
-
-    @Test
-    void validateTransaction_shouldThrowWhenInsufficientBalance() {
-        log.info("testValidateTransaction_shouldThrowWhenInsufficientBalance");
-        // Arrange
-        testUser.getConnections().add(testReceiver);
-        when(currencyService.convertToEur(1000.0, "USD")).thenReturn(850.0);
-        testUser.setBalance(100.0);
-
-        // Act & Assert
-        InsufficientBalanceException exception = assertThrows(InsufficientBalanceException.class, () ->
-                securityValidation.validateTransaction(testUser, testReceiver, 1000.0, "USD"));
-
-        assertTrue(exception.getMessage().contains("Solde insuffisant"));
-    }
-
-    @Test
-    void validateTransaction_shouldThrowWhenSenderIsNull() {
-        log.info("testValidateTransaction_shouldThrowWhenSenderIsNull");
-        // Act & Assert
-        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
-                securityValidation.validateTransaction(null, testReceiver, 100.0, "EUR"));
-        assertEquals("L'expéditeur et le destinataire doivent être spécifiés", exception.getMessage());
-    }
-
-    @Test
-    void validateTransaction_shouldThrowWhenReceiverIsNull() {
-        log.info("testValidateTransaction_shouldThrowWhenReceiverIsNull");
-        // Act & Assert
-        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
-                securityValidation.validateTransaction(testUser, null, 100.0, "EUR"));
-        assertEquals("L'expéditeur et le destinataire doivent être spécifiés", exception.getMessage());
-    }
-
-    @Test
-    void validateTransaction_shouldThrowWhenCurrencyIsNull() {
-        log.info("testValidateTransaction_shouldThrowWhenCurrencyIsNull");
-
-        // Arrange
-        testUser.getConnections().add(testReceiver);
-
-        // Act & Assert
-        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
-                securityValidation.validateTransaction(testUser, testReceiver, 100.0, null));
-        assertEquals("Devise invalide", exception.getMessage());
-    }
-
-    @Test
-    void validateTransaction_shouldThrowWhenCurrencyLengthNot3() {
-        log.info("testValidateTransaction_shouldThrowWhenCurrencyLengthNot3");
-        // Arrange
-        testUser.getConnections().add(testReceiver);
-
-        // Test avec devise trop courte
+                securityValidation.validateTransactionRequest(1L, 1L, Money.of("100", Money.EUR)));
         assertThrows(IllegalArgumentException.class, () ->
-                securityValidation.validateTransaction(testUser, testReceiver, 100.0, "EU"));
-
-        // Test avec devise trop longue
+                securityValidation.validateTransactionRequest(1L, 2L, Money.ZERO_EUR));
         assertThrows(IllegalArgumentException.class, () ->
-                securityValidation.validateTransaction(testUser, testReceiver, 100.0, "EURO"));
+                securityValidation.validateTransactionRequest(1L, 2L, Money.ofMinor(10000, "EURO")));
     }
 
     @Test
-    void validateTransaction_shouldAcceptValid3LetterCurrency() throws InsufficientBalanceException {
-        log.info("testValidateTransaction_shouldAcceptValid3LetterCurrency");
-        // Arrange
-        testUser.getConnections().add(testReceiver);
-        when(currencyService.convertToEur(100.0, "USD")).thenReturn(85.0);
+    void insufficientBalance_shouldDescribeAmountAndFees() {
+        log.info("insufficientBalance_shouldDescribeAmountAndFees");
+        InsufficientBalanceException exception = securityValidation.insufficientBalance(
+                Money.of("100", "USD"), Money.of("85", Money.EUR), Money.eur(43));
 
-        // Act & Assert
-        assertDoesNotThrow(() ->
-                securityValidation.validateTransaction(testUser, testReceiver, 100.0, "USD"));
+        assertTrue(exception.getMessage().contains("85.43 EUR"));
+        assertTrue(exception.getMessage().contains("100.00 USD"));
+        assertTrue(exception.getMessage().contains("0.43 EUR de frais"));
     }
 
     @Test
@@ -0,0 +1,124 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionCountCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@Slf4j
+class TransactionCountCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private TransactionCountCache cache(boolean enabled, int maxUsers) {
+        return new TransactionCountCache(enabled, maxUsers, 60_000, transactionManager, meterRegistry);
+    }
+
+    @Test
+    void count_shouldLoadOnceThenServeFromCache() {
+        log.info("count_shouldLoadOnceThenServeFromCache");
+        TransactionCountCache cache = cache(true, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(12, cache.count(1L, () -> 12 + loads.getAndIncrement()));
+        assertEquals(12, cache.count(1L, () -> 12 + loads.getAndIncrement()));
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.counter("paymybuddy.transaction.count.cache", "result", "hit").count());
+    }
+
+    @Test
+    void recordTransfers_shouldIncrementSenderAndReceiversAfterCommit() {
+        log.info("recordTransfers_shouldIncrementSenderAndReceiversAfterCommit");
+        TransactionCountCache cache = cache(true, 10);
+        cache.count(1L, () -> 5);
+        cache.count(2L, () -> 3);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.recordTransfers(1L, List.of(2L, 2L, 3L));
+        // rien tant que la transaction n'est pas commitée
+        assertEquals(5, cache.count(1L, () -> -1));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(8, cache.count(1L, () -> -1));
+        assertEquals(5, cache.count(2L, () -> -1));
+        // destinataire absent du cache : rien à incrémenter, il sera compté à la prochaine lecture
+        assertEquals(42, cache.count(3L, () -> 42));
+    }
+
+    @Test
+    void count_shouldNotCacheResultLoadedWhileTransferCommitted() {
+        log.info("count_shouldNotCacheResultLoadedWhileTransferCommitted");
+        TransactionCountCache cache = cache(true, 10);
+
+        // un virement commité pendant le COUNT : le résultat peut déjà l'inclure ou non
+        assertEquals(5, cache.count(1L, () -> {
+            cache.recordTransfers(1L, List.of(2L));
+            return 5;
+        }));
+
+        assertEquals(6, cache.count(1L, () -> 6));
+        assertEquals(6, cache.count(1L, () -> -1));
+    }
+
+    @Test
+    void count_shouldLoadInItsOwnReadCommittedTransaction() {
+        log.info("count_shouldLoadInItsOwnReadCommittedTransaction");
+        TransactionCountCache cache = cache(true, 10);
+
+        assertEquals(5, cache.count(1L, () -> 5));
+
+        // instantané ouvert après la lecture de la version, pas celui de la transaction appelante
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW
+                        && definition.getIsolationLevel() == TransactionDefinition.ISOLATION_READ_COMMITTED));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void count_shouldEvictLeastRecentlyUsedUsers() {
+        log.info("count_shouldEvictLeastRecentlyUsedUsers");
+        TransactionCountCache cache = cache(true, 2);
+        cache.count(1L, () -> 1);
+        cache.count(2L, () -> 2);
+        cache.count(1L, () -> -1);
+        cache.count(3L, () -> 3);
+
+        assertEquals(1, cache.count(1L, () -> -1));
+        assertEquals(20, cache.count(2L, () -> 20));
+    }
+
+    @Test
+    void count_shouldAlwaysLoadWhenDisabled() {
+        log.info("count_shouldAlwaysLoadWhenDisabled");
+        TransactionCountCache cache = cache(false, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.count(1L, loads::incrementAndGet);
+        cache.recordTransfers(1L, List.of(2L));
+        assertEquals(2, cache.count(1L, loads::incrementAndGet));
+        assertFalse(cache.isEnabled());
+    }
+}
@@ -0,0 +1,119 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.entity.ProfileNameChange;
+import com.openclassrooms.paymybuddy.repository.HistoricRepository;
+import com.openclassrooms.paymybuddy.repository.ProfileNameChangeRepository;
+import com.openclassrooms.paymybuddy.repository.TransferBatchRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionHistoryServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+class TransactionHistoryServiceImplTest {
+
+    @Mock
+    private TransferBatchRepository transferBatchRepository;
+
+    @Mock
+    private HistoricRepository historicRepository;
+
+    @Mock
+    private ProfileNameChangeRepository profileNameChangeRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionHistoryServiceImpl historyService;
+
+    @BeforeEach
+    void setUp() {
+        historyService = new TransactionHistoryServiceImpl(transferBatchRepository, historicRepository,
+                profileNameChangeRepository, transactionTemplate, 2);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(mock(TransactionStatus.class)));
+    }
+
+    @Test
+    void recordProfileNameChange_shouldSavePendingChange() {
+        log.info("recordProfileNameChange_shouldSavePendingChange");
+
+        historyService.recordProfileNameChange(5L, "Jane");
+
+        ArgumentCaptor<ProfileNameChange> captor = ArgumentCaptor.forClass(ProfileNameChange.class);
+        verify(profileNameChangeRepository).save(captor.capture());
+        assertEquals(5L, captor.getValue().getUserId());
+        assertEquals("Jane", captor.getValue().getProfileName());
+        assertNotNull(captor.getValue().getChangedAt());
+    }
+
+    @Test
+    void propagateProfileNames_shouldRenameInChunksThenDeleteChange() {
+        log.info("propagateProfileNames_shouldRenameInChunksThenDeleteChange");
+        LocalDateTime changedAt = LocalDateTime.of(2026, 1, 1, 12, 0);
+        when(profileNameChangeRepository.findAllByOrderByChangedAt(any(Limit.class)))
+                .thenReturn(List.of(new ProfileNameChange(5L, "Jane", changedAt)));
+        // paquets pleins tant qu'il reste des lignes à renommer
+        when(historicRepository.renameSender(5L, "Jane", 2)).thenReturn(2, 2, 1);
+        when(historicRepository.renameReceiver(5L, "Jane", 2)).thenReturn(0);
+
+        historyService.propagateProfileNames();
+
+        verify(historicRepository, times(3)).renameSender(5L, "Jane", 2);
+        verify(historicRepository, times(1)).renameReceiver(5L, "Jane", 2);
+        verify(transactionTemplate, times(4)).execute(any());
+        verify(profileNameChangeRepository).deleteIfUnchanged(5L, changedAt);
+    }
+
+    @Test
+    void propagateProfileNames_shouldDoNothingWithoutPendingChange() {
+        log.info("propagateProfileNames_shouldDoNothingWithoutPendingChange");
+        when(profileNameChangeRepository.findAllByOrderByChangedAt(any(Limit.class))).thenReturn(List.of());
+
+        historyService.propagateProfileNames();
+
+        verifyNoInteractions(historicRepository);
+        verify(profileNameChangeRepository, never()).deleteIfUnchanged(anyLong(), any());
+    }
+
+    @Test
+    void backfill_shouldCopyEveryIdWindow() {
+        log.info("backfill_shouldCopyEveryIdWindow");
+        when(transferBatchRepository.historyBacklog()).thenReturn(3L);
+        when(transferBatchRepository.maxTransactionId()).thenReturn(5L);
+        when(transferBatchRepository.backfillHistory(anyLong(), anyLong())).thenReturn(1);
+
+        historyService.backfill();
+
+        verify(transferBatchRepository).backfillHistory(0, 2);
+        verify(transferBatchRepository).backfillHistory(2, 4);
+        verify(transferBatchRepository).backfillHistory(4, 5);
+    }
+
+    @Test
+    void backfill_shouldSkipWhenHistoryIsComplete() {
+        log.info("backfill_shouldSkipWhenHistoryIsComplete");
+        when(transferBatchRepository.historyBacklog()).thenReturn(0L);
+
+        historyService.backfill();
+
+        verify(transferBatchRepository, never()).maxTransactionId();
+        verify(transferBatchRepository, never()).backfillHistory(anyLong(), anyLong());
+    }
+}
@@ -0,0 +1,102 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.dto.TransactionView;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nombre de requêtes SQL d'une page de transactions, sur la base H2 embarquée du profil benchmark :
+ * il ne dépend pas de la taille de la page (pas de N+1 sur les destinataires).
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("benchmark")
+class TransactionPageStatementCountTest {
+
+    private static final int ACCOUNTS = 20;
+    private static final int TRANSACTIONS = 500;
+    private static final String EMAIL = "page0@paymybuddy.com";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @BeforeEach
+    void seed() {
+        for (String table : List.of("ledger_entry", "profile_name_change", "transaction_history", "`transaction`", "connection", "user_sub_balance", "`user`")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        List<Object[]> users = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            users.add(new Object[]{"Page " + i, "page" + i + "@paymybuddy.com", "Page#12345"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `user` (`profile_name`, `email`, `password`, `balance`, `ledger_position`) " +
+                "VALUES (?, ?, ?, 0, 0)", users);
+        List<Long> ids = jdbcTemplate.queryForList("SELECT `id` FROM `user` ORDER BY `id`", Long.class);
+
+        // page0 envoie à tous les autres comptes, chacun lui renvoie : des destinataires variés sur chaque page
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Object[]> transactions = new ArrayList<>(TRANSACTIONS);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            Long other = ids.get(1 + i % (ACCOUNTS - 1));
+            boolean sent = i % 2 == 0;
+            transactions.add(new Object[]{sent ? ids.get(0) : other, sent ? other : ids.get(0), "Page", 100 + i, 5, "EUR",
+                    Timestamp.valueOf(start.plusMinutes(i))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `transaction` (`sender_id`, `receiver_id`, `description`, `amount`, `fee`, " +
+                "`currency`, `execution_date`) VALUES (?, ?, ?, ?, ?, ?, ?)", transactions);
+    }
+
+    @Test
+    void transactionPage_shouldRunSameNumberOfStatementsWhateverThePageSize() {
+        log.info("transactionPage_shouldRunSameNumberOfStatementsWhateverThePageSize");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        Sort byAmount = Sort.by(Sort.Direction.DESC, "amount");
+
+        long keyset10 = statements(statistics, () -> transactionService.getUserTransactions(EMAIL, false, null, null, 10).content());
+        long keyset50 = statements(statistics, () -> transactionService.getUserTransactions(EMAIL, false, null, null, 50).content());
+        long slice10 = statements(statistics, () -> transactionService.getUserTransactionsSlice(EMAIL,
+                PageRequest.of(0, 10, byAmount)).getContent());
+        long slice50 = statements(statistics, () -> transactionService.getUserTransactionsSlice(EMAIL,
+                PageRequest.of(0, 50, byAmount)).getContent());
+        log.info("Requêtes SQL par page : curseur {} (10 lignes) / {} (50 lignes), tri par montant {} / {}",
+                keyset10, keyset50, slice10, slice50);
+
+        // id de l'utilisateur, page d'id, lignes avec le nom du destinataire
+        assertEquals(3, keyset10);
+        assertEquals(keyset10, keyset50);
+        assertEquals(slice10, slice50);
+    }
+
+    // requêtes préparées pour une page, noms des destinataires lus comme dans transaction.html
+    private long statements(Statistics statistics, Supplier<List<TransactionView>> page) {
+        statistics.clear();
+        List<TransactionView> rows = page.get();
+        assertFalse(rows.isEmpty());
+        rows.forEach(transaction -> assertNotNull(transaction.receiverName()));
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -1,25 +1,54 @@
 package com.openclassrooms.paymybuddy.service;
 
+import com.openclassrooms.paymybuddy.dto.AccountRef;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
+import com.openclassrooms.paymybuddy.dto.PageCursor;
+import com.openclassrooms.paymybuddy.dto.TransactionView;
+import com.openclassrooms.paymybuddy.dto.TransferRequest;
+import com.openclassrooms.paymybuddy.dto.TransferResult;
 import com.openclassrooms.paymybuddy.entity.Transaction;
 import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.exception.InsufficientBalanceException;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.money.Money;
 import com.openclassrooms.paymybuddy.repository.TransactionRepository;
+import com.openclassrooms.paymybuddy.repository.TransferBatchRepository;
 import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AutocompleteServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AccountLockManager;
+import com.openclassrooms.paymybuddy.repository.FeeRuleRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraphServiceImpl;
 import com.openclassrooms.paymybuddy.service.serviceImpl.CurrencyServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.FeeServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.HotAccountServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.LedgerServiceImpl;
 import com.openclassrooms.paymybuddy.service.serviceImpl.SecurityValidationImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionCountCache;
 import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,14 +63,40 @@ class TransactionServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private TransferBatchRepository transferBatchRepository;
+
     @Mock
     private CurrencyServiceImpl currencyService;
 
+    // barème par défaut (0,5 %) tant qu'aucun palier n'est chargé
+    @Spy
+    private FeeServiceImpl feeService = new FeeServiceImpl(mock(FeeRuleRepository.class));
+
     @Mock
     private SecurityValidationImpl securityValidation;
 
     @Mock
-    private Page<Transaction> transactionPage;
+    private LedgerServiceImpl ledgerService;
+
+    @Mock
+    private HotAccountServiceImpl hotAccountService;
+
+    @Spy
+    private AccountLockManager accountLockManager = new AccountLockManager(16, 100, new SimpleMeterRegistry());
+
+    @Spy
+    private TransactionCountCache countCache = new TransactionCountCache(true, 100, 60_000,
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+
+    @Mock
+    private AutocompleteServiceImpl autocompleteService;
+
+    @Mock
+    private ConnectionGraphServiceImpl connectionGraph;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @Mock
     private Pageable pageable;
@@ -55,25 +110,131 @@ class TransactionServiceImplTest {
     @BeforeEach
     void setUp() {
         sender = new User();
+        sender.setId(1L);
         sender.setEmail("sender@gmail.com");
-        sender.setBalance(1000.0);
+        sender.setBalance(Money.of("1000", Money.EUR));
 
         receiver = new User();
+        receiver.setId(2L);
         receiver.setEmail("receiver@gmail.com");
-        receiver.setBalance(500.0);
+        receiver.setBalance(Money.of("500", Money.EUR));
 
     }
 
     @Test
-    void getUserTransactionsPaginated_shouldReturnPage() {
-        log.info("getUserTransactionsPaginated_shouldReturnPage");
-        when(transactionRepository.findBySenderEmailOrReceiverEmail(anyString(), anyString(), any(Pageable.class)))
-                .thenReturn(transactionPage);
+    void getUserTransactionsPaginated_shouldReadIdPageFromIndexesWhenSortedByDate() {
+        log.info("getUserTransactionsPaginated_shouldReadIdPageFromIndexesWhenSortedByDate");
+        Pageable byDate = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "createdAt"));
+        TransactionView newest = view(9L, null);
+        TransactionView older = view(4L, null);
+        when(userRepository.findIdByEmail("john@gmail.com")).thenReturn(Optional.of(1L));
+        when(transactionRepository.findPageIdsNewestFirst(1L, 5L, 3, 2L)).thenReturn(List.of(9L, 4L));
+        when(transactionRepository.findViewsByIdIn(List.of(9L, 4L))).thenReturn(List.of(older, newest));
+        when(transactionRepository.countByUserId(1L)).thenReturn(7L);
+
+        Page<TransactionView> result = transactionService.getUserTransactionsPaginated("john@gmail.com", byDate);
+        // second affichage : total lu dans le cache des comptages
+        transactionService.getUserTransactionsPaginated("john@gmail.com", byDate);
+
+        // ordre de la page d'id conservé
+        assertEquals(List.of(newest, older), result.getContent());
+        assertEquals(7, result.getTotalElements());
+        verify(transactionRepository, times(1)).countByUserId(1L);
+        verify(transactionRepository, never()).findViewSliceByUserId(anyLong(), any(Pageable.class));
+    }
 
-        Page<Transaction> result = transactionService.getUserTransactionsPaginated("john@gmail.com", pageable);
+    @Test
+    void getUserTransactionsPaginated_shouldReadOldestFirstWhenAscending() {
+        log.info("getUserTransactionsPaginated_shouldReadOldestFirstWhenAscending");
+        Pageable byDate = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "createdAt"));
+        when(userRepository.findIdByEmail("john@gmail.com")).thenReturn(Optional.of(1L));
+        when(transactionRepository.findPageIdsOldestFirst(1L, 11L, 11, 0L)).thenReturn(List.of());
 
-        assertNotNull(result);
-        verify(transactionRepository).findBySenderEmailOrReceiverEmail("john@gmail.com", "john@gmail.com", pageable);
+        Page<TransactionView> result = transactionService.getUserTransactionsPaginated("john@gmail.com", byDate);
+
+        assertTrue(result.isEmpty());
+        verify(transactionRepository, never()).findViewsByIdIn(any());
+    }
+
+    @Test
+    void getUserTransactionsPaginated_shouldUseIdQueryForOtherSorts() {
+        log.info("getUserTransactionsPaginated_shouldUseIdQueryForOtherSorts");
+        Pageable byAmount = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "amount"));
+        when(userRepository.findIdByEmail("john@gmail.com")).thenReturn(Optional.of(1L));
+        TransactionView transaction = view(1L, null);
+        when(transactionRepository.findViewSliceByUserId(1L, byAmount)).thenReturn(new SliceImpl<>(List.of(transaction), byAmount, false));
+
+        Page<TransactionView> result = transactionService.getUserTransactionsPaginated("john@gmail.com", byAmount);
+
+        // page incomplète : le total s'en déduit sans COUNT
+        assertEquals(List.of(transaction), result.getContent());
+        assertEquals(1, result.getTotalElements());
+        verify(transactionRepository, never()).countByUserId(anyLong());
+    }
+
+    @Test
+    void getUserTransactionsSlice_shouldReadOneExtraRowInsteadOfCounting() {
+        log.info("getUserTransactionsSlice_shouldReadOneExtraRowInsteadOfCounting");
+        doReturn(false).when(countCache).isEnabled();
+        Pageable byDate = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "createdAt"));
+        TransactionView first = view(9L, null);
+        TransactionView second = view(7L, null);
+        TransactionView extra = view(4L, null);
+        when(userRepository.findIdByEmail("john@gmail.com")).thenReturn(Optional.of(1L));
+        when(transactionRepository.findPageIdsNewestFirst(1L, 3L, 3, 0L)).thenReturn(List.of(9L, 7L, 4L));
+        when(transactionRepository.findViewsByIdIn(List.of(9L, 7L, 4L))).thenReturn(List.of(extra, second, first));
+
+        Slice<TransactionView> result = transactionService.getUserTransactionsSlice("john@gmail.com", byDate);
+
+        assertFalse(result instanceof Page);
+        assertEquals(List.of(first, second), result.getContent());
+        assertTrue(result.hasNext());
+        verify(transactionRepository, never()).countByUserId(anyLong());
+    }
+
+    @Test
+    void getUserTransactionsPaginated_shouldThrowWhenUserNotFound() {
+        log.info("getUserTransactionsPaginated_shouldThrowWhenUserNotFound");
+        when(userRepository.findIdByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
+        assertThrows(UserNotFoundException.class,
+                () -> transactionService.getUserTransactionsPaginated("unknown@gmail.com", pageable));
+    }
+
+    @Test
+    void getUserTransactions_shouldSeekFromCursorWithoutCount() {
+        log.info("getUserTransactions_shouldSeekFromCursorWithoutCount");
+        LocalDateTime date = LocalDateTime.of(2025, 3, 1, 12, 0);
+        TransactionView older = view(4L, date.minusDays(1));
+        when(userRepository.findIdByEmail("john@gmail.com")).thenReturn(Optional.of(1L));
+        when(transactionRepository.findIdsOlderThan(1L, date, 9L, 3)).thenReturn(List.of(4L));
+        when(transactionRepository.findViewsByIdIn(List.of(4L))).thenReturn(List.of(older));
+
+        CursorPage<TransactionView> result = transactionService.getUserTransactions("john@gmail.com", false,
+                new PageCursor(date, 9L).encode(), null, 2);
+
+        assertEquals(List.of(older), result.content());
+        assertFalse(result.hasNext());
+        assertEquals(new PageCursor(older.createdAt(), 4L), PageCursor.decode(result.previous()));
+        verify(transactionRepository, never()).countByUserId(anyLong());
+    }
+
+    @Test
+    void getUserTransactions_shouldReadPreviousPageBackwardsAndRestoreOrder() {
+        log.info("getUserTransactions_shouldReadPreviousPageBackwardsAndRestoreOrder");
+        LocalDateTime date = LocalDateTime.of(2025, 3, 1, 12, 0);
+        TransactionView newer = view(12L, date.plusDays(1));
+        TransactionView newest = view(15L, date.plusDays(2));
+        when(userRepository.findIdByEmail("john@gmail.com")).thenReturn(Optional.of(1L));
+        // ordre décroissant : la page précédente contient les plus récentes, lues dans l'ordre croissant
+        when(transactionRepository.findIdsNewerThan(1L, date, 9L, 3)).thenReturn(List.of(12L, 15L));
+        when(transactionRepository.findViewsByIdIn(List.of(12L, 15L))).thenReturn(List.of(newest, newer));
+
+        CursorPage<TransactionView> result = transactionService.getUserTransactions("john@gmail.com", false,
+                null, new PageCursor(date, 9L).encode(), 2);
+
+        assertEquals(List.of(newest, newer), result.content());
+        assertEquals(new PageCursor(newer.createdAt(), 12L), PageCursor.decode(result.next()));
+        assertFalse(result.hasPrevious());
     }
 
     @Test
@@ -98,9 +259,11 @@ class TransactionServiceImplTest {
     void getUserByTransactionEmail_shouldReturnUser() throws UserNotFoundException {
         log.info("getUserByTransactionEmail_shouldReturnUser");
         when(userRepository.findByEmail("john@gmail.com")).thenReturn(Optional.of(sender));
+        when(ledgerService.getAvailableBalance(1L)).thenReturn(Money.eur(125_000));
         User result = transactionService.getUserByTransactionEmail("john@gmail.com");
         assertNotNull(result);
         assertEquals("sender@gmail.com", result.getEmail());
+        assertEquals(Money.eur(125_000), result.getBalance());
     }
 
     @Test
@@ -113,19 +276,32 @@ class TransactionServiceImplTest {
     @Test
     void addBalance_shouldAddSpecifiedAmount() throws UserNotFoundException {
         log.info("addBalance_shouldAddSpecifiedAmount");
-        when(userRepository.findByEmail("john@gmail.com")).thenReturn(Optional.of(sender));
-        when(userRepository.save(any(User.class))).thenReturn(sender);
+        when(userRepository.findIdByEmail("john@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(ledgerService.getAvailableBalance(1L)).thenReturn(Money.eur(110_000));
 
-        User result = transactionService.addBalance("john@gmail.com", 100.0, null);
+        User result = transactionService.addBalance("john@gmail.com", new BigDecimal("100"), null);
 
-        assertEquals(1100.0, result.getBalance(), 0.001);
-        verify(userRepository).save(sender);
+        assertEquals(Money.eur(110_000), result.getBalance());
+        assertEquals(Money.eur(10_000), result.getTemporaryAmountAdded());
+        verify(ledgerService).recordTopUp(1L, Money.eur(10_000));
+        verify(accountLockManager).executeWithLocks(any(), eq(1L));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void addBalance_shouldThrowWhenUserNotFound() {
+        log.info("addBalance_shouldThrowWhenUserNotFound");
+        when(userRepository.findIdByEmail("unknown@test.com")).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> transactionService.addBalance("unknown@test.com", BigDecimal.TEN, null));
+        verifyNoInteractions(ledgerService);
     }
 
     @Test
     void addBalance_shouldThrowWhenEmailBlank() {
         log.info("addBalance_shouldThrowWhenEmailBlank");
-        assertThrows(IllegalArgumentException.class, () -> transactionService.addBalance("", 100.0, null));
+        assertThrows(IllegalArgumentException.class, () -> transactionService.addBalance("", BigDecimal.TEN, null));
     }
 
     @Test
@@ -137,21 +313,21 @@ class TransactionServiceImplTest {
     @Test
     void addBalance_shouldThrowWhenEmailNull() {
         log.info("addBalance_shouldThrowWhenEmailNull");
-        assertThrows(IllegalArgumentException.class, () -> transactionService.addBalance(null, 100.0, null));
+        assertThrows(IllegalArgumentException.class, () -> transactionService.addBalance(null, BigDecimal.TEN, null));
     }
 
     @Test
     void getFormattedBalanceUpdateMessage_shouldFormatMessageCorrectly() {
         log.info("getFormattedBalanceUpdateMessage_shouldFormatMessageCorrectly");
         User user = new User();
-        user.setBalance(1500.0);
-        user.setTemporaryAmountAdded(500.0);
+        user.setBalance(Money.of("1500", Money.EUR));
+        user.setTemporaryAmountAdded(Money.of("500", Money.EUR));
 
         String message = transactionService.getFormattedBalanceUpdateMessage(user, null);
         assertTrue(message.contains("500.00 € ajoutés"));
         assertTrue(message.contains("1500.00 €"));
 
-        message = transactionService.getFormattedBalanceUpdateMessage(user, 300.0);
+        message = transactionService.getFormattedBalanceUpdateMessage(user, new BigDecimal("300"));
         assertTrue(message.contains("300.00 € ajoutés"));
         assertTrue(message.contains("1500.00 €"));
     }
@@ -161,61 +337,258 @@ class TransactionServiceImplTest {
         log.info("makeTransaction_shouldProcessValidTransaction");
 
         // Arrange
-        when(userRepository.findByEmail("sender@gmail.com")).thenReturn(Optional.of(sender));
-        when(userRepository.findByEmail("receiver@gmail.com")).thenReturn(Optional.of(receiver));
-        when(currencyService.convertToEur(100.0, "USD")).thenReturn(85.0);
-        when(transactionRepository.save(any(Transaction.class))).thenAnswer(inv -> inv.getArgument(0));
-
-        sender.getConnections().add(receiver);
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail("receiver@gmail.com")).thenReturn(Optional.of(2L));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(true);
+        when(ledgerService.getAvailableBalance(1L)).thenReturn(Money.of("1000", Money.EUR));
+        when(userRepository.getReferenceById(1L)).thenReturn(sender);
+        when(userRepository.getReferenceById(2L)).thenReturn(receiver);
+        when(currencyService.convertToEur(Money.of("100", "USD"))).thenReturn(Money.of("85", Money.EUR));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(inv -> {
+            Transaction saved = inv.getArgument(0);
+            saved.setId(40L);
+            return saved;
+        });
 
         // Act
         Transaction transaction = transactionService.makeTransaction(
                 "sender@gmail.com", "receiver@gmail.com",
-                100.0, "USD", "Test payment");
+                Money.of("100", "USD"), "Test payment");
 
         // Assert
         assertNotNull(transaction);
-        assertEquals(100.0, transaction.getAmount());
-        assertEquals(85.0 * 0.005, transaction.getFee(), 0.001);
+        assertEquals(Money.of("100", "USD"), transaction.getAmount());
+        // 0,5 % de 85 € = 0,425 € arrondi à 0,43 €
+        assertEquals(Money.eur(43), transaction.getFee());
         assertEquals("USD", transaction.getCurrency());
         assertEquals("Test payment", transaction.getDescription());
+        assertSame(sender, transaction.getSender());
+        assertSame(receiver, transaction.getReceiver());
+
+        // Verify balances : uniquement des écritures dans le grand livre, sans chargement des entités
+        verify(ledgerService).recordTransfer(1L, 2L, null, 40L, Money.eur(8_500), Money.eur(43));
+        // ligne d'historique écrite dans la même transaction
+        verify(transferBatchRepository).insertHistory(List.of(40L));
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).saveAll(any());
+
+        verify(securityValidation).validateTransactionRequest(1L, 2L, Money.of("100", "USD"));
+        verify(accountLockManager).executeWithLocks(any(), eq(1L), eq(2L));
+    }
 
-        // Verify balances
-        assertEquals(1000.0 - (85.0 + 85.0 * 0.005), sender.getBalance(), 0.001);
-        assertEquals(500.0 + 85.0, receiver.getBalance(), 0.001);
+    @Test
+    void makeTransaction_shouldCreditSubBalanceOfHotReceiver() {
+        log.info("makeTransaction_shouldCreditSubBalanceOfHotReceiver");
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail("receiver@gmail.com")).thenReturn(Optional.of(2L));
+        when(hotAccountService.pickSlots(List.of(2L))).thenReturn(Map.of(2L, 3));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(true);
+        when(ledgerService.getAvailableBalance(1L)).thenReturn(Money.of("1000", Money.EUR));
+        when(currencyService.convertToEur(Money.of("10", Money.EUR))).thenReturn(Money.of("10", Money.EUR));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(inv -> {
+            Transaction saved = inv.getArgument(0);
+            saved.setId(41L);
+            return saved;
+        });
+
+        transactionService.makeTransaction("sender@gmail.com", "receiver@gmail.com", Money.of("10", Money.EUR), "Café");
+
+        // seul l'emplacement 3 du destinataire est verrouillé, pas son compte principal
+        verify(accountLockManager).executeWithLocks(any(), eq(1L), eq(HotAccountServiceImpl.lockKey(2L, 3)));
+        verify(ledgerService).recordTransfer(1L, 2L, 3, 41L, Money.eur(1_000), Money.eur(5));
+    }
+
+    @Test
+    void makeTransaction_shouldThrowWhenBalanceInsufficient() {
+        log.info("makeTransaction_shouldThrowWhenBalanceInsufficient");
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail("receiver@gmail.com")).thenReturn(Optional.of(2L));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(true);
+        when(ledgerService.getAvailableBalance(1L)).thenReturn(Money.of("100", Money.EUR));
+        when(currencyService.convertToEur(Money.of("5000", Money.EUR))).thenReturn(Money.of("5000", Money.EUR));
+        when(securityValidation.insufficientBalance(Money.of("5000", Money.EUR), Money.of("5000", Money.EUR), Money.of("25", Money.EUR)))
+                .thenReturn(new InsufficientBalanceException("Solde insuffisant"));
+
+        assertThrows(InsufficientBalanceException.class, () ->
+                transactionService.makeTransaction(
+                        "sender@gmail.com", "receiver@gmail.com",
+                        Money.of("5000", Money.EUR), "Trop cher"));
 
-        verify(securityValidation).validateTransaction(sender, receiver, 100.0, "USD");
-        verify(userRepository).saveAll(List.of(sender, receiver));
+        verify(transactionRepository, never()).save(any(Transaction.class));
+        verify(ledgerService, never()).recordTransfer(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void makeTransaction_shouldThrowWhenReceiverIsNotAConnection() {
+        log.info("makeTransaction_shouldThrowWhenReceiverIsNotAConnection");
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail("receiver@gmail.com")).thenReturn(Optional.of(2L));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () ->
+                transactionService.makeTransaction(
+                        "sender@gmail.com", "receiver@gmail.com",
+                        Money.of("10", Money.EUR), "Inconnu"));
+
+        verifyNoInteractions(ledgerService);
     }
 
     @Test
     void makeTransaction_shouldThrowWhenSenderNotFound() {
         log.info("makeTransaction_shouldThrowWhenSenderNotFound");
-        when(userRepository.findByEmail("unknown@test.com")).thenReturn(Optional.empty());
+        when(userRepository.findIdByEmail("unknown@test.com")).thenReturn(Optional.empty());
 
         assertThrows(UserNotFoundException.class, () ->
                 transactionService.makeTransaction(
                         "unknown@test.com", "receiver@gmail.com",
-                        100.0, "EUR", "Test"));
+                        Money.of("100", Money.EUR), "Test"));
     }
 
     @Test
     void makeTransaction_shouldThrowWhenReceiverNotFound() {
         log.info("makeTransaction_shouldThrowWhenReceiverNotFound");
-        when(userRepository.findByEmail("sender@gmail.com")).thenReturn(Optional.of(sender));
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
 
         assertThrows(UserNotFoundException.class, () ->
                 transactionService.makeTransaction(
                         "sender@gmail.com", "unknown@test.com",
-                        100.0, "EUR", "Test"));
+                        Money.of("100", Money.EUR), "Test"));
+    }
+
+    @Test
+    void makeTransactions_shouldApplyValidItemsAndReportRejectedOnes() {
+        log.info("makeTransactions_shouldApplyValidItemsAndReportRejectedOnes");
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findAccountRefsByEmails(anyCollection())).thenReturn(List.of(
+                new AccountRef(2L, "receiver@gmail.com"),
+                new AccountRef(3L, "stranger@gmail.com")));
+        when(connectionGraph.connections(1L)).thenReturn(new long[]{2L});
+        when(ledgerService.getAvailableBalance(1L)).thenReturn(Money.of("50", Money.EUR));
+        when(transferBatchRepository.insertTransactions(eq(1L), anyList())).thenReturn(List.of(10L, 11L));
+        when(currencyService.convertToEur(any(Money.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(securityValidation.insufficientBalance(Money.of("80", Money.EUR), Money.of("80", Money.EUR), Money.eur(40)))
+                .thenReturn(new InsufficientBalanceException("Solde insuffisant"));
+
+        List<TransferResult> results = transactionService.makeTransactions("sender@gmail.com", List.of(
+                new TransferRequest("receiver@gmail.com", new BigDecimal("10"), "eur", "Remboursement"),
+                new TransferRequest("unknown@gmail.com", new BigDecimal("10"), "EUR", "Inconnu"),
+                new TransferRequest("stranger@gmail.com", new BigDecimal("10"), "EUR", "Pas une relation"),
+                new TransferRequest("receiver@gmail.com", new BigDecimal("80"), "EUR", "Trop cher"),
+                new TransferRequest("receiver@gmail.com", new BigDecimal("20"), "EUR", "Règlement")));
+
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).success());
+        assertEquals("Destinataire non trouvé", results.get(1).message());
+        assertFalse(results.get(2).success());
+        assertEquals("Solde insuffisant", results.get(3).message());
+        assertTrue(results.get(4).success());
+
+        verify(transferBatchRepository).insertTransactions(eq(1L), argThat(rows -> rows.size() == 2
+                && rows.get(0).amount().currency().equals("EUR")
+                && rows.get(0).amountInEur().plus(rows.get(1).amountInEur()).equals(Money.of("30", Money.EUR))));
+        verify(ledgerService).recordTransfers(eq(1L), anyList(), eq(List.of(10L, 11L)), anyMap());
+    }
+
+    @Test
+    void makeTransactions_shouldNotWriteWhenNoItemIsValid() {
+        log.info("makeTransactions_shouldNotWriteWhenNoItemIsValid");
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findAccountRefsByEmails(anyCollection())).thenReturn(List.of());
+        when(connectionGraph.connections(1L)).thenReturn(new long[0]);
+        when(ledgerService.getAvailableBalance(1L)).thenReturn(Money.of("100", Money.EUR));
+
+        List<TransferResult> results = transactionService.makeTransactions("sender@gmail.com",
+                List.of(new TransferRequest("unknown@gmail.com", new BigDecimal("10"), "EUR", "Inconnu")));
+
+        assertFalse(results.get(0).success());
+        verifyNoInteractions(transferBatchRepository);
+        verify(ledgerService, never()).recordTransfers(any(), any(), any(), any());
+    }
+
+    @Test
+    void makeTransactions_shouldCommitLockBoundedChunks() {
+        log.info("makeTransactions_shouldCommitLockBoundedChunks");
+        // 40 destinataires distincts : 31 + 9 destinataires, l'expéditeur verrouillé dans chaque tranche
+        List<AccountRef> refs = IntStream.range(0, 40)
+                .mapToObj(i -> new AccountRef(100L + i, "receiver" + i + "@gmail.com")).toList();
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findAccountRefsByEmails(anyCollection())).thenReturn(refs);
+        when(connectionGraph.connections(1L)).thenReturn(LongStream.range(100, 140).toArray());
+        when(ledgerService.getAvailableBalance(1L)).thenReturn(Money.of("1000", Money.EUR));
+        when(currencyService.convertToEur(any(Money.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(transferBatchRepository.insertTransactions(eq(1L), anyList())).thenAnswer(inv ->
+                LongStream.range(0, inv.<List<?>>getArgument(1).size()).boxed().toList());
+
+        List<TransferResult> results = transactionService.makeTransactions("sender@gmail.com", refs.stream()
+                .map(ref -> new TransferRequest(ref.email(), BigDecimal.ONE, "EUR", "Part")).toList());
+
+        assertEquals(IntStream.range(0, 40).boxed().toList(), results.stream().map(TransferResult::index).toList());
+        assertTrue(results.stream().allMatch(TransferResult::success));
+        verify(transferBatchRepository).insertTransactions(eq(1L), argThat(rows -> rows.size() == 31));
+        verify(transferBatchRepository).insertTransactions(eq(1L), argThat(rows -> rows.size() == 9));
+        verify(accountLockManager, times(2)).executeWithLocks(any(), any(long[].class));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void makeTransactions_shouldRejectOnlyTheOverflowingItem() {
+        log.info("makeTransactions_shouldRejectOnlyTheOverflowingItem");
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findAccountRefsByEmails(anyCollection())).thenReturn(List.of(new AccountRef(2L, "receiver@gmail.com")));
+        when(connectionGraph.connections(1L)).thenReturn(new long[]{2L});
+        when(ledgerService.getAvailableBalance(1L)).thenReturn(Money.of("100", Money.EUR));
+        when(currencyService.convertToEur(any(Money.class))).thenAnswer(inv -> {
+            Money amount = inv.getArgument(0);
+            if (amount.currency().equals("JPY")) {
+                return Money.eur(Long.MAX_VALUE).plus(Money.eur(1));
+            }
+            return amount;
+        });
+        when(transferBatchRepository.insertTransactions(eq(1L), anyList())).thenReturn(List.of(10L));
+
+        List<TransferResult> results = transactionService.makeTransactions("sender@gmail.com", List.of(
+                new TransferRequest("receiver@gmail.com", new BigDecimal("9000000000000000"), "JPY", "Trop gros"),
+                new TransferRequest("receiver@gmail.com", new BigDecimal("10"), "EUR", "Règlement")));
+
+        assertFalse(results.get(0).success());
+        assertTrue(results.get(0).message().startsWith("Montant invalide"));
+        assertTrue(results.get(1).success());
+    }
+
+    @Test
+    void makeTransactions_shouldRejectEmptyOrOversizedBatch() {
+        log.info("makeTransactions_shouldRejectEmptyOrOversizedBatch");
+        assertThrows(IllegalArgumentException.class, () ->
+                transactionService.makeTransactions("sender@gmail.com", List.of()));
+
+        List<TransferRequest> tooMany = java.util.Collections.nCopies(501,
+                new TransferRequest("receiver@gmail.com", BigDecimal.ONE, "EUR", "x"));
+        assertThrows(IllegalArgumentException.class, () ->
+                transactionService.makeTransactions("sender@gmail.com", tooMany));
     }
 
     @Test
     void calculateAmountToAdd_shouldThrowWhenInvalidAmounts() {
         log.info("calculateAmountToAdd_shouldThrowWhenInvalidAmounts");
         assertThrows(IllegalArgumentException.class, () ->
-                transactionService.calculateAmountToAdd(-100.0, null));
+                transactionService.calculateAmountToAdd(new BigDecimal("-100"), null));
+        assertThrows(IllegalArgumentException.class, () ->
+                transactionService.calculateAmountToAdd(new BigDecimal("0.001"), null));
         assertThrows(IllegalArgumentException.class, () ->
                 transactionService.calculateAmountToAdd(null, "invalid"));
     }
+
+    @Test
+    void calculateAmountToAdd_shouldDrawRandomAmountInCents() {
+        log.info("calculateAmountToAdd_shouldDrawRandomAmountInCents");
+        for (int i = 0; i < 100; i++) {
+            Money amount = transactionService.calculateAmountToAdd(null, "random");
+            assertEquals(Money.EUR, amount.currency());
+            assertTrue(amount.minorUnits() >= 1_000 && amount.minorUnits() <= 200_000);
+        }
+    }
+
+    private static TransactionView view(long id, LocalDateTime createdAt) {
+        return new TransactionView(id, "Receiver", "Café", Money.of("10", Money.EUR), Money.eur(5), createdAt);
+    }
 }
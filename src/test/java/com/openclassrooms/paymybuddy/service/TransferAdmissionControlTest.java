@@ -0,0 +1,167 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.exception.TransferAdmissionRejectedException;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransferAdmissionControl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class TransferAdmissionControlTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService executor;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newCachedThreadPool();
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    // occupe une place d'exécution jusqu'à release
+    private Future<String> hold(TransferAdmissionControl admission, String email, CountDownLatch started) {
+        return executor.submit(() -> admission.execute(email, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "ok";
+        }));
+    }
+
+    private double shed(String reason) {
+        return meterRegistry.counter("paymybuddy.admission.shed", "reason", reason).count();
+    }
+
+    @Test
+    void execute_shouldRunActionWhenPermitAvailable() {
+        log.info("execute_shouldRunActionWhenPermitAvailable");
+        TransferAdmissionControl admission = new TransferAdmissionControl(true, 2, 4, 2, 1_000, meterRegistry);
+        assertEquals("ok", admission.execute("john@gmail.com", () -> "ok"));
+        assertEquals(0, admission.getQueueDepth());
+    }
+
+    @Test
+    void executeAsync_shouldHoldPermitUntilTransferCompletes() {
+        log.info("executeAsync_shouldHoldPermitUntilTransferCompletes");
+        TransferAdmissionControl admission = new TransferAdmissionControl(true, 4, 4, 1, 1_000, meterRegistry);
+        CompletableFuture<String> committed = new CompletableFuture<>();
+
+        CompletableFuture<String> result = admission.executeAsync("john@gmail.com", () -> committed);
+
+        // thread HTTP rendu, virement pas encore commité : la place de john est toujours prise
+        assertThrows(TransferAdmissionRejectedException.class, () -> admission.execute("john@gmail.com", () -> "ok"));
+        committed.complete("ok");
+        assertEquals("ok", result.join());
+        assertEquals("ok", admission.execute("john@gmail.com", () -> "ok"));
+    }
+
+    @Test
+    void execute_shouldRejectWith429WhenUserExceedsFairShare() throws Exception {
+        log.info("execute_shouldRejectWith429WhenUserExceedsFairShare");
+        TransferAdmissionControl admission = new TransferAdmissionControl(true, 4, 4, 1, 1_000, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<String> first = hold(admission, "john@gmail.com", started);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        TransferAdmissionRejectedException e = assertThrows(TransferAdmissionRejectedException.class,
+                () -> admission.execute("john@gmail.com", () -> "ok"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+        // les autres utilisateurs passent toujours
+        assertEquals("ok", admission.execute("jane@gmail.com", () -> "ok"));
+        assertEquals(1.0, shed("per_user"));
+
+        release.countDown();
+        assertEquals("ok", first.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", admission.execute("john@gmail.com", () -> "ok"));
+    }
+
+    @Test
+    void execute_shouldRejectWith503WhenQueueIsFull() throws Exception {
+        log.info("execute_shouldRejectWith503WhenQueueIsFull");
+        TransferAdmissionControl admission = new TransferAdmissionControl(true, 1, 0, 2, 1_000, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        hold(admission, "john@gmail.com", started);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        TransferAdmissionRejectedException e = assertThrows(TransferAdmissionRejectedException.class,
+                () -> admission.execute("jane@gmail.com", () -> "ok"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertEquals(1.0, shed("queue_full"));
+    }
+
+    @Test
+    void execute_shouldRejectWhenEstimatedWaitExceedsLimit() throws Exception {
+        log.info("execute_shouldRejectWhenEstimatedWaitExceedsLimit");
+        TransferAdmissionControl admission = new TransferAdmissionControl(true, 1, 10, 2, 50, meterRegistry);
+        // virements lents : la durée moyenne dépasse l'attente maximale
+        admission.execute("john@gmail.com", () -> {
+            try {
+                Thread.sleep(120);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "ok";
+        });
+        CountDownLatch started = new CountDownLatch(1);
+        hold(admission, "john@gmail.com", started);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        TransferAdmissionRejectedException e = assertThrows(TransferAdmissionRejectedException.class,
+                () -> admission.execute("jane@gmail.com", () -> "ok"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+        assertEquals(1.0, shed("wait_estimate"));
+        assertEquals(0, admission.getQueueDepth());
+    }
+
+    @Test
+    void execute_shouldQueueUntilPermitIsReleased() throws Exception {
+        log.info("execute_shouldQueueUntilPermitIsReleased");
+        TransferAdmissionControl admission = new TransferAdmissionControl(true, 1, 4, 2, 5_000, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<String> first = hold(admission, "john@gmail.com", started);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Future<String> queued = executor.submit(() -> admission.execute("jane@gmail.com", () -> "queued"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admission.getQueueDepth() == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1.0, meterRegistry.get("paymybuddy.admission.queue.depth").gauge().value());
+
+        release.countDown();
+        assertEquals("ok", first.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, admission.getQueueDepth());
+    }
+
+    @Test
+    void execute_shouldBypassQueueWhenDisabled() {
+        log.info("execute_shouldBypassQueueWhenDisabled");
+        TransferAdmissionControl admission = new TransferAdmissionControl(false, 1, 0, 1, 1_000, meterRegistry);
+        assertEquals("ok", admission.execute("john@gmail.com", () -> admission.execute("john@gmail.com", () -> "ok")));
+    }
+}
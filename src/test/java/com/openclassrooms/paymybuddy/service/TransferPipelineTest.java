@@ -0,0 +1,323 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.dto.AccountRef;
+import com.openclassrooms.paymybuddy.dto.TransferRequest;
+import com.openclassrooms.paymybuddy.dto.TransferResult;
+import com.openclassrooms.paymybuddy.exception.TransferPipelineSaturatedException;
+import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
+import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AccountLockManager;
+import com.openclassrooms.paymybuddy.service.serviceImpl.HotAccountServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.RingBuffer;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransferPipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+class TransferPipelineTest {
+
+    private TransactionServiceImpl transactionService;
+    private UserRepository userRepository;
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+    private TransferPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        transactionService = mock(TransactionServiceImpl.class);
+        userRepository = mock(UserRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        when(userRepository.findIdByEmail("sender@gmail.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findAccountRefsByEmails(anyCollection()))
+                .thenReturn(List.of(new AccountRef(2L, "receiver@gmail.com")));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    private TransferPipeline pipeline(boolean enabled, int ringSize) {
+        return pipeline(enabled, ringSize, 0);
+    }
+
+    private TransferPipeline pipeline(boolean enabled, int ringSize, long windowMillis) {
+        return pipeline(enabled, ringSize, windowMillis, 5_000);
+    }
+
+    private TransferPipeline pipeline(boolean enabled, int ringSize, long windowMillis, long waitTimeoutMillis) {
+        return new TransferPipeline(enabled, 2, ringSize, 16, windowMillis, waitTimeoutMillis, transactionService, userRepository,
+                new AccountLockManager(16, 1_000, meterRegistry), mock(HotAccountServiceImpl.class),
+                transactionManager, meterRegistry);
+    }
+
+    private static TransferRequest request(String amount) {
+        return new TransferRequest("receiver@gmail.com", new BigDecimal(amount), "EUR", "Café");
+    }
+
+    // accepte chaque virement du lot, en conservant l'ordre
+    private static List<TransferResult> acceptAll(List<TransferRequest> requests) {
+        List<TransferResult> results = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            results.add(TransferResult.accepted(i, requests.get(i).receiverEmail(), new BigDecimal("0.05")));
+        }
+        return results;
+    }
+
+    @Test
+    void submit_shouldCompleteAfterBatchCommit() throws Exception {
+        log.info("submit_shouldCompleteAfterBatchCommit");
+        when(transactionService.applyTransfers(eq(1L), anyList(), anyMap(), anyMap()))
+                .thenAnswer(inv -> acceptAll(inv.getArgument(1)));
+        pipeline = pipeline(true, 64);
+
+        List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(pipeline.submit("sender@gmail.com", request("10.00")));
+        }
+
+        for (CompletableFuture<TransferResult> future : futures) {
+            TransferResult result = future.get(5, TimeUnit.SECONDS);
+            assertTrue(result.success());
+            assertEquals(0, result.index());
+        }
+        verify(transactionManager, atLeastOnce()).commit(any());
+        assertEquals(10.0, meterRegistry.summary("paymybuddy.pipeline.batch.size").totalAmount());
+    }
+
+    @Test
+    void submit_shouldGroupTransfersArrivingWithinWindow() throws Exception {
+        log.info("submit_shouldGroupTransfersArrivingWithinWindow");
+        when(transactionService.applyTransfers(eq(1L), anyList(), anyMap(), anyMap()))
+                .thenAnswer(inv -> acceptAll(inv.getArgument(1)));
+        pipeline = pipeline(true, 64, 500);
+
+        CompletableFuture<TransferResult> first = pipeline.submit("sender@gmail.com", request("1.00"));
+        CompletableFuture<TransferResult> second = pipeline.submit("sender@gmail.com", request("2.00"));
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).success());
+        assertTrue(second.get(5, TimeUnit.SECONDS).success());
+        // un seul commit pour les deux virements
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(1, meterRegistry.summary("paymybuddy.pipeline.batch.size").count());
+        assertEquals(1, meterRegistry.timer("paymybuddy.pipeline.batch.window").count());
+    }
+
+    @Test
+    void submit_shouldCommitLockBoundedChunks() throws Exception {
+        log.info("submit_shouldCommitLockBoundedChunks");
+        when(userRepository.findAccountRefsByEmails(anyCollection())).thenAnswer(inv -> {
+            List<AccountRef> refs = new ArrayList<>();
+            for (String email : inv.<java.util.Collection<String>>getArgument(0)) {
+                refs.add(new AccountRef(100L + Long.parseLong(email.substring(1, email.indexOf('@'))), email));
+            }
+            return refs;
+        });
+        when(transactionService.applyTransfers(eq(1L), anyList(), anyMap(), anyMap()))
+                .thenAnswer(inv -> acceptAll(inv.getArgument(1)));
+        pipeline = new TransferPipeline(true, 1, 64, 64, 500, 5_000, transactionService, userRepository,
+                new AccountLockManager(256, 1_000, meterRegistry), mock(HotAccountServiceImpl.class),
+                transactionManager, meterRegistry);
+
+        List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            futures.add(pipeline.submit("sender@gmail.com",
+                    new TransferRequest("r" + i + "@gmail.com", BigDecimal.ONE, "EUR", "Remboursement")));
+        }
+        for (CompletableFuture<TransferResult> future : futures) {
+            assertTrue(future.get(5, TimeUnit.SECONDS).success());
+        }
+
+        // un lot de 41 comptes : l'expéditeur et 31 destinataires, puis les 9 suivants, chacun dans son commit
+        verify(transactionManager, times(2)).commit(any());
+        verify(transactionService).applyTransfers(eq(1L), argThat(requests -> requests.size() == 31), anyMap(), anyMap());
+        verify(transactionService).applyTransfers(eq(1L), argThat(requests -> requests.size() == 9), anyMap(), anyMap());
+    }
+
+    @Test
+    void submitAndWait_shouldRethrowBatchFailure() {
+        log.info("submitAndWait_shouldRethrowBatchFailure");
+        when(transactionService.applyTransfers(anyLong(), anyList(), anyMap(), anyMap()))
+                .thenThrow(new IllegalStateException("Base indisponible"));
+        pipeline = pipeline(true, 64);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> pipeline.submitAndWait("sender@gmail.com", request("10.00")));
+        assertEquals("Base indisponible", e.getMessage());
+    }
+
+    @Test
+    void submit_shouldFailEveryTransferOfRolledBackBatch() {
+        log.info("submit_shouldFailEveryTransferOfRolledBackBatch");
+        when(transactionService.applyTransfers(anyLong(), anyList(), anyMap(), anyMap()))
+                .thenThrow(new IllegalStateException("Base indisponible"));
+        pipeline = pipeline(true, 64);
+
+        CompletableFuture<TransferResult> future = pipeline.submit("sender@gmail.com", request("10.00"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals("Base indisponible", e.getCause().getMessage());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void submitAndWait_shouldWithdrawTransferNotTakenBeforeTimeout() throws Exception {
+        log.info("submitAndWait_shouldWithdrawTransferNotTakenBeforeTimeout");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionService.applyTransfers(anyLong(), anyList(), anyMap(), anyMap())).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return acceptAll(inv.getArgument(1));
+        });
+        pipeline = pipeline(true, 64, 0, 100);
+
+        CompletableFuture<TransferResult> first = pipeline.submit("sender@gmail.com", request("1.00"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // shard bloqué sur le premier lot : le second virement est retiré à l'expiration du délai
+        assertThrows(TransferPipelineSaturatedException.class,
+                () -> pipeline.submitAndWait("sender@gmail.com", request("2.00")));
+
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS).success());
+        pipeline.shutdown();
+        verify(transactionService, times(1)).applyTransfers(anyLong(), anyList(), anyMap(), anyMap());
+    }
+
+    @Test
+    void submit_shouldFailBatchOnErrorAndKeepShardRunning() throws Exception {
+        log.info("submit_shouldFailBatchOnErrorAndKeepShardRunning");
+        when(transactionService.applyTransfers(anyLong(), anyList(), anyMap(), anyMap()))
+                .thenThrow(new StackOverflowError())
+                .thenAnswer(inv -> acceptAll(inv.getArgument(1)));
+        pipeline = pipeline(true, 64);
+
+        CompletableFuture<TransferResult> failed = pipeline.submit("sender@gmail.com", request("1.00"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, e.getCause());
+
+        assertTrue(pipeline.submit("sender@gmail.com", request("2.00")).get(5, TimeUnit.SECONDS).success());
+    }
+
+    @Test
+    void submit_shouldRejectWhenShardQueueIsFull() throws Exception {
+        log.info("submit_shouldRejectWhenShardQueueIsFull");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionService.applyTransfers(anyLong(), anyList(), anyMap(), anyMap())).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return acceptAll(inv.getArgument(1));
+        });
+        pipeline = pipeline(true, 2);
+
+        CompletableFuture<TransferResult> first = pipeline.submit("sender@gmail.com", request("1.00"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pipeline.submit("sender@gmail.com", request("2.00"));
+        pipeline.submit("sender@gmail.com", request("3.00"));
+
+        assertThrows(TransferPipelineSaturatedException.class,
+                () -> pipeline.submit("sender@gmail.com", request("4.00")));
+        assertEquals(1.0, meterRegistry.counter("paymybuddy.pipeline.rejected").count());
+
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS).success());
+    }
+
+    @Test
+    void shutdown_shouldCommitQueuedTransfersThenRejectNewOnes() throws Exception {
+        log.info("shutdown_shouldCommitQueuedTransfersThenRejectNewOnes");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionService.applyTransfers(anyLong(), anyList(), anyMap(), anyMap())).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return acceptAll(inv.getArgument(1));
+        });
+        pipeline = pipeline(true, 64);
+
+        CompletableFuture<TransferResult> first = pipeline.submit("sender@gmail.com", request("1.00"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<TransferResult> queued = pipeline.submit("sender@gmail.com", request("2.00"));
+        Thread stopper = new Thread(() -> {
+            try {
+                pipeline.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stopper.start();
+        release.countDown();
+        stopper.join(10_000);
+
+        // chaque virement accepté avant l'arrêt reçoit une réponse
+        assertTrue(first.get(5, TimeUnit.SECONDS).success());
+        assertTrue(queued.get(5, TimeUnit.SECONDS).success());
+        assertThrows(TransferPipelineSaturatedException.class,
+                () -> pipeline.submit("sender@gmail.com", request("3.00")));
+    }
+
+    @Test
+    void submit_shouldThrowWhenSenderNotFound() {
+        log.info("submit_shouldThrowWhenSenderNotFound");
+        pipeline = pipeline(true, 64);
+        assertThrows(UserNotFoundException.class, () -> pipeline.submit("unknown@gmail.com", request("10.00")));
+    }
+
+    @Test
+    void submit_shouldUseSynchronousPathWhenDisabled() throws Exception {
+        log.info("submit_shouldUseSynchronousPathWhenDisabled");
+        when(transactionService.makeTransactions(eq("sender@gmail.com"), anyList()))
+                .thenReturn(List.of(TransferResult.accepted(0, "receiver@gmail.com", new BigDecimal("0.05"))));
+        pipeline = pipeline(false, 64);
+
+        CompletableFuture<TransferResult> future = pipeline.submit("sender@gmail.com", request("10.00"));
+
+        assertTrue(future.isDone());
+        assertTrue(future.get().success());
+        verify(transactionService, never()).applyTransfers(anyLong(), anyList(), anyMap(), anyMap());
+        Mockito.verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void ringBuffer_shouldKeepFifoOrderAndRejectWhenFull() {
+        log.info("ringBuffer_shouldKeepFifoOrderAndRejectWhenFull");
+        RingBuffer<Integer> ring = new RingBuffer<>(3);
+        assertEquals(4, ring.capacity());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, ring.drainTo(drained, 3));
+        assertTrue(ring.offer(4));
+        assertEquals(2, ring.drainTo(drained, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+        assertTrue(ring.isEmpty());
+    }
+}
@@ -1,21 +1,31 @@
 package com.openclassrooms.paymybuddy.service;
 
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.dto.CursorPage;
 import com.openclassrooms.paymybuddy.entity.User;
+import com.openclassrooms.paymybuddy.exception.InvalidPageRequestException;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
 import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionGraphServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.ConnectionSuggestionServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.RelationsCache;
 import com.openclassrooms.paymybuddy.service.serviceImpl.UserConnectionServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +34,12 @@ public class UserConnectionServiceImplTest {
 
     @Mock
     UserRepository userRepository;
+    @Mock
+    ConnectionGraphServiceImpl connectionGraph;
+    @Mock
+    ConnectionSuggestionServiceImpl suggestionService;
+    @Spy
+    RelationsCache relationsCache = new RelationsCache(true, 10, 60_000, new SimpleMeterRegistry());
     @InjectMocks
     UserConnectionServiceImpl userConnectionService;
 
@@ -52,22 +68,50 @@ public class UserConnectionServiceImplTest {
         log.info("getUserConnections_whenUserExists_shouldReturnUserConnections");
 
         // Given
-        when(userRepository.findByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser));
-        when(userRepository.findRelationsByEmail(testUser.getEmail())).thenReturn(testUser.getConnections());
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(1L));
+        ConnectionCard card = new ConnectionCard(connectionUser.getId(), connectionUser.getName(), connectionUser.getEmail());
+        when(userRepository.findRelations(1L)).thenReturn(List.of(card));
 
         // When
-        Set<User> userConnections = userConnectionService.getUserConnections(testUser.getEmail());
+        List<ConnectionCard> userConnections = userConnectionService.getUserConnections(testUser.getEmail());
 
         // Then
         assertNotNull(userConnections);
-        assertEquals(1, userConnections.size());
-        assertTrue(userConnections.contains(connectionUser));
+        assertEquals(List.of(card), userConnections);
+    }
+
+    @Test
+    void getUserConnections_shouldServeCachedRelationsUntilConnectionsChange() {
+        log.info("getUserConnections_shouldServeCachedRelationsUntilConnectionsChange");
+        User newConnection = new User();
+        newConnection.setId(3L);
+        newConnection.setEmail("newEmail@gmail.com");
+        ConnectionCard jane = new ConnectionCard(2L, "Jane", "jane@gmail.com");
+        ConnectionCard added = new ConnectionCard(3L, null, "newEmail@gmail.com");
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail(newConnection.getEmail())).thenReturn(Optional.of(3L));
+        when(userRepository.findRelations(1L)).thenReturn(List.of(jane), List.of(jane, added));
+        when(userRepository.findRelations(3L)).thenReturn(List.of(), List.of(new ConnectionCard(1L, "John", "john@gmail.com")));
+
+        assertEquals(List.of(jane), userConnectionService.getUserConnections(testUser.getEmail()));
+        assertEquals(List.of(), userConnectionService.getUserConnections(newConnection.getEmail()));
+        assertEquals(List.of(jane), userConnectionService.getUserConnections(testUser.getEmail()));
+        verify(userRepository, times(1)).findRelations(1L);
+
+        // la relation est symétrique : les deux listes sont relues
+        when(userRepository.insertConnection(1L, 3L)).thenReturn(1);
+        userConnectionService.addConnection(testUser.getEmail(), newConnection.getEmail());
+
+        assertEquals(List.of(jane, added), userConnectionService.getUserConnections(testUser.getEmail()));
+        assertEquals(1, userConnectionService.getUserConnections(newConnection.getEmail()).size());
+        verify(userRepository, times(2)).findRelations(1L);
+        verify(userRepository, times(2)).findRelations(3L);
     }
 
     @Test
     void getUserConnections_whenUserNotFound_shouldThrowException() {
         log.info("getUserConnections_whenUserNotFound_shouldThrowException");
-        when(userRepository.findByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
+        when(userRepository.findIdByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
         assertThrows(RuntimeException.class, () -> userConnectionService.getUserConnections("unknown@gmail.com"));
     }
 
@@ -81,16 +125,19 @@ public class UserConnectionServiceImplTest {
         newConnection.setEmail("newEmail@gmail.com");
 
         // Ouvrir une connection entre deux users
-        when(userRepository.findByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser));
-        when(userRepository.findByEmail(newConnection.getEmail())).thenReturn(Optional.of(newConnection));
-        when(userRepository.save(testUser)).thenReturn(testUser);
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail(newConnection.getEmail())).thenReturn(Optional.of(3L));
+        when(userRepository.insertConnection(1L, 3L)).thenReturn(1);
 
         // When
         userConnectionService.addConnection(testUser.getEmail(), newConnection.getEmail());
 
         // Then
-        assertTrue(testUser.getConnections().contains(newConnection));
-        verify(userRepository).save(testUser);
+        verify(userRepository).insertConnection(1L, 3L);
+        verify(connectionGraph).connectionAdded(1L, 3L);
+        verify(relationsCache).connectionChanged(1L, 3L);
+        verify(suggestionService).connectionChanged(1L, 3L);
+        verify(userRepository, never()).findByEmail(anyString());
     }
 
     @Test
@@ -103,8 +150,8 @@ public class UserConnectionServiceImplTest {
     @Test
     void addConnection_whenUserNotFound_shouldThrowException() {
         log.info("addConnection_whenUserNotFound_shouldThrowException");
-        when(userRepository.findByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser));
-        when(userRepository.findByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () ->
                 userConnectionService.addConnection(testUser.getEmail(), "unknown@gmail.com"));
@@ -113,11 +160,26 @@ public class UserConnectionServiceImplTest {
     @Test
     void addConnection_whenConnectionAlreadyExists_shouldThrowException() {
         log.info("addConnection_whenConnectionAlreadyExists_shouldThrowException");
-        when(userRepository.findByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser));
-        when(userRepository.findByEmail(connectionUser.getEmail())).thenReturn(Optional.of(connectionUser));
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail(connectionUser.getEmail())).thenReturn(Optional.of(2L));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                userConnectionService.addConnection(testUser.getEmail(), connectionUser.getEmail()));
+        verify(userRepository, never()).insertConnection(anyLong(), anyLong());
+    }
+
+    @Test
+    void addConnection_whenInsertFindsExistingRow_shouldThrowException() {
+        log.info("addConnection_whenInsertFindsExistingRow_shouldThrowException");
+        // relation ajoutée ailleurs (autre instance) : la base fait foi
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail(connectionUser.getEmail())).thenReturn(Optional.of(2L));
+        when(userRepository.insertConnection(1L, 2L)).thenReturn(0);
 
         assertThrows(IllegalArgumentException.class, () ->
                 userConnectionService.addConnection(testUser.getEmail(), connectionUser.getEmail()));
+        verify(connectionGraph, never()).connectionAdded(anyLong(), anyLong());
     }
 
     @Test
@@ -127,47 +189,88 @@ public class UserConnectionServiceImplTest {
         String currentUserEmail = "nonexistent@example.com";
         String targetEmail = "existing@example.com";
 
-        when(userRepository.findByEmail(currentUserEmail)).thenReturn(Optional.empty());
+        when(userRepository.findIdByEmail(currentUserEmail)).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () ->
                 userConnectionService.addConnection(currentUserEmail, targetEmail));
 
         assertEquals("Utilisateur introuvable: " + currentUserEmail, exception.getMessage());
-        verify(userRepository).findByEmail(currentUserEmail);
-        verify(userRepository, never()).findByEmail(targetEmail);
-        verify(userRepository, never()).save(any());
+        verify(userRepository).findIdByEmail(currentUserEmail);
+        verify(userRepository, never()).findIdByEmail(targetEmail);
+        verify(userRepository, never()).insertConnection(anyLong(), anyLong());
     }
 
     @Test
-    void getPotentialConnections_whenUserExists_shouldReturnNonConnectedUsers() throws UserNotFoundException {
-        log.info("getPotentialConnections_whenUserExists_shouldReturnNonConnectedUsers");
-
-        // Given
-        List<User> potentialConnections = new ArrayList<>();
-        User potentialUser = new User();
-        potentialUser.setId(3L);
-        potentialUser.setEmail("potential@gmail.com");
-        potentialConnections.add(potentialUser);
+    void searchPotentialConnections_shouldReadOneExtraRowAndReturnNextCursor() throws UserNotFoundException {
+        log.info("searchPotentialConnections_shouldReadOneExtraRowAndReturnNextCursor");
+        ConnectionCard first = new ConnectionCard(3L, "Paul", "paul@gmail.com");
+        ConnectionCard second = new ConnectionCard(4L, "Pauline", "pauline@gmail.com");
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser.getId()));
+        when(userRepository.searchPotentialConnectionsByEmail(testUser.getId(), "pau%", "", Limit.of(2)))
+                .thenReturn(List.of(first, second));
+        when(userRepository.searchPotentialConnectionsByName(testUser.getId(), "pau%", "", Limit.of(2)))
+                .thenReturn(List.of(first, second));
+
+        CursorPage<ConnectionCard> page = userConnectionService.searchPotentialConnections(testUser.getEmail(), " pau ", null, 1);
+
+        assertEquals(List.of(first), page.content());
+        assertNotNull(page.next());
+        assertNull(page.previous());
+
+        // la page suivante repart après le dernier email affiché
+        when(userRepository.searchPotentialConnectionsByEmail(testUser.getId(), "pau%", "paul@gmail.com", Limit.of(2)))
+                .thenReturn(List.of(second));
+        when(userRepository.searchPotentialConnectionsByName(testUser.getId(), "pau%", "paul@gmail.com", Limit.of(2)))
+                .thenReturn(List.of());
+        CursorPage<ConnectionCard> nextPage = userConnectionService.searchPotentialConnections(testUser.getEmail(), "pau", page.next(), 1);
+        assertEquals(List.of(second), nextPage.content());
+        assertNull(nextPage.next());
+        assertNotNull(nextPage.previous());
+    }
 
-        when(userRepository.findByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser));
-        when(userRepository.findPotentialConnections(testUser.getEmail(),testUser.getId())).thenReturn(potentialConnections);
+    @Test
+    void searchPotentialConnections_shouldEscapeWildcardsAndSkipShortQueries() throws UserNotFoundException {
+        log.info("searchPotentialConnections_shouldEscapeWildcardsAndSkipShortQueries");
+        assertTrue(userConnectionService.searchPotentialConnections(testUser.getEmail(), "p", null, 10).content().isEmpty());
+        verifyNoInteractions(userRepository);
+
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser.getId()));
+        when(userRepository.searchPotentialConnectionsByEmail(anyLong(), anyString(), anyString(), any(Limit.class))).thenReturn(List.of());
+        when(userRepository.searchPotentialConnectionsByName(anyLong(), anyString(), anyString(), any(Limit.class))).thenReturn(List.of());
+        userConnectionService.searchPotentialConnections(testUser.getEmail(), "a_b%!", null, 10);
+        verify(userRepository).searchPotentialConnectionsByEmail(testUser.getId(), "a!_b!%!!%", "", Limit.of(11));
+        verify(userRepository).searchPotentialConnectionsByName(testUser.getId(), "a!_b!%!!%", "", Limit.of(11));
+    }
 
-        // When
-        //récupérer les utilisateurs qui ne sont pas encore connectés à testUser
-        Set<User> userConnections = userConnectionService.getPotentialConnections(testUser.getEmail());
-        assertNotNull(userConnections);
-        assertEquals(1, userConnections.size());
-        assertTrue(userConnections.contains(potentialUser));
+    @Test
+    void searchPotentialConnections_shouldMergeEmailAndNameMatchesInEmailOrder() throws UserNotFoundException {
+        log.info("searchPotentialConnections_shouldMergeEmailAndNameMatchesInEmailOrder");
+        ConnectionCard alice = new ConnectionCard(5L, "Bob", "alice@gmail.com");
+        ConnectionCard bob = new ConnectionCard(6L, "Bob", "bob@gmail.com");
+        ConnectionCard bobby = new ConnectionCard(7L, "Bobby", "bobby@gmail.com");
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser.getId()));
+        when(userRepository.searchPotentialConnectionsByEmail(testUser.getId(), "bob%", "", Limit.of(3)))
+                .thenReturn(List.of(bob, bobby));
+        when(userRepository.searchPotentialConnectionsByName(testUser.getId(), "bob%", "", Limit.of(3)))
+                .thenReturn(List.of(alice, bob, bobby));
+
+        CursorPage<ConnectionCard> page = userConnectionService.searchPotentialConnections(testUser.getEmail(), "bob", null, 2);
+
+        // bob trouvé par les deux parcours n'apparaît qu'une fois
+        assertEquals(List.of(alice, bob), page.content());
+        assertNotNull(page.next());
     }
 
     @Test
-    void getPotentialConnections_whenUserNotFound_shouldThrowException() {
-        log.info("getPotentialConnections_whenUserNotFound_shouldThrowException");
-        when(userRepository.findByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
+    void searchPotentialConnections_whenUserNotFound_shouldThrowException() {
+        log.info("searchPotentialConnections_whenUserNotFound_shouldThrowException");
+        when(userRepository.findIdByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
 
         assertThrows(UserNotFoundException.class, () ->
-                userConnectionService.getPotentialConnections("unknown@gmail.com"));
+                userConnectionService.searchPotentialConnections("unknown@gmail.com", "pau", null, 10));
+        assertThrows(InvalidPageRequestException.class, () ->
+                userConnectionService.searchPotentialConnections(testUser.getEmail(), "pau", "%%%", 10));
     }
 
     @Test
@@ -177,23 +280,27 @@ public class UserConnectionServiceImplTest {
         newConnection.setId(3L);
         newConnection.setEmail("new@gmail.com");
 
-        when(userRepository.findByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser));
-        when(userRepository.findByEmail(connectionUser.getEmail())).thenReturn(Optional.of(connectionUser));
-        when(userRepository.findByEmail(newConnection.getEmail())).thenReturn(Optional.of(newConnection));
-        when(userRepository.save(testUser)).thenReturn(testUser);
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail(connectionUser.getEmail())).thenReturn(Optional.of(2L));
+        when(userRepository.findIdByEmail(newConnection.getEmail())).thenReturn(Optional.of(3L));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(true);
+        when(userRepository.insertConnection(1L, 3L)).thenReturn(1);
 
         userConnectionService.updateConnection(testUser.getEmail(), connectionUser.getEmail(), newConnection.getEmail());
 
-        assertFalse(testUser.getConnections().contains(connectionUser));
-        assertTrue(testUser.getConnections().contains(newConnection));
-        verify(userRepository).save(testUser);
+        verify(userRepository).deleteConnection(1L, 2L);
+        verify(userRepository).insertConnection(1L, 3L);
+        verify(connectionGraph).connectionRemoved(1L, 2L);
+        verify(connectionGraph).connectionAdded(1L, 3L);
+        verify(relationsCache).connectionChanged(1L, 2L);
+        verify(relationsCache).connectionChanged(1L, 3L);
     }
 
     @Test
     void updateConnection_whenOldConnectionNotExists_shouldThrowException() {
         log.info("updateConnection_whenOldConnectionNotExists_shouldThrowException");
-        when(userRepository.findByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser));
-        when(userRepository.findByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail("unknown@gmail.com")).thenReturn(Optional.empty());
 
         assertThrows(UserNotFoundException.class, () -> userConnectionService.updateConnection(
                         testUser.getEmail(), "unknown@gmail.com", "new@gmail.com"));
@@ -202,8 +309,9 @@ public class UserConnectionServiceImplTest {
     @Test
     void updateConnection_whenNewConnectionAlreadyExists_shouldThrowException() {
         log.info("updateConnection_whenNewConnectionAlreadyExists_shouldThrowException");
-        when(userRepository.findByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser));
-        when(userRepository.findByEmail(connectionUser.getEmail())).thenReturn(Optional.of(connectionUser));
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail(connectionUser.getEmail())).thenReturn(Optional.of(2L));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(true);
 
         assertThrows(IllegalStateException.class, () -> userConnectionService.updateConnection(
                         testUser.getEmail(), connectionUser.getEmail(), connectionUser.getEmail()));
@@ -223,12 +331,12 @@ public class UserConnectionServiceImplTest {
         User newConnection = new User();
         newConnection.setEmail("new@gmail.com");
 
-        when(userRepository.findByEmail(currentUser.getEmail())).thenReturn(Optional.of(currentUser));
-        when(userRepository.findByEmail(oldConnection.getEmail())).thenReturn(Optional.of(oldConnection));
-        when(userRepository.findByEmail(newConnection.getEmail())).thenReturn(Optional.of(newConnection));
+        when(userRepository.findIdByEmail(currentUser.getEmail())).thenReturn(Optional.of(10L));
+        when(userRepository.findIdByEmail(oldConnection.getEmail())).thenReturn(Optional.of(11L));
+        when(userRepository.findIdByEmail(newConnection.getEmail())).thenReturn(Optional.of(12L));
 
-        // ancienne connexion n'est pas dans la liste
-        currentUser.setConnections(new HashSet<>());
+        // ancienne connexion n'est pas dans le graphe
+        when(connectionGraph.isConnected(10L, 11L)).thenReturn(false);
 
         // When & Then
         IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
@@ -236,7 +344,8 @@ public class UserConnectionServiceImplTest {
         );
 
         assertEquals("L'ancienne connexion n'existe pas", exception.getMessage());
-        verify(userRepository, never()).save(any());
+        verify(userRepository, never()).deleteConnection(anyLong(), anyLong());
+        verify(userRepository, never()).insertConnection(anyLong(), anyLong());
     }
 
     @Test
@@ -247,16 +356,16 @@ public class UserConnectionServiceImplTest {
         String oldConnectionEmail = "old@example.com";
         String newConnectionEmail = "new@example.com";
 
-        when(userRepository.findByEmail(currentUserEmail))
+        when(userRepository.findIdByEmail(currentUserEmail))
                 .thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(UserNotFoundException.class, () ->
             userConnectionService.updateConnection(currentUserEmail, oldConnectionEmail, newConnectionEmail));
 
-        verify(userRepository, times(1)).findByEmail(currentUserEmail);
-        verify(userRepository, never()).findByEmail(oldConnectionEmail);
-        verify(userRepository, never()).findByEmail(newConnectionEmail);
+        verify(userRepository, times(1)).findIdByEmail(currentUserEmail);
+        verify(userRepository, never()).findIdByEmail(oldConnectionEmail);
+        verify(userRepository, never()).findIdByEmail(newConnectionEmail);
     }
 
     @Test
@@ -267,23 +376,20 @@ public class UserConnectionServiceImplTest {
         String oldConnectionEmail = "old@example.com";
         String newConnectionEmail = "notfound@example.com";
 
-        User currentUser = new User();
-        User oldConnection = new User();
-
-        when(userRepository.findByEmail(currentUserEmail))
-                .thenReturn(Optional.of(currentUser));
-        when(userRepository.findByEmail(oldConnectionEmail))
-                .thenReturn(Optional.of(oldConnection));
-        when(userRepository.findByEmail(newConnectionEmail))
+        when(userRepository.findIdByEmail(currentUserEmail))
+                .thenReturn(Optional.of(10L));
+        when(userRepository.findIdByEmail(oldConnectionEmail))
+                .thenReturn(Optional.of(11L));
+        when(userRepository.findIdByEmail(newConnectionEmail))
                 .thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(UserNotFoundException.class, () ->
             userConnectionService.updateConnection(currentUserEmail, oldConnectionEmail, newConnectionEmail));
 
-        verify(userRepository, times(1)).findByEmail(currentUserEmail);
-        verify(userRepository, times(1)).findByEmail(oldConnectionEmail);
-        verify(userRepository, times(1)).findByEmail(newConnectionEmail);
+        verify(userRepository, times(1)).findIdByEmail(currentUserEmail);
+        verify(userRepository, times(1)).findIdByEmail(oldConnectionEmail);
+        verify(userRepository, times(1)).findIdByEmail(newConnectionEmail);
     }
 
     @Test
@@ -291,23 +397,26 @@ public class UserConnectionServiceImplTest {
         log.info("removeConnection_whenConnectionExists_shouldRemoveSuccessfully");
 
         // Given
-        when(userRepository.findByEmail(testUser.getEmail())).thenReturn(Optional.of(testUser));
-        when(userRepository.findByEmail(connectionUser.getEmail())).thenReturn(Optional.of(connectionUser));
-        when(userRepository.save(testUser)).thenReturn(testUser);
+        when(userRepository.findIdByEmail(testUser.getEmail())).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByEmail(connectionUser.getEmail())).thenReturn(Optional.of(2L));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(true);
+        when(userRepository.deleteConnection(1L, 2L)).thenReturn(1);
 
         // When
         userConnectionService.removeConnection(testUser.getEmail(), connectionUser.getEmail());
 
         // Then
-        assertFalse(testUser.getConnections().contains(connectionUser));
-        verify(userRepository).save(testUser);
+        verify(userRepository).deleteConnection(1L, 2L);
+        verify(connectionGraph).connectionRemoved(1L, 2L);
+        verify(suggestionService).connectionChanged(1L, 2L);
+        verify(relationsCache).connectionChanged(1L, 2L);
         log.info("Connection successfully removed between {} and {}",
                 testUser.getEmail(), connectionUser.getEmail());
     }
 
     @Test
     void removeConnection_whenTargetUserNotFound_shouldThrowException() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(userRepository.findIdByEmail(anyString())).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class,
                 () -> userConnectionService.removeConnection("test", "unknown"));
@@ -316,22 +425,15 @@ public class UserConnectionServiceImplTest {
     @Test
     void removeConnection_whenNoConnectionExists_shouldDoNothing() {
         // Given
-        User currentUser = new User();
-        currentUser.setEmail("user1@test.com");
-        currentUser.setConnections(new HashSet<>());
-
-        User targetUser = new User();
-        targetUser.setEmail("user2@test.com");
-
-        when(userRepository.findByEmail("user1@test.com")).thenReturn(Optional.of(currentUser));
-        when(userRepository.findByEmail("user2@test.com")).thenReturn(Optional.of(targetUser));
+        when(userRepository.findIdByEmail("user1@test.com")).thenReturn(Optional.of(10L));
+        when(userRepository.findIdByEmail("user2@test.com")).thenReturn(Optional.of(11L));
 
         // When
         userConnectionService.removeConnection("user1@test.com", "user2@test.com");
 
         // Then
-        verify(userRepository, never()).save(any());
-        assertTrue(currentUser.getConnections().isEmpty());
+        verify(userRepository, never()).deleteConnection(anyLong(), anyLong());
+        verify(connectionGraph, never()).connectionRemoved(anyLong(), anyLong());
     }
 
     @Test
@@ -340,12 +442,9 @@ public class UserConnectionServiceImplTest {
         String currentUserEmail = "current@example.com";
         String targetEmail = "notfound@example.com";
 
-        User currentUser = new User();
-        currentUser.setEmail(currentUserEmail);
-
-        when(userRepository.findByEmail(currentUserEmail))
-                .thenReturn(Optional.of(currentUser));
-        when(userRepository.findByEmail(targetEmail))
+        when(userRepository.findIdByEmail(currentUserEmail))
+                .thenReturn(Optional.of(10L));
+        when(userRepository.findIdByEmail(targetEmail))
                 .thenReturn(Optional.empty());
 
         // Act & Assert
@@ -355,8 +454,8 @@ public class UserConnectionServiceImplTest {
         assertEquals("Utilisateur cible introuvable: " + targetEmail, exception.getMessage());
 
         // Vérifications
-        verify(userRepository, times(1)).findByEmail(currentUserEmail);
-        verify(userRepository, times(1)).findByEmail(targetEmail);
-        verify(userRepository, never()).save(any());
+        verify(userRepository, times(1)).findIdByEmail(currentUserEmail);
+        verify(userRepository, times(1)).findIdByEmail(targetEmail);
+        verify(userRepository, never()).deleteConnection(anyLong(), anyLong());
     }
 }
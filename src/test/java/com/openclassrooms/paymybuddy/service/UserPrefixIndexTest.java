@@ -0,0 +1,78 @@
+package com.openclassrooms.paymybuddy.service;
+
+import com.openclassrooms.paymybuddy.dto.ConnectionCard;
+import com.openclassrooms.paymybuddy.service.serviceImpl.UserPrefixIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class UserPrefixIndexTest {
+
+    private UserPrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserPrefixIndex();
+        index.load(List.of(
+                new ConnectionCard(1L, "Jean Dupont", "jean@gmail.com"),
+                new ConnectionCard(2L, "Jeanne Durand", "jdurand@gmail.com"),
+                new ConnectionCard(3L, "Éloïse Martin", "eloise@gmail.com")));
+    }
+
+    @Test
+    void search_shouldMatchEmailNameAndNameWordsWithoutAccents() {
+        log.info("search_shouldMatchEmailNameAndNameWordsWithoutAccents");
+        assertEquals(List.of(1L, 2L), index.search("jean", 10, id -> true));
+        assertEquals(List.of(1L, 2L), index.search("Du", 10, id -> true));
+        assertEquals(List.of(3L), index.search("ELOI", 10, id -> true));
+        assertEquals(List.of(2L), index.search("jdu", 10, id -> true));
+        assertEquals(List.of(1L), index.search("jean", 1, id -> true));
+        assertEquals(List.of(2L), index.search("jean", 10, id -> id != 1L));
+        assertTrue(index.search("zzz", 10, id -> true).isEmpty());
+    }
+
+    @Test
+    void put_shouldReplaceOldKeysBeforeAndAfterCompaction() {
+        log.info("put_shouldReplaceOldKeysBeforeAndAfterCompaction");
+        index.put(1L, "Marc Bernard", "mbernard@gmail.com");
+        index.put(4L, "Jeannot Petit", "jeannot@gmail.com");
+
+        assertEquals(List.of(2L, 4L), index.search("jean", 10, id -> true));
+        assertEquals(List.of(1L), index.search("bern", 10, id -> true));
+        assertTrue(index.search("dupont", 10, id -> true).isEmpty());
+        assertEquals(4, index.size());
+        assertEquals(2, index.pendingChanges());
+
+        index.compact();
+        assertEquals(0, index.pendingChanges());
+        assertEquals(List.of(2L, 4L), index.search("jean", 10, id -> true));
+        assertEquals(List.of(1L), index.search("bern", 10, id -> true));
+        assertEquals(new ConnectionCard(4L, "Jeannot Petit", "jeannot@gmail.com"), index.card(4L));
+    }
+
+    @Test
+    void remove_shouldHideUserAndCardLookup() {
+        log.info("remove_shouldHideUserAndCardLookup");
+        index.remove(2L);
+
+        assertEquals(List.of(1L), index.search("jean", 10, id -> true));
+        assertNull(index.card(2L));
+        assertEquals(2, index.size());
+        assertEquals(1L, index.idOfEmail(" JEAN@gmail.com"));
+        assertNull(index.idOfEmail("jdurand@gmail.com"));
+    }
+
+    @Test
+    void matches_shouldUseSameKeysAsSearch() {
+        log.info("matches_shouldUseSameKeysAsSearch");
+        ConnectionCard card = new ConnectionCard(3L, "Éloïse Martin", "eloise@gmail.com");
+        assertTrue(UserPrefixIndex.matches(card, UserPrefixIndex.normalize("Mar")));
+        assertTrue(UserPrefixIndex.matches(card, ""));
+        assertFalse(UserPrefixIndex.matches(card, "tin"));
+    }
+}
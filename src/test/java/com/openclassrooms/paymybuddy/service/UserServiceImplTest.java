@@ -6,7 +6,10 @@ import com.openclassrooms.paymybuddy.exception.InvalidPasswordException;
 import com.openclassrooms.paymybuddy.exception.PasswordMismatchException;
 import com.openclassrooms.paymybuddy.exception.UserNotFoundException;
 import com.openclassrooms.paymybuddy.repository.UserRepository;
+import com.openclassrooms.paymybuddy.service.serviceImpl.AutocompleteServiceImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.RelationsCache;
 import com.openclassrooms.paymybuddy.service.serviceImpl.SecurityValidationImpl;
+import com.openclassrooms.paymybuddy.service.serviceImpl.TransactionHistoryServiceImpl;
 import com.openclassrooms.paymybuddy.service.serviceImpl.UserServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -46,6 +49,12 @@ public class UserServiceImplTest {
     private PasswordEncoder passwordEncoder;
     @Mock
     private SecurityValidationImpl securityValidationImpl;
+    @Mock
+    private TransactionHistoryServiceImpl transactionHistoryService;
+    @Mock
+    private AutocompleteServiceImpl autocompleteService;
+    @Mock
+    private RelationsCache relationsCache;
 
     @InjectMocks
     private UserServiceImpl userService;
@@ -84,6 +93,7 @@ public class UserServiceImplTest {
         // Then
         verify(passwordEncoder).encode(plainPassword);
         verify(userRepository).save(testUser);
+        verify(autocompleteService).userSaved(testUser.getId(), testUser.getName(), testUser.getEmail());
         assertEquals(encodedPassword, testUser.getPassword());
 
         LOGGER.info("Encoded password after processing: {}", testUser.getPassword());
@@ -147,6 +157,7 @@ public class UserServiceImplTest {
         uploadDirField.set(userService, uploadPath.toString());
 
         User existingUser = new User();
+        existingUser.setId(3L);
         existingUser.setEmail("john@email.com");
         existingUser.setName("John");
         existingUser.setPassword("encodedPassword");
@@ -168,6 +179,8 @@ public class UserServiceImplTest {
         assertEquals("newUsername", updatedUser.getName());
         assertEquals("jane@gmail.com", updatedUser.getEmail());
         assertNotNull(updatedUser.getProfileImageUrl());
+        verify(transactionHistoryService).recordProfileNameChange(3L, "newUsername");
+        verify(relationsCache).profileChanged(3L);
 
         // Nettoyage
         Files.walk(uploadPath)